@@ -21,7 +21,10 @@ import com.ak.cardstore.R;
 import com.ak.cardstore.app.App;
 import com.ak.cardstore.configuration.UserConfigurationManager;
 
+import java.util.concurrent.Executor;
+
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import lombok.AllArgsConstructor;
 
@@ -30,6 +33,10 @@ public class LoginActivity extends AppCompatActivity {
     @Inject
     UserConfigurationManager userConfigurationManager;
 
+    @Inject
+    @Named("cryptoExecutor")
+    Executor cryptoExecutor;
+
     private LoginViewModel loginViewModel;
 
     @Override
@@ -43,7 +50,7 @@ public class LoginActivity extends AppCompatActivity {
 
         super.onCreate(savedInstanceState);
         this.setContentView(R.layout.activity_login);
-        this.loginViewModel = new ViewModelProvider(this, new LoginViewModelFactory())
+        this.loginViewModel = new ViewModelProvider(this, new LoginViewModelFactory(this.cryptoExecutor))
                 .get(LoginViewModel.class);
 
         final EditText passwordEditText = this.findViewById(R.id.passwordEditText);
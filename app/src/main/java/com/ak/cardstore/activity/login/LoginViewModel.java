@@ -1,5 +1,7 @@
 package com.ak.cardstore.activity.login;
 
+import android.util.Log;
+
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
@@ -8,39 +10,62 @@ import com.ak.cardstore.activity.login.data.Result;
 import com.ak.cardstore.exception.PasswordValidationException;
 import com.ak.cardstore.validation.PasswordValidator;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import lombok.AccessLevel;
 import lombok.Getter;
 
 public class LoginViewModel extends ViewModel {
 
+    private static final String LOG_TAG = LoginViewModel.class.getSimpleName();
+
+    private static final String LOGIN_ERROR = "Error logging in";
+
     @Getter(value = AccessLevel.PACKAGE)
     private final MutableLiveData<LoginFormState> loginFormStateLiveData;
     @Getter(value = AccessLevel.PACKAGE)
     private final MutableLiveData<LoginResult> loginResultLiveData;
     private final LoginRepository loginRepository;
     private final PasswordValidator passwordValidator;
+    private final Executor cryptoExecutor;
 
-    LoginViewModel(final LoginRepository loginRepository) {
+    LoginViewModel(final LoginRepository loginRepository, final Executor cryptoExecutor) {
         this.loginFormStateLiveData = new MutableLiveData<>();
         this.loginResultLiveData = new MutableLiveData<>();
         this.loginRepository = loginRepository;
+        this.cryptoExecutor = cryptoExecutor;
 
         this.passwordValidator = new PasswordValidator();
     }
 
     void login(final String password) {
-        final Result result = this.loginRepository.login(password);
-
-        if (result instanceof Result.Success) {
-            this.loginResultLiveData.setValue(new LoginResult(true));
-        } else {
-            final String loginError = Result.Error.class.cast(result)
-                    .getError()
-                    .getMessage();
-            this.loginResultLiveData.setValue(new LoginResult(loginError));
+        // Logging in reads the keys from the key store, so it runs on the crypto executor instead of the UI thread
+        try {
+            CompletableFuture.supplyAsync(() -> this.loginRepository.login(password), this.cryptoExecutor)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable != null) {
+                            this.onLoginFailed(throwable);
+                        } else if (result instanceof Result.Success) {
+                            this.loginResultLiveData.postValue(new LoginResult(true));
+                        } else {
+                            final String loginError = Result.Error.class.cast(result)
+                                    .getError()
+                                    .getMessage();
+                            this.loginResultLiveData.postValue(new LoginResult(loginError));
+                        }
+                    });
+        } catch (final RejectedExecutionException e) {
+            this.onLoginFailed(e);
         }
     }
 
+    private void onLoginFailed(final Throwable throwable) {
+        Log.e(LOG_TAG, LOGIN_ERROR, throwable);
+        this.loginResultLiveData.postValue(new LoginResult(LOGIN_ERROR));
+    }
+
     void loginDataChanged(final String password) {
         try {
             this.passwordValidator.validatePassword(password);
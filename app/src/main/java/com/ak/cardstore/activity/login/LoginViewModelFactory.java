@@ -7,18 +7,25 @@ import androidx.lifecycle.ViewModelProvider;
 import com.ak.cardstore.activity.login.data.LoginDataSource;
 import com.ak.cardstore.activity.login.data.LoginRepository;
 
+import java.util.concurrent.Executor;
+
+import lombok.AllArgsConstructor;
+
 /**
  * ViewModel provider factory to instantiate LoginViewModel.
  * Required given LoginViewModel has a non-empty constructor
  */
+@AllArgsConstructor
 public class LoginViewModelFactory implements ViewModelProvider.Factory {
 
+    private final Executor cryptoExecutor;
+
     @NonNull
     @Override
     @SuppressWarnings("unchecked")
     public <T extends ViewModel> T create(@NonNull final Class<T> modelClass) {
         if (modelClass.isAssignableFrom(LoginViewModel.class)) {
-            return (T) new LoginViewModel(LoginRepository.getInstance(new LoginDataSource()));
+            return (T) new LoginViewModel(LoginRepository.getInstance(new LoginDataSource()), this.cryptoExecutor);
         } else {
             throw new IllegalArgumentException("Unknown ViewModel class");
         }
@@ -1,5 +1,10 @@
 package com.ak.cardstore.activity.login.data;
 
+import android.util.Log;
+
+import com.ak.cardstore.app.App;
+import com.ak.cardstore.configuration.KeyRotationService;
+
 import java.io.IOException;
 
 /**
@@ -7,10 +12,21 @@ import java.io.IOException;
  */
 public class LoginDataSource {
 
+    private static final String LOG_TAG = LoginDataSource.class.getSimpleName();
+
     public Result login(final String password) {
 
         try {
             // TODO: handle loggedInUser authentication
+            // Continue re-encrypting the data left with a previous key, now that the password is known, only if a rotation
+            // was stopped before it finished
+            final KeyRotationService keyRotationService = App.getAppComponent().keyRotationService();
+            if (keyRotationService.isReencryptionPending()) {
+                // Loading the wallet fails with a wrong password, so the data is never re-encrypted with it. The loaded wallet
+                // is cached, so the wallet shown after the login is not decrypted again
+                App.getAppComponent().appConfigurationManager().load(password);
+                keyRotationService.resume(password);
+            }
             return new Result.Success();
         } catch (final Exception e) {
             return new Result.Error(new IOException("Error logging in", e));
@@ -19,5 +35,15 @@ public class LoginDataSource {
 
     public void logout() {
         // TODO: revoke authentication
+        App.getAppComponent().keyRotationService().stop();
+        // Save the wallet saved behind off the main thread, the pending wallet carries its own keys
+        App.getAppComponent().appConfigurationManager().flush().exceptionally(e -> {
+            Log.e(LOG_TAG, "Error saving the pending wallet on logout!", e);
+            return null;
+        });
+        App.getAppComponent().appConfigurationManager().evictCachedWallet();
+        App.getAppComponent().symmetricKeyRetriever().evictSessionKeys();
+        App.getAppComponent().passwordKeyDeriver().evictDerivedKeys();
+        App.getAppComponent().envelopeCipher().clearSessionDataKey();
     }
 }
@@ -1,26 +1,44 @@
 package com.ak.cardstore.activity.register;
 
+import android.app.Activity;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.ak.cardstore.R;
 import com.ak.cardstore.app.App;
 import com.ak.cardstore.configuration.UserConfigurationManager;
+import com.ak.cardstore.exception.PasswordValidationException;
+import com.ak.cardstore.pojo.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import lombok.AllArgsConstructor;
 
 public class RegisterActivity extends AppCompatActivity {
 
+    private static final String LOG_TAG = RegisterActivity.class.getSimpleName();
+
+    private static final String SAVE_USER_ERROR = "Error saving the user!";
+
     @Inject
     UserConfigurationManager userConfigurationManager;
 
+    @Inject
+    @Named("cryptoExecutor")
+    Executor cryptoExecutor;
+
     @Override
     protected void onCreate(final Bundle savedInstanceState) {
         App.getAppComponent().inject(this);
@@ -51,10 +69,46 @@ public class RegisterActivity extends AppCompatActivity {
         public void onClick(final View view) {
             this.registerLoadingProgressBar.setVisibility(View.VISIBLE);
 
-            // Check passwords match
-            // Check password validity
-            // Create user
-            // Save user
+            final String password = this.registerPasswordEditText.getText().toString();
+            if (!password.equals(this.confirmPasswordEditText.getText().toString())) {
+                this.confirmPasswordEditText.setError(RegisterActivity.this.getString(R.string.passwords_mismatch));
+                this.registerLoadingProgressBar.setVisibility(View.GONE);
+                return;
+            }
+
+            final User user;
+            try {
+                user = User.builder()
+                        .password(password)
+                        .build();
+            } catch (final PasswordValidationException e) {
+                this.registerPasswordEditText.setError(e.getMessage());
+                this.registerLoadingProgressBar.setVisibility(View.GONE);
+                return;
+            }
+
+            // Saving the user encrypts it with the keys from the key store, so it runs on the crypto executor instead of the UI thread
+            try {
+                CompletableFuture.runAsync(() -> RegisterActivity.this.userConfigurationManager.save(user),
+                        RegisterActivity.this.cryptoExecutor)
+                        .whenComplete((ignored, throwable) -> RegisterActivity.this.runOnUiThread(() -> this.onUserSaved(throwable)));
+            } catch (final RejectedExecutionException e) {
+                this.onUserSaved(e);
+            }
+        }
+
+        private void onUserSaved(final Throwable throwable) {
+            this.registerLoadingProgressBar.setVisibility(View.GONE);
+
+            if (throwable != null) {
+                Log.e(LOG_TAG, SAVE_USER_ERROR, throwable);
+                Toast.makeText(RegisterActivity.this.getApplicationContext(), R.string.register_failed, Toast.LENGTH_SHORT)
+                        .show();
+                return;
+            }
+
+            RegisterActivity.this.setResult(Activity.RESULT_OK);
+            RegisterActivity.this.finish();
         }
     }
 }
@@ -1,10 +1,14 @@
 package com.ak.cardstore.app;
 
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.util.Log;
 
+import com.ak.cardstore.BuildConfig;
 import com.ak.cardstore.app.component.AppComponent;
 import com.ak.cardstore.app.component.DaggerAppComponent;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
 
 /**
  * A utility class to provide the application properties.
@@ -14,6 +18,8 @@ import com.ak.cardstore.app.component.DaggerAppComponent;
 
 public class App extends Application {
 
+    private static final String LOG_TAG = App.class.getSimpleName();
+
     private static Context appContext;
     private static AppComponent appComponent;
 
@@ -21,8 +27,34 @@ public class App extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // The crypto hot path is instrumented in the debug builds only
+        CryptoMetrics.setEnabled(BuildConfig.DEBUG);
+
         appContext = this.getApplicationContext();
         appComponent = DaggerAppComponent.create();
+
+        // Generate the keys before the registration or login needs them
+        appComponent.keyWarmUpService().start();
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+
+        // The UI is hidden once the application goes to the background, the next unlock session retrieves the keys again
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Save the wallet saved behind off the main thread, the pending wallet carries its own keys
+            appComponent.appConfigurationManager().flush().exceptionally(e -> {
+                Log.e(LOG_TAG, "Error saving the pending wallet in the background!", e);
+                return null;
+            });
+
+            appComponent.appConfigurationManager().evictCachedWallet();
+
+            appComponent.symmetricKeyRetriever().evictSessionKeys();
+            appComponent.passwordKeyDeriver().evictDerivedKeys();
+            appComponent.envelopeCipher().clearSessionDataKey();
+        }
     }
 
     /**
@@ -2,7 +2,16 @@ package com.ak.cardstore.app.component;
 
 import com.ak.cardstore.activity.login.LoginActivity;
 import com.ak.cardstore.activity.register.RegisterActivity;
+import com.ak.cardstore.cipher.AsyncCipher;
+import com.ak.cardstore.cipher.KeyWarmUpService;
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyRetriever;
+import com.ak.cardstore.configuration.AppConfigurationManager;
+import com.ak.cardstore.configuration.KeyRotationService;
+import com.ak.cardstore.dagger.AsyncCipherModule;
 import com.ak.cardstore.dagger.ConfigurationModule;
+import com.ak.cardstore.dagger.KeyWarmUpModule;
 import com.ak.cardstore.dagger.ValidationModule;
 
 import javax.inject.Singleton;
@@ -16,7 +25,9 @@ import dagger.Component;
  */
 
 @Singleton
-@Component(modules = {ConfigurationModule.class,
+@Component(modules = {AsyncCipherModule.class,
+        ConfigurationModule.class,
+        KeyWarmUpModule.class,
         ValidationModule.class})
 public interface AppComponent {
 
@@ -33,4 +44,53 @@ public interface AppComponent {
      * @param registerActivity {@link RegisterActivity}
      */
     void inject(final RegisterActivity registerActivity);
+
+    /**
+     * Returns the {@link KeyWarmUpService}
+     *
+     * @return {@link KeyWarmUpService}
+     */
+    KeyWarmUpService keyWarmUpService();
+
+    /**
+     * Returns the {@link SymmetricKeyRetriever}
+     *
+     * @return {@link SymmetricKeyRetriever}
+     */
+    SymmetricKeyRetriever symmetricKeyRetriever();
+
+    /**
+     * Returns the {@link PasswordKeyDeriver}
+     *
+     * @return {@link PasswordKeyDeriver}
+     */
+    PasswordKeyDeriver passwordKeyDeriver();
+
+    /**
+     * Returns the {@link EnvelopeCipher}
+     *
+     * @return {@link EnvelopeCipher}
+     */
+    EnvelopeCipher envelopeCipher();
+
+    /**
+     * Returns the {@link AsyncCipher}
+     *
+     * @return {@link AsyncCipher}
+     */
+    AsyncCipher asyncCipher();
+
+    /**
+     * Returns the {@link KeyRotationService}
+     *
+     * @return {@link KeyRotationService}
+     */
+    KeyRotationService keyRotationService();
+
+    /**
+     * Returns the {@link AppConfigurationManager}
+     *
+     * @return {@link AppConfigurationManager}
+     */
+    AppConfigurationManager appConfigurationManager();
 }
@@ -0,0 +1,143 @@
+package com.ak.cardstore.cipher;
+
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+
+/**
+ * An asynchronous facade of {@link SymmetricKeyCipher} and {@link AsymmetricKeyPairCipher}, so the encryption and decryption
+ * never block the calling thread, e.g. the UI thread.
+ * <p>
+ * The operations run on the bounded crypto executor, so the concurrent save and load requests queue up instead of each taking
+ * a thread. The returned futures can be cancelled: a queued operation is then never run and a running one is interrupted. The
+ * operations submitted while the queue is full complete exceptionally with {@link RejectedExecutionException}.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class AsyncCipher {
+
+    private static final String LOG_TAG = AsyncCipher.class.getSimpleName();
+
+    private static final String OPERATION_REJECTED_ERROR = "Crypto executor rejected the operation, too many pending operations!";
+
+    private final SymmetricKeyCipher symmetricKeyCipher;
+    private final AsymmetricKeyPairCipher asymmetricKeyPairCipher;
+    private final ExecutorService cryptoExecutorService;
+
+    /**
+     * Encrypts the passed data asynchronously. See {@link SymmetricKeyCipher#encrypt(String, String)}.
+     *
+     * @param dataToEncrypt data to encrypt
+     * @param password      password to use for encryption
+     * @return future of the pair of <encrypted data, initial vector>
+     */
+    public CompletableFuture<ImmutablePair<String, String>> encrypt(@NonNull final String dataToEncrypt, @NonNull final String password) {
+        return this.submit(() -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
+    }
+
+    /**
+     * Decrypts the passed data asynchronously. See {@link SymmetricKeyCipher#decrypt(String, String, String)}.
+     *
+     * @param dataToDecrypt data to decrypt
+     * @param password      password to use for decryption
+     * @param initialVector initial vector to use for decryption
+     * @return future of the decrypted data
+     */
+    public CompletableFuture<String> decrypt(@NonNull final String dataToDecrypt, @NonNull final String password,
+                                             @NonNull final String initialVector) {
+        return this.submit(() -> this.symmetricKeyCipher.decrypt(dataToDecrypt, password, initialVector));
+    }
+
+    /**
+     * Encrypts the passed batch of data asynchronously. See {@link SymmetricKeyCipher#encrypt(List, String)}.
+     *
+     * @param dataToEncrypt batch of data to encrypt
+     * @param password      password to use for encryption
+     * @return future of the pairs of <encrypted data, initial vector>
+     */
+    public CompletableFuture<List<ImmutablePair<String, String>>> encrypt(@NonNull final List<String> dataToEncrypt,
+                                                                          @NonNull final String password) {
+        return this.submit(() -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
+    }
+
+    /**
+     * Decrypts the passed batch of data asynchronously. See {@link SymmetricKeyCipher#decrypt(List, String)}.
+     *
+     * @param dataToDecrypt batch of pairs of <encrypted data, initial vector> to decrypt
+     * @param password      password to use for decryption
+     * @return future of the decrypted data
+     */
+    public CompletableFuture<List<String>> decrypt(@NonNull final List<ImmutablePair<String, String>> dataToDecrypt,
+                                                   @NonNull final String password) {
+        return this.submit(() -> this.symmetricKeyCipher.decrypt(dataToDecrypt, password));
+    }
+
+    /**
+     * Encrypts the passed data with the asymmetric public key asynchronously. See {@link AsymmetricKeyPairCipher#encrypt(String)}.
+     *
+     * @param dataToEncrypt data to encrypt
+     * @return future of the encrypted data
+     */
+    public CompletableFuture<String> encryptWithKeyPair(@NonNull final String dataToEncrypt) {
+        return this.submit(() -> this.asymmetricKeyPairCipher.encrypt(dataToEncrypt));
+    }
+
+    /**
+     * Decrypts the passed data with the asymmetric private key asynchronously. See {@link AsymmetricKeyPairCipher#decrypt(String)}.
+     *
+     * @param dataToDecrypt data to decrypt
+     * @return future of the decrypted data
+     */
+    public CompletableFuture<String> decryptWithKeyPair(@NonNull final String dataToDecrypt) {
+        return this.submit(() -> this.asymmetricKeyPairCipher.decrypt(dataToDecrypt));
+    }
+
+    private <RESULT_TYPE> CompletableFuture<RESULT_TYPE> submit(final Supplier<RESULT_TYPE> operation) {
+        final CompletableFuture<RESULT_TYPE> result = new CompletableFuture<>();
+
+        final Future<?> task;
+        try {
+            task = this.cryptoExecutorService.submit(() -> {
+                // The future may have been cancelled while the operation was queued
+                if (result.isDone()) {
+                    return;
+                }
+
+                try {
+                    result.complete(operation.get());
+                } catch (final Throwable e) {
+                    // Also errors, e.g. out of memory, or the future would never complete
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            logError(LOG_TAG, Optional.of(e), OPERATION_REJECTED_ERROR);
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+
+        return result;
+    }
+}
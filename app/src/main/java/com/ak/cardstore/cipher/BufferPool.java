@@ -0,0 +1,130 @@
+package com.ak.cardstore.cipher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import lombok.NonNull;
+
+/**
+ * A bounded, thread-safe, size-classed pool of the byte[] buffers of the cipher pipeline.
+ * <p>
+ * The buffers are pooled in the power of two size classes from {@link #MIN_BUFFER_SIZE_BYTES} to {@link #MAX_BUFFER_SIZE_BYTES},
+ * so a borrowed buffer may be larger than requested and the borrower must track the length of the data in it. The buffers are
+ * zeroed when released, so neither the plain text nor the cipher text outlives the operation in the heap. The larger requests
+ * are served with a new buffer, which is zeroed but not pooled when released.
+ *
+ * @author Abhishek
+ */
+
+public class BufferPool {
+
+    public static final int MIN_BUFFER_SIZE_BYTES = 256;
+    public static final int MAX_BUFFER_SIZE_BYTES = 64 * 1024;
+    public static final int DEFAULT_MAX_POOLED_BUFFERS_PER_SIZE = 8;
+
+    private static final int MIN_BUFFER_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE_BYTES);
+    private static final int SIZE_CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE_BYTES) - MIN_BUFFER_SIZE_SHIFT + 1;
+    private static final int NO_SIZE_CLASS = -1;
+
+    private final List<BlockingQueue<byte[]>> pooledBuffers;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public BufferPool() {
+        this(DEFAULT_MAX_POOLED_BUFFERS_PER_SIZE);
+    }
+
+    public BufferPool(final int maxPooledBuffersPerSize) {
+        if (maxPooledBuffersPerSize <= 0) {
+            throw new IllegalArgumentException("Max pooled buffers per size must be positive, was " + maxPooledBuffersPerSize);
+        }
+
+        this.pooledBuffers = IntStream.range(0, SIZE_CLASS_COUNT)
+                .mapToObj(sizeClass -> new ArrayBlockingQueue<byte[]>(maxPooledBuffersPerSize))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Borrows a zeroed buffer of at least the given size.
+     *
+     * @param minSizeBytes minimum size of the buffer
+     * @return pooled buffer if available, new buffer otherwise
+     */
+    public byte[] borrow(final int minSizeBytes) {
+        if (minSizeBytes < 0) {
+            throw new IllegalArgumentException("Buffer size must not be negative, was " + minSizeBytes);
+        }
+
+        final int sizeClass = toSizeClass(minSizeBytes);
+        final byte[] buffer = (sizeClass == NO_SIZE_CLASS) ? null : this.pooledBuffers.get(sizeClass).poll();
+
+        if (buffer == null) {
+            this.missCount.incrementAndGet();
+            return new byte[(sizeClass == NO_SIZE_CLASS) ? minSizeBytes : toBufferSize(sizeClass)];
+        }
+
+        this.hitCount.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Zeroes the buffer and returns it to the pool. The buffer is dropped if it is not of a pooled size or the pool for its
+     * size is already full.
+     *
+     * @param buffer buffer to return
+     */
+    public void release(@NonNull final byte[] buffer) {
+        Arrays.fill(buffer, (byte) 0);
+
+        final int sizeClass = toSizeClass(buffer.length);
+        if (sizeClass != NO_SIZE_CLASS && buffer.length == toBufferSize(sizeClass)) {
+            this.pooledBuffers.get(sizeClass).offer(buffer);
+        }
+    }
+
+    /**
+     * Drops all the pooled buffers.
+     */
+    public void clear() {
+        this.pooledBuffers.forEach(BlockingQueue::clear);
+    }
+
+    /**
+     * Returns the number of borrow requests served from the pool.
+     *
+     * @return number of pool hits
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the number of borrow requests that could not be served from the pool.
+     *
+     * @return number of pool misses
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private static int toSizeClass(final int sizeBytes) {
+        if (sizeBytes > MAX_BUFFER_SIZE_BYTES) {
+            return NO_SIZE_CLASS;
+        }
+
+        if (sizeBytes <= MIN_BUFFER_SIZE_BYTES) {
+            return 0;
+        }
+
+        return Integer.SIZE - Integer.numberOfLeadingZeros(sizeBytes - 1) - MIN_BUFFER_SIZE_SHIFT;
+    }
+
+    private static int toBufferSize(final int sizeClass) {
+        return MIN_BUFFER_SIZE_BYTES << sizeClass;
+    }
+}
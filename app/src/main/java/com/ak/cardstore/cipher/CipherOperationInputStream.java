@@ -0,0 +1,173 @@
+package com.ak.cardstore.cipher;
+
+import android.util.Log;
+
+import com.ak.cardstore.exception.CipherOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+import lombok.NonNull;
+
+/**
+ * An {@link InputStream} which reads the underlying stream in fixed-size chunks and returns the data run through the
+ * {@link Cipher}.
+ * <p>
+ * Unlike {@link javax.crypto.CipherInputStream}, a failure of the final cipher operation is not swallowed but surfaced as
+ * {@link CipherOperationException}. {@link #finish()} consumes the rest of the underlying stream so that the final cipher
+ * operation runs even if the reader stops early.
+ * <p>
+ * The chunks and the cipher output live in the buffers borrowed from the {@link BufferPool}, which are zeroed and returned
+ * once the stream is finished, released or closed.
+ * <p>
+ * The memory is only bounded by the chunk size if the cipher returns its output chunk by chunk. A GCM decryption returns
+ * nothing before the authentication tag is verified, so the cipher buffers the whole cipher text until the final cipher
+ * operation, which then returns all the plain text at once in a buffer of the size of the data.
+ *
+ * @author Abhishek
+ */
+
+public class CipherOperationInputStream extends InputStream {
+
+    private static final String LOG_TAG = CipherOperationInputStream.class.getSimpleName();
+
+    private final Cipher cipher;
+    private final InputStream inputStream;
+    private final String operationErrorMessage;
+    private final int chunkSizeBytes;
+    private final BufferPool bufferPool;
+    private final byte[] singleByte = new byte[1];
+
+    private byte[] inputBuffer;
+    private byte[] outputBuffer;
+    private int outputBufferLength;
+    private int outputBufferPosition;
+    private boolean finished;
+
+    CipherOperationInputStream(@NonNull final Cipher cipher, @NonNull final InputStream inputStream,
+                               @NonNull final String operationErrorMessage, final int chunkSizeBytes,
+                               @NonNull final BufferPool bufferPool) {
+        this.cipher = cipher;
+        this.inputStream = inputStream;
+        this.operationErrorMessage = operationErrorMessage;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int read = this.read(this.singleByte, 0, 1);
+        final int singleByte = this.singleByte[0] & 0xFF;
+        this.singleByte[0] = 0;
+        return (read == -1) ? -1 : singleByte;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (this.outputBufferPosition >= this.outputBufferLength) {
+            if (this.finished) {
+                return -1;
+            }
+
+            this.fillOutputBuffer();
+        }
+
+        final int bytesToCopy = Math.min(len, this.outputBufferLength - this.outputBufferPosition);
+        System.arraycopy(this.outputBuffer, this.outputBufferPosition, b, off, bytesToCopy);
+        this.outputBufferPosition += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    @Override
+    public int available() {
+        return this.outputBufferLength - this.outputBufferPosition;
+    }
+
+    /**
+     * Consumes and discards the rest of the underlying stream, completing the cipher operation.
+     */
+    public void finish() throws IOException {
+        try {
+            while (!this.finished) {
+                this.fillOutputBuffer();
+            }
+        } finally {
+            this.releaseBuffers();
+        }
+    }
+
+    /**
+     * Abandons the cipher operation, e.g. when the reader fails, and returns the borrowed buffers without consuming or closing
+     * the underlying stream. Nothing can be read afterwards.
+     */
+    public void release() {
+        this.finished = true;
+        this.releaseBuffers();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.releaseBuffers();
+        this.inputStream.close();
+    }
+
+    private void fillOutputBuffer() throws IOException {
+        if (this.inputBuffer == null) {
+            this.inputBuffer = this.bufferPool.borrow(this.chunkSizeBytes);
+        }
+
+        final int read = this.inputStream.read(this.inputBuffer, 0, this.chunkSizeBytes);
+
+        try {
+            if (read == -1) {
+                this.finished = true;
+                final byte[] outputText = this.borrowOutputBuffer(this.cipher.getOutputSize(0));
+                this.outputBufferLength = this.cipher.doFinal(outputText, 0);
+            } else {
+                final byte[] outputText = this.borrowOutputBuffer(this.cipher.getOutputSize(read));
+                this.outputBufferLength = this.cipher.update(this.inputBuffer, 0, read, outputText, 0);
+            }
+        } catch (final BadPaddingException | IllegalBlockSizeException | ShortBufferException e) {
+            Log.e(LOG_TAG, this.operationErrorMessage, e);
+            throw new CipherOperationException(this.operationErrorMessage, e);
+        }
+
+        this.outputBufferPosition = 0;
+    }
+
+    private byte[] borrowOutputBuffer(final int minSizeBytes) {
+        if (this.outputBuffer == null || this.outputBuffer.length < minSizeBytes) {
+            if (this.outputBuffer != null) {
+                this.bufferPool.release(this.outputBuffer);
+            }
+
+            this.outputBuffer = this.bufferPool.borrow(minSizeBytes);
+        }
+
+        return this.outputBuffer;
+    }
+
+    private void releaseBuffers() {
+        if (this.inputBuffer != null) {
+            this.bufferPool.release(this.inputBuffer);
+            this.inputBuffer = null;
+        }
+
+        if (this.outputBuffer != null) {
+            this.bufferPool.release(this.outputBuffer);
+            this.outputBuffer = null;
+        }
+
+        this.outputBufferLength = 0;
+        this.outputBufferPosition = 0;
+    }
+}
@@ -0,0 +1,150 @@
+package com.ak.cardstore.cipher;
+
+import android.util.Log;
+
+import com.ak.cardstore.exception.CipherOperationException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+import lombok.NonNull;
+
+/**
+ * An {@link OutputStream} which runs the written data through the {@link Cipher} in chunks of at most the chunk size and writes
+ * the cipher output to the underlying stream, so even a single large write only needs an output buffer of about one chunk.
+ * <p>
+ * Unlike {@link javax.crypto.CipherOutputStream}, a failure of the final cipher operation is not swallowed but surfaced as
+ * {@link CipherOperationException}. {@link #finish()} completes the cipher operation without closing the underlying stream.
+ * The cipher output is written to a buffer borrowed from the {@link BufferPool}, which is zeroed and returned once the cipher
+ * operation is finished or abandoned by {@link #release()}.
+ *
+ * @author Abhishek
+ */
+
+public class CipherOperationOutputStream extends FilterOutputStream {
+
+    private static final String LOG_TAG = CipherOperationOutputStream.class.getSimpleName();
+
+    private final Cipher cipher;
+    private final String operationErrorMessage;
+    private final int chunkSizeBytes;
+    private final BufferPool bufferPool;
+    private final byte[] singleByte = new byte[1];
+
+    private byte[] outputBuffer;
+    private boolean finished;
+
+    CipherOperationOutputStream(@NonNull final Cipher cipher, @NonNull final OutputStream outputStream,
+                                @NonNull final String operationErrorMessage, final int chunkSizeBytes,
+                                @NonNull final BufferPool bufferPool) {
+        super(outputStream);
+
+        this.cipher = cipher;
+        this.operationErrorMessage = operationErrorMessage;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.singleByte[0] = (byte) b;
+        try {
+            this.write(this.singleByte, 0, 1);
+        } finally {
+            this.singleByte[0] = 0;
+        }
+    }
+
+    @Override
+    public void write(@NonNull final byte[] b, final int off, final int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Cipher operation is already finished");
+        }
+
+        for (int chunkOffset = off; chunkOffset < off + len; chunkOffset += this.chunkSizeBytes) {
+            this.update(b, chunkOffset, Math.min(this.chunkSizeBytes, off + len - chunkOffset));
+        }
+    }
+
+    private void update(final byte[] b, final int off, final int len) throws IOException {
+        final byte[] outputText = this.borrowOutputBuffer(this.cipher.getOutputSize(len));
+        final int outputLength;
+        try {
+            outputLength = this.cipher.update(b, off, len, outputText, 0);
+        } catch (final ShortBufferException e) {
+            Log.e(LOG_TAG, this.operationErrorMessage, e);
+            throw new CipherOperationException(this.operationErrorMessage, e);
+        }
+
+        this.out.write(outputText, 0, outputLength);
+    }
+
+    /**
+     * Completes the cipher operation and writes the remaining cipher output to the underlying stream. The underlying stream
+     * is flushed but not closed.
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+
+        this.finished = true;
+
+        try {
+            final byte[] outputText = this.borrowOutputBuffer(this.cipher.getOutputSize(0));
+            final int outputLength;
+            try {
+                outputLength = this.cipher.doFinal(outputText, 0);
+            } catch (final BadPaddingException | IllegalBlockSizeException | ShortBufferException e) {
+                Log.e(LOG_TAG, this.operationErrorMessage, e);
+                throw new CipherOperationException(this.operationErrorMessage, e);
+            }
+
+            this.out.write(outputText, 0, outputLength);
+        } finally {
+            this.releaseOutputBuffer();
+        }
+
+        this.out.flush();
+    }
+
+    /**
+     * Abandons the cipher operation, e.g. when the writer fails, and returns the borrowed buffer without writing anything more
+     * to the underlying stream. Does nothing once the cipher operation is finished.
+     */
+    public void release() {
+        this.finished = true;
+        this.releaseOutputBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            super.close();
+        }
+    }
+
+    private byte[] borrowOutputBuffer(final int minSizeBytes) {
+        if (this.outputBuffer == null || this.outputBuffer.length < minSizeBytes) {
+            this.releaseOutputBuffer();
+            this.outputBuffer = this.bufferPool.borrow(minSizeBytes);
+        }
+
+        return this.outputBuffer;
+    }
+
+    private void releaseOutputBuffer() {
+        if (this.outputBuffer != null) {
+            this.bufferPool.release(this.outputBuffer);
+            this.outputBuffer = null;
+        }
+    }
+}
@@ -3,21 +3,53 @@ package com.ak.cardstore.cipher;
 import android.util.Log;
 
 import com.ak.cardstore.exception.CipherOperationException;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.StringUtil.base64StringToByteArray;
+import static com.ak.cardstore.util.StringUtil.maxBase64DecodedLength;
+import static com.ak.cardstore.util.StringUtil.maxUTF8Length;
+import static com.ak.cardstore.util.StringUtil.toBase64String;
+import static com.ak.cardstore.util.StringUtil.toUTF8ByteArray;
+import static com.ak.cardstore.util.StringUtil.toUTF8String;
 
 /**
  * An operator class to do the cipher operation
+ * <p>
+ * Besides the single shot operation on a byte array, the data can be streamed through the cipher in chunks of
+ * {@link #STREAM_CHUNK_SIZE_BYTES} bytes, so the memory used is independent of the size of the data. The streamed chunks and the
+ * plain text and the cipher text of the {@link String} operations live in the buffers borrowed from the {@link BufferPool}, so
+ * these operations allocate almost nothing and leave no copy of the data in the heap.
  *
  * @author Abhishek
  */
 
 public class CipherOperator {
 
+    public static final int STREAM_CHUNK_SIZE_BYTES = 8 * 1024;
+
     private static final String LOG_TAG = CipherOperator.class.getSimpleName();
 
+    private final BufferPool bufferPool;
+
+    public CipherOperator() {
+        this(new BufferPool());
+    }
+
+    public CipherOperator(@NonNull final BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
     /**
      * Does the cipher operation and returns the output data.
      *
@@ -27,14 +59,148 @@ public class CipherOperator {
      * @return cipher operation output
      */
     public byte[] doCipherOperation(final Cipher cipher, final byte[] dataToOperate, final String operationErrorMessage) {
+        final long startNanos = CryptoMetrics.start();
         final byte[] outputText;
         try {
             outputText = cipher.doFinal(dataToOperate);
         } catch (final BadPaddingException | IllegalBlockSizeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.CIPHER_OPERATION, startNanos, e);
             Log.e(LOG_TAG, operationErrorMessage, e);
             throw new CipherOperationException(operationErrorMessage, e);
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.CIPHER_OPERATION, startNanos, e);
+            throw e;
         }
 
+        CryptoMetrics.recordSuccess(CryptoMetrics.CIPHER_OPERATION, startNanos, dataToOperate.length);
         return outputText;
     }
+
+    /**
+     * Streams the input data through the cipher in fixed-size chunks and writes the output data to the output stream.
+     * Neither of the streams is closed.
+     *
+     * @param cipher                cipher
+     * @param inputStream           stream of the data to operate on
+     * @param outputStream          stream to write the cipher operation output to
+     * @param operationErrorMessage error message if operation fails
+     */
+    public void doCipherOperation(@NonNull final Cipher cipher, @NonNull final InputStream inputStream,
+                                  @NonNull final OutputStream outputStream, final String operationErrorMessage) throws IOException {
+        final CipherOperationOutputStream cipherOperationOutputStream = this.wrap(cipher, outputStream, operationErrorMessage);
+
+        final byte[] chunk = this.bufferPool.borrow(STREAM_CHUNK_SIZE_BYTES);
+        try {
+            int read = inputStream.read(chunk, 0, STREAM_CHUNK_SIZE_BYTES);
+            while (read != -1) {
+                cipherOperationOutputStream.write(chunk, 0, read);
+                read = inputStream.read(chunk, 0, STREAM_CHUNK_SIZE_BYTES);
+            }
+
+            cipherOperationOutputStream.finish();
+        } finally {
+            this.bufferPool.release(chunk);
+        }
+    }
+
+    /**
+     * Encrypts the UTF_8 bytes of the passed data and returns the Base64 encoded cipher text. The plain text and the cipher
+     * text bytes live only in the pooled buffers, which are zeroed once the operation is done.
+     *
+     * @param cipher                cipher initialized for the encryption
+     * @param dataToEncrypt         data to encrypt
+     * @param operationErrorMessage error message if operation fails
+     * @return Base64 encoded cipher text
+     */
+    public String encryptToBase64String(@NonNull final Cipher cipher, @NonNull final String dataToEncrypt,
+                                        final String operationErrorMessage) {
+        final byte[] plainText = this.bufferPool.borrow(maxUTF8Length(dataToEncrypt));
+        try {
+            final int plainTextLength = toUTF8ByteArray(dataToEncrypt, plainText);
+
+            final byte[] cipherText = this.bufferPool.borrow(cipher.getOutputSize(plainTextLength));
+            try {
+                final int cipherTextLength = this.doCipherOperation(cipher, plainText, plainTextLength, cipherText, operationErrorMessage);
+                return toBase64String(cipherText, cipherTextLength);
+            } finally {
+                this.bufferPool.release(cipherText);
+            }
+        } finally {
+            this.bufferPool.release(plainText);
+        }
+    }
+
+    /**
+     * Decrypts the passed Base64 encoded cipher text and returns the UTF_8 plain text. The cipher text and the plain text
+     * bytes live only in the pooled buffers, which are zeroed once the operation is done.
+     *
+     * @param cipher                cipher initialized for the decryption
+     * @param dataToDecrypt         Base64 encoded cipher text to decrypt
+     * @param operationErrorMessage error message if operation fails
+     * @return decrypted data
+     */
+    public String decryptFromBase64String(@NonNull final Cipher cipher, @NonNull final String dataToDecrypt,
+                                          final String operationErrorMessage) {
+        final byte[] cipherText = this.bufferPool.borrow(maxBase64DecodedLength(dataToDecrypt));
+        try {
+            final int cipherTextLength = base64StringToByteArray(dataToDecrypt, cipherText);
+
+            final byte[] plainText = this.bufferPool.borrow(cipher.getOutputSize(cipherTextLength));
+            try {
+                final int plainTextLength = this.doCipherOperation(cipher, cipherText, cipherTextLength, plainText, operationErrorMessage);
+                return toUTF8String(plainText, plainTextLength);
+            } finally {
+                this.bufferPool.release(plainText);
+            }
+        } finally {
+            this.bufferPool.release(cipherText);
+        }
+    }
+
+    /**
+     * Wraps the output stream, so that the data written to the returned stream is run through the cipher before it reaches
+     * the output stream.
+     *
+     * @param cipher                cipher
+     * @param outputStream          stream to write the cipher operation output to
+     * @param operationErrorMessage error message if operation fails
+     * @return {@link CipherOperationOutputStream}
+     */
+    public CipherOperationOutputStream wrap(@NonNull final Cipher cipher, @NonNull final OutputStream outputStream,
+                                            @NonNull final String operationErrorMessage) {
+        return new CipherOperationOutputStream(cipher, outputStream, operationErrorMessage, STREAM_CHUNK_SIZE_BYTES,
+                this.bufferPool);
+    }
+
+    /**
+     * Wraps the input stream, so that the data read from the returned stream is the input data run through the cipher.
+     *
+     * @param cipher                cipher
+     * @param inputStream           stream of the data to operate on
+     * @param operationErrorMessage error message if operation fails
+     * @return {@link CipherOperationInputStream}
+     */
+    public CipherOperationInputStream wrap(@NonNull final Cipher cipher, @NonNull final InputStream inputStream,
+                                           @NonNull final String operationErrorMessage) {
+        return new CipherOperationInputStream(cipher, inputStream, operationErrorMessage, STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+    }
+
+    private int doCipherOperation(final Cipher cipher, final byte[] dataToOperate, final int dataLength, final byte[] output,
+                                  final String operationErrorMessage) {
+        final long startNanos = CryptoMetrics.start();
+        final int outputLength;
+        try {
+            outputLength = cipher.doFinal(dataToOperate, 0, dataLength, output, 0);
+        } catch (final BadPaddingException | IllegalBlockSizeException | ShortBufferException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.CIPHER_OPERATION, startNanos, e);
+            Log.e(LOG_TAG, operationErrorMessage, e);
+            throw new CipherOperationException(operationErrorMessage, e);
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.CIPHER_OPERATION, startNanos, e);
+            throw e;
+        }
+
+        CryptoMetrics.recordSuccess(CryptoMetrics.CIPHER_OPERATION, startNanos, dataLength);
+        return outputLength;
+    }
 }
@@ -0,0 +1,106 @@
+package com.ak.cardstore.cipher;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Cipher;
+
+import lombok.NonNull;
+
+/**
+ * A bounded, thread-safe pool of {@link Cipher} instances keyed by the cipher transformation and the operation mode.
+ * <p>
+ * Pooled ciphers are handed out as is and must be re-initialized with the key and the initial vector by the borrower.
+ *
+ * @author Abhishek
+ */
+
+public class CipherPool {
+
+    public static final int DEFAULT_MAX_POOLED_CIPHERS_PER_KEY = 4;
+
+    private static final char POOL_KEY_SEPARATOR = '#';
+
+    private final int maxPooledCiphersPerKey;
+    private final ConcurrentMap<String, BlockingQueue<Cipher>> pooledCiphers = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CipherPool() {
+        this(DEFAULT_MAX_POOLED_CIPHERS_PER_KEY);
+    }
+
+    public CipherPool(final int maxPooledCiphersPerKey) {
+        if (maxPooledCiphersPerKey <= 0) {
+            throw new IllegalArgumentException("Max pooled ciphers per key must be positive, was " + maxPooledCiphersPerKey);
+        }
+
+        this.maxPooledCiphersPerKey = maxPooledCiphersPerKey;
+    }
+
+    /**
+     * Borrows a pooled {@link Cipher} for the given transformation and operation mode.
+     *
+     * @param cipherTransformation cipher transformation
+     * @param opMode               operation mode of the cipher
+     * @return pooled {@link Cipher} if available, empty otherwise
+     */
+    public Optional<Cipher> borrow(@NonNull final String cipherTransformation, final int opMode) {
+        final BlockingQueue<Cipher> ciphers = this.pooledCiphers.get(toPoolKey(cipherTransformation, opMode));
+        final Cipher cipher = (ciphers == null) ? null : ciphers.poll();
+
+        if (cipher == null) {
+            this.missCount.incrementAndGet();
+        } else {
+            this.hitCount.incrementAndGet();
+        }
+
+        return Optional.ofNullable(cipher);
+    }
+
+    /**
+     * Returns the {@link Cipher} to the pool. The cipher is dropped if the pool for the given key is already full.
+     *
+     * @param cipherTransformation cipher transformation the cipher was created for
+     * @param opMode               operation mode the cipher was initialized with
+     * @param cipher               cipher to return
+     */
+    public void release(@NonNull final String cipherTransformation, final int opMode, @NonNull final Cipher cipher) {
+        this.pooledCiphers.computeIfAbsent(toPoolKey(cipherTransformation, opMode),
+                poolKey -> new ArrayBlockingQueue<>(this.maxPooledCiphersPerKey))
+                .offer(cipher);
+    }
+
+    /**
+     * Drops all the pooled ciphers.
+     */
+    public void clear() {
+        this.pooledCiphers.clear();
+    }
+
+    /**
+     * Returns the number of borrow requests served from the pool.
+     *
+     * @return number of pool hits
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the number of borrow requests that could not be served from the pool.
+     *
+     * @return number of pool misses
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private static String toPoolKey(final String cipherTransformation, final int opMode) {
+        return cipherTransformation + POOL_KEY_SEPARATOR + opMode;
+    }
+}
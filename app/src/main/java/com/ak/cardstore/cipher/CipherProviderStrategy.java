@@ -0,0 +1,225 @@
+package com.ak.cardstore.cipher;
+
+import android.util.Log;
+
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+
+/**
+ * A class to choose the security provider the {@link Cipher} of a transformation is created with.
+ * <p>
+ * The first time a transformation is used with a software key, every installed provider supporting it is benchmarked in the
+ * background by encrypting {@link #BENCHMARK_DATA_LENGTH} bytes {@link #BENCHMARK_ROUNDS} times with a software key of the same
+ * algorithm. The providers are ordered from the fastest to the slowest and the order is saved to the shared preferences, so the
+ * benchmark runs once per installation. Until the benchmark completes, and for the transformations without a software key
+ * generator (e.g. RSA), the default provider is used.
+ * <p>
+ * The keys kept by the Android key store only work with the key store provider, which the default provider selection picks, so
+ * they are never given a provider chain. The caller tells the {@link KeyKind}, as a key store key cannot be told apart from a
+ * software key reliably by the key itself.
+ * <p>
+ * A provider of the chain can still fail to create the cipher of the transformation, e.g. if it was uninstalled or updated since
+ * the benchmark. {@link CipherRetriever} reports such failures by {@link #reportUnsupportedProvider(String, Provider,
+ * GeneralSecurityException)} and the provider is left out of the chain of the transformation from then on.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class CipherProviderStrategy {
+
+    private static final String LOG_TAG = CipherProviderStrategy.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String PROVIDER_PREFERENCES_FILE_NAME = "com.ak.cardstore.cipher.provider";
+    @VisibleForTesting
+    static final String PROVIDER_NAME_SEPARATOR = ",";
+    @VisibleForTesting
+    static final int BENCHMARK_DATA_LENGTH = 4096;
+    @VisibleForTesting
+    static final int BENCHMARK_ROUNDS = 32;
+
+    private static final String CIPHER_TRANSFORMATION_SEPARATOR = "/";
+    private static final char UNSUPPORTED_PROVIDER_KEY_SEPARATOR = '#';
+
+    private static final String BENCHMARK_ERROR = "Error benchmarking the provider %s for the transformation %s";
+    private static final String PROVIDER_CHAIN_ERROR = "Error choosing the providers for the transformation %s";
+    private static final String UNSUPPORTED_PROVIDER_ERROR = "Provider %s failed to create the cipher for the transformation %s";
+
+    private final SharedPreferencesDataAccessor sharedPreferencesDataAccessor;
+    private final ExecutorService benchmarkExecutorService;
+
+    private final ConcurrentMap<String, CompletableFuture<List<Provider>>> providerChains = new ConcurrentHashMap<>();
+    private final Set<String> unsupportedProviders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns the providers to create the {@link Cipher} of the transformation with for the given kind of key, from the fastest
+     * to the slowest. The first call for a transformation starts the benchmark in the background. An empty chain means that the
+     * default provider should be used, which is always the case for the keys kept by the Android key store and until the
+     * benchmark completes.
+     *
+     * @param cipherTransformation cipher transformation
+     * @param keyKind              kind of the key the cipher is initialized with
+     * @return chain of {@link Provider}s to try in order
+     */
+    public List<Provider> getProviderChain(@NonNull final String cipherTransformation, @NonNull final KeyKind keyKind) {
+        if (keyKind == KeyKind.KEY_STORE) {
+            return new ArrayList<>();
+        }
+
+        return this.providerChains.computeIfAbsent(cipherTransformation, this::loadProviderChain)
+                .getNow(new ArrayList<>())
+                .stream()
+                .filter(provider -> !this.unsupportedProviders.contains(toUnsupportedProviderKey(cipherTransformation, provider)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Records that the provider failed to create the {@link Cipher} of the transformation, so the provider is left out of the
+     * chain of the transformation.
+     *
+     * @param cipherTransformation cipher transformation
+     * @param provider             provider which failed
+     * @param cause                failure of the provider
+     */
+    public void reportUnsupportedProvider(@NonNull final String cipherTransformation, @NonNull final Provider provider,
+                                          @NonNull final GeneralSecurityException cause) {
+        logError(LOG_TAG, Optional.of(cause), UNSUPPORTED_PROVIDER_ERROR, provider.getName(), cipherTransformation);
+        this.unsupportedProviders.add(toUnsupportedProviderKey(cipherTransformation, provider));
+    }
+
+    /**
+     * Returns the installed providers supporting the transformation.
+     *
+     * @param cipherTransformation cipher transformation
+     * @return {@link Provider}s supporting the transformation
+     */
+    public List<Provider> getInstalledProviders(@NonNull final String cipherTransformation) {
+        final List<Provider> installedProviders = new ArrayList<>();
+        for (final Provider provider : Security.getProviders()) {
+            try {
+                Cipher.getInstance(cipherTransformation, provider);
+                installedProviders.add(provider);
+            } catch (final GeneralSecurityException e) {
+                // The provider does not support the transformation
+            }
+        }
+
+        return installedProviders;
+    }
+
+    /**
+     * Benchmarks the installed providers supporting the transformation and returns the ones that work, from the fastest to the
+     * slowest.
+     *
+     * @param cipherTransformation cipher transformation
+     * @return benchmarked {@link Provider}s, empty if the transformation cannot be benchmarked
+     */
+    @VisibleForTesting
+    List<Provider> benchmark(final String cipherTransformation) {
+        final String keyAlgorithm = cipherTransformation.split(CIPHER_TRANSFORMATION_SEPARATOR)[0];
+
+        final Key benchmarkKey;
+        try {
+            benchmarkKey = KeyGenerator.getInstance(keyAlgorithm).generateKey();
+        } catch (final NoSuchAlgorithmException e) {
+            Log.i(LOG_TAG, "No key generator to benchmark " + cipherTransformation + ", using the default provider.");
+            return new ArrayList<>();
+        }
+
+        final byte[] benchmarkData = new byte[BENCHMARK_DATA_LENGTH];
+        new SecureRandom().nextBytes(benchmarkData);
+
+        final List<ImmutablePair<Provider, Long>> benchmarkResults = new ArrayList<>();
+        for (final Provider provider : this.getInstalledProviders(cipherTransformation)) {
+            try {
+                benchmarkResults.add(ImmutablePair.of(provider, benchmark(cipherTransformation, provider, benchmarkKey, benchmarkData)));
+            } catch (final GeneralSecurityException | RuntimeException e) {
+                logError(LOG_TAG, Optional.of(e), BENCHMARK_ERROR, provider.getName(), cipherTransformation);
+            }
+        }
+
+        benchmarkResults.sort(Comparator.comparing(ImmutablePair::getRight));
+        Log.i(LOG_TAG, "Benchmarked the providers for " + cipherTransformation + ": " + benchmarkResults);
+
+        return benchmarkResults.stream()
+                .map(ImmutablePair::getLeft)
+                .collect(Collectors.toList());
+    }
+
+    private CompletableFuture<List<Provider>> loadProviderChain(final String cipherTransformation) {
+        final Optional<String> optionalProviderNames = Optional.ofNullable(
+                this.sharedPreferencesDataAccessor.get(PROVIDER_PREFERENCES_FILE_NAME, cipherTransformation));
+        if (optionalProviderNames.isPresent()) {
+            return CompletableFuture.completedFuture(Arrays.stream(StringUtils.split(optionalProviderNames.get(), PROVIDER_NAME_SEPARATOR))
+                    .map(Security::getProvider)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+        }
+
+        return CompletableFuture.supplyAsync(() -> this.benchmarkAndSave(cipherTransformation), this.benchmarkExecutorService)
+                .exceptionally(e -> {
+                    logError(LOG_TAG, Optional.of(e), PROVIDER_CHAIN_ERROR, cipherTransformation);
+                    return new ArrayList<>();
+                });
+    }
+
+    private List<Provider> benchmarkAndSave(final String cipherTransformation) {
+        final List<Provider> providerChain = this.benchmark(cipherTransformation);
+        this.sharedPreferencesDataAccessor.save(PROVIDER_PREFERENCES_FILE_NAME, cipherTransformation, providerChain.stream()
+                .map(Provider::getName)
+                .collect(Collectors.joining(PROVIDER_NAME_SEPARATOR)));
+        return providerChain;
+    }
+
+    private static long benchmark(final String cipherTransformation, final Provider provider, final Key benchmarkKey,
+                                  final byte[] benchmarkData) throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(cipherTransformation, provider);
+
+        // Warms the provider up, so its initialization is not counted
+        cipher.init(Cipher.ENCRYPT_MODE, benchmarkKey);
+        cipher.doFinal(benchmarkData);
+
+        final long benchmarkStartNanos = System.nanoTime();
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            cipher.init(Cipher.ENCRYPT_MODE, benchmarkKey);
+            cipher.doFinal(benchmarkData);
+        }
+
+        return System.nanoTime() - benchmarkStartNanos;
+    }
+
+    private static String toUnsupportedProviderKey(final String cipherTransformation, final Provider provider) {
+        return cipherTransformation + UNSUPPORTED_PROVIDER_KEY_SEPARATOR + provider.getName();
+    }
+}
@@ -1,35 +1,68 @@
 package com.ak.cardstore.cipher;
 
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.KeyProperties;
+import android.security.keystore.UserNotAuthenticatedException;
 import android.util.Log;
 
 import com.ak.cardstore.exception.CipherRetrievalException;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
 
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.spec.AlgorithmParameterSpec;
 import java.util.Optional;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
 import static com.ak.cardstore.util.LoggerUtil.logError;
 
 /**
  * A class to retrieve the {@link javax.crypto.Cipher}.
+ * <p>
+ * Ciphers are borrowed from the {@link CipherPool} and only re-initialized with the key and the initial vector, so the provider
+ * lookup is paid once per pooled cipher. Retrieved ciphers should be handed back with
+ * {@link #release(String, int, Cipher, KeyKind)}. A cipher stays bound to the provider of the first key it is initialized with,
+ * so the ciphers of the keys kept by the Android key store and of the software keys are pooled apart by their {@link KeyKind}.
+ * <p>
+ * New ciphers of the software keys are created with the providers chosen by the {@link CipherProviderStrategy}, from the
+ * fastest to the slowest. If a provider does not support the transformation or fails to initialize the cipher with the key and
+ * the initial vector, it is reported and the next one is tried, and the default provider is the last resort. A key store key
+ * which requires the user authentication or was permanently invalidated is not a failure of the provider and fails the
+ * retrieval right away.
+ * <p>
+ * The initial vector is passed as {@link GCMParameterSpec} with a {@link #GCM_TAG_LENGTH_BITS} bit tag for the GCM block mode,
+ * and as {@link IvParameterSpec} otherwise.
  *
  * @author Abhishek
  */
 
+@AllArgsConstructor
 public class CipherRetriever {
 
+    public static final int GCM_TAG_LENGTH_BITS = 128;
+
     private static final String LOG_TAG = CipherRetriever.class.getSimpleName();
 
+    private static final String CIPHER_TRANSFORMATION_SEPARATOR = "/";
+    private static final String KEY_STORE_POOL_SUFFIX = "#AndroidKeyStore";
+
     private static final String CIPHER_TRANSFORMATION_ERROR = "Failed to retrieve cipher for transformation %s";
     private static final String INVALID_KEY_ERROR = "Failed to retrieve cipher due to invalid key";
     private static final String INVALID_INITIAL_VECTOR_ERROR = "Failed to retrieve cipher due to invalid initial vector";
 
+    private final CipherPool cipherPool;
+    private final CipherProviderStrategy cipherProviderStrategy;
+
     /**
      * Retrieves the {@link Cipher}.
      *
@@ -37,32 +70,145 @@ public class CipherRetriever {
      * @param opMode                operation mode of this cipher (one of the <code>ENCRYPT_MODE</code>, <code>DECRYPT_MODE</code>,
      *                              <code>WRAP_MODE</code> or <code>UNWRAP_MODE</code>)
      * @param key                   key to be used with cipher
+     * @param keyKind               kind of the key
      * @param optionalInitialVector optional initial vector
      * @return {@link Cipher}
      */
-    public Cipher retrieve(final String cipherTransformation, final int opMode, final Key key, final Optional<byte[]> optionalInitialVector) {
-        final Cipher cipher;
+    public Cipher retrieve(final String cipherTransformation, final int opMode, final Key key, final KeyKind keyKind,
+                           final Optional<byte[]> optionalInitialVector) {
+        final long startNanos = CryptoMetrics.start();
         try {
-            cipher = Cipher.getInstance(cipherTransformation);
-        } catch (final NoSuchAlgorithmException | NoSuchPaddingException e) {
-            final String errorMessage = logError(LOG_TAG, Optional.of(e), CIPHER_TRANSFORMATION_ERROR, cipherTransformation);
-            throw new CipherRetrievalException(errorMessage, e);
+            final Cipher cipher = this.retrieveCipher(cipherTransformation, opMode, key, keyKind, optionalInitialVector);
+            CryptoMetrics.recordSuccess(CryptoMetrics.CIPHER_RETRIEVE, startNanos);
+            return cipher;
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.CIPHER_RETRIEVE, startNanos, e);
+            throw e;
         }
+    }
 
+    /**
+     * Re-initializes the {@link Cipher} retrieved by {@link #retrieve(String, int, Key, KeyKind, Optional)}, e.g. to operate on the next
+     * item of a batch with a new initial vector without retrieving another cipher.
+     *
+     * @param cipherTransformation  cipher transformation the cipher was retrieved for
+     * @param opMode                operation mode of this cipher (one of the <code>ENCRYPT_MODE</code>, <code>DECRYPT_MODE</code>,
+     *                              <code>WRAP_MODE</code> or <code>UNWRAP_MODE</code>)
+     * @param cipher                cipher to re-initialize
+     * @param key                   key to be used with cipher
+     * @param optionalInitialVector optional initial vector, a new one is generated for the encryption if empty
+     */
+    public void reinitialize(final String cipherTransformation, final int opMode, @NonNull final Cipher cipher, final Key key,
+                             final Optional<byte[]> optionalInitialVector) {
         try {
-            if (optionalInitialVector.isPresent()) {
-                cipher.init(opMode, key, new IvParameterSpec(optionalInitialVector.get()));
-            } else {
-                cipher.init(opMode, key);
-            }
+            initialize(cipherTransformation, opMode, cipher, key, optionalInitialVector);
         } catch (final InvalidKeyException e) {
-            Log.e(LOG_TAG, INVALID_KEY_ERROR);
+            Log.e(LOG_TAG, INVALID_KEY_ERROR, e);
             throw new CipherRetrievalException(INVALID_KEY_ERROR, e);
         } catch (final InvalidAlgorithmParameterException e) {
             Log.e(LOG_TAG, INVALID_INITIAL_VECTOR_ERROR, e);
             throw new CipherRetrievalException(INVALID_INITIAL_VECTOR_ERROR, e);
         }
+    }
+
+    /**
+     * Hands the {@link Cipher} retrieved by {@link #retrieve(String, int, Key, KeyKind, Optional)} back for reuse with the keys of
+     * the same kind.
+     *
+     * @param cipherTransformation cipher transformation the cipher was retrieved for
+     * @param opMode               operation mode the cipher was retrieved for
+     * @param cipher               cipher to release
+     * @param keyKind              kind of the key the cipher was retrieved for
+     */
+    public void release(@NonNull final String cipherTransformation, final int opMode, @NonNull final Cipher cipher,
+                        @NonNull final KeyKind keyKind) {
+        this.cipherPool.release(toPooledCipherTransformation(cipherTransformation, keyKind), opMode, cipher);
+    }
 
+    private Cipher retrieveCipher(final String cipherTransformation, final int opMode, final Key key, final KeyKind keyKind,
+                                  final Optional<byte[]> optionalInitialVector) {
+        final Optional<Cipher> optionalPooledCipher = this.cipherPool.borrow(toPooledCipherTransformation(cipherTransformation, keyKind),
+                opMode);
+        if (optionalPooledCipher.isPresent()) {
+            this.reinitialize(cipherTransformation, opMode, optionalPooledCipher.get(), key, optionalInitialVector);
+            return optionalPooledCipher.get();
+        }
+
+        for (final Provider provider : this.cipherProviderStrategy.getProviderChain(cipherTransformation, keyKind)) {
+            final Optional<Cipher> optionalCipher = this.newCipher(cipherTransformation, provider);
+            if (optionalCipher.isPresent()
+                    && this.initializeWithProvider(cipherTransformation, opMode, optionalCipher.get(), key, optionalInitialVector, provider)) {
+                return optionalCipher.get();
+            }
+        }
+
+        final Cipher cipher = this.newCipher(cipherTransformation);
+        this.reinitialize(cipherTransformation, opMode, cipher, key, optionalInitialVector);
         return cipher;
     }
+
+    /**
+     * Initializes the cipher created with a provider of the chain. A provider which fails to initialize the cipher is reported, so
+     * the next one is tried, unless the key requires the user authentication or was permanently invalidated, which no other
+     * provider can help with.
+     *
+     * @return true if the cipher is initialized, false if the next provider should be tried
+     */
+    private boolean initializeWithProvider(final String cipherTransformation, final int opMode, final Cipher cipher, final Key key,
+                                           final Optional<byte[]> optionalInitialVector, final Provider provider) {
+        try {
+            initialize(cipherTransformation, opMode, cipher, key, optionalInitialVector);
+            return true;
+        } catch (final UserNotAuthenticatedException | KeyPermanentlyInvalidatedException e) {
+            Log.e(LOG_TAG, INVALID_KEY_ERROR, e);
+            throw new CipherRetrievalException(INVALID_KEY_ERROR, e);
+        } catch (final InvalidKeyException | InvalidAlgorithmParameterException e) {
+            this.cipherProviderStrategy.reportUnsupportedProvider(cipherTransformation, provider, e);
+            return false;
+        }
+    }
+
+    private static String toPooledCipherTransformation(final String cipherTransformation, final KeyKind keyKind) {
+        return keyKind == KeyKind.KEY_STORE
+                ? cipherTransformation + KEY_STORE_POOL_SUFFIX
+                : cipherTransformation;
+    }
+
+    private static void initialize(final String cipherTransformation, final int opMode, final Cipher cipher, final Key key,
+                                   final Optional<byte[]> optionalInitialVector)
+            throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (optionalInitialVector.isPresent()) {
+            cipher.init(opMode, key, toAlgorithmParameterSpec(cipherTransformation, optionalInitialVector.get()));
+        } else {
+            cipher.init(opMode, key);
+        }
+    }
+
+    private static AlgorithmParameterSpec toAlgorithmParameterSpec(final String cipherTransformation, final byte[] initialVector) {
+        final String[] cipherTransformationParts = cipherTransformation.split(CIPHER_TRANSFORMATION_SEPARATOR);
+        final boolean isGcmBlockMode = cipherTransformationParts.length > 1
+                && KeyProperties.BLOCK_MODE_GCM.equalsIgnoreCase(cipherTransformationParts[1]);
+
+        return isGcmBlockMode
+                ? new GCMParameterSpec(GCM_TAG_LENGTH_BITS, initialVector)
+                : new IvParameterSpec(initialVector);
+    }
+
+    private Optional<Cipher> newCipher(final String cipherTransformation, final Provider provider) {
+        try {
+            return Optional.of(Cipher.getInstance(cipherTransformation, provider));
+        } catch (final NoSuchAlgorithmException | NoSuchPaddingException e) {
+            this.cipherProviderStrategy.reportUnsupportedProvider(cipherTransformation, provider, e);
+            return Optional.empty();
+        }
+    }
+
+    private Cipher newCipher(final String cipherTransformation) {
+        try {
+            return Cipher.getInstance(cipherTransformation);
+        } catch (final NoSuchAlgorithmException | NoSuchPaddingException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), CIPHER_TRANSFORMATION_ERROR, cipherTransformation);
+            throw new CipherRetrievalException(errorMessage, e);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package com.ak.cardstore.cipher;
+
+/**
+ * Specifies where the key a {@link javax.crypto.Cipher} is initialized with is kept, which decides the providers the cipher can be
+ * created with.
+ *
+ * @author Abhishek
+ */
+
+public enum KeyKind {
+
+    /**
+     * Key kept by the Android key store, which only works with the key store provider
+     */
+    KEY_STORE,
+
+    /**
+     * Key with the key material in memory, which works with any provider supporting the transformation
+     */
+    SOFTWARE
+}
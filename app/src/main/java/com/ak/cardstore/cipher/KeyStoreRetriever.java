@@ -1,6 +1,7 @@
 package com.ak.cardstore.cipher;
 
 import com.ak.cardstore.exception.KeyStoreRetrievalException;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
 
 import java.io.IOException;
 import java.security.KeyStore;
@@ -8,11 +9,18 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.NonNull;
 
 import static com.ak.cardstore.util.LoggerUtil.logError;
 
 /**
  * A class to retrieve the {@link java.security.KeyStore}.
+ * <p>
+ * The loaded {@link KeyStore} is cached per key store type until it is invalidated by {@link #invalidate()} or
+ * {@link #invalidate(String)}, e.g. after a key is deleted or the biometric enrollment changes.
  *
  * @author Abhishek
  */
@@ -24,13 +32,43 @@ public class KeyStoreRetriever {
     private static final String INVALID_KEY_STORE_ERROR = "Invalid key store %s";
     private static final String KEY_STORE_LOAD_ERROR = "Error loading key store %s";
 
+    private final ConcurrentMap<String, KeyStore> loadedKeyStores = new ConcurrentHashMap<>();
+
     /**
-     * Retrieves the {@link KeyStore}
+     * Retrieves the loaded {@link KeyStore}. The key store is loaded only if it is not already cached.
      *
      * @param keyStoreType type of the key store to retrieve
      * @return {@link KeyStore}
      */
-    public KeyStore retrieve(final String keyStoreType) {
+    public KeyStore retrieve(@NonNull final String keyStoreType) {
+        final long startNanos = CryptoMetrics.start();
+        try {
+            final KeyStore keyStore = this.loadedKeyStores.computeIfAbsent(keyStoreType, this::load);
+            CryptoMetrics.recordSuccess(CryptoMetrics.KEY_STORE_RETRIEVE, startNanos);
+            return keyStore;
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.KEY_STORE_RETRIEVE, startNanos, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the cached {@link KeyStore} of the given type. The next retrieval loads the key store again.
+     *
+     * @param keyStoreType type of the key store to invalidate
+     */
+    public void invalidate(@NonNull final String keyStoreType) {
+        this.loadedKeyStores.remove(keyStoreType);
+    }
+
+    /**
+     * Drops all the cached {@link KeyStore}s.
+     */
+    public void invalidate() {
+        this.loadedKeyStores.clear();
+    }
+
+    private KeyStore load(final String keyStoreType) {
         final KeyStore keyStore;
         try {
             keyStore = KeyStore.getInstance(keyStoreType);
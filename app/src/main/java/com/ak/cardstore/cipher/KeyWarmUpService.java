@@ -0,0 +1,74 @@
+package com.ak.cardstore.cipher;
+
+import android.util.Log;
+
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import lombok.AllArgsConstructor;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+
+/**
+ * A class to generate the keys in the background when the application starts.
+ * <p>
+ * On a fresh install, the asymmetric key pair and the symmetric key do not exist yet and generating them (the RSA key pair in
+ * particular) takes long enough to block the registration and login. The keys are generated concurrently on the executor, and the
+ * key retrievers wait for the pending generation instead of generating the keys inline. The key derivation from the password is
+ * calibrated alongside, so the first save does not have to calibrate it either.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class KeyWarmUpService {
+
+    private static final String LOG_TAG = KeyWarmUpService.class.getSimpleName();
+
+    private static final String KEY_WARM_UP_ERROR = "Error generating the keys in the background!";
+
+    private final AsymmetricKeyPairCipher asymmetricKeyPairCipher;
+    private final SymmetricKeyCipher symmetricKeyCipher;
+    private final PasswordKeyDeriver passwordKeyDeriver;
+    private final ExecutorService executorService;
+
+    private final CompletableFuture<Void> keyWarmUp = new CompletableFuture<>();
+
+    /**
+     * Starts generating the keys in the background. Only the first call starts the generation, the following calls return the same
+     * future.
+     * <p>
+     * The executor is shut down once the keys are submitted for generation, so its threads do not outlive the warm up.
+     *
+     * @return future completed once both the keys are present in the key store and the key derivation is calibrated
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (this.executorService.isShutdown()) {
+            return this.keyWarmUp;
+        }
+
+        Log.i(LOG_TAG, "Generating the keys in the background.");
+        final CompletableFuture<Void> keyPairGeneration = this.asymmetricKeyPairCipher.pregenerateKeyPair(this.executorService);
+        final CompletableFuture<Void> keyGeneration = this.symmetricKeyCipher.pregenerateKey(this.executorService);
+        final CompletableFuture<Void> keyDerivationCalibration = this.passwordKeyDeriver.precalibrate(this.executorService);
+        this.executorService.shutdown();
+
+        CompletableFuture.allOf(keyPairGeneration, keyGeneration, keyDerivationCalibration)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        Log.i(LOG_TAG, "Successfully generated the keys in the background.");
+                        this.keyWarmUp.complete(result);
+                    } else {
+                        logError(LOG_TAG, Optional.of(throwable), KEY_WARM_UP_ERROR);
+                        this.keyWarmUp.completeExceptionally(throwable);
+                    }
+                });
+
+        return this.keyWarmUp;
+    }
+}
@@ -4,9 +4,12 @@ import android.util.Log;
 
 import com.ak.cardstore.cipher.CipherOperator;
 import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
 
 import java.security.Key;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.crypto.Cipher;
 
@@ -43,6 +46,17 @@ public class AsymmetricKeyPairCipher {
     private final CipherRetriever cipherRetriever;
     private final CipherOperator cipherOperator;
 
+    /**
+     * Generates the {@link java.security.PrivateKey} and {@link java.security.PublicKey} pair on the executor, so the first
+     * encryption or decryption does not have to wait for the key pair generation.
+     *
+     * @param executor executor to generate the key pair on
+     * @return future completed once the key pair is present in the key store
+     */
+    public CompletableFuture<Void> pregenerateKeyPair(@NonNull final Executor executor) {
+        return this.asymmetricKeyPairRetriever.pregenerate(ASYMMETRIC_KEY_PAIR_ALIAS, executor);
+    }
+
     /**
      * Encrypts the passed data using {@link java.security.PublicKey} and returns the encrypted data.
      *
@@ -50,16 +64,30 @@ public class AsymmetricKeyPairCipher {
      * @return encrypted data
      */
     public String encrypt(@NonNull final String dataToEncrypt) {
+        return toBase64String(this.encrypt(toUTF8ByteArray(dataToEncrypt)));
+    }
+
+    /**
+     * Encrypts the passed bytes using {@link java.security.PublicKey} and returns the encrypted bytes.
+     *
+     * @param dataToEncrypt data to encrypt
+     * @return encrypted data
+     */
+    public byte[] encrypt(@NonNull final byte[] dataToEncrypt) {
         Log.i(LOG_TAG, "Retrieving the public key.");
         final Key publicKey = this.asymmetricKeyPairRetriever.retrievePublicKey(ASYMMETRIC_KEY_PAIR_ALIAS);
         Log.i(LOG_TAG, "Successfully retrieved the public key. Retrieving the cipher.");
         final Cipher cipher = this.cipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, publicKey,
-                Optional.empty());
+                KeyKind.SOFTWARE, Optional.empty());
 
         Log.i(LOG_TAG, "Successfully retrieved the cipher. Encrypting the data.");
-        final byte[] cipherText = this.cipherOperator.doCipherOperation(cipher, toUTF8ByteArray(dataToEncrypt), ENCRYPTION_ERROR);
-        Log.i(LOG_TAG, "Successfully encrypted the data. Returning.");
-        return toBase64String(cipherText);
+        try {
+            final byte[] cipherText = this.cipherOperator.doCipherOperation(cipher, dataToEncrypt, ENCRYPTION_ERROR);
+            Log.i(LOG_TAG, "Successfully encrypted the data. Returning.");
+            return cipherText;
+        } finally {
+            this.cipherRetriever.release(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, cipher, KeyKind.SOFTWARE);
+        }
     }
 
     /**
@@ -69,15 +97,29 @@ public class AsymmetricKeyPairCipher {
      * @return decrypted data
      */
     public String decrypt(@NonNull final String dataToDecrypt) {
+        return toUTF8String(this.decrypt(base64StringToByteArray(dataToDecrypt)));
+    }
+
+    /**
+     * Decrypts the passed bytes using {@link java.security.PrivateKey} and returns the decrypted bytes
+     *
+     * @param dataToDecrypt data to decrypt
+     * @return decrypted data
+     */
+    public byte[] decrypt(@NonNull final byte[] dataToDecrypt) {
         Log.i(LOG_TAG, "Retrieving the private key.");
         final Key privateKey = this.asymmetricKeyPairRetriever.retrievePrivateKey(ASYMMETRIC_KEY_PAIR_ALIAS);
         Log.i(LOG_TAG, "Successfully retrieved the private key. Retrieving the cipher.");
         final Cipher cipher = this.cipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, privateKey,
-                Optional.empty());
+                KeyKind.KEY_STORE, Optional.empty());
 
         Log.i(LOG_TAG, "Successfully retrieved the cipher. Decrypting the data.");
-        final byte[] plainText = this.cipherOperator.doCipherOperation(cipher, base64StringToByteArray(dataToDecrypt), DECRYPTION_ERROR);
-        Log.i(LOG_TAG, "Successfully decrypted the data. Returning.");
-        return toUTF8String(plainText);
+        try {
+            final byte[] plainText = this.cipherOperator.doCipherOperation(cipher, dataToDecrypt, DECRYPTION_ERROR);
+            Log.i(LOG_TAG, "Successfully decrypted the data. Returning.");
+            return plainText;
+        } finally {
+            this.cipherRetriever.release(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, cipher, KeyKind.KEY_STORE);
+        }
     }
 }
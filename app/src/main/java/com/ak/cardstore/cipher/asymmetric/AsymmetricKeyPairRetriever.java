@@ -4,6 +4,7 @@ import com.ak.cardstore.cipher.KeyStoreRetriever;
 import com.ak.cardstore.exception.AsymmetricKeyPairRetrievalException;
 import com.ak.cardstore.exception.PrivateKeyRetrievalException;
 import com.ak.cardstore.exception.PublicKeyRetrievalException;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
 
 import java.security.Key;
 import java.security.KeyPair;
@@ -16,6 +17,12 @@ import java.security.PublicKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -24,6 +31,12 @@ import static com.ak.cardstore.util.LoggerUtil.logError;
 
 /**
  * A class to retrieve the asymmetric {@link PrivateKey} and {@link PublicKey} pair from the key store.
+ * <p>
+ * {@link PublicKey}s are not secret and do not change for an alias, so they are cached in memory per alias. The cached public key is
+ * replaced whenever a new key pair is generated for the alias.
+ * <p>
+ * The key pair can be generated ahead of time by {@link #pregenerate(String, Executor)}. A retrieval of the alias waits for the
+ * pending generation instead of generating another key pair inline.
  *
  * @author Abhishek
  */
@@ -38,10 +51,14 @@ public class AsymmetricKeyPairRetriever {
     private static final String KEY_STORE_NOT_INITIALIZED_ERROR = "Key store %s not initialized";
     private static final String PRIVATE_KEY_RETRIEVAL_ERROR = "Error retrieving private key with alias %s";
     private static final String KEY_PAIR_GENERATION_PROVIDER_ERROR = "Error generating a new key pair using provider %s";
+    private static final String KEY_PAIR_PREGENERATION_ERROR = "Error pre-generating key pair with alias %s";
 
     private final KeyStoreRetriever keyStoreRetriever;
     private final AsymmetricKeyPairGenerator asymmetricKeyPairGenerator;
 
+    private final ConcurrentMap<String, Key> publicKeyCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Void>> pendingKeyPairGenerations = new ConcurrentHashMap<>();
+
     /**
      * Retrieves and returns the asymmetric {@link PrivateKey} for the decryption.
      * <p>
@@ -51,15 +68,15 @@ public class AsymmetricKeyPairRetriever {
      * @return asymmetric {@link PrivateKey} for the decryption
      */
     public Key retrievePrivateKey(@NonNull final String keyAlias) {
-        final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
-
-        final Optional<Key> optionalPrivateKey = this.retrievePrivateKey(androidKeyStore, keyAlias);
-        if (optionalPrivateKey.isPresent()) {
-            return optionalPrivateKey.get();
+        final long startNanos = CryptoMetrics.start();
+        try {
+            final Key privateKey = this.loadPrivateKey(keyAlias);
+            CryptoMetrics.recordSuccess(CryptoMetrics.PRIVATE_KEY_RETRIEVE, startNanos);
+            return privateKey;
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.PRIVATE_KEY_RETRIEVE, startNanos, e);
+            throw e;
         }
-
-        final KeyPair keyPair = this.generateAsymmetricKeyPair(keyAlias);
-        return keyPair.getPrivate();
     }
 
     /**
@@ -70,11 +87,62 @@ public class AsymmetricKeyPairRetriever {
      * @param keyAlias the alias for the public key
      * @return asymmetric {@link PublicKey} for the encryption
      */
-    public Key retrievePublicKey(final String keyAlias) {
+    public Key retrievePublicKey(@NonNull final String keyAlias) {
+        final long startNanos = CryptoMetrics.start();
+        try {
+            final Key publicKey = this.retrieveCachedOrLoadPublicKey(keyAlias);
+            CryptoMetrics.recordSuccess(CryptoMetrics.PUBLIC_KEY_RETRIEVE, startNanos);
+            return publicKey;
+        } catch (final RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.PUBLIC_KEY_RETRIEVE, startNanos, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the asymmetric {@link KeyPair} on the executor, if one is not already present, and caches its {@link PublicKey}.
+     * <p>
+     * The key pair is generated only once per alias, even if the method is called again while the generation is pending.
+     *
+     * @param keyAlias the alias for the key pair
+     * @param executor executor to generate the key pair on
+     * @return future completed once the key pair is present in the key store
+     */
+    public CompletableFuture<Void> pregenerate(@NonNull final String keyAlias, @NonNull final Executor executor) {
+        return this.pendingKeyPairGenerations.computeIfAbsent(keyAlias, pendingKeyAlias ->
+                CompletableFuture.runAsync(() -> this.loadPublicKey(pendingKeyAlias), executor));
+    }
+
+    private Key loadPrivateKey(final String keyAlias) {
+        this.awaitPendingKeyPairGeneration(keyAlias);
+
+        final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
+
+        final Optional<Key> optionalPrivateKey = this.retrievePrivateKey(androidKeyStore, keyAlias);
+        if (optionalPrivateKey.isPresent()) {
+            return optionalPrivateKey.get();
+        }
+
+        final KeyPair keyPair = this.generateAsymmetricKeyPair(keyAlias);
+        return keyPair.getPrivate();
+    }
+
+    private Key retrieveCachedOrLoadPublicKey(final String keyAlias) {
+        final Key cachedPublicKey = this.publicKeyCache.get(keyAlias);
+        if (cachedPublicKey != null) {
+            return cachedPublicKey;
+        }
+
+        this.awaitPendingKeyPairGeneration(keyAlias);
+        return this.loadPublicKey(keyAlias);
+    }
+
+    private Key loadPublicKey(final String keyAlias) {
         final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
 
         final Optional<Key> optionalPublicKey = this.retrievePublicKey(androidKeyStore, keyAlias);
         if (optionalPublicKey.isPresent()) {
+            this.publicKeyCache.put(keyAlias, optionalPublicKey.get());
             return optionalPublicKey.get();
         }
 
@@ -82,6 +150,22 @@ public class AsymmetricKeyPairRetriever {
         return keyPair.getPublic();
     }
 
+    private void awaitPendingKeyPairGeneration(final String keyAlias) {
+        final CompletableFuture<Void> pendingKeyPairGeneration = this.pendingKeyPairGenerations.get(keyAlias);
+        if (pendingKeyPairGeneration == null) {
+            return;
+        }
+
+        try {
+            pendingKeyPairGeneration.join();
+        } catch (final CompletionException | CancellationException e) {
+            // The retrieval falls back to generating the key pair inline
+            logError(LOG_TAG, Optional.of(e), KEY_PAIR_PREGENERATION_ERROR, keyAlias);
+        } finally {
+            this.pendingKeyPairGenerations.remove(keyAlias, pendingKeyPairGeneration);
+        }
+    }
+
     private Optional<Key> retrievePublicKey(final KeyStore androidKeyStore, final String keyAlias) {
         PublicKey publicKey = null;
         try {
@@ -125,6 +209,7 @@ public class AsymmetricKeyPairRetriever {
             throw new AsymmetricKeyPairRetrievalException(errorMessage, e);
         }
 
+        this.publicKeyCache.put(keyAlias, keyPair.getPublic());
         return keyPair;
     }
 }
@@ -0,0 +1,177 @@
+package com.ak.cardstore.cipher.envelope;
+
+import android.util.Log;
+
+import com.ak.cardstore.cipher.CipherOperator;
+import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.exception.SymmetricKeyGenerationException;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.BLOCK_MODE;
+import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.ENCRYPTION_PADDING;
+import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.KEY_ALGORITHM;
+import static com.ak.cardstore.util.LoggerUtil.logError;
+import static com.ak.cardstore.util.StringUtil.base64StringToByteArray;
+import static com.ak.cardstore.util.StringUtil.toBase64String;
+import static com.ak.cardstore.util.StringUtil.toUTF8ByteArray;
+import static com.ak.cardstore.util.StringUtil.toUTF8String;
+
+/**
+ * A cipher class to handle the envelope (hybrid) encryption and decryption of the data.
+ * <p>
+ * The data is encrypted with a random AES data key and only the data key is wrapped with the asymmetric key pair using
+ * {@link AsymmetricKeyPairCipher}. The unwrapped data key is cached for the session, so repeated operations skip the
+ * {@link java.security.PrivateKey} operation until {@link #clearSessionDataKey()} is called.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class EnvelopeCipher {
+
+    private static final String LOG_TAG = EnvelopeCipher.class.getSimpleName();
+
+    private static final String DATA_KEY_CIPHER_TRANSFORMATION = String.format("%s/%s/%s", KEY_ALGORITHM, BLOCK_MODE, ENCRYPTION_PADDING);
+    private static final int DATA_KEY_SIZE_BITS = 256;
+
+    private static final String DATA_KEY_GENERATION_ERROR = "Data key generation failed for algorithm %s";
+    private static final String ENCRYPTION_ERROR = "Error encrypting data!";
+    private static final String DECRYPTION_ERROR = "Error decrypting data!";
+
+    private final AsymmetricKeyPairCipher asymmetricKeyPairCipher;
+    private final CipherRetriever cipherRetriever;
+    private final CipherOperator cipherOperator;
+
+    /**
+     * Pair of <wrapped data key, data key> for the current session
+     */
+    private final AtomicReference<ImmutablePair<String, SecretKey>> sessionDataKey = new AtomicReference<>();
+
+    /**
+     * Encrypts the passed data with the session data key and returns the {@link EncryptedEnvelope}.
+     *
+     * @param dataToEncrypt data to encrypt
+     * @return {@link EncryptedEnvelope}
+     */
+    public EncryptedEnvelope encrypt(@NonNull final String dataToEncrypt) {
+        return this.encrypt(toUTF8ByteArray(dataToEncrypt));
+    }
+
+    /**
+     * Encrypts the passed bytes with the session data key and returns the {@link EncryptedEnvelope}.
+     *
+     * @param dataToEncrypt bytes to encrypt
+     * @return {@link EncryptedEnvelope}
+     */
+    public EncryptedEnvelope encrypt(@NonNull final byte[] dataToEncrypt) {
+        final ImmutablePair<String, SecretKey> wrappedDataKeyAndDataKeyPair = this.retrieveSessionDataKey();
+
+        final Cipher cipher = this.cipherRetriever.retrieve(DATA_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE,
+                wrappedDataKeyAndDataKeyPair.getRight(), KeyKind.SOFTWARE, Optional.empty());
+        try {
+            final byte[] cipherText = this.cipherOperator.doCipherOperation(cipher, dataToEncrypt, ENCRYPTION_ERROR);
+            return EncryptedEnvelope.builder()
+                    .wrappedDataKey(wrappedDataKeyAndDataKeyPair.getLeft())
+                    .initialVector(toBase64String(cipher.getIV()))
+                    .cipherText(toBase64String(cipherText))
+                    .build();
+        } finally {
+            this.cipherRetriever.release(DATA_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, cipher, KeyKind.SOFTWARE);
+        }
+    }
+
+    /**
+     * Decrypts the passed {@link EncryptedEnvelope} and returns the decrypted data.
+     *
+     * @param encryptedEnvelope envelope to decrypt
+     * @return decrypted data
+     */
+    public String decrypt(@NonNull final EncryptedEnvelope encryptedEnvelope) {
+        return toUTF8String(this.decryptToByteArray(encryptedEnvelope));
+    }
+
+    /**
+     * Decrypts the passed {@link EncryptedEnvelope} and returns the decrypted bytes.
+     *
+     * @param encryptedEnvelope envelope to decrypt
+     * @return decrypted bytes
+     */
+    public byte[] decryptToByteArray(@NonNull final EncryptedEnvelope encryptedEnvelope) {
+        final SecretKey dataKey = this.unwrapDataKey(encryptedEnvelope.getWrappedDataKey());
+
+        final Cipher cipher = this.cipherRetriever.retrieve(DATA_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, dataKey, KeyKind.SOFTWARE,
+                Optional.of(base64StringToByteArray(encryptedEnvelope.getInitialVector())));
+        try {
+            return this.cipherOperator.doCipherOperation(cipher, base64StringToByteArray(encryptedEnvelope.getCipherText()),
+                    DECRYPTION_ERROR);
+        } finally {
+            this.cipherRetriever.release(DATA_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, cipher, KeyKind.SOFTWARE);
+        }
+    }
+
+    /**
+     * Drops the data key cached for the session. Called on logout and when the application goes to the background, so the
+     * next operation unwraps or generates the data key again.
+     */
+    public void clearSessionDataKey() {
+        this.sessionDataKey.set(null);
+    }
+
+    private ImmutablePair<String, SecretKey> retrieveSessionDataKey() {
+        final ImmutablePair<String, SecretKey> cachedWrappedDataKeyAndDataKeyPair = this.sessionDataKey.get();
+        if (cachedWrappedDataKeyAndDataKeyPair != null) {
+            return cachedWrappedDataKeyAndDataKeyPair;
+        }
+
+        Log.i(LOG_TAG, "No data key for the session. Generating and wrapping a new data key.");
+        final SecretKey dataKey = this.generateDataKey();
+        final String wrappedDataKey = toBase64String(this.asymmetricKeyPairCipher.encrypt(dataKey.getEncoded()));
+
+        final ImmutablePair<String, SecretKey> wrappedDataKeyAndDataKeyPair = ImmutablePair.of(wrappedDataKey, dataKey);
+        this.sessionDataKey.set(wrappedDataKeyAndDataKeyPair);
+        return wrappedDataKeyAndDataKeyPair;
+    }
+
+    private SecretKey unwrapDataKey(final String wrappedDataKey) {
+        final ImmutablePair<String, SecretKey> cachedWrappedDataKeyAndDataKeyPair = this.sessionDataKey.get();
+        if (cachedWrappedDataKeyAndDataKeyPair != null && cachedWrappedDataKeyAndDataKeyPair.getLeft().equals(wrappedDataKey)) {
+            return cachedWrappedDataKeyAndDataKeyPair.getRight();
+        }
+
+        Log.i(LOG_TAG, "Data key is not cached for the session. Unwrapping the data key.");
+        final byte[] encodedDataKey = this.asymmetricKeyPairCipher.decrypt(base64StringToByteArray(wrappedDataKey));
+        final SecretKey dataKey = new SecretKeySpec(encodedDataKey, KEY_ALGORITHM);
+
+        this.sessionDataKey.set(ImmutablePair.of(wrappedDataKey, dataKey));
+        return dataKey;
+    }
+
+    private SecretKey generateDataKey() {
+        final KeyGenerator keyGenerator;
+        try {
+            keyGenerator = KeyGenerator.getInstance(KEY_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), DATA_KEY_GENERATION_ERROR, KEY_ALGORITHM);
+            throw new SymmetricKeyGenerationException(errorMessage, e);
+        }
+
+        keyGenerator.init(DATA_KEY_SIZE_BITS);
+        return keyGenerator.generateKey();
+    }
+}
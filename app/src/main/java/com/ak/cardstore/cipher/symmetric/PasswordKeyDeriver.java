@@ -0,0 +1,288 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import android.util.Log;
+
+import com.ak.cardstore.exception.KeyDerivationException;
+import com.ak.cardstore.pojo.KeyDerivationParameters;
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+import static com.ak.cardstore.util.StringUtil.toBase64String;
+import static com.ak.cardstore.util.StringUtil.toUTF8ByteArray;
+
+/**
+ * A class to derive the keys to encrypt the data with from the password.
+ * <p>
+ * The password key is derived with PBKDF2-HMAC-SHA256. The iteration count is calibrated on the device, so deriving the password
+ * key takes about {@link #TARGET_DERIVATION_MILLIS} regardless of the speed of the device, but never less than
+ * {@link #MIN_ITERATION_COUNT} iterations. The calibration runs in the background once {@link #precalibrate(Executor)} is called,
+ * so the first save does not pay for it. The calibrated {@link KeyDerivationParameters} are stored with the data, so the data
+ * encrypted on a slower or faster device can still be decrypted.
+ * <p>
+ * The parameters of the existing data are reused for the new data by {@link #reuseKeyDerivationParameters(KeyDerivationParameters)},
+ * so the password key derived to decrypt the data also encrypts the new data, and a session derives it only once. The reused
+ * parameters are replaced by the calibrated ones only once they fall below the target, i.e. below
+ * {@link #MIN_ITERATION_COUNT} iterations or below {@link #RECALIBRATION_THRESHOLD_PERCENT} percent of the calibrated
+ * iteration count, so the measurement noise of the calibration does not replace them in every session.
+ * <p>
+ * Every file is encrypted with its own AES key, derived from the password key and a random file salt with HMAC-SHA256, so no two
+ * files share a key even though the files saved in one session share the {@link KeyDerivationParameters}. The password keys are
+ * cached for the unlock session, so only the first operation of the session pays for PBKDF2, and deriving the key of a file is
+ * only one HMAC. The cache compares a salted digest of the password, so it never holds the password itself. The cached keys are
+ * evicted by {@link #evictDerivedKeys()}.
+ *
+ * @author Abhishek
+ */
+
+public class PasswordKeyDeriver {
+
+    private static final String LOG_TAG = PasswordKeyDeriver.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA256";
+    @VisibleForTesting
+    static final String FILE_KEY_DERIVATION_ALGORITHM = "HmacSHA256";
+    @VisibleForTesting
+    static final String PASSWORD_DIGEST_ALGORITHM = "SHA-256";
+    @VisibleForTesting
+    static final int DERIVED_KEY_LENGTH_BITS = 256;
+    @VisibleForTesting
+    static final int SALT_LENGTH = 16;
+    @VisibleForTesting
+    static final long TARGET_DERIVATION_MILLIS = 250;
+    @VisibleForTesting
+    static final int MIN_ITERATION_COUNT = 10000;
+    @VisibleForTesting
+    static final int CALIBRATION_ITERATION_COUNT = 10000;
+    @VisibleForTesting
+    static final int RECALIBRATION_THRESHOLD_PERCENT = 80;
+
+    private static final String NO_SUCH_ALGORITHM_ERROR = "Key derivation failed for algorithm %s";
+    private static final String INVALID_KEY_SPEC_ERROR = "Invalid key spec for algorithm %s";
+    private static final String INVALID_KEY_ERROR = "Invalid key for algorithm %s";
+    private static final String CALIBRATION_ERROR = "Error calibrating the key derivation in the background!";
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Pairs of <salted password digest, password key> per {@link KeyDerivationParameters} for the current unlock session
+     */
+    private final ConcurrentMap<KeyDerivationParameters, ImmutablePair<byte[], byte[]>> passwordKeys = new ConcurrentHashMap<>();
+
+    private volatile CompletableFuture<KeyDerivationParameters> calibration;
+    private volatile KeyDerivationParameters reusableKeyDerivationParameters;
+
+    /**
+     * Calibrates the key derivation on the executor, so the first save does not have to wait for the calibration. Only the first
+     * call starts the calibration, the following calls return the same future.
+     *
+     * @param executor executor to calibrate the key derivation on
+     * @return future completed once the {@link KeyDerivationParameters} are calibrated
+     */
+    public synchronized CompletableFuture<Void> precalibrate(@NonNull final Executor executor) {
+        if (this.calibration == null) {
+            this.calibration = CompletableFuture.supplyAsync(this::calibrate, executor);
+        }
+
+        return CompletableFuture.allOf(this.calibration);
+    }
+
+    /**
+     * Reuses the parameters the existing data is encrypted with to derive the password key for the new data with, as long as they
+     * do not fall below the target.
+     *
+     * @param keyDerivationParameters parameters read with the existing data
+     */
+    public void reuseKeyDerivationParameters(@NonNull final KeyDerivationParameters keyDerivationParameters) {
+        this.reusableKeyDerivationParameters = keyDerivationParameters;
+    }
+
+    /**
+     * Returns the {@link KeyDerivationParameters} to derive the password key for the new data with. The reused parameters are
+     * returned as long as they do not fall below the target. Otherwise, the parameters are calibrated once per process, waiting for
+     * the calibration started by {@link #precalibrate(Executor)}, or calibrating inline if it was never started or has failed.
+     *
+     * @return {@link KeyDerivationParameters}
+     */
+    public KeyDerivationParameters getKeyDerivationParameters() {
+        final KeyDerivationParameters reusableKeyDerivationParameters = this.reusableKeyDerivationParameters;
+        if (reusableKeyDerivationParameters != null && !this.isBelowTarget(reusableKeyDerivationParameters)) {
+            return reusableKeyDerivationParameters;
+        }
+
+        final CompletableFuture<KeyDerivationParameters> pendingCalibration = this.calibration;
+        if (pendingCalibration != null) {
+            try {
+                return pendingCalibration.join();
+            } catch (final CompletionException | CancellationException e) {
+                // Falls back to calibrating inline
+                logError(LOG_TAG, Optional.of(e), CALIBRATION_ERROR);
+            }
+        }
+
+        synchronized (this) {
+            if (this.calibration == null || this.calibration.isCompletedExceptionally()) {
+                this.calibration = CompletableFuture.completedFuture(this.calibrate());
+            }
+
+            return this.calibration.join();
+        }
+    }
+
+    /**
+     * Returns a new random salt to derive the key of one file with
+     *
+     * @return file salt
+     */
+    public byte[] newFileSalt() {
+        final byte[] fileSalt = new byte[SALT_LENGTH];
+        this.secureRandom.nextBytes(fileSalt);
+        return fileSalt;
+    }
+
+    /**
+     * Derives and returns the AES key of a file from the password with the given parameters and file salt. The password key is
+     * derived only once per session for the same password and parameters.
+     *
+     * @param password                password to derive the key from
+     * @param keyDerivationParameters parameters to derive the password key with
+     * @param fileSalt                salt of the file, as returned by {@link #newFileSalt()}
+     * @return derived {@link SecretKey}
+     */
+    public SecretKey derive(@NonNull final String password, @NonNull final KeyDerivationParameters keyDerivationParameters,
+                            @NonNull final byte[] fileSalt) {
+        final byte[] passwordKey = this.derivePasswordKey(password, keyDerivationParameters);
+
+        try {
+            final Mac mac = Mac.getInstance(FILE_KEY_DERIVATION_ALGORITHM);
+            mac.init(new SecretKeySpec(passwordKey, FILE_KEY_DERIVATION_ALGORITHM));
+            return new SecretKeySpec(mac.doFinal(fileSalt), SymmetricKeyGenerator.KEY_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), NO_SUCH_ALGORITHM_ERROR, FILE_KEY_DERIVATION_ALGORITHM);
+            throw new KeyDerivationException(errorMessage, e);
+        } catch (final InvalidKeyException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), INVALID_KEY_ERROR, FILE_KEY_DERIVATION_ALGORITHM);
+            throw new KeyDerivationException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Evicts all the cached password keys, so the next derivation goes through the key derivation function again.
+     */
+    public void evictDerivedKeys() {
+        this.passwordKeys.clear();
+    }
+
+    /**
+     * Calibrates and returns new {@link KeyDerivationParameters} with a random salt and the iteration count it takes about
+     * {@link #TARGET_DERIVATION_MILLIS} to derive the key with on this device.
+     *
+     * @return calibrated {@link KeyDerivationParameters}
+     */
+    @VisibleForTesting
+    KeyDerivationParameters calibrate() {
+        final byte[] salt = new byte[SALT_LENGTH];
+        this.secureRandom.nextBytes(salt);
+
+        // Loads the provider before the measurement, so its initialization is not counted as the derivation time
+        deriveKey(toBase64String(salt), salt, 1);
+
+        final long calibrationStartNanos = System.nanoTime();
+        deriveKey(toBase64String(salt), salt, CALIBRATION_ITERATION_COUNT);
+        final long calibrationNanos = Math.max(1, System.nanoTime() - calibrationStartNanos);
+
+        final long targetIterationCount = CALIBRATION_ITERATION_COUNT * TimeUnit.MILLISECONDS.toNanos(TARGET_DERIVATION_MILLIS) / calibrationNanos;
+        final int iterationCount = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_ITERATION_COUNT, targetIterationCount));
+        Log.i(LOG_TAG, String.format("Calibrated the key derivation to %d iterations.", iterationCount));
+
+        return KeyDerivationParameters.builder()
+                .salt(salt)
+                .iterationCount(iterationCount)
+                .build();
+    }
+
+    /**
+     * Checks whether the parameters fall below the target. Does not wait for a pending calibration, the parameters are compared to
+     * the calibrated ones only once the calibration has completed.
+     *
+     * @param keyDerivationParameters parameters to check
+     * @return true if the parameters should be replaced by the calibrated ones, false otherwise
+     */
+    private boolean isBelowTarget(final KeyDerivationParameters keyDerivationParameters) {
+        if (keyDerivationParameters.getIterationCount() < MIN_ITERATION_COUNT) {
+            return true;
+        }
+
+        final CompletableFuture<KeyDerivationParameters> completedCalibration = this.calibration;
+        if (completedCalibration == null || !completedCalibration.isDone() || completedCalibration.isCompletedExceptionally()) {
+            return false;
+        }
+
+        return keyDerivationParameters.getIterationCount() * 100L
+                < completedCalibration.join().getIterationCount() * (long) RECALIBRATION_THRESHOLD_PERCENT;
+    }
+
+    private byte[] derivePasswordKey(final String password, final KeyDerivationParameters keyDerivationParameters) {
+        final byte[] salt = keyDerivationParameters.getSalt();
+        final byte[] passwordDigest = digestPassword(password, salt);
+
+        final ImmutablePair<byte[], byte[]> passwordKey = this.passwordKeys.get(keyDerivationParameters);
+        if (passwordKey != null && MessageDigest.isEqual(passwordKey.getLeft(), passwordDigest)) {
+            return passwordKey.getRight();
+        }
+
+        final byte[] newPasswordKey = deriveKey(password, salt, keyDerivationParameters.getIterationCount());
+        this.passwordKeys.put(keyDerivationParameters, ImmutablePair.of(passwordDigest, newPasswordKey));
+        return newPasswordKey;
+    }
+
+    private static byte[] digestPassword(final String password, final byte[] salt) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance(PASSWORD_DIGEST_ALGORITHM);
+            messageDigest.update(salt);
+            return messageDigest.digest(toUTF8ByteArray(password));
+        } catch (final NoSuchAlgorithmException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), NO_SUCH_ALGORITHM_ERROR, PASSWORD_DIGEST_ALGORITHM);
+            throw new KeyDerivationException(errorMessage, e);
+        }
+    }
+
+    private static byte[] deriveKey(final String password, final byte[] salt, final int iterationCount) {
+        final PBEKeySpec pbeKeySpec = new PBEKeySpec(password.toCharArray(), salt, iterationCount, DERIVED_KEY_LENGTH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM).generateSecret(pbeKeySpec).getEncoded();
+        } catch (final NoSuchAlgorithmException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), NO_SUCH_ALGORITHM_ERROR, KEY_DERIVATION_ALGORITHM);
+            throw new KeyDerivationException(errorMessage, e);
+        } catch (final InvalidKeySpecException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), INVALID_KEY_SPEC_ERROR, KEY_DERIVATION_ALGORITHM);
+            throw new KeyDerivationException(errorMessage, e);
+        } finally {
+            pbeKeySpec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import android.security.keystore.KeyProperties;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Specifies the block mode and padding the {@link SymmetricKeyCipher} encrypts the data with.
+ * <p>
+ * Each profile has its own key alias, as a key in the Android key store is bound to the block modes and paddings it was
+ * generated for. {@link #AES_GCM} is authenticated: the tag is appended to the cipher text and a corrupted cipher text is
+ * rejected before any plain text is released.
+ * <p>
+ * The keys of a profile are versioned, so a key can be rotated while the data encrypted with the previous versions stays
+ * readable. The version 0 key keeps the unversioned alias of the profile.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public enum SymmetricCipherProfile {
+
+    AES_CBC_PKCS7(1, KeyProperties.BLOCK_MODE_CBC, KeyProperties.ENCRYPTION_PADDING_PKCS7, "com.ak.cardstore.sk"),
+
+    AES_GCM(2, KeyProperties.BLOCK_MODE_GCM, KeyProperties.ENCRYPTION_PADDING_NONE, "com.ak.cardstore.sk.gcm");
+
+    private static final String KEY_VERSION_SEPARATOR = ".v";
+
+    private final int id;
+    private final String blockMode;
+    private final String encryptionPadding;
+    private final String keyAlias;
+
+    /**
+     * Returns the profile with the given id.
+     *
+     * @param id id of the profile
+     * @return {@link SymmetricCipherProfile} if one exists with the given id, empty otherwise
+     */
+    public static Optional<SymmetricCipherProfile> fromId(final int id) {
+        return Arrays.stream(values())
+                .filter(symmetricCipherProfile -> symmetricCipherProfile.id == id)
+                .findFirst();
+    }
+
+    /**
+     * Returns the stable id of the profile, which is persisted along with the encrypted data
+     *
+     * @return id of the profile
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the block mode of the profile
+     *
+     * @return block mode
+     */
+    public String getBlockMode() {
+        return this.blockMode;
+    }
+
+    /**
+     * Returns the encryption padding of the profile
+     *
+     * @return encryption padding
+     */
+    public String getEncryptionPadding() {
+        return this.encryptionPadding;
+    }
+
+    /**
+     * Returns the alias of the key used with the profile
+     *
+     * @return key alias
+     */
+    public String getKeyAlias() {
+        return this.keyAlias;
+    }
+
+    /**
+     * Returns the alias of the given version of the key used with the profile
+     *
+     * @param keyVersion version of the key
+     * @return key alias
+     */
+    public String getKeyAlias(final int keyVersion) {
+        return (keyVersion == 0)
+                ? this.keyAlias
+                : this.keyAlias + KEY_VERSION_SEPARATOR + keyVersion;
+    }
+
+    /**
+     * Returns the cipher transformation of the profile
+     *
+     * @return cipher transformation
+     */
+    public String getCipherTransformation() {
+        return String.format("%s/%s/%s", SymmetricKeyGenerator.KEY_ALGORITHM, this.blockMode, this.encryptionPadding);
+    }
+}
@@ -1,32 +1,61 @@
 package com.ak.cardstore.cipher.symmetric;
 
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.UserNotAuthenticatedException;
 import android.util.Log;
 
+import com.ak.cardstore.cipher.CipherOperationInputStream;
+import com.ak.cardstore.cipher.CipherOperationOutputStream;
 import com.ak.cardstore.cipher.CipherOperator;
 import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
 import com.ak.cardstore.exception.CipherOperationException;
+import com.ak.cardstore.exception.CipherRetrievalException;
+import com.ak.cardstore.exception.KeyInvalidatedException;
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.Key;
 import java.security.UnrecoverableKeyException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.crypto.Cipher;
 
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 
-import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.BLOCK_MODE;
-import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.ENCRYPTION_PADDING;
-import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.KEY_ALGORITHM;
 import static com.ak.cardstore.util.StringUtil.base64StringToByteArray;
 import static com.ak.cardstore.util.StringUtil.toBase64String;
-import static com.ak.cardstore.util.StringUtil.toUTF8ByteArray;
-import static com.ak.cardstore.util.StringUtil.toUTF8String;
 
 /**
  * A cipher class to handle the encryption and decryption of the data using the {@link javax.crypto.SecretKey}.
+ * <p>
+ * The data can be encrypted either as a whole string or as a stream. The string is always encrypted with the
+ * {@link SymmetricCipherProfile#AES_CBC_PKCS7} profile and the initial vector is returned separately. A batch of strings shares
+ * one key lookup and one cipher, which is only re-initialized with a new initial vector per string. The stream is encrypted
+ * with the configured {@link SymmetricCipherProfile} and packed as the length of the initial vector (one byte), the initial
+ * vector and the cipher text, which with {@link SymmetricCipherProfile#AES_GCM} ends with the authentication tag. A stream can
+ * also be encrypted with a software key, e.g. the one {@link PasswordKeyDeriver} derives from the password, in the same format.
+ * <p>
+ * The streams are encrypted with the current version of the key, kept by {@link SymmetricKeyVersionManager}, and decrypted with
+ * the version they were encrypted with, so the data stays readable after the key is rotated. The strings always use the version 0
+ * key.
+ * <p>
+ * The key is cached by {@link SymmetricKeyRetriever} for the user authentication validity window. If the key store rejects the
+ * cached key because the user is not authenticated any more, the key is evicted so the next operation retrieves it again. If the
+ * key store reports that the key is permanently invalidated, e.g. after the lock screen is removed, the key can never be used
+ * again. The key is then evicted as well and {@link KeyInvalidatedException} is thrown, so the UI can offer the user an explicit
+ * reset. The key is never deleted implicitly, as the next encryption would silently replace the data with a new key.
  *
  * @author Abhishek
  */
@@ -36,16 +65,50 @@ public class SymmetricKeyCipher {
 
     private static final String LOG_TAG = SymmetricKeyCipher.class.getSimpleName();
 
-    private static final String SYMMETRIC_KEY_CIPHER_TRANSFORMATION = String.format("%s/%s/%s", KEY_ALGORITHM, BLOCK_MODE, ENCRYPTION_PADDING);
-    private static final String SYMMETRIC_KEY_ALIAS = "com.ak.cardstore.sk";
+    private static final SymmetricCipherProfile STRING_SYMMETRIC_CIPHER_PROFILE = SymmetricCipherProfile.AES_CBC_PKCS7;
+    private static final String SYMMETRIC_KEY_CIPHER_TRANSFORMATION = STRING_SYMMETRIC_CIPHER_PROFILE.getCipherTransformation();
+    private static final String STRING_KEY_ALIAS = STRING_SYMMETRIC_CIPHER_PROFILE.getKeyAlias();
 
     private static final String KEY_RETRIEVAL_ERROR = "Error retrieving key!";
     private static final String ENCRYPTION_ERROR = "Error encrypting data!";
     private static final String DECRYPTION_ERROR = "Error decrypting data!";
+    private static final String KEY_INVALIDATED_ERROR = "Key permanently invalidated, the data encrypted with it has to be reset!";
 
     private final SymmetricKeyRetriever symmetricKeyRetriever;
     private final CipherRetriever cipherRetriever;
     private final CipherOperator cipherOperator;
+    private final SymmetricCipherProfile symmetricCipherProfile;
+    private final SymmetricKeyVersionManager symmetricKeyVersionManager;
+
+    /**
+     * Returns the profile the streams are encrypted with
+     *
+     * @return {@link SymmetricCipherProfile}
+     */
+    public SymmetricCipherProfile getSymmetricCipherProfile() {
+        return this.symmetricCipherProfile;
+    }
+
+    /**
+     * Returns the current version of the key the streams are encrypted with
+     *
+     * @return key version
+     */
+    public int getKeyVersion() {
+        return this.symmetricKeyVersionManager.getCurrentKeyVersion(this.symmetricCipherProfile);
+    }
+
+    /**
+     * Generates the current {@link javax.crypto.SecretKey} of the configured {@link SymmetricCipherProfile} on the executor, so the
+     * first stream encryption or decryption does not have to wait for the key generation.
+     *
+     * @param executor executor to generate the key on
+     * @return future completed once the key is present in the key store
+     */
+    public CompletableFuture<Void> pregenerateKey(@NonNull final Executor executor) {
+        return this.symmetricKeyRetriever.pregenerate(this.symmetricCipherProfile.getKeyAlias(this.getKeyVersion()),
+                this.symmetricCipherProfile, executor);
+    }
 
     /**
      * Encrypts the passed data using {@link javax.crypto.SecretKey} and returns the pair of <encrypted data, initial vector>
@@ -55,12 +118,16 @@ public class SymmetricKeyCipher {
      * @return Pair of <encrypted data, initial vector>
      */
     public ImmutablePair<String, String> encrypt(@NonNull final String dataToEncrypt, @NonNull final String password) {
-        final Key symmetricKey = this.retrieveSymmetricKey(password);
-        final Cipher cipher = this.cipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, symmetricKey,
+        final Key symmetricKey = this.retrieveSymmetricKey(STRING_SYMMETRIC_CIPHER_PROFILE, STRING_KEY_ALIAS, password);
+        final Cipher cipher = this.retrieveCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, symmetricKey,
                 Optional.empty());
 
-        final byte[] cipherText = this.cipherOperator.doCipherOperation(cipher, toUTF8ByteArray(dataToEncrypt), ENCRYPTION_ERROR);
-        return ImmutablePair.of(toBase64String(cipherText), toBase64String(cipher.getIV()));
+        try {
+            final String cipherText = this.cipherOperator.encryptToBase64String(cipher, dataToEncrypt, ENCRYPTION_ERROR);
+            return ImmutablePair.of(cipherText, toBase64String(cipher.getIV()));
+        } finally {
+            this.cipherRetriever.release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, cipher, KeyKind.KEY_STORE);
+        }
     }
 
     /**
@@ -72,18 +139,269 @@ public class SymmetricKeyCipher {
      * @return decrypted data
      */
     public String decrypt(@NonNull final String dataToDecrypt, @NonNull final String password, @NonNull final String initialVector) {
-        final Key symmetricKey = this.retrieveSymmetricKey(password);
-        final Cipher cipher = this.cipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, symmetricKey,
+        final Key symmetricKey = this.retrieveSymmetricKey(STRING_SYMMETRIC_CIPHER_PROFILE, STRING_KEY_ALIAS, password);
+        final Cipher cipher = this.retrieveCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, symmetricKey,
                 Optional.of(base64StringToByteArray(initialVector)));
 
-        final byte[] plainText = this.cipherOperator.doCipherOperation(cipher, base64StringToByteArray(dataToDecrypt), DECRYPTION_ERROR);
-        return toUTF8String(plainText);
+        try {
+            return this.cipherOperator.decryptFromBase64String(cipher, dataToDecrypt, DECRYPTION_ERROR);
+        } finally {
+            this.cipherRetriever.release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, cipher, KeyKind.KEY_STORE);
+        }
     }
 
-    private Key retrieveSymmetricKey(final String password) {
+    /**
+     * Encrypts the passed batch of data using {@link javax.crypto.SecretKey} and returns the pairs of <encrypted data, initial vector>
+     * in the order of the data. The key is retrieved and the cipher is acquired once for the whole batch, and every item is
+     * encrypted with its own initial vector.
+     *
+     * @param dataToEncrypt batch of data to encrypt
+     * @param password      password to use for encryption
+     * @return Pairs of <encrypted data, initial vector>
+     */
+    public List<ImmutablePair<String, String>> encrypt(@NonNull final List<String> dataToEncrypt, @NonNull final String password) {
+        final List<ImmutablePair<String, String>> encryptedData = new ArrayList<>(dataToEncrypt.size());
+        if (dataToEncrypt.isEmpty()) {
+            return encryptedData;
+        }
+
+        final Key symmetricKey = this.retrieveSymmetricKey(STRING_SYMMETRIC_CIPHER_PROFILE, STRING_KEY_ALIAS, password);
+        final Cipher cipher = this.retrieveCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, symmetricKey,
+                Optional.empty());
+
+        try {
+            for (final String data : dataToEncrypt) {
+                if (!encryptedData.isEmpty()) {
+                    this.reinitializeCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, cipher, symmetricKey,
+                            Optional.empty());
+                }
+
+                final String cipherText = this.cipherOperator.encryptToBase64String(cipher, data, ENCRYPTION_ERROR);
+                encryptedData.add(ImmutablePair.of(cipherText, toBase64String(cipher.getIV())));
+            }
+        } finally {
+            this.cipherRetriever.release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, cipher, KeyKind.KEY_STORE);
+        }
+
+        return encryptedData;
+    }
+
+    /**
+     * Decrypts the passed batch of pairs of <encrypted data, initial vector> using {@link javax.crypto.SecretKey} and returns the
+     * decrypted data in the order of the pairs. The key is retrieved and the cipher is acquired once for the whole batch.
+     *
+     * @param dataToDecrypt batch of pairs of <encrypted data, initial vector> to decrypt
+     * @param password      password to use for decryption
+     * @return decrypted data
+     */
+    public List<String> decrypt(@NonNull final List<ImmutablePair<String, String>> dataToDecrypt, @NonNull final String password) {
+        final List<String> decryptedData = new ArrayList<>(dataToDecrypt.size());
+        if (dataToDecrypt.isEmpty()) {
+            return decryptedData;
+        }
+
+        final Key symmetricKey = this.retrieveSymmetricKey(STRING_SYMMETRIC_CIPHER_PROFILE, STRING_KEY_ALIAS, password);
+        final Cipher cipher = this.retrieveCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, symmetricKey,
+                Optional.of(base64StringToByteArray(dataToDecrypt.get(0).getRight())));
+
+        try {
+            for (final ImmutablePair<String, String> encryptedDataAndInitialVectorPair : dataToDecrypt) {
+                if (!decryptedData.isEmpty()) {
+                    this.reinitializeCipher(STRING_KEY_ALIAS, SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, cipher, symmetricKey,
+                            Optional.of(base64StringToByteArray(encryptedDataAndInitialVectorPair.getRight())));
+                }
+
+                decryptedData.add(this.cipherOperator.decryptFromBase64String(cipher, encryptedDataAndInitialVectorPair.getLeft(),
+                        DECRYPTION_ERROR));
+            }
+        } finally {
+            this.cipherRetriever.release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, cipher, KeyKind.KEY_STORE);
+        }
+
+        return decryptedData;
+    }
+
+    /**
+     * Encrypts the data written by the plain text writer using the given version of {@link javax.crypto.SecretKey} of the
+     * configured {@link SymmetricCipherProfile} and streams the initial vector and the encrypted data to the encrypted output
+     * stream. The data is encrypted in chunks, so the memory used does not depend on the size of the data. The encrypted output
+     * stream is flushed but not closed.
+     *
+     * @param encryptedOutputStream stream to write the initial vector and the encrypted data to
+     * @param keyVersion            version of the key to use for encryption, usually {@link #getKeyVersion()}
+     * @param password              password to use for encryption
+     * @param plainTextWriter       writer of the data to encrypt
+     */
+    public void encrypt(@NonNull final OutputStream encryptedOutputStream, final int keyVersion, @NonNull final String password,
+                        @NonNull final IOConsumer<OutputStream> plainTextWriter) throws IOException {
+        this.encrypt(encryptedOutputStream, keyVersion, this.retrieveKey(keyVersion, password), plainTextWriter);
+    }
+
+    /**
+     * Encrypts the data written by the plain text writer like {@link #encrypt(OutputStream, int, String, IOConsumer)}, with the
+     * given version of the key already retrieved by {@link #retrieveKey(int, String)}, e.g. to encrypt the data later without
+     * keeping the password.
+     *
+     * @param encryptedOutputStream stream to write the initial vector and the encrypted data to
+     * @param keyVersion            version of the key to use for encryption
+     * @param symmetricKey          key of the given version, as returned by {@link #retrieveKey(int, String)}
+     * @param plainTextWriter       writer of the data to encrypt
+     */
+    public void encrypt(@NonNull final OutputStream encryptedOutputStream, final int keyVersion, @NonNull final Key symmetricKey,
+                        @NonNull final IOConsumer<OutputStream> plainTextWriter) throws IOException {
+        final String cipherTransformation = this.symmetricCipherProfile.getCipherTransformation();
+        final String keyAlias = this.symmetricCipherProfile.getKeyAlias(keyVersion);
+        final Cipher cipher = this.retrieveCipher(keyAlias, cipherTransformation, Cipher.ENCRYPT_MODE, symmetricKey,
+                Optional.empty());
+        this.encryptStream(encryptedOutputStream, cipherTransformation, cipher, KeyKind.KEY_STORE, plainTextWriter);
+    }
+
+    /**
+     * Retrieves the given version of {@link javax.crypto.SecretKey} of the configured {@link SymmetricCipherProfile}, generating
+     * it if it is not present yet.
+     *
+     * @param keyVersion version of the key to retrieve
+     * @param password   password to use for the retrieval
+     * @return {@link Key}
+     */
+    public Key retrieveKey(final int keyVersion, @NonNull final String password) {
+        return this.retrieveSymmetricKey(this.symmetricCipherProfile, this.symmetricCipherProfile.getKeyAlias(keyVersion), password);
+    }
+
+    /**
+     * Deletes the given version of the key of the configured {@link SymmetricCipherProfile} from the key store, once no data is
+     * encrypted with it any more. The key the strings are encrypted with is never deleted, even if it is the same key.
+     *
+     * @param keyVersion version of the key to delete
+     */
+    public void deleteKey(final int keyVersion) {
+        final String keyAlias = this.symmetricCipherProfile.getKeyAlias(keyVersion);
+        if (!STRING_KEY_ALIAS.equals(keyAlias)) {
+            this.symmetricKeyRetriever.deleteKey(keyAlias);
+        }
+    }
+
+    /**
+     * Encrypts the data written by the plain text writer using the given software {@link Key} with the configured
+     * {@link SymmetricCipherProfile} and streams the initial vector and the encrypted data to the encrypted output stream, in the
+     * same format as {@link #encrypt(OutputStream, int, String, IOConsumer)}. The key does not come from the key store, so it is
+     * neither cached nor evicted here.
+     *
+     * @param encryptedOutputStream stream to write the initial vector and the encrypted data to
+     * @param symmetricKey          key to use for encryption
+     * @param plainTextWriter       writer of the data to encrypt
+     */
+    public void encrypt(@NonNull final OutputStream encryptedOutputStream, @NonNull final Key symmetricKey,
+                        @NonNull final IOConsumer<OutputStream> plainTextWriter) throws IOException {
+        final String cipherTransformation = this.symmetricCipherProfile.getCipherTransformation();
+        final Cipher cipher = this.cipherRetriever.retrieve(cipherTransformation, Cipher.ENCRYPT_MODE, symmetricKey, KeyKind.SOFTWARE,
+                Optional.empty());
+        this.encryptStream(encryptedOutputStream, cipherTransformation, cipher, KeyKind.SOFTWARE, plainTextWriter);
+    }
+
+    /**
+     * Decrypts the data streamed from the encrypted input stream using the given version of {@link javax.crypto.SecretKey} of the
+     * given {@link SymmetricCipherProfile} and returns the result of the plain text reader. The data is decrypted in chunks, so the
+     * memory used does not depend on the size of the data. With {@link SymmetricCipherProfile#AES_GCM}, no plain text reaches
+     * the reader before the authentication tag is verified. The encrypted input stream is not closed.
+     *
+     * @param encryptedInputStream   stream of the initial vector and the encrypted data, as written by
+     *                               {@link #encrypt(OutputStream, int, String, IOConsumer)}
+     * @param symmetricCipherProfile profile the data was encrypted with
+     * @param keyVersion             version of the key the data was encrypted with
+     * @param password               password to use for decryption
+     * @param plainTextReader        reader of the decrypted data
+     * @param <RESULT_TYPE>          type of the result of the plain text reader
+     * @return result of the plain text reader
+     */
+    public <RESULT_TYPE> RESULT_TYPE decrypt(@NonNull final InputStream encryptedInputStream,
+                                             @NonNull final SymmetricCipherProfile symmetricCipherProfile,
+                                             final int keyVersion,
+                                             @NonNull final String password,
+                                             @NonNull final IOFunction<InputStream, RESULT_TYPE> plainTextReader) throws IOException {
+        final byte[] initialVector = readInitialVector(encryptedInputStream);
+
+        final String cipherTransformation = symmetricCipherProfile.getCipherTransformation();
+        final String keyAlias = symmetricCipherProfile.getKeyAlias(keyVersion);
+        final Key symmetricKey = this.retrieveSymmetricKey(symmetricCipherProfile, keyAlias, password);
+        final Cipher cipher = this.retrieveCipher(keyAlias, cipherTransformation, Cipher.DECRYPT_MODE, symmetricKey,
+                Optional.of(initialVector));
+        return this.decryptStream(encryptedInputStream, cipherTransformation, cipher, KeyKind.KEY_STORE, plainTextReader);
+    }
+
+    /**
+     * Decrypts the data streamed from the encrypted input stream using the given software {@link Key} with the given
+     * {@link SymmetricCipherProfile} and returns the result of the plain text reader. The encrypted input stream is not closed.
+     *
+     * @param encryptedInputStream   stream of the initial vector and the encrypted data, as written by
+     *                               {@link #encrypt(OutputStream, Key, IOConsumer)}
+     * @param symmetricCipherProfile profile the data was encrypted with
+     * @param symmetricKey           key to use for decryption
+     * @param plainTextReader        reader of the decrypted data
+     * @param <RESULT_TYPE>          type of the result of the plain text reader
+     * @return result of the plain text reader
+     */
+    public <RESULT_TYPE> RESULT_TYPE decrypt(@NonNull final InputStream encryptedInputStream,
+                                             @NonNull final SymmetricCipherProfile symmetricCipherProfile,
+                                             @NonNull final Key symmetricKey,
+                                             @NonNull final IOFunction<InputStream, RESULT_TYPE> plainTextReader) throws IOException {
+        final byte[] initialVector = readInitialVector(encryptedInputStream);
+
+        final String cipherTransformation = symmetricCipherProfile.getCipherTransformation();
+        final Cipher cipher = this.cipherRetriever.retrieve(cipherTransformation, Cipher.DECRYPT_MODE, symmetricKey, KeyKind.SOFTWARE,
+                Optional.of(initialVector));
+        return this.decryptStream(encryptedInputStream, cipherTransformation, cipher, KeyKind.SOFTWARE, plainTextReader);
+    }
+
+    private void encryptStream(final OutputStream encryptedOutputStream, final String cipherTransformation, final Cipher cipher,
+                               final KeyKind keyKind, final IOConsumer<OutputStream> plainTextWriter) throws IOException {
+        try {
+            final byte[] initialVector = cipher.getIV();
+            encryptedOutputStream.write(initialVector.length);
+            encryptedOutputStream.write(initialVector);
+
+            final CipherOperationOutputStream plainTextOutputStream = this.cipherOperator.wrap(cipher, encryptedOutputStream, ENCRYPTION_ERROR);
+            try {
+                plainTextWriter.accept(plainTextOutputStream);
+                plainTextOutputStream.finish();
+            } finally {
+                plainTextOutputStream.release();
+            }
+        } finally {
+            this.cipherRetriever.release(cipherTransformation, Cipher.ENCRYPT_MODE, cipher, keyKind);
+        }
+    }
+
+    private <RESULT_TYPE> RESULT_TYPE decryptStream(final InputStream encryptedInputStream, final String cipherTransformation,
+                                                    final Cipher cipher, final KeyKind keyKind,
+                                                    final IOFunction<InputStream, RESULT_TYPE> plainTextReader)
+            throws IOException {
+        try {
+            final CipherOperationInputStream plainTextInputStream = this.cipherOperator.wrap(cipher, encryptedInputStream, DECRYPTION_ERROR);
+            try {
+                final RESULT_TYPE result = plainTextReader.apply(plainTextInputStream);
+                plainTextInputStream.finish();
+                return result;
+            } finally {
+                plainTextInputStream.release();
+            }
+        } finally {
+            this.cipherRetriever.release(cipherTransformation, Cipher.DECRYPT_MODE, cipher, keyKind);
+        }
+    }
+
+    private static byte[] readInitialVector(final InputStream encryptedInputStream) throws IOException {
+        final DataInputStream dataInputStream = new DataInputStream(encryptedInputStream);
+
+        final byte[] initialVector = new byte[dataInputStream.readUnsignedByte()];
+        dataInputStream.readFully(initialVector);
+        return initialVector;
+    }
+
+    private Key retrieveSymmetricKey(final SymmetricCipherProfile symmetricCipherProfile, final String keyAlias, final String password) {
         final Key symmetricKey;
         try {
-            symmetricKey = this.symmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password);
+            symmetricKey = this.symmetricKeyRetriever.retrieve(keyAlias, password, symmetricCipherProfile);
         } catch (final UnrecoverableKeyException e) {
             Log.e(LOG_TAG, KEY_RETRIEVAL_ERROR, e);
             throw new CipherOperationException(KEY_RETRIEVAL_ERROR, e);
@@ -91,4 +409,35 @@ public class SymmetricKeyCipher {
 
         return symmetricKey;
     }
+
+    private Cipher retrieveCipher(final String keyAlias, final String cipherTransformation, final int opMode, final Key symmetricKey,
+                                  final Optional<byte[]> initialVector) {
+        try {
+            return this.cipherRetriever.retrieve(cipherTransformation, opMode, symmetricKey, KeyKind.KEY_STORE, initialVector);
+        } catch (final CipherRetrievalException e) {
+            this.evictUnusableKey(keyAlias, e);
+            throw e;
+        }
+    }
+
+    private void reinitializeCipher(final String keyAlias, final String cipherTransformation,
+                                    final int opMode, final Cipher cipher, final Key symmetricKey,
+                                    final Optional<byte[]> initialVector) {
+        try {
+            this.cipherRetriever.reinitialize(cipherTransformation, opMode, cipher, symmetricKey, initialVector);
+        } catch (final CipherRetrievalException e) {
+            this.evictUnusableKey(keyAlias, e);
+            throw e;
+        }
+    }
+
+    private void evictUnusableKey(final String keyAlias, final CipherRetrievalException e) {
+        if (e.getCause() instanceof UserNotAuthenticatedException) {
+            this.symmetricKeyRetriever.evictSessionKey(keyAlias);
+        } else if (e.getCause() instanceof KeyPermanentlyInvalidatedException) {
+            this.symmetricKeyRetriever.evictSessionKey(keyAlias);
+            Log.e(LOG_TAG, KEY_INVALIDATED_ERROR, e);
+            throw new KeyInvalidatedException(KEY_INVALIDATED_ERROR, e.getCause());
+        }
+    }
 }
@@ -48,7 +48,8 @@ public class SymmetricKeyGenerator {
     private static final String INVALID_KEY_GEN_PARAMETER_SPEC_ERROR = "Invalid KeyGenParameterSpec %s";
 
     /**
-     * Generates and returns a new Symmetric {@link Key} for the encryption/decryption.
+     * Generates and returns a new Symmetric {@link Key} for the encryption/decryption with the
+     * {@link SymmetricCipherProfile#AES_CBC_PKCS7} profile.
      *
      * @param provider Key generator provider
      * @param keyAlias the alias name
@@ -58,7 +59,42 @@ public class SymmetricKeyGenerator {
      */
     public SecretKey generate(@NonNull final String provider, @NonNull final String keyAlias, @NonNull final String password)
             throws NoSuchProviderException {
-        final KeyGenParameterSpec keyGenParameterSpec = this.buildKeyGenParameterSpec(keyAlias);
+        return this.generate(provider, keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+    }
+
+    /**
+     * Generates and returns a new Symmetric {@link Key} for the encryption/decryption with the given profile.
+     *
+     * @param provider               Key generator provider
+     * @param keyAlias               the alias name
+     * @param password               the password for generating the key
+     * @param symmetricCipherProfile profile the key is used with
+     * @return Symmetric {@link Key} for the encryption/decryption
+     * @throws NoSuchProviderException if the specified provider is not registered in the security provider list
+     */
+    public SecretKey generate(@NonNull final String provider, @NonNull final String keyAlias, @NonNull final String password,
+                              @NonNull final SymmetricCipherProfile symmetricCipherProfile) throws NoSuchProviderException {
+        return this.generate(provider, keyAlias, symmetricCipherProfile, new SecureRandom(StringUtil.toUTF8ByteArray(password)));
+    }
+
+    /**
+     * Generates and returns a new Symmetric {@link Key} for the encryption/decryption with the given profile, seeded only by the
+     * platform. Used to generate the key ahead of time, before any password is known.
+     *
+     * @param provider               Key generator provider
+     * @param keyAlias               the alias name
+     * @param symmetricCipherProfile profile the key is used with
+     * @return Symmetric {@link Key} for the encryption/decryption
+     * @throws NoSuchProviderException if the specified provider is not registered in the security provider list
+     */
+    public SecretKey generate(@NonNull final String provider, @NonNull final String keyAlias,
+                              @NonNull final SymmetricCipherProfile symmetricCipherProfile) throws NoSuchProviderException {
+        return this.generate(provider, keyAlias, symmetricCipherProfile, new SecureRandom());
+    }
+
+    private SecretKey generate(final String provider, final String keyAlias, final SymmetricCipherProfile symmetricCipherProfile,
+                               final SecureRandom secureRandom) throws NoSuchProviderException {
+        final KeyGenParameterSpec keyGenParameterSpec = this.buildKeyGenParameterSpec(keyAlias, symmetricCipherProfile);
 
         final KeyGenerator keyGenerator;
         try {
@@ -69,7 +105,7 @@ public class SymmetricKeyGenerator {
         }
 
         try {
-            keyGenerator.init(keyGenParameterSpec, new SecureRandom(StringUtil.toUTF8ByteArray(password)));
+            keyGenerator.init(keyGenParameterSpec, secureRandom);
         } catch (final InvalidAlgorithmParameterException e) {
             final String errorMessage = logError(LOG_TAG, Optional.of(e), INVALID_KEY_GEN_PARAMETER_SPEC_ERROR, keyGenParameterSpec);
             throw new SymmetricKeyGenerationException(errorMessage, e);
@@ -78,11 +114,11 @@ public class SymmetricKeyGenerator {
         return keyGenerator.generateKey();
     }
 
-    private KeyGenParameterSpec buildKeyGenParameterSpec(final String keyAlias) {
+    private KeyGenParameterSpec buildKeyGenParameterSpec(final String keyAlias, final SymmetricCipherProfile symmetricCipherProfile) {
         final KeyGenParameterSpec.Builder keyGenParameterSpecBuilder = new KeyGenParameterSpec
                 .Builder(keyAlias, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
-                .setBlockModes(BLOCK_MODE)
-                .setEncryptionPaddings(ENCRYPTION_PADDING)
+                .setBlockModes(symmetricCipherProfile.getBlockMode())
+                .setEncryptionPaddings(symmetricCipherProfile.getEncryptionPadding())
                 .setUserAuthenticationValidityDurationSeconds(USER_AUTHENTICATION_VALIDITY_DURATION_SECONDS)
                 .setUserAuthenticationRequired(USER_AUTHENTICATION_REQUIRED)
                 .setInvalidatedByBiometricEnrollment(INVALIDATE_ON_BIOMETRIC_ENROLLMENT);
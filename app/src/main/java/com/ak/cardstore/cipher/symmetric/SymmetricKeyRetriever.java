@@ -1,7 +1,13 @@
 package com.ak.cardstore.cipher.symmetric;
 
+import android.os.SystemClock;
+
 import com.ak.cardstore.cipher.KeyStoreRetriever;
 import com.ak.cardstore.exception.SymmetricKeyRetrievalException;
+import com.ak.cardstore.instrumentation.CryptoMetrics;
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
 
 import java.security.Key;
 import java.security.KeyStore;
@@ -10,6 +16,13 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.UnrecoverableKeyException;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -18,6 +31,16 @@ import static com.ak.cardstore.util.LoggerUtil.logError;
 
 /**
  * A class to retrieve the {@link javax.crypto.SecretKey} from the key store.
+ * <p>
+ * The key can be generated ahead of time by {@link #pregenerate(String, SymmetricCipherProfile, Executor)}. A retrieval of the
+ * alias waits for the pending generation instead of generating another key inline.
+ * <p>
+ * The keys can only be used for {@link SymmetricKeyGenerator#USER_AUTHENTICATION_VALIDITY_DURATION_SECONDS} after the user
+ * authenticates, so a retrieved key is cached per alias for that long and all the operations of one unlock session share the
+ * same key handle. The Android key store does not protect the keys with the password, so the cached key is returned for any
+ * password. The cached keys are evicted by {@link #evictSessionKey(String)} and {@link #evictSessionKeys()}, e.g. on logout, when
+ * the application goes to the background or when the key store reports that the user is not authenticated any more. A key is
+ * removed from the key store by {@link #deleteKey(String)}.
  *
  * @author Abhishek
  */
@@ -29,15 +52,28 @@ public class SymmetricKeyRetriever {
 
     private static final String KEY_STORE_TYPE = "AndroidKeyStore";
 
+    @VisibleForTesting
+    static final long SESSION_KEY_TTL_MILLIS = TimeUnit.SECONDS.toMillis(SymmetricKeyGenerator.USER_AUTHENTICATION_VALIDITY_DURATION_SECONDS);
+
     private static final String KEY_STORE_NOT_INITIALIZED_ERROR = "Key store %s not initialized";
     private static final String KEY_RETRIEVAL_ERROR = "Error retrieving key with alias %s";
     private static final String KEY_GENERATION_PROVIDER_ERROR = "Error generating a new key using provider %s";
+    private static final String KEY_PREGENERATION_ERROR = "Error pre-generating key with alias %s";
+    private static final String KEY_DELETION_ERROR = "Error deleting key with alias %s";
 
     private final KeyStoreRetriever keyStoreRetriever;
     private final SymmetricKeyGenerator symmetricKeyGenerator;
 
+    private final ConcurrentMap<String, CompletableFuture<Void>> pendingKeyGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Pairs of <key, elapsed realtime in milliseconds the key expires at> per alias for the current unlock session
+     */
+    private final ConcurrentMap<String, ImmutablePair<Key, Long>> sessionKeys = new ConcurrentHashMap<>();
+
     /**
-     * Retrieves and returns the Symmetric {@link Key} for the encryption/decryption.
+     * Retrieves and returns the Symmetric {@link Key} for the encryption/decryption with the
+     * {@link SymmetricCipherProfile#AES_CBC_PKCS7} profile.
      * <p>
      * Generates a new key if one is not already present.
      *
@@ -47,6 +83,96 @@ public class SymmetricKeyRetriever {
      * @throws UnrecoverableKeyException if the key cannot be recovered (e.g., the given password is wrong).
      */
     public Key retrieve(@NonNull final String keyAlias, @NonNull final String password) throws UnrecoverableKeyException {
+        return this.retrieve(keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+    }
+
+    /**
+     * Retrieves and returns the Symmetric {@link Key} for the encryption/decryption with the given profile.
+     * <p>
+     * Generates a new key for the profile if one is not already present.
+     *
+     * @param keyAlias               the alias name
+     * @param password               the password for recovering the key
+     * @param symmetricCipherProfile profile the key is used with
+     * @return Symmetric {@link Key} for the encryption/decryption
+     * @throws UnrecoverableKeyException if the key cannot be recovered (e.g., the given password is wrong).
+     */
+    public Key retrieve(@NonNull final String keyAlias, @NonNull final String password,
+                        @NonNull final SymmetricCipherProfile symmetricCipherProfile) throws UnrecoverableKeyException {
+        final long startNanos = CryptoMetrics.start();
+        try {
+            final Key symmetricKey = this.retrieveKey(keyAlias, password, symmetricCipherProfile);
+            CryptoMetrics.recordSuccess(CryptoMetrics.SYMMETRIC_KEY_RETRIEVE, startNanos);
+            return symmetricKey;
+        } catch (final UnrecoverableKeyException | RuntimeException e) {
+            CryptoMetrics.recordFailure(CryptoMetrics.SYMMETRIC_KEY_RETRIEVE, startNanos, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Evicts the cached key of the given alias, so the next retrieval goes back to the key store.
+     *
+     * @param keyAlias the alias name
+     */
+    public void evictSessionKey(@NonNull final String keyAlias) {
+        this.sessionKeys.remove(keyAlias);
+    }
+
+    /**
+     * Evicts all the cached keys, so the next retrievals go back to the key store.
+     */
+    public void evictSessionKeys() {
+        this.sessionKeys.clear();
+    }
+
+    /**
+     * Deletes the key of the given alias from the key store, e.g. once it is replaced by a rotated key or on the explicit reset
+     * of the data after the key store permanently invalidates it. The cached key and the cached key store are dropped, so the
+     * next retrieval of the alias loads the key store again and generates a new key.
+     *
+     * @param keyAlias the alias name
+     */
+    public void deleteKey(@NonNull final String keyAlias) {
+        this.sessionKeys.remove(keyAlias);
+
+        final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
+        try {
+            androidKeyStore.deleteEntry(keyAlias);
+        } catch (final KeyStoreException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), KEY_DELETION_ERROR, keyAlias);
+            throw new SymmetricKeyRetrievalException(errorMessage, e);
+        } finally {
+            this.keyStoreRetriever.invalidate(KEY_STORE_TYPE);
+        }
+    }
+
+    /**
+     * Generates the Symmetric {@link Key} for the given profile on the executor, if one is not already present. The key is
+     * generated without a password, as the Android key store entries are not password protected.
+     * <p>
+     * The key is generated only once per alias, even if the method is called again while the generation is pending.
+     *
+     * @param keyAlias               the alias name
+     * @param symmetricCipherProfile profile the key is used with
+     * @param executor               executor to generate the key on
+     * @return future completed once the key is present in the key store
+     */
+    public CompletableFuture<Void> pregenerate(@NonNull final String keyAlias, @NonNull final SymmetricCipherProfile symmetricCipherProfile,
+                                               @NonNull final Executor executor) {
+        return this.pendingKeyGenerations.computeIfAbsent(keyAlias, pendingKeyAlias ->
+                CompletableFuture.runAsync(() -> this.generateIfAbsent(pendingKeyAlias, symmetricCipherProfile), executor));
+    }
+
+    private Key retrieveKey(final String keyAlias, final String password, final SymmetricCipherProfile symmetricCipherProfile)
+            throws UnrecoverableKeyException {
+        final Optional<Key> optionalSessionKey = this.retrieveSessionKey(keyAlias);
+        if (optionalSessionKey.isPresent()) {
+            return optionalSessionKey.get();
+        }
+
+        this.awaitPendingKeyGeneration(keyAlias);
+
         final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
 
         final Key symmetricKey;
@@ -55,7 +181,7 @@ public class SymmetricKeyRetriever {
             if (keyStoreContainsAlias) {
                 symmetricKey = androidKeyStore.getKey(keyAlias, password.toCharArray());
             } else {
-                symmetricKey = this.symmetricKeyGenerator.generate(KEY_STORE_TYPE, keyAlias, password);
+                symmetricKey = this.symmetricKeyGenerator.generate(KEY_STORE_TYPE, keyAlias, password, symmetricCipherProfile);
                 androidKeyStore.setKeyEntry(keyAlias, symmetricKey, password.toCharArray(), null);
             }
         } catch (final KeyStoreException e) {
@@ -69,6 +195,58 @@ public class SymmetricKeyRetriever {
             throw new SymmetricKeyRetrievalException(errorMessage, e);
         }
 
+        if (symmetricKey != null) {
+            this.sessionKeys.put(keyAlias, ImmutablePair.of(symmetricKey, SystemClock.elapsedRealtime() + SESSION_KEY_TTL_MILLIS));
+        }
+
         return symmetricKey;
     }
+
+    private void generateIfAbsent(final String keyAlias, final SymmetricCipherProfile symmetricCipherProfile) {
+        final KeyStore androidKeyStore = this.keyStoreRetriever.retrieve(KEY_STORE_TYPE);
+
+        try {
+            final boolean keyStoreContainsAlias = androidKeyStore.containsAlias(keyAlias);
+            if (!keyStoreContainsAlias) {
+                final Key symmetricKey = this.symmetricKeyGenerator.generate(KEY_STORE_TYPE, keyAlias, symmetricCipherProfile);
+                androidKeyStore.setKeyEntry(keyAlias, symmetricKey, null, null);
+            }
+        } catch (final KeyStoreException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), KEY_STORE_NOT_INITIALIZED_ERROR, KEY_STORE_TYPE);
+            throw new SymmetricKeyRetrievalException(errorMessage, e);
+        } catch (final NoSuchProviderException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), KEY_GENERATION_PROVIDER_ERROR, KEY_STORE_TYPE);
+            throw new SymmetricKeyRetrievalException(errorMessage, e);
+        }
+    }
+
+    private Optional<Key> retrieveSessionKey(final String keyAlias) {
+        final ImmutablePair<Key, Long> sessionKey = this.sessionKeys.get(keyAlias);
+        if (sessionKey == null) {
+            return Optional.empty();
+        }
+
+        if (SystemClock.elapsedRealtime() >= sessionKey.getRight()) {
+            this.sessionKeys.remove(keyAlias, sessionKey);
+            return Optional.empty();
+        }
+
+        return Optional.of(sessionKey.getLeft());
+    }
+
+    private void awaitPendingKeyGeneration(final String keyAlias) {
+        final CompletableFuture<Void> pendingKeyGeneration = this.pendingKeyGenerations.get(keyAlias);
+        if (pendingKeyGeneration == null) {
+            return;
+        }
+
+        try {
+            pendingKeyGeneration.join();
+        } catch (final CompletionException | CancellationException e) {
+            // The retrieval falls back to generating the key inline
+            logError(LOG_TAG, Optional.of(e), KEY_PREGENERATION_ERROR, keyAlias);
+        } finally {
+            this.pendingKeyGenerations.remove(keyAlias, pendingKeyGeneration);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import android.util.Log;
+
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * A class to manage the versions of the keys of the {@link SymmetricCipherProfile}s.
+ * <p>
+ * The new data is always encrypted with the current key version of the profile, which is saved to the shared preferences.
+ * Rotating the key only bumps the current version; the key of the new version is generated on its first use and the keys of
+ * the previous versions are kept, so the data encrypted with them stays readable until it is re-encrypted. The oldest kept key
+ * version is saved as well, so the re-encryption left unfinished is known across the restarts.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class SymmetricKeyVersionManager {
+
+    private static final String LOG_TAG = SymmetricKeyVersionManager.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String KEY_VERSION_PREFERENCES_FILE_NAME = "com.ak.cardstore.key.version";
+    @VisibleForTesting
+    static final String OLDEST_KEY_VERSION_SUFFIX = ".oldest";
+
+    private final SharedPreferencesDataAccessor sharedPreferencesDataAccessor;
+
+    private final ConcurrentMap<SymmetricCipherProfile, Integer> currentKeyVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the version of the key the new data of the profile is encrypted with.
+     *
+     * @param symmetricCipherProfile profile of the key
+     * @return current key version, 0 if the key was never rotated
+     */
+    public int getCurrentKeyVersion(@NonNull final SymmetricCipherProfile symmetricCipherProfile) {
+        return this.currentKeyVersions.computeIfAbsent(symmetricCipherProfile, this::loadCurrentKeyVersion);
+    }
+
+    /**
+     * Rotates the key of the profile, so the new data is encrypted with the next key version.
+     *
+     * @param symmetricCipherProfile profile of the key to rotate
+     * @return new current key version
+     */
+    public synchronized int rotate(@NonNull final SymmetricCipherProfile symmetricCipherProfile) {
+        final int newKeyVersion = this.getCurrentKeyVersion(symmetricCipherProfile) + 1;
+        this.sharedPreferencesDataAccessor.save(KEY_VERSION_PREFERENCES_FILE_NAME, symmetricCipherProfile.name(),
+                String.valueOf(newKeyVersion));
+        this.currentKeyVersions.put(symmetricCipherProfile, newKeyVersion);
+
+        Log.i(LOG_TAG, "Rotated the key of " + symmetricCipherProfile + " to version " + newKeyVersion);
+        return newKeyVersion;
+    }
+
+    /**
+     * Returns the oldest version of the key of the profile which is kept, so the data of the profile may still be encrypted with
+     * any version from this one up to the current one.
+     *
+     * @param symmetricCipherProfile profile of the key
+     * @return oldest kept key version, 0 if the keys of the previous versions were never deleted
+     */
+    public int getOldestKeyVersion(@NonNull final SymmetricCipherProfile symmetricCipherProfile) {
+        return Optional.ofNullable(this.sharedPreferencesDataAccessor.get(KEY_VERSION_PREFERENCES_FILE_NAME,
+                symmetricCipherProfile.name() + OLDEST_KEY_VERSION_SUFFIX))
+                .map(Integer::parseInt)
+                .orElse(0);
+    }
+
+    /**
+     * Saves the oldest kept version of the key of the profile, once the keys of the versions before it are deleted.
+     *
+     * @param symmetricCipherProfile profile of the key
+     * @param oldestKeyVersion       oldest kept key version
+     */
+    public void setOldestKeyVersion(@NonNull final SymmetricCipherProfile symmetricCipherProfile, final int oldestKeyVersion) {
+        this.sharedPreferencesDataAccessor.save(KEY_VERSION_PREFERENCES_FILE_NAME, symmetricCipherProfile.name() + OLDEST_KEY_VERSION_SUFFIX,
+                String.valueOf(oldestKeyVersion));
+    }
+
+    private int loadCurrentKeyVersion(final SymmetricCipherProfile symmetricCipherProfile) {
+        return Optional.ofNullable(this.sharedPreferencesDataAccessor.get(KEY_VERSION_PREFERENCES_FILE_NAME, symmetricCipherProfile.name()))
+                .map(Integer::parseInt)
+                .orElse(0);
+    }
+}
@@ -2,21 +2,99 @@ package com.ak.cardstore.configuration;
 
 import android.util.Log;
 
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
 import com.ak.cardstore.dao.FileBasedDataAccessor;
 import com.ak.cardstore.exception.ConfigurationManagerException;
+import com.ak.cardstore.pojo.Card;
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.KeyDerivationParameters;
 import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
 import com.ak.cardstore.serialization.Serializer;
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
+import com.google.common.annotations.VisibleForTesting;
 
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+import static com.ak.cardstore.util.StringUtil.toUTF8ByteArray;
 
 /**
  * A class to manage the application configuration.
+ * <p>
+ * The configuration is streamed from the wallet serializer through the cipher straight to the configuration file, so the
+ * serialized wallet is never held in memory as a whole. The streamed configuration file starts with a
+ * magic number, the format version and the id of the {@link SymmetricCipherProfile} the wallet is encrypted with, so a
+ * change of the configured profile does not break loading the existing wallet. Version 1 files carry no profile id and are
+ * encrypted with {@link SymmetricCipherProfile#AES_CBC_PKCS7}. Configuration files without the header are read as the
+ * legacy serialized {@link EncryptedConfiguration}.
+ * <p>
+ * From version 3, the header also carries the {@link KeyDerivationParameters} (the iteration count and the salt). From version
+ * 6, it also carries a random file salt, drawn for every write, and the data is encrypted twice: with the key derived from the
+ * password, the parameters and the file salt by {@link PasswordKeyDeriver}, and then with the key store key. The key store
+ * ignores the password, so the files of versions 3 to 5, whose derived key only went to the key store, are decrypted with the
+ * key store key alone. The key is derived only once the file is known to be read, and the password key it is derived from is
+ * cached for the unlock session, so only the first load or save of the session pays for the key derivation function.
+ * <p>
+ * From version 4, the header also carries the version of the key the data is encrypted with, so the data stays readable after
+ * the key is rotated. The data encrypted with a previous key version or another profile is re-encrypted with the current key
+ * by {@link #reencryptWallet(String)}. The operations on the configuration file are serialized, so a re-encryption in the
+ * background never overwrites a concurrent save.
+ * <p>
+ * The edits of the saved wallet can be journaled instead of saving the whole wallet: every added, updated or removed card
+ * appends a small {@link WalletJournalEntry}, encrypted independently with its own initial vector and the same header as the
+ * configuration file, to the {@link WalletJournal}. The journal is the only per-card storage, so an edit of a card encrypts
+ * and writes only that card. {@link #load(String)} replays the journal on top of the saved wallet, and saving the wallet deletes the
+ * journal. Every entry is stamped with the file salt of the saved wallet it applies to, so the entries left behind by a crash
+ * before the journal is deleted are not replayed on the newer wallet. Once the journal grows past {@link WalletJournal#COMPACTION_THRESHOLD_BYTES}, the wallet with the journaled edits is
+ * saved behind, which folds the journal into the configuration file in the background without keeping the password.
+ * <p>
+ * The wallet can also be saved behind by {@link #saveLater(Wallet, String)}: the wallet only replaces the pending one and is
+ * saved {@link #WRITE_BEHIND_DELAY_MILLIS} after the last of the rapid saves, so a burst of edits costs a single encryption and
+ * write. The keys of the pending wallet are retrieved and derived when it is saved behind, so the password is never kept. The
+ * pending wallet is saved before any other operation on the configuration file, and in the background by {@link #flush()}.
+ * <p>
+ * The wallet loaded by {@link #load(String)} is cached with the generation of the configuration file and the journal, which is
+ * bumped by every save and journaled edit, so the repeated loads of the session skip the decryption and the file reads until
+ * the wallet changes. The cache keeps a salted digest of the password instead of the password, and every load returns its own
+ * copy of the cached wallet. The cached wallet is evicted once it is not loaded for {@link #WALLET_CACHE_IDLE_TIMEOUT_MILLIS},
+ * and by {@link #evictCachedWallet()}, e.g. on logout or when the application goes to the background.
+ * <p>
+ * From version 5, the header also carries the id of the {@link CompressionCodec} the data is compressed with before it is
+ * encrypted. The wallet is compressed with the configured codec, so the repeated field names of its cards cost little in the
+ * cipher and on disk. The journal entries hold a single card each and are not compressed.
  *
  * @author Abhishek
  */
@@ -28,45 +106,491 @@ public class AppConfigurationManager {
 
     private static final String CONFIGURATION_FILE_NAME = "com.ak.cardstore.wallet.cdb";
 
+    @VisibleForTesting
+    static final long WRITE_BEHIND_DELAY_MILLIS = 500;
+
+    @VisibleForTesting
+    static final long WALLET_CACHE_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private static final byte[] STREAMED_CONFIGURATION_MAGIC = {'C', 'S', 'W', 'L'};
+    private static final int STREAMED_CONFIGURATION_VERSION_WITHOUT_PROFILE = 1;
+    private static final int STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_DERIVATION = 2;
+    private static final int STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_VERSION = 3;
+    private static final int STREAMED_CONFIGURATION_VERSION_WITHOUT_COMPRESSION = 4;
+    private static final int STREAMED_CONFIGURATION_VERSION_WITHOUT_FILE_KEY = 5;
+    private static final int STREAMED_CONFIGURATION_VERSION = 6;
+    private static final int UNVERSIONED_KEY_VERSION = 0;
+    private static final byte[] NO_FILE_SALT = {};
+
+    private static final String PASSWORD_DIGEST_ALGORITHM = "SHA-256";
+    private static final int PASSWORD_DIGEST_SALT_LENGTH = 16;
+
     private static final String CONFIGURATION_SAVE_ERROR = "Error saving the configuration file!";
     private static final String CONFIGURATION_READ_ERROR = "Error reading the configuration file!";
+    private static final String UNSUPPORTED_CONFIGURATION_VERSION_ERROR = "Unsupported configuration file version %d!";
+    private static final String UNSUPPORTED_CIPHER_PROFILE_ERROR = "Unsupported cipher profile %d in the configuration file!";
+    private static final String INVALID_KEY_DERIVATION_PARAMETERS_ERROR = "Invalid key derivation parameters in the configuration file!";
+    private static final String INVALID_KEY_VERSION_ERROR = "Invalid key version %d in the configuration file!";
+    private static final String UNSUPPORTED_COMPRESSION_CODEC_ERROR = "Unsupported compression codec %d in the configuration file!";
+    private static final String INVALID_JOURNAL_ENTRY_ERROR = "Invalid wallet journal entry!";
+    private static final String WRITE_BEHIND_ERROR = "Error saving the pending wallet, retrying on the next save or flush!";
+    private static final String PASSWORD_DIGEST_ERROR = "Error digesting the password with the algorithm %s!";
 
     private final Serializer<Wallet> walletSerializer;
     private final SymmetricKeyCipher symmetricKeyCipher;
+    private final PasswordKeyDeriver passwordKeyDeriver;
     private final Serializer<EncryptedConfiguration> encryptedConfigurationSerializer;
     private final FileBasedDataAccessor fileBasedDataAccessor;
+    private final Serializer<WalletJournalEntry> walletJournalEntrySerializer;
+    private final WalletJournal walletJournal;
+    private final ScheduledExecutorService writeBehindExecutorService;
+    private final ScheduledExecutorService walletCacheExecutorService;
+    private final CompressionCodec walletCompressionCodec;
+
+    private final ConcurrentMap<String, Object> fileLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Pair of <wallet, keys to encrypt it with> waiting to be saved
+     */
+    private final AtomicReference<ImmutablePair<Wallet, WriteKeys>> pendingSave = new AtomicReference<>();
+
+    /**
+     * Generation of the configuration file and the journal, bumped whenever either of them is written
+     */
+    private final AtomicLong configurationGeneration = new AtomicLong();
+
+    /**
+     * Triple of <configuration generation, salted password digest, wallet> of the last loaded wallet
+     */
+    private final AtomicReference<ImmutableTriple<Long, byte[], Wallet>> cachedWallet = new AtomicReference<>();
+    private final byte[] passwordDigestSalt = newPasswordDigestSalt();
+    private final AtomicBoolean cachedWalletLoaded = new AtomicBoolean();
+    private final AtomicReference<ScheduledFuture<?>> cachedWalletEviction = new AtomicReference<>();
 
     /**
      * Saves the application configuration by executing the following steps
-     * 1. Serialize the wallet
-     * 2. Encrypt the wallet
-     * 3. Serialize the encrypted wallet and initial vector
-     * 4. Save the serialized encrypted wallet
+     * 1. Write the configuration header and derive the key from the password
+     * 2. Serialize the wallet into the compressing and encrypting stream
+     * 3. Stream the initial vector and the encrypted wallet to the configuration file
+     * <p>
+     * The configuration file is replaced atomically, so a failed save leaves the previous configuration intact. The journal is
+     * deleted once the wallet is saved.
      *
      * @param wallet   wallet to save
      * @param password password to encrypt the configuration with
      */
     public void save(final Wallet wallet, final String password) {
-        final String serializedWallet = this.walletSerializer.serialize(wallet);
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            // The pending wallet is older, so it must not be saved over this one
+            this.pendingSave.set(null);
+            this.write(wallet, this.retrieveWriteKeys(password));
+        }
+    }
 
-        final Pair<String, String> serializedEncryptedWalletAndIvPair = this.symmetricKeyCipher.encrypt(serializedWallet, password);
-        final EncryptedConfiguration encryptedConfiguration = EncryptedConfiguration.builder()
-                .serializedAndEncryptedWallet(serializedEncryptedWalletAndIvPair.getKey())
-                .initialVector(serializedEncryptedWalletAndIvPair.getValue())
-                .build();
+    /**
+     * Saves the wallet behind: the wallet replaces the pending wallet and is saved in the background after
+     * {@link #WRITE_BEHIND_DELAY_MILLIS}, unless another wallet replaces it in the meantime. See {@link #save(Wallet, String)}.
+     * <p>
+     * The keys to encrypt the wallet with are retrieved and derived on the calling thread, so only the keys are kept with the
+     * pending wallet and not the password. The password key is cached for the session, so this costs no key derivation after
+     * the first save or load.
+     *
+     * @param wallet   wallet to save
+     * @param password password to encrypt the configuration with
+     */
+    public void saveLater(@NonNull final Wallet wallet, @NonNull final String password) {
+        final ImmutablePair<Wallet, WriteKeys> walletAndWriteKeys = ImmutablePair.of(wallet, this.retrieveWriteKeys(password));
+        this.pendingSave.set(walletAndWriteKeys);
+
+        this.writeBehindExecutorService.schedule(() -> {
+            // Only the last of the rapid saves is written
+            if (this.pendingSave.get() != walletAndWriteKeys) {
+                return;
+            }
 
-        final String serializedEncryptedConfiguration = this.encryptedConfigurationSerializer.serialize(encryptedConfiguration);
+            try {
+                this.writePendingWallet();
+            } catch (final RuntimeException e) {
+                logError(LOG_TAG, Optional.of(e), WRITE_BEHIND_ERROR);
+            }
+        }, WRITE_BEHIND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
 
+    /**
+     * Saves the pending wallet of {@link #saveLater(Wallet, String)} in the background right away, e.g. before the application
+     * is stopped or the user logs out. If saving fails, the wallet stays pending.
+     * <p>
+     * The pending wallet carries its own keys, so the session keys may be evicted right after the call, without waiting for the
+     * returned future.
+     *
+     * @return future completed once the pending wallet is saved, exceptionally with {@link ConfigurationManagerException} if
+     * saving fails
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::writePendingWallet, this.writeBehindExecutorService);
+    }
+
+    /**
+     * Loads the application configuration by executing the following steps
+     * 1. Read and verify the configuration header, the cipher profile and derive the key from the password
+     * 2. Stream the encrypted wallet from the configuration file through the decrypting and decompressing stream
+     * 3. Deserialize the wallet from the decompressing stream
+     * 4. Replay the journaled edits on top of the wallet
+     * <p>
+     * If the configuration file has no header, the configuration is loaded by {@link #loadLegacyConfiguration(String)}. If the
+     * configuration file does not exist yet, the journal is replayed on an empty wallet.
+     * <p>
+     * The wallet is returned from the cache if neither the configuration file nor the journal changed since it was last loaded
+     * with the same password. Every call returns its own copy of the wallet, so the caller may modify it.
+     *
+     * @param password password to decrypt the configuration with
+     * @return Wallet
+     */
+    public Wallet load(final String password) {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            this.writePendingWallet();
+
+            final long generation = this.configurationGeneration.get();
+            final byte[] passwordDigest = this.digestPassword(password);
+            final ImmutableTriple<Long, byte[], Wallet> generationPasswordDigestAndWallet = this.cachedWallet.get();
+            if (generationPasswordDigestAndWallet != null && generationPasswordDigestAndWallet.getLeft() == generation
+                    && MessageDigest.isEqual(generationPasswordDigestAndWallet.getMiddle(), passwordDigest)) {
+                this.cachedWalletLoaded.set(true);
+                return copyOf(generationPasswordDigestAndWallet.getRight());
+            }
+
+            final Wallet wallet = this.replayJournal(this.load(password, false).get(), password);
+            this.cachedWallet.set(ImmutableTriple.of(generation, passwordDigest, copyOf(wallet)));
+            this.cachedWalletLoaded.set(true);
+            if (this.cachedWalletEviction.get() == null) {
+                this.scheduleCachedWalletEviction();
+            }
+
+            if (this.walletJournal.isCompactionDue()) {
+                this.saveLater(copyOf(wallet), password);
+            }
+
+            return wallet;
+        }
+    }
+
+    /**
+     * Evicts the cached wallet, so the next {@link #load(String)} reads and decrypts the configuration again.
+     */
+    public void evictCachedWallet() {
+        // Does not wait for the file lock, so it never blocks on a save running in the background. Bumping the generation keeps
+        // a load running concurrently from caching the wallet again once it completes.
+        this.configurationGeneration.incrementAndGet();
+        this.cachedWallet.set(null);
+        Optional.ofNullable(this.cachedWalletEviction.getAndSet(null)).ifPresent(eviction -> eviction.cancel(false));
+    }
+
+    /**
+     * Re-encrypts the configuration with the current key, if the configuration file exists and is encrypted with another key
+     * version or {@link SymmetricCipherProfile}. The journal is folded into the re-encrypted configuration.
+     *
+     * @param password password to decrypt and encrypt the configuration with
+     * @return true if the configuration was re-encrypted, false if it is up to date or does not exist
+     */
+    public boolean reencryptWallet(final String password) {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            this.writePendingWallet();
+            if (!this.fileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME).contains(CONFIGURATION_FILE_NAME)) {
+                return false;
+            }
+
+            final Optional<Wallet> optionalStaleWallet = this.load(password, true);
+            optionalStaleWallet.ifPresent(wallet -> this.save(this.replayJournal(wallet, password), password));
+            return optionalStaleWallet.isPresent();
+        }
+    }
+
+    /**
+     * Returns whether the configuration is encrypted with the current key version and {@link SymmetricCipherProfile}, once the
+     * pending wallet is saved. Only the header is read, so no password is needed. A configuration which does not exist needs no
+     * re-encryption.
+     *
+     * @return true if the configuration is up to date or does not exist, false if it should be re-encrypted
+     */
+    public boolean isWalletEncryptedWithCurrentKey() {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            this.writePendingWallet();
+            if (!this.fileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME).contains(CONFIGURATION_FILE_NAME)) {
+                return true;
+            }
+
+            try (final InputStream configurationInputStream = this.fileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)) {
+                final Optional<StreamedConfigurationHeader> optionalStreamedConfigurationHeader =
+                        this.readStreamedConfigurationHeader(configurationInputStream);
+                return optionalStreamedConfigurationHeader.isPresent()
+                        && this.isEncryptedWithCurrentKey(optionalStreamedConfigurationHeader.get());
+            } catch (final IOException e) {
+                Log.e(LOG_TAG, CONFIGURATION_READ_ERROR, e);
+                throw new ConfigurationManagerException(CONFIGURATION_READ_ERROR, e);
+            }
+        }
+    }
+
+    /**
+     * Journals adding the card to the saved wallet.
+     *
+     * @param card     card to add
+     * @param password password to encrypt the journal entry with
+     */
+    public void addWalletCard(final Card card, final String password) {
+        this.appendJournalEntry(WalletJournalEntry.builder()
+                .removedCards(Collections.emptySet())
+                .addedCards(Collections.singleton(card))
+                .build(), password);
+    }
+
+    /**
+     * Journals replacing the card of the saved wallet with the updated card.
+     *
+     * @param card        card to replace
+     * @param updatedCard updated card
+     * @param password    password to encrypt the journal entry with
+     */
+    public void updateWalletCard(final Card card, final Card updatedCard, final String password) {
+        this.appendJournalEntry(WalletJournalEntry.builder()
+                .removedCards(Collections.singleton(card))
+                .addedCards(Collections.singleton(updatedCard))
+                .build(), password);
+    }
+
+    /**
+     * Journals removing the card from the saved wallet.
+     *
+     * @param card     card to remove
+     * @param password password to encrypt the journal entry with
+     */
+    public void removeWalletCard(final Card card, final String password) {
+        this.appendJournalEntry(WalletJournalEntry.builder()
+                .removedCards(Collections.singleton(card))
+                .addedCards(Collections.emptySet())
+                .build(), password);
+    }
+
+    /**
+     * Folds the journal into the configuration file, by saving the wallet loaded with the journal replayed.
+     *
+     * @param password password to decrypt and encrypt the configuration with
+     */
+    public void compactJournal(final String password) {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            if (this.walletJournal.exists()) {
+                this.save(this.load(password), password);
+                Log.i(LOG_TAG, "Compacted the wallet journal.");
+            }
+        }
+    }
+
+    /**
+     * Loads the application configuration, see {@link #load(String)}.
+     *
+     * @param password  password to decrypt the configuration with
+     * @param staleOnly true to load the configuration only if it is not encrypted with the current key
+     * @return Wallet, empty if only the stale configuration is requested and the configuration is up to date or does not exist
+     */
+    private Optional<Wallet> load(final String password, final boolean staleOnly) {
+        try (final InputStream configurationInputStream = this.fileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)) {
+            final Optional<StreamedConfigurationHeader> optionalStreamedConfigurationHeader =
+                    this.readStreamedConfigurationHeader(configurationInputStream);
+            if (optionalStreamedConfigurationHeader.isPresent()) {
+                if (staleOnly && this.isEncryptedWithCurrentKey(optionalStreamedConfigurationHeader.get())) {
+                    return Optional.empty();
+                }
+
+                return Optional.of(this.decrypt(configurationInputStream, optionalStreamedConfigurationHeader.get(), password,
+                        this.walletSerializer::deserializeFrom));
+            }
+        } catch (final FileNotFoundException e) {
+            // Only the journal was written since the wallet was created
+            return staleOnly
+                    ? Optional.empty()
+                    : Optional.of(Wallet.builder().cards(new LinkedHashSet<>()).build());
+        } catch (final IOException e) {
+            Log.e(LOG_TAG, CONFIGURATION_READ_ERROR, e);
+            throw new ConfigurationManagerException(CONFIGURATION_READ_ERROR, e);
+        }
+
+        return Optional.of(this.loadLegacyConfiguration(password));
+    }
+
+    /**
+     * Saves the pending wallet of {@link #saveLater(Wallet, String)}, if any, on the calling thread. If saving fails, the
+     * wallet stays pending.
+     */
+    private void writePendingWallet() {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            final ImmutablePair<Wallet, WriteKeys> walletAndWriteKeys = this.pendingSave.getAndSet(null);
+            if (walletAndWriteKeys == null) {
+                return;
+            }
+
+            try {
+                this.write(walletAndWriteKeys.getLeft(), walletAndWriteKeys.getRight());
+            } catch (final RuntimeException e) {
+                // Keep the wallet pending, unless a newer one replaced it
+                this.pendingSave.compareAndSet(null, walletAndWriteKeys);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes the wallet to the configuration file and deletes the journal, see {@link #save(Wallet, String)}.
+     *
+     * @param wallet    wallet to write
+     * @param writeKeys keys to encrypt the configuration with
+     */
+    private void write(final Wallet wallet, final WriteKeys writeKeys) {
         try {
-            this.fileBasedDataAccessor.save(CONFIGURATION_FILE_NAME, serializedEncryptedConfiguration);
+            this.configurationGeneration.incrementAndGet();
+            this.fileBasedDataAccessor.write(CONFIGURATION_FILE_NAME, configurationOutputStream -> {
+                this.writeStreamedConfigurationHeader(configurationOutputStream, writeKeys, this.walletCompressionCodec);
+
+                this.encrypt(configurationOutputStream, writeKeys,
+                        plainTextOutputStream -> this.walletCompressionCodec.compress(plainTextOutputStream,
+                                uncompressedOutputStream -> this.walletSerializer.serializeTo(wallet, uncompressedOutputStream)));
+            });
         } catch (final IOException e) {
             Log.e(LOG_TAG, CONFIGURATION_SAVE_ERROR, e);
             throw new ConfigurationManagerException(CONFIGURATION_SAVE_ERROR, e);
         }
+
+        // The saved wallet includes the journaled edits
+        this.walletJournal.delete();
     }
 
     /**
-     * Loads the application configuration by executing the following steps
+     * Checks the cached wallet every {@link #WALLET_CACHE_IDLE_TIMEOUT_MILLIS}, and evicts it once it was not loaded since the
+     * last check.
+     */
+    private void scheduleCachedWalletEviction() {
+        this.cachedWalletEviction.set(this.walletCacheExecutorService.schedule(() -> {
+            synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+                if (this.cachedWalletLoaded.getAndSet(false) && this.cachedWallet.get() != null) {
+                    this.scheduleCachedWalletEviction();
+                    return;
+                }
+
+                this.cachedWallet.set(null);
+                this.cachedWalletEviction.set(null);
+                Log.i(LOG_TAG, "Evicted the idle cached wallet.");
+            }
+        }, WALLET_CACHE_IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private byte[] digestPassword(final String password) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance(PASSWORD_DIGEST_ALGORITHM);
+            messageDigest.update(this.passwordDigestSalt);
+            return messageDigest.digest(toUTF8ByteArray(password));
+        } catch (final NoSuchAlgorithmException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), PASSWORD_DIGEST_ERROR, PASSWORD_DIGEST_ALGORITHM);
+            throw new ConfigurationManagerException(errorMessage, e);
+        }
+    }
+
+    private static byte[] newPasswordDigestSalt() {
+        final byte[] passwordDigestSalt = new byte[PASSWORD_DIGEST_SALT_LENGTH];
+        new SecureRandom().nextBytes(passwordDigestSalt);
+        return passwordDigestSalt;
+    }
+
+    private static Wallet copyOf(final Wallet wallet) {
+        return Wallet.builder()
+                .cards(Optional.ofNullable(wallet.getCards()).map(LinkedHashSet::new).orElse(null))
+                .build();
+    }
+
+    /**
+     * Encrypts the journal entry with the configuration header and appends it to the journal. The cached wallet, if it is
+     * current, is kept current with the journal entry, and saved behind once the journal is due for the compaction.
+     *
+     * @param walletJournalEntry journal entry to append
+     * @param password           password to encrypt the journal entry with
+     */
+    private void appendJournalEntry(final WalletJournalEntry walletJournalEntry, final String password) {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            // The pending wallet would delete the journal entry when saved
+            this.writePendingWallet();
+
+            final long generation = this.configurationGeneration.incrementAndGet();
+            this.walletJournal.append(this.readSnapshotId(), journalEntryOutputStream -> {
+                final WriteKeys writeKeys = this.retrieveWriteKeys(password);
+                this.writeStreamedConfigurationHeader(journalEntryOutputStream, writeKeys, CompressionCodec.NONE);
+                this.encrypt(journalEntryOutputStream, writeKeys,
+                        plainTextOutputStream -> this.walletJournalEntrySerializer.serializeTo(walletJournalEntry, plainTextOutputStream));
+            });
+
+            final byte[] passwordDigest = this.digestPassword(password);
+            final ImmutableTriple<Long, byte[], Wallet> generationPasswordDigestAndWallet = this.cachedWallet.get();
+            if (generationPasswordDigestAndWallet == null || generationPasswordDigestAndWallet.getLeft() != generation - 1
+                    || !MessageDigest.isEqual(generationPasswordDigestAndWallet.getMiddle(), passwordDigest)) {
+                // The journal is compacted on the next load instead
+                return;
+            }
+
+            final Wallet wallet = WalletJournal.apply(generationPasswordDigestAndWallet.getRight(), walletJournalEntry);
+            this.cachedWallet.set(ImmutableTriple.of(generation, passwordDigest, wallet));
+            if (this.walletJournal.isCompactionDue()) {
+                this.saveLater(copyOf(wallet), password);
+            }
+        }
+    }
+
+    /**
+     * Replays the journal on top of the wallet, see {@link WalletJournal#replay(Wallet, byte[], IOFunction)}.
+     *
+     * @param wallet   wallet to replay the journal on
+     * @param password password to decrypt the journal entries with
+     * @return wallet with the journaled edits, the same wallet if there is no journal
+     */
+    private Wallet replayJournal(final Wallet wallet, final String password) {
+        if (!this.walletJournal.exists()) {
+            return wallet;
+        }
+
+        return this.walletJournal.replay(wallet, this.readSnapshotId(), journalEntryInputStream -> {
+            final Optional<StreamedConfigurationHeader> optionalStreamedConfigurationHeader =
+                    this.readStreamedConfigurationHeader(journalEntryInputStream);
+            if (!optionalStreamedConfigurationHeader.isPresent()) {
+                final String errorMessage = logError(LOG_TAG, Optional.empty(), INVALID_JOURNAL_ENTRY_ERROR);
+                throw new ConfigurationManagerException(errorMessage, null);
+            }
+
+            return this.decrypt(journalEntryInputStream, optionalStreamedConfigurationHeader.get(), password,
+                    this.walletJournalEntrySerializer::deserializeFrom);
+        });
+    }
+
+    /**
+     * Reads the id of the saved wallet the journal entries apply to, i.e. the file salt of the configuration header, which is
+     * renewed on every save.
+     *
+     * @return id of the saved wallet, {@link #NO_FILE_SALT} if the configuration file does not exist or has no file salt
+     */
+    private byte[] readSnapshotId() {
+        synchronized (this.getFileLock(CONFIGURATION_FILE_NAME)) {
+            if (!this.fileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME).contains(CONFIGURATION_FILE_NAME)) {
+                return NO_FILE_SALT;
+            }
+
+            try (final InputStream configurationInputStream = this.fileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)) {
+                return this.readStreamedConfigurationHeader(configurationInputStream)
+                        .map(StreamedConfigurationHeader::getFileSalt)
+                        .orElse(NO_FILE_SALT);
+            } catch (final IOException e) {
+                Log.e(LOG_TAG, CONFIGURATION_READ_ERROR, e);
+                throw new ConfigurationManagerException(CONFIGURATION_READ_ERROR, e);
+            }
+        }
+    }
+
+    /**
+     * Loads the legacy application configuration by executing the following steps
      * 1. Read the serialized encrypted wallet
      * 2. Deserialize the serialized encrypted wallet
      * 3. decrypt the encrypted wallet
@@ -75,7 +599,7 @@ public class AppConfigurationManager {
      * @param password password to decrypt the configuration with
      * @return Wallet
      */
-    public Wallet load(final String password) {
+    private Wallet loadLegacyConfiguration(final String password) {
         final String serializedEncryptedConfiguration;
         try {
             serializedEncryptedConfiguration = this.fileBasedDataAccessor.getContents(CONFIGURATION_FILE_NAME);
@@ -92,4 +616,261 @@ public class AppConfigurationManager {
         final Wallet wallet = this.walletSerializer.deserialize(serializedWallet);
         return wallet;
     }
+
+    /**
+     * Retrieves the current key store key, and derives the key of a new file from the password with a new file salt.
+     *
+     * @param password password to retrieve and derive the keys with
+     * @return {@link WriteKeys}
+     */
+    private WriteKeys retrieveWriteKeys(final String password) {
+        final int keyVersion = this.symmetricKeyCipher.getKeyVersion();
+        final Key keyStoreKey = this.symmetricKeyCipher.retrieveKey(keyVersion, password);
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.getKeyDerivationParameters();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+        final Key fileKey = this.passwordKeyDeriver.derive(password, keyDerivationParameters, fileSalt);
+        return new WriteKeys(keyVersion, keyStoreKey, keyDerivationParameters, fileSalt, fileKey);
+    }
+
+    /**
+     * Writes the header of the streamed configuration file with the key version, the key derivation parameters and the file salt
+     * of the keys to encrypt the configuration with.
+     *
+     * @param configurationOutputStream stream of the configuration file
+     * @param writeKeys                 keys the configuration is encrypted with
+     * @param compressionCodec          codec the configuration is compressed with
+     */
+    private void writeStreamedConfigurationHeader(final OutputStream configurationOutputStream, final WriteKeys writeKeys,
+                                                  final CompressionCodec compressionCodec) throws IOException {
+        final KeyDerivationParameters keyDerivationParameters = writeKeys.getKeyDerivationParameters();
+        final byte[] fileSalt = writeKeys.getFileSalt();
+        final byte[] salt = keyDerivationParameters.getSalt();
+
+        final DataOutputStream headerOutputStream = new DataOutputStream(configurationOutputStream);
+        headerOutputStream.write(STREAMED_CONFIGURATION_MAGIC);
+        headerOutputStream.write(STREAMED_CONFIGURATION_VERSION);
+        headerOutputStream.write(this.symmetricKeyCipher.getSymmetricCipherProfile().getId());
+        headerOutputStream.writeInt(writeKeys.getKeyVersion());
+        headerOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        headerOutputStream.write(salt.length);
+        headerOutputStream.write(salt);
+        headerOutputStream.write(fileSalt.length);
+        headerOutputStream.write(fileSalt);
+        headerOutputStream.write(compressionCodec.getId());
+        headerOutputStream.flush();
+    }
+
+    /**
+     * Encrypts the data written by the plain text writer with the key derived from the password, and the result with the key
+     * store key, and streams it to the output stream positioned past the header.
+     *
+     * @param encryptedOutputStream stream to write the encrypted data to
+     * @param writeKeys             keys to encrypt with, as written to the header
+     * @param plainTextWriter       writer of the data to encrypt
+     */
+    private void encrypt(final OutputStream encryptedOutputStream, final WriteKeys writeKeys,
+                         final IOConsumer<OutputStream> plainTextWriter) throws IOException {
+        this.symmetricKeyCipher.encrypt(encryptedOutputStream, writeKeys.getKeyVersion(), writeKeys.getKeyStoreKey(),
+                keyStorePlainTextOutputStream -> this.symmetricKeyCipher.encrypt(keyStorePlainTextOutputStream,
+                        writeKeys.getFileKey(), plainTextWriter));
+    }
+
+    /**
+     * Reads the header of the streamed configuration file. The configuration files before version 4 are encrypted with the
+     * unversioned key, the ones before version 5 are not compressed, and the ones before version 6 are not encrypted with the key
+     * derived from the password.
+     *
+     * @param configurationInputStream stream of the configuration file
+     * @return {@link StreamedConfigurationHeader}, empty if the file has no header
+     */
+    private Optional<StreamedConfigurationHeader> readStreamedConfigurationHeader(final InputStream configurationInputStream)
+            throws IOException {
+        final byte[] magic = new byte[STREAMED_CONFIGURATION_MAGIC.length];
+
+        int magicLength = 0;
+        while (magicLength < magic.length) {
+            final int read = configurationInputStream.read(magic, magicLength, magic.length - magicLength);
+            if (read == -1) {
+                return Optional.empty();
+            }
+
+            magicLength += read;
+        }
+
+        if (!Arrays.equals(STREAMED_CONFIGURATION_MAGIC, magic)) {
+            return Optional.empty();
+        }
+
+        final int version = configurationInputStream.read();
+        if (version == STREAMED_CONFIGURATION_VERSION_WITHOUT_PROFILE) {
+            return Optional.of(new StreamedConfigurationHeader(SymmetricCipherProfile.AES_CBC_PKCS7, UNVERSIONED_KEY_VERSION,
+                    Optional.empty(), NO_FILE_SALT, CompressionCodec.NONE));
+        }
+
+        if (version != STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_DERIVATION && version != STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_VERSION
+                && version != STREAMED_CONFIGURATION_VERSION_WITHOUT_COMPRESSION && version != STREAMED_CONFIGURATION_VERSION_WITHOUT_FILE_KEY
+                && version != STREAMED_CONFIGURATION_VERSION) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), UNSUPPORTED_CONFIGURATION_VERSION_ERROR, version);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        final int symmetricCipherProfileId = configurationInputStream.read();
+        final Optional<SymmetricCipherProfile> optionalSymmetricCipherProfile = SymmetricCipherProfile.fromId(symmetricCipherProfileId);
+        if (!optionalSymmetricCipherProfile.isPresent()) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), UNSUPPORTED_CIPHER_PROFILE_ERROR, symmetricCipherProfileId);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        if (version == STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_DERIVATION) {
+            return Optional.of(new StreamedConfigurationHeader(optionalSymmetricCipherProfile.get(), UNVERSIONED_KEY_VERSION,
+                    Optional.empty(), NO_FILE_SALT, CompressionCodec.NONE));
+        }
+
+        final int keyVersion = (version == STREAMED_CONFIGURATION_VERSION_WITHOUT_KEY_VERSION)
+                ? UNVERSIONED_KEY_VERSION
+                : readKeyVersion(configurationInputStream);
+
+        final KeyDerivationParameters keyDerivationParameters = readKeyDerivationParameters(configurationInputStream);
+
+        final byte[] fileSalt = (version == STREAMED_CONFIGURATION_VERSION)
+                ? readFileSalt(configurationInputStream)
+                : NO_FILE_SALT;
+
+        final CompressionCodec compressionCodec = (version == STREAMED_CONFIGURATION_VERSION_WITHOUT_FILE_KEY
+                || version == STREAMED_CONFIGURATION_VERSION)
+                ? readCompressionCodec(configurationInputStream)
+                : CompressionCodec.NONE;
+
+        // The key derived by the versions before 6 only went to the key store, which ignores it
+        return Optional.of(new StreamedConfigurationHeader(optionalSymmetricCipherProfile.get(), keyVersion,
+                (version == STREAMED_CONFIGURATION_VERSION) ? Optional.of(keyDerivationParameters) : Optional.empty(), fileSalt,
+                compressionCodec));
+    }
+
+    /**
+     * Decrypts and decompresses the data streamed from the input stream positioned past the header and returns the result of
+     * the plain text reader. The key is derived from the password only here, so the files which are not decrypted, e.g. the
+     * up to date ones on re-encryption, never pay for the derivation.
+     *
+     * @param encryptedInputStream        stream of the encrypted data
+     * @param streamedConfigurationHeader header the data was written with
+     * @param password                    password to decrypt the data with
+     * @param plainTextReader             reader of the decrypted and decompressed data
+     * @param <RESULT_TYPE>               type of the result of the plain text reader
+     * @return result of the plain text reader
+     */
+    private <RESULT_TYPE> RESULT_TYPE decrypt(final InputStream encryptedInputStream,
+                                              final StreamedConfigurationHeader streamedConfigurationHeader,
+                                              final String password,
+                                              final IOFunction<InputStream, RESULT_TYPE> plainTextReader) throws IOException {
+        final SymmetricCipherProfile symmetricCipherProfile = streamedConfigurationHeader.getSymmetricCipherProfile();
+        final IOFunction<InputStream, RESULT_TYPE> decompressingPlainTextReader = plainTextInputStream ->
+                streamedConfigurationHeader.getCompressionCodec().decompress(plainTextInputStream, plainTextReader);
+
+        final Optional<KeyDerivationParameters> optionalKeyDerivationParameters = streamedConfigurationHeader.getKeyDerivationParameters();
+        if (!optionalKeyDerivationParameters.isPresent()) {
+            return this.symmetricKeyCipher.decrypt(encryptedInputStream, symmetricCipherProfile, streamedConfigurationHeader.getKeyVersion(),
+                    password, decompressingPlainTextReader);
+        }
+
+        final Key fileKey = this.passwordKeyDeriver.derive(password, optionalKeyDerivationParameters.get(),
+                streamedConfigurationHeader.getFileSalt());
+        final RESULT_TYPE result = this.symmetricKeyCipher.decrypt(encryptedInputStream, symmetricCipherProfile,
+                streamedConfigurationHeader.getKeyVersion(), password, keyStorePlainTextInputStream -> this.symmetricKeyCipher.decrypt(
+                        keyStorePlainTextInputStream, symmetricCipherProfile, fileKey, decompressingPlainTextReader));
+
+        // The password key derived for the data is cached, so the next save reuses it with the same parameters
+        this.passwordKeyDeriver.reuseKeyDerivationParameters(optionalKeyDerivationParameters.get());
+        return result;
+    }
+
+    private boolean isEncryptedWithCurrentKey(final StreamedConfigurationHeader streamedConfigurationHeader) {
+        return streamedConfigurationHeader.getSymmetricCipherProfile() == this.symmetricKeyCipher.getSymmetricCipherProfile()
+                && streamedConfigurationHeader.getKeyVersion() == this.symmetricKeyCipher.getKeyVersion();
+    }
+
+    private Object getFileLock(final String fileName) {
+        return this.fileLocks.computeIfAbsent(fileName, lockedFileName -> new Object());
+    }
+
+    private static int readKeyVersion(final InputStream configurationInputStream) throws IOException {
+        final int keyVersion = new DataInputStream(configurationInputStream).readInt();
+        if (keyVersion < 0) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), INVALID_KEY_VERSION_ERROR, keyVersion);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        return keyVersion;
+    }
+
+    private static CompressionCodec readCompressionCodec(final InputStream configurationInputStream) throws IOException {
+        final int compressionCodecId = new DataInputStream(configurationInputStream).readUnsignedByte();
+        final Optional<CompressionCodec> optionalCompressionCodec = CompressionCodec.fromId(compressionCodecId);
+        if (!optionalCompressionCodec.isPresent()) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), UNSUPPORTED_COMPRESSION_CODEC_ERROR, compressionCodecId);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        return optionalCompressionCodec.get();
+    }
+
+    private static KeyDerivationParameters readKeyDerivationParameters(final InputStream configurationInputStream) throws IOException {
+        final DataInputStream headerInputStream = new DataInputStream(configurationInputStream);
+
+        final int iterationCount = headerInputStream.readInt();
+        final byte[] salt = new byte[headerInputStream.readUnsignedByte()];
+        headerInputStream.readFully(salt);
+
+        if (iterationCount <= 0 || salt.length == 0) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), INVALID_KEY_DERIVATION_PARAMETERS_ERROR);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        return KeyDerivationParameters.builder()
+                .salt(salt)
+                .iterationCount(iterationCount)
+                .build();
+    }
+
+    private static byte[] readFileSalt(final InputStream configurationInputStream) throws IOException {
+        final DataInputStream headerInputStream = new DataInputStream(configurationInputStream);
+
+        final byte[] fileSalt = new byte[headerInputStream.readUnsignedByte()];
+        headerInputStream.readFully(fileSalt);
+
+        if (fileSalt.length == 0) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), INVALID_KEY_DERIVATION_PARAMETERS_ERROR);
+            throw new ConfigurationManagerException(errorMessage, null);
+        }
+
+        return fileSalt;
+    }
+
+    /**
+     * The header of a streamed configuration file, with the parameters and the file salt to derive the key from the password
+     * with, if the data is encrypted with the derived key.
+     */
+    @AllArgsConstructor
+    @Getter
+    private static final class StreamedConfigurationHeader {
+        private final SymmetricCipherProfile symmetricCipherProfile;
+        private final int keyVersion;
+        private final Optional<KeyDerivationParameters> keyDerivationParameters;
+        private final byte[] fileSalt;
+        private final CompressionCodec compressionCodec;
+    }
+
+    /**
+     * The keys to encrypt a file with: the key store key of the current key version, and the key derived from the password with
+     * the key derivation parameters and the file salt written to the header of the file.
+     */
+    @AllArgsConstructor
+    @Getter
+    private static final class WriteKeys {
+        private final int keyVersion;
+        private final Key keyStoreKey;
+        private final KeyDerivationParameters keyDerivationParameters;
+        private final byte[] fileSalt;
+        private final Key fileKey;
+    }
 }
@@ -0,0 +1,107 @@
+package com.ak.cardstore.configuration;
+
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Specifies how the serialized data is compressed before it is encrypted into a configuration file.
+ * <p>
+ * The serialized wallet repeats the field names of every card, so {@link #DEFLATE} shrinks a large wallet to a fraction of its
+ * size, and the cipher and the file I/O process the smaller payload. The id of the codec is persisted in the configuration
+ * header, so the data stays readable when the configured codec changes.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public enum CompressionCodec {
+
+    NONE(0),
+
+    DEFLATE(1);
+
+    private static final int BUFFER_SIZE_BYTES = 4096;
+
+    private final int id;
+
+    /**
+     * Returns the codec with the given id.
+     *
+     * @param id id of the codec
+     * @return {@link CompressionCodec} if one exists with the given id, empty otherwise
+     */
+    public static Optional<CompressionCodec> fromId(final int id) {
+        return Arrays.stream(values())
+                .filter(compressionCodec -> compressionCodec.id == id)
+                .findFirst();
+    }
+
+    /**
+     * Returns the stable id of the codec, which is persisted along with the compressed data
+     *
+     * @return id of the codec
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Compresses the data written by the uncompressed writer into the output stream. The output stream is not closed.
+     *
+     * @param outputStream       stream to write the compressed data to
+     * @param uncompressedWriter writer of the data to compress
+     */
+    public void compress(@NonNull final OutputStream outputStream, @NonNull final IOConsumer<OutputStream> uncompressedWriter)
+            throws IOException {
+        if (this == NONE) {
+            uncompressedWriter.accept(outputStream);
+            return;
+        }
+
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            final DeflaterOutputStream compressedOutputStream = new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE_BYTES);
+            uncompressedWriter.accept(compressedOutputStream);
+            compressedOutputStream.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses the data streamed from the input stream and returns the result of the uncompressed reader. The input
+     * stream is not closed.
+     *
+     * @param inputStream        stream of the compressed data, as written by {@link #compress(OutputStream, IOConsumer)}
+     * @param uncompressedReader reader of the decompressed data
+     * @param <RESULT_TYPE>      type of the result of the uncompressed reader
+     * @return result of the uncompressed reader
+     */
+    public <RESULT_TYPE> RESULT_TYPE decompress(@NonNull final InputStream inputStream,
+                                                @NonNull final IOFunction<InputStream, RESULT_TYPE> uncompressedReader)
+            throws IOException {
+        if (this == NONE) {
+            return uncompressedReader.apply(inputStream);
+        }
+
+        final Inflater inflater = new Inflater();
+        try {
+            return uncompressedReader.apply(new InflaterInputStream(inputStream, inflater, BUFFER_SIZE_BYTES));
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ak.cardstore.configuration;
+
+import android.util.Log;
+
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+
+/**
+ * A class to rotate the key the configuration is encrypted with and to re-encrypt the existing configuration in the background.
+ * <p>
+ * Rotating the key only bumps the key version, so the new data is encrypted with the new key right away and the existing data
+ * stays readable with the key it was encrypted with. The existing wallet, with the journal folded into it, is then re-encrypted
+ * on the executor. The password is needed only for that single pass and is dropped right after it, so it is not kept for the
+ * rest of the re-encryption. After a pause of {@link #REENCRYPTION_DELAY_MILLIS}, so the re-encryption never competes with the
+ * UI for long, the header of the configuration is checked again without the password: once it is encrypted with the current
+ * key, the keys of the previous versions are deleted from the key store. A wallet saved behind with a previous key meanwhile
+ * keeps the previous keys, and the re-encryption stays pending.
+ * <p>
+ * Every file records its key version, so the re-encryption keeps no progress of its own: a re-encryption stopped by
+ * {@link #stop()}, e.g. on logout, or left pending, is resumed by {@link #resume(String)} on the next unlock and skips the files
+ * already encrypted with the current key. {@link #isReencryptionPending()} tells whether a re-encryption is left to resume. The
+ * caller verifies the password before resuming, so the configuration is never re-encrypted with a wrong password.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class KeyRotationService {
+
+    private static final String LOG_TAG = KeyRotationService.class.getSimpleName();
+
+    @VisibleForTesting
+    static final long REENCRYPTION_DELAY_MILLIS = 200;
+
+    private static final String REENCRYPTION_ERROR = "Error re-encrypting the configuration with the current key, resuming on the next unlock!";
+
+    private final AppConfigurationManager appConfigurationManager;
+    private final SymmetricKeyCipher symmetricKeyCipher;
+    private final SymmetricKeyVersionManager symmetricKeyVersionManager;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private final AtomicReference<Reencryption> runningReencryption = new AtomicReference<>();
+
+    /**
+     * Rotates the key and starts re-encrypting the existing configuration with the new key in the background.
+     *
+     * @param password password to decrypt and encrypt the configuration with
+     * @return future completed with the number of the re-encrypted files
+     */
+    public synchronized CompletableFuture<Integer> rotate(@NonNull final String password) {
+        this.stop();
+        this.symmetricKeyVersionManager.rotate(this.symmetricKeyCipher.getSymmetricCipherProfile());
+        return this.resume(password);
+    }
+
+    /**
+     * Returns whether the keys of the previous versions are still kept, i.e. a re-encryption was stopped before every file was
+     * encrypted with the current key.
+     *
+     * @return true if the re-encryption should be resumed, false otherwise
+     */
+    public boolean isReencryptionPending() {
+        final SymmetricCipherProfile symmetricCipherProfile = this.symmetricKeyCipher.getSymmetricCipherProfile();
+        return this.symmetricKeyVersionManager.getOldestKeyVersion(symmetricCipherProfile)
+                < this.symmetricKeyVersionManager.getCurrentKeyVersion(symmetricCipherProfile);
+    }
+
+    /**
+     * Resumes re-encrypting the configuration not encrypted with the current key in the background. If a re-encryption is already
+     * running, its future is returned.
+     *
+     * @param password verified password to decrypt and encrypt the configuration with
+     * @return future completed with the number of the re-encrypted files
+     */
+    public synchronized CompletableFuture<Integer> resume(@NonNull final String password) {
+        final Reencryption runningReencryption = this.runningReencryption.get();
+        if (runningReencryption != null && !runningReencryption.result.isDone()) {
+            return runningReencryption.result;
+        }
+
+        final Reencryption reencryption = new Reencryption(password, this.symmetricKeyCipher.getKeyVersion());
+        this.runningReencryption.set(reencryption);
+        reencryption.schedule(0);
+        return reencryption.result;
+    }
+
+    /**
+     * Stops the running re-encryption. The file being re-encrypted is completed, the remaining files are left for the next
+     * {@link #resume(String)}.
+     */
+    public synchronized void stop() {
+        final Reencryption runningReencryption = this.runningReencryption.getAndSet(null);
+        if (runningReencryption != null) {
+            runningReencryption.cancel();
+        }
+    }
+
+    /**
+     * Deletes the keys of the versions before the given one, which no file is encrypted with any more.
+     *
+     * @param keyVersion version of the key every file is encrypted with
+     */
+    private void deletePreviousKeys(final int keyVersion) {
+        final SymmetricCipherProfile symmetricCipherProfile = this.symmetricKeyCipher.getSymmetricCipherProfile();
+        for (int previousKeyVersion = this.symmetricKeyVersionManager.getOldestKeyVersion(symmetricCipherProfile);
+             previousKeyVersion < keyVersion; previousKeyVersion++) {
+            this.symmetricKeyCipher.deleteKey(previousKeyVersion);
+        }
+
+        this.symmetricKeyVersionManager.setOldestKeyVersion(symmetricCipherProfile, keyVersion);
+        Log.i(LOG_TAG, "Deleted the keys before version " + keyVersion + ".");
+    }
+
+    /**
+     * Re-encryption of the wallet, which needs the password, and the deletion of the previous keys, which does not
+     */
+    private final class Reencryption implements Runnable {
+
+        private final int keyVersion;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        private String password;
+        private int reencryptedFileCount;
+        private ScheduledFuture<?> scheduledRun;
+
+        private Reencryption(final String password, final int keyVersion) {
+            this.password = password;
+            this.keyVersion = keyVersion;
+        }
+
+        @Override
+        public void run() {
+            if (this.result.isDone()) {
+                return;
+            }
+
+            try {
+                if (this.password != null) {
+                    final boolean reencrypted = KeyRotationService.this.appConfigurationManager.reencryptWallet(this.password);
+                    // The password is not needed any more, so it is not kept until the re-encryption completes
+                    this.password = null;
+                    if (reencrypted) {
+                        this.reencryptedFileCount++;
+                    }
+
+                    this.schedule(reencrypted ? REENCRYPTION_DELAY_MILLIS : 0);
+                    return;
+                }
+
+                // A wallet saved behind with the previous key meanwhile still needs the previous keys, until the next unlock
+                if (KeyRotationService.this.appConfigurationManager.isWalletEncryptedWithCurrentKey()) {
+                    KeyRotationService.this.deletePreviousKeys(this.keyVersion);
+                } else {
+                    Log.i(LOG_TAG, "Wallet saved with a previous key meanwhile, resuming the re-encryption on the next unlock.");
+                }
+
+                Log.i(LOG_TAG, "Re-encrypted " + this.reencryptedFileCount + " files with the current key.");
+                this.result.complete(this.reencryptedFileCount);
+            } catch (final RuntimeException e) {
+                this.password = null;
+                logError(LOG_TAG, Optional.of(e), REENCRYPTION_ERROR);
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        private synchronized void schedule(final long delayMillis) {
+            if (!this.result.isDone()) {
+                this.scheduledRun = KeyRotationService.this.scheduledExecutorService.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void cancel() {
+            this.result.cancel(false);
+            if (this.scheduledRun != null) {
+                this.scheduledRun.cancel(false);
+            }
+        }
+    }
+}
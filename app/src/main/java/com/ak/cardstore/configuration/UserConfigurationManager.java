@@ -1,14 +1,22 @@
 package com.ak.cardstore.configuration;
 
-import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+import com.ak.cardstore.dao.KeyValueDataAccessor;
 import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.serialization.Serializer;
 
+import java.util.Optional;
+
 import lombok.AllArgsConstructor;
 
 /**
  * A class to manage the user configuration.
+ * <p>
+ * The user configuration is stored with the {@link KeyValueDataAccessor}, e.g. in a record store. The user configuration
+ * saved to the shared preferences by the previous versions is read from there as long as the key-value store has none, and is
+ * moved over to the key-value store on the first load, which then removes it from the shared preferences.
  *
  * @author Abhishek
  */
@@ -20,36 +28,43 @@ public class UserConfigurationManager {
     private static final String PREFERENCES_KEY = "Password";
 
     private final Serializer<User> userSerializer;
-    private final AsymmetricKeyPairCipher asymmetricKeyPairCipher;
-    private final SharedPreferencesDataAccessor sharedPreferencesDataAccessor;
+    private final EnvelopeCipher envelopeCipher;
+    private final Serializer<EncryptedEnvelope> encryptedEnvelopeSerializer;
+    private final KeyValueDataAccessor keyValueDataAccessor;
+    private final SharedPreferencesDataAccessor legacySharedPreferencesDataAccessor;
 
     /**
      * Saves the application configuration by executing the following steps
-     * 1. Serialize the user
-     * 2. Encrypt the user
-     * 3. Save the serialized encrypted user
+     * 1. Serialize the user to bytes
+     * 2. Encrypt the serialized user into an envelope
+     * 3. Serialize the envelope
+     * 4. Save the serialized envelope
      *
      * @param user user to save
      */
     public void save(final User user) {
-        final String serializedUser = this.userSerializer.serialize(user);
-        final String encryptedSerializedUser = this.asymmetricKeyPairCipher.encrypt(serializedUser);
-        this.sharedPreferencesDataAccessor.save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, encryptedSerializedUser);
+        final byte[] serializedUser = this.userSerializer.serializeToByteArray(user);
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(serializedUser);
+        final String serializedEncryptedEnvelope = this.encryptedEnvelopeSerializer.serialize(encryptedEnvelope);
+        this.keyValueDataAccessor.save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, serializedEncryptedEnvelope);
     }
 
     /**
      * Loads the application configuration by executing the following steps
-     * 1. Read the encrypted serialized user
-     * 2. Decrypt the encrypted serialized user
-     * 3. Deserialize the serialized user
+     * 1. Read the serialized envelope
+     * 2. Deserialize the envelope
+     * 3. Decrypt the envelope to bytes
+     * 4. Deserialize the user from the decrypted bytes
      *
      * @return User
      */
     public User load() {
-        final String encryptedSerializedUser = this.sharedPreferencesDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
-        final String serializedUser = this.asymmetricKeyPairCipher.decrypt(encryptedSerializedUser);
+        final String serializedEncryptedEnvelope = Optional.ofNullable(this.keyValueDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY))
+                .orElseGet(this::migrateLegacyUserConfiguration);
+        final EncryptedEnvelope encryptedEnvelope = this.encryptedEnvelopeSerializer.deserialize(serializedEncryptedEnvelope);
+        final byte[] serializedUser = this.envelopeCipher.decryptToByteArray(encryptedEnvelope);
 
-        final User user = this.userSerializer.deserialize(serializedUser);
+        final User user = this.userSerializer.deserializeFromByteArray(serializedUser);
         return user;
     }
 
@@ -59,6 +74,23 @@ public class UserConfigurationManager {
      * @return true if the user configuration exists in the system, false otherwise
      */
     public boolean doesUserConfigurationExist() {
-        return this.sharedPreferencesDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
+        return this.keyValueDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)
+                || this.legacySharedPreferencesDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
+    }
+
+    /**
+     * Moves the serialized envelope saved to the shared preferences by the previous versions over to the key-value store. The
+     * envelope is removed from the shared preferences only once it is saved to the key-value store.
+     *
+     * @return serialized envelope, null if there is none in the shared preferences either
+     */
+    private String migrateLegacyUserConfiguration() {
+        final String serializedEncryptedEnvelope = this.legacySharedPreferencesDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
+        if (serializedEncryptedEnvelope != null) {
+            this.keyValueDataAccessor.save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, serializedEncryptedEnvelope);
+            this.legacySharedPreferencesDataAccessor.remove(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
+        }
+
+        return serializedEncryptedEnvelope;
     }
 }
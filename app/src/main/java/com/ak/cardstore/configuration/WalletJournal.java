@@ -0,0 +1,252 @@
+package com.ak.cardstore.configuration;
+
+import android.util.Log;
+
+import com.ak.cardstore.dao.FileBasedDataAccessor;
+import com.ak.cardstore.exception.ConfigurationManagerException;
+import com.ak.cardstore.pojo.Card;
+import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A class to manage the journal of the edits of the saved wallet.
+ * <p>
+ * Every journaled edit is appended to the journal file as an encrypted {@link WalletJournalEntry}, framed with a magic number,
+ * the id of the saved wallet the edit applies to, its length and its CRC32 checksum. The journal is replayed by scanning it for
+ * the entry frames, so an entry torn by a crash or otherwise corrupted fails its checksum and is skipped without losing the
+ * following ones.
+ * <p>
+ * The journal is deleted only after the saved wallet is replaced, so a crash in between leaves the entries already folded into
+ * the newer wallet. Replaying them could undo a later edit, e.g. add back a card removed since, so only the entries stamped with
+ * the id of the wallet they are replayed on are applied, and the entries of the previous wallets are skipped.
+ * <p>
+ * The entries are encrypted and decrypted by the caller, the journal only frames, appends and scans them. Once the journal grows
+ * past {@link #COMPACTION_THRESHOLD_BYTES}, the caller is expected to fold it into the saved wallet and delete it.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class WalletJournal {
+
+    private static final String LOG_TAG = WalletJournal.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String JOURNAL_FILE_NAME = "com.ak.cardstore.wallet.journal";
+
+    @VisibleForTesting
+    static final long COMPACTION_THRESHOLD_BYTES = 64 * 1024;
+
+    private static final byte[] JOURNAL_ENTRY_MAGIC = {'C', 'S', 'W', 'J'};
+    private static final int JOURNAL_ENTRY_FRAME_LENGTH = JOURNAL_ENTRY_MAGIC.length + Byte.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int MAX_SNAPSHOT_ID_LENGTH = 255;
+
+    private static final String JOURNAL_SAVE_ERROR = "Error appending to the wallet journal!";
+    private static final String JOURNAL_READ_ERROR = "Error reading the wallet journal!";
+
+    private final FileBasedDataAccessor fileBasedDataAccessor;
+
+    /**
+     * Appends the entry written by the journal entry writer to the journal, framed with the id of the saved wallet, its length
+     * and checksum.
+     *
+     * @param snapshotId         id of the saved wallet the entry applies to, at most {@link #MAX_SNAPSHOT_ID_LENGTH} bytes
+     * @param journalEntryWriter writer of the encrypted journal entry
+     */
+    public void append(@NonNull final byte[] snapshotId, @NonNull final IOConsumer<OutputStream> journalEntryWriter) {
+        if (snapshotId.length > MAX_SNAPSHOT_ID_LENGTH) {
+            throw new IllegalArgumentException("Snapshot id of " + snapshotId.length + " bytes is too long");
+        }
+
+        try {
+            final ByteArrayOutputStream journalEntryOutputStream = new ByteArrayOutputStream();
+            journalEntryWriter.accept(journalEntryOutputStream);
+
+            final byte[] journalEntry = journalEntryOutputStream.toByteArray();
+            this.fileBasedDataAccessor.append(JOURNAL_FILE_NAME, journalOutputStream -> {
+                final DataOutputStream frameOutputStream = new DataOutputStream(journalOutputStream);
+                frameOutputStream.write(JOURNAL_ENTRY_MAGIC);
+                frameOutputStream.write(snapshotId.length);
+                frameOutputStream.write(snapshotId);
+                frameOutputStream.writeInt(journalEntry.length);
+                frameOutputStream.writeInt(checksum(snapshotId, journalEntry));
+                frameOutputStream.write(journalEntry);
+                frameOutputStream.flush();
+            });
+        } catch (final IOException e) {
+            Log.e(LOG_TAG, JOURNAL_SAVE_ERROR, e);
+            throw new ConfigurationManagerException(JOURNAL_SAVE_ERROR, e);
+        }
+    }
+
+    /**
+     * Replays the journal on top of the wallet. The entries which fail their checksum, or were appended to another saved wallet,
+     * are skipped.
+     *
+     * @param wallet             wallet to replay the journal on
+     * @param snapshotId         id of the saved wallet
+     * @param journalEntryReader reader of the journal entry from the stream of the encrypted entry
+     * @return wallet with the journaled edits, the same wallet if there is no journal
+     */
+    public Wallet replay(@NonNull final Wallet wallet, @NonNull final byte[] snapshotId,
+                         @NonNull final IOFunction<InputStream, WalletJournalEntry> journalEntryReader) {
+        if (!this.exists()) {
+            return wallet;
+        }
+
+        try {
+            final ByteBuffer journal = this.fileBasedDataAccessor.readBytes(JOURNAL_FILE_NAME);
+
+            Wallet replayedWallet = wallet;
+            int replayedEntryCount = 0;
+            int staleEntryCount = 0;
+            int skippedByteCount = 0;
+
+            while (journal.remaining() >= JOURNAL_ENTRY_FRAME_LENGTH) {
+                final int journalEntryPosition = journal.position();
+                final Optional<JournalEntryFrame> optionalJournalEntryFrame = readJournalEntryFrame(journal);
+                if (!optionalJournalEntryFrame.isPresent()) {
+                    // Resynchronize on the next entry frame
+                    journal.position(journalEntryPosition + 1);
+                    skippedByteCount++;
+                    continue;
+                }
+
+                // The entry was already folded into the saved wallet, the journal was not deleted after saving it
+                if (!Arrays.equals(snapshotId, optionalJournalEntryFrame.get().getSnapshotId())) {
+                    staleEntryCount++;
+                    continue;
+                }
+
+                try (final InputStream journalEntryInputStream =
+                             new ByteArrayInputStream(optionalJournalEntryFrame.get().getJournalEntry())) {
+                    replayedWallet = apply(replayedWallet, journalEntryReader.apply(journalEntryInputStream));
+                }
+                replayedEntryCount++;
+            }
+
+            skippedByteCount += journal.remaining();
+            Log.i(LOG_TAG, "Replayed " + replayedEntryCount + " wallet journal entries, skipped " + staleEntryCount
+                    + " entries of a previous wallet and " + skippedByteCount + " bytes.");
+
+            return replayedWallet;
+        } catch (final IOException e) {
+            Log.e(LOG_TAG, JOURNAL_READ_ERROR, e);
+            throw new ConfigurationManagerException(JOURNAL_READ_ERROR, e);
+        }
+    }
+
+    /**
+     * Returns whether the journal exists
+     *
+     * @return true if the journal exists, false otherwise
+     */
+    public boolean exists() {
+        return this.fileBasedDataAccessor.listFiles(JOURNAL_FILE_NAME).contains(JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Returns whether the journal grew past {@link #COMPACTION_THRESHOLD_BYTES}, so it should be folded into the saved wallet.
+     *
+     * @return true if the journal should be compacted, false otherwise
+     */
+    public boolean isCompactionDue() {
+        return this.fileBasedDataAccessor.length(JOURNAL_FILE_NAME) >= COMPACTION_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Deletes the journal, once the wallet including the journaled edits is saved.
+     */
+    public void delete() {
+        this.fileBasedDataAccessor.delete(JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Applies the journal entry to the wallet.
+     *
+     * @param wallet             wallet to apply the journal entry to
+     * @param walletJournalEntry journal entry to apply
+     * @return new wallet with the edit of the journal entry
+     */
+    public static Wallet apply(@NonNull final Wallet wallet, @NonNull final WalletJournalEntry walletJournalEntry) {
+        final Set<Card> cards = new LinkedHashSet<>(Optional.ofNullable(wallet.getCards()).orElse(Collections.emptySet()));
+        Optional.ofNullable(walletJournalEntry.getRemovedCards()).ifPresent(cards::removeAll);
+        Optional.ofNullable(walletJournalEntry.getAddedCards()).ifPresent(cards::addAll);
+
+        return Wallet.builder()
+                .cards(cards)
+                .build();
+    }
+
+    /**
+     * Reads the journal entry frame at the position of the journal.
+     *
+     * @param journal journal positioned at the frame
+     * @return journal entry frame, empty if there is no valid frame at the position
+     */
+    private static Optional<JournalEntryFrame> readJournalEntryFrame(final ByteBuffer journal) {
+        final byte[] magic = new byte[JOURNAL_ENTRY_MAGIC.length];
+        journal.get(magic);
+        if (!Arrays.equals(JOURNAL_ENTRY_MAGIC, magic)) {
+            return Optional.empty();
+        }
+
+        final int snapshotIdLength = Byte.toUnsignedInt(journal.get());
+        if (snapshotIdLength > journal.remaining() - Integer.BYTES - Integer.BYTES) {
+            return Optional.empty();
+        }
+
+        final byte[] snapshotId = new byte[snapshotIdLength];
+        journal.get(snapshotId);
+
+        final int journalEntryLength = journal.getInt();
+        final int journalEntryChecksum = journal.getInt();
+        if (journalEntryLength < 0 || journalEntryLength > journal.remaining()) {
+            return Optional.empty();
+        }
+
+        final byte[] journalEntry = new byte[journalEntryLength];
+        journal.get(journalEntry);
+        return (checksum(snapshotId, journalEntry) == journalEntryChecksum)
+                ? Optional.of(new JournalEntryFrame(snapshotId, journalEntry))
+                : Optional.empty();
+    }
+
+    private static int checksum(final byte[] snapshotId, final byte[] journalEntry) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(snapshotId);
+        crc32.update(journalEntry);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * A journal entry with the id of the saved wallet it applies to
+     */
+    @AllArgsConstructor
+    @Getter
+    private static final class JournalEntryFrame {
+        private final byte[] snapshotId;
+        private final byte[] journalEntry;
+    }
+}
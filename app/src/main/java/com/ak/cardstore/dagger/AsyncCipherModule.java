@@ -0,0 +1,85 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.AsyncCipher;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Dagger {@link Module} to provide {@link AsyncCipher} and the crypto {@link ExecutorService} it runs the operations on. The same
+ * executor is provided as the crypto {@link Executor} to the activities, for the operations which encrypt or decrypt through
+ * another class, e.g. logging in or saving the user.
+ *
+ * @author Abhishek
+ */
+
+@Module(includes = {AsymmetricCipherModule.class,
+        SymmetricCipherModule.class})
+public class AsyncCipherModule {
+
+    /**
+     * Two threads, so a save does not wait for a load, without the crypto operations competing with the UI for the cores
+     */
+    private static final int CRYPTO_THREAD_COUNT = 2;
+
+    /**
+     * Number of the operations allowed to wait for a thread before the new ones are rejected
+     */
+    private static final int CRYPTO_QUEUE_CAPACITY = 64;
+
+    private static final long CRYPTO_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Provides {@link AsyncCipher}
+     *
+     * @return {@link AsyncCipher}
+     */
+    @Provides
+    @Singleton
+    public AsyncCipher provideAsyncCipher(
+            final SymmetricKeyCipher symmetricKeyCipher,
+            final AsymmetricKeyPairCipher asymmetricKeyPairCipher,
+            @Named("cryptoExecutorService") final ExecutorService cryptoExecutorService) {
+        return new AsyncCipher(symmetricKeyCipher, asymmetricKeyPairCipher, cryptoExecutorService);
+    }
+
+    /**
+     * Provides the bounded {@link ExecutorService} to run the crypto operations on. The idle threads time out, so the executor
+     * holds no threads while the application is idle.
+     *
+     * @return {@link ExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("cryptoExecutorService")
+    public ExecutorService provideCryptoExecutorService() {
+        final ThreadPoolExecutor cryptoExecutorService = new ThreadPoolExecutor(CRYPTO_THREAD_COUNT, CRYPTO_THREAD_COUNT,
+                CRYPTO_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(CRYPTO_QUEUE_CAPACITY));
+        cryptoExecutorService.allowCoreThreadTimeOut(true);
+        return cryptoExecutorService;
+    }
+
+    /**
+     * Provides the crypto {@link Executor}, which is the crypto {@link ExecutorService} the {@link AsyncCipher} runs on
+     *
+     * @param cryptoExecutorService crypto {@link ExecutorService}
+     * @return {@link Executor}
+     */
+    @Provides
+    @Singleton
+    @Named("cryptoExecutor")
+    public Executor provideCryptoExecutor(@Named("cryptoExecutorService") final ExecutorService cryptoExecutorService) {
+        return cryptoExecutorService;
+    }
+}
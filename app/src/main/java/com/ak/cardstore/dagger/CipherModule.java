@@ -1,16 +1,25 @@
 package com.ak.cardstore.dagger;
 
+import com.ak.cardstore.cipher.BufferPool;
 import com.ak.cardstore.cipher.CipherOperator;
+import com.ak.cardstore.cipher.CipherPool;
+import com.ak.cardstore.cipher.CipherProviderStrategy;
 import com.ak.cardstore.cipher.CipherRetriever;
 import com.ak.cardstore.cipher.KeyStoreRetriever;
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
 
 /**
- * Dagger {@link Module} to provide {@link CipherRetriever}, {@link CipherOperator} and {@link KeyStoreRetriever}.
+ * Dagger {@link Module} to provide {@link CipherRetriever}, {@link CipherPool}, {@link CipherProviderStrategy}, {@link BufferPool},
+ * {@link CipherOperator} and {@link KeyStoreRetriever}.
  *
  * @author Abhishek
  */
@@ -25,8 +34,43 @@ public class CipherModule {
      */
     @Provides
     @Singleton
-    public CipherRetriever provideCipherRetriever() {
-        return new CipherRetriever();
+    public CipherRetriever provideCipherRetriever(final CipherPool cipherPool, final CipherProviderStrategy cipherProviderStrategy) {
+        return new CipherRetriever(cipherPool, cipherProviderStrategy);
+    }
+
+    /**
+     * Provides {@link CipherPool}
+     *
+     * @return {@link CipherPool}
+     */
+    @Provides
+    @Singleton
+    public CipherPool provideCipherPool() {
+        return new CipherPool();
+    }
+
+    /**
+     * Provides {@link CipherProviderStrategy}
+     *
+     * @return {@link CipherProviderStrategy}
+     */
+    @Provides
+    @Singleton
+    public CipherProviderStrategy provideCipherProviderStrategy(
+            @Named("providerBenchmarkExecutorService") final ExecutorService providerBenchmarkExecutorService) {
+        return new CipherProviderStrategy(new SharedPreferencesDataAccessor(), providerBenchmarkExecutorService);
+    }
+
+    /**
+     * Provides {@link ExecutorService} to benchmark the providers of {@link CipherProviderStrategy} and save their order on
+     *
+     * @return {@link ExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("providerBenchmarkExecutorService")
+    public ExecutorService provideProviderBenchmarkExecutorService() {
+        return Executors.newSingleThreadExecutor();
     }
 
     /**
@@ -36,8 +80,19 @@ public class CipherModule {
      */
     @Provides
     @Singleton
-    public CipherOperator provideCipherOperator() {
-        return new CipherOperator();
+    public CipherOperator provideCipherOperator(final BufferPool bufferPool) {
+        return new CipherOperator(bufferPool);
+    }
+
+    /**
+     * Provides {@link BufferPool}
+     *
+     * @return {@link BufferPool}
+     */
+    @Provides
+    @Singleton
+    public BufferPool provideBufferPool() {
+        return new BufferPool();
     }
 
     /**
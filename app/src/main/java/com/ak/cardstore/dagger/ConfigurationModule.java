@@ -1,16 +1,27 @@
 package com.ak.cardstore.dagger;
 
-import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager;
 import com.ak.cardstore.configuration.AppConfigurationManager;
+import com.ak.cardstore.configuration.CompressionCodec;
+import com.ak.cardstore.configuration.KeyRotationService;
 import com.ak.cardstore.configuration.UserConfigurationManager;
+import com.ak.cardstore.configuration.WalletJournal;
 import com.ak.cardstore.dao.FileBasedDataAccessor;
+import com.ak.cardstore.dao.RecordStoreDataAccessor;
 import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
 import com.ak.cardstore.serialization.Serializer;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -18,13 +29,14 @@ import dagger.Module;
 import dagger.Provides;
 
 /**
- * Dagger {@link Module} to provide {@link UserConfigurationManager} and {@link AppConfigurationManager}.
+ * Dagger {@link Module} to provide {@link UserConfigurationManager}, {@link AppConfigurationManager}, {@link WalletJournal} and
+ * {@link KeyRotationService}.
  *
  * @author Abhishek
  */
 
 @Module(includes = {SerializerModule.class,
-        AsymmetricCipherModule.class,
+        EnvelopeCipherModule.class,
         SymmetricCipherModule.class,
         DaoModule.class})
 public class ConfigurationModule {
@@ -38,9 +50,12 @@ public class ConfigurationModule {
     @Singleton
     public UserConfigurationManager provideUserConfigurationManager(
             @Named("userSerializer") final Serializer<User> userSerializer,
-            final AsymmetricKeyPairCipher asymmetricKeyPairCipher,
+            final EnvelopeCipher envelopeCipher,
+            @Named("encryptedEnvelopeSerializer") final Serializer<EncryptedEnvelope> encryptedEnvelopeSerializer,
+            final RecordStoreDataAccessor recordStoreDataAccessor,
             final SharedPreferencesDataAccessor sharedPreferencesDataAccessor) {
-        return new UserConfigurationManager(userSerializer, asymmetricKeyPairCipher, sharedPreferencesDataAccessor);
+        return new UserConfigurationManager(userSerializer, envelopeCipher, encryptedEnvelopeSerializer, recordStoreDataAccessor,
+                sharedPreferencesDataAccessor);
     }
 
     /**
@@ -53,8 +68,77 @@ public class ConfigurationModule {
     public AppConfigurationManager provideAppConfigurationManager(
             @Named("walletSerializer") final Serializer<Wallet> walletSerializer,
             final SymmetricKeyCipher symmetricKeyCipher,
+            final PasswordKeyDeriver passwordKeyDeriver,
             @Named("encryptedConfigurationSerializer") final Serializer<EncryptedConfiguration> encryptedConfigurationSerializer,
-            final FileBasedDataAccessor fileBasedDataAccessor) {
-        return new AppConfigurationManager(walletSerializer, symmetricKeyCipher, encryptedConfigurationSerializer, fileBasedDataAccessor);
+            final FileBasedDataAccessor fileBasedDataAccessor,
+            @Named("walletJournalEntrySerializer") final Serializer<WalletJournalEntry> walletJournalEntrySerializer,
+            final WalletJournal walletJournal,
+            @Named("writeBehindExecutorService") final ScheduledExecutorService writeBehindExecutorService,
+            @Named("walletCacheExecutorService") final ScheduledExecutorService walletCacheExecutorService) {
+        return new AppConfigurationManager(walletSerializer, symmetricKeyCipher, passwordKeyDeriver,
+                encryptedConfigurationSerializer, fileBasedDataAccessor, walletJournalEntrySerializer, walletJournal,
+                writeBehindExecutorService, walletCacheExecutorService, CompressionCodec.DEFLATE);
+    }
+
+    /**
+     * Provides {@link WalletJournal}
+     *
+     * @return {@link WalletJournal}
+     */
+    @Provides
+    @Singleton
+    public WalletJournal provideWalletJournal(final FileBasedDataAccessor fileBasedDataAccessor) {
+        return new WalletJournal(fileBasedDataAccessor);
+    }
+
+    /**
+     * Provides {@link ScheduledExecutorService} to save the wallets saved behind on
+     *
+     * @return {@link ScheduledExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("writeBehindExecutorService")
+    public ScheduledExecutorService provideWriteBehindExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Provides {@link ScheduledExecutorService} to evict the idle cached wallet on
+     *
+     * @return {@link ScheduledExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("walletCacheExecutorService")
+    public ScheduledExecutorService provideWalletCacheExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Provides {@link KeyRotationService}
+     *
+     * @return {@link KeyRotationService}
+     */
+    @Provides
+    @Singleton
+    public KeyRotationService provideKeyRotationService(
+            final AppConfigurationManager appConfigurationManager,
+            final SymmetricKeyCipher symmetricKeyCipher,
+            final SymmetricKeyVersionManager symmetricKeyVersionManager,
+            @Named("keyRotationExecutorService") final ScheduledExecutorService keyRotationExecutorService) {
+        return new KeyRotationService(appConfigurationManager, symmetricKeyCipher, symmetricKeyVersionManager, keyRotationExecutorService);
+    }
+
+    /**
+     * Provides {@link ScheduledExecutorService} to re-encrypt the configuration on, one file at a time
+     *
+     * @return {@link ScheduledExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("keyRotationExecutorService")
+    public ScheduledExecutorService provideKeyRotationExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor();
     }
 }
@@ -1,15 +1,22 @@
 package com.ak.cardstore.dagger;
 
 import com.ak.cardstore.dao.FileBasedDataAccessor;
+import com.ak.cardstore.dao.RecordStoreDataAccessor;
 import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
 
 /**
- * Dagger {@link Module} to provide {@link SharedPreferencesDataAccessor} and {@link FileBasedDataAccessor}.
+ * Dagger {@link Module} to provide {@link SharedPreferencesDataAccessor}, {@link FileBasedDataAccessor} and
+ * {@link RecordStoreDataAccessor}.
  *
  * @author Abhishek
  */
@@ -18,24 +25,67 @@ import dagger.Provides;
 public class DaoModule {
 
     /**
-     * Provides {@link SharedPreferencesDataAccessor}
+     * Short enough for the appended edits to be durable right after the user makes them, long enough for a burst of appends to
+     * share a sync. The atomic writes are always synced before they return.
+     */
+    private static final long GROUP_COMMIT_WINDOW_MILLIS = 100;
+
+    /**
+     * Provides {@link SharedPreferencesDataAccessor} with the asynchronous saves
      *
      * @return {@link SharedPreferencesDataAccessor}
      */
     @Provides
     @Singleton
-    public SharedPreferencesDataAccessor provideSharedPreferencesDataAccessor() {
-        return new SharedPreferencesDataAccessor();
+    public SharedPreferencesDataAccessor provideSharedPreferencesDataAccessor(
+            @Named("preferencesCommitExecutorService") final ExecutorService preferencesCommitExecutorService) {
+        return new SharedPreferencesDataAccessor(preferencesCommitExecutorService);
     }
 
     /**
-     * Provides {@link FileBasedDataAccessor}
+     * Provides {@link ExecutorService} to commit the asynchronous saves of {@link SharedPreferencesDataAccessor} on, in order
+     *
+     * @return {@link ExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("preferencesCommitExecutorService")
+    public ExecutorService providePreferencesCommitExecutorService() {
+        return Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Provides {@link FileBasedDataAccessor} with the group commit
      *
      * @return {@link FileBasedDataAccessor}
      */
     @Provides
     @Singleton
-    public FileBasedDataAccessor provideFileBasedDataAccessor() {
-        return new FileBasedDataAccessor();
+    public FileBasedDataAccessor provideFileBasedDataAccessor(
+            @Named("fileCommitExecutorService") final ScheduledExecutorService fileCommitExecutorService) {
+        return new FileBasedDataAccessor(fileCommitExecutorService, GROUP_COMMIT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Provides {@link RecordStoreDataAccessor}
+     *
+     * @return {@link RecordStoreDataAccessor}
+     */
+    @Provides
+    @Singleton
+    public RecordStoreDataAccessor provideRecordStoreDataAccessor(final FileBasedDataAccessor fileBasedDataAccessor) {
+        return new RecordStoreDataAccessor(fileBasedDataAccessor);
+    }
+
+    /**
+     * Provides {@link ScheduledExecutorService} to run the group commits of {@link FileBasedDataAccessor} on
+     *
+     * @return {@link ScheduledExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("fileCommitExecutorService")
+    public ScheduledExecutorService provideFileCommitExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor();
     }
 }
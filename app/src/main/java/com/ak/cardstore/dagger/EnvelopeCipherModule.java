@@ -0,0 +1,35 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.CipherOperator;
+import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Dagger {@link Module} to provide {@link EnvelopeCipher}.
+ *
+ * @author Abhishek
+ */
+
+@Module(includes = AsymmetricCipherModule.class)
+public class EnvelopeCipherModule {
+
+    /**
+     * Provides {@link EnvelopeCipher}
+     *
+     * @return {@link EnvelopeCipher}
+     */
+    @Provides
+    @Singleton
+    public EnvelopeCipher provideEnvelopeCipher(
+            final AsymmetricKeyPairCipher asymmetricKeyPairCipher,
+            final CipherRetriever cipherRetriever,
+            final CipherOperator cipherOperator) {
+        return new EnvelopeCipher(asymmetricKeyPairCipher, cipherRetriever, cipherOperator);
+    }
+}
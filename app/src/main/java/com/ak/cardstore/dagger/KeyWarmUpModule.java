@@ -0,0 +1,59 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.KeyWarmUpService;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Dagger {@link Module} to provide {@link KeyWarmUpService} and the {@link ExecutorService} it generates the keys on.
+ *
+ * @author Abhishek
+ */
+
+@Module(includes = {AsymmetricCipherModule.class,
+        SymmetricCipherModule.class})
+public class KeyWarmUpModule {
+
+    /**
+     * One thread per warm up task, so the asymmetric key pair generation, the symmetric key generation and the key derivation
+     * calibration run concurrently and none of them waits behind another
+     */
+    private static final int KEY_WARM_UP_THREAD_COUNT = 3;
+
+    /**
+     * Provides {@link KeyWarmUpService}
+     *
+     * @return {@link KeyWarmUpService}
+     */
+    @Provides
+    @Singleton
+    public KeyWarmUpService provideKeyWarmUpService(
+            final AsymmetricKeyPairCipher asymmetricKeyPairCipher,
+            final SymmetricKeyCipher symmetricKeyCipher,
+            final PasswordKeyDeriver passwordKeyDeriver,
+            @Named("keyWarmUpExecutorService") final ExecutorService keyWarmUpExecutorService) {
+        return new KeyWarmUpService(asymmetricKeyPairCipher, symmetricKeyCipher, passwordKeyDeriver, keyWarmUpExecutorService);
+    }
+
+    /**
+     * Provides {@link ExecutorService} to generate the keys on
+     *
+     * @return {@link ExecutorService}
+     */
+    @Provides
+    @Singleton
+    @Named("keyWarmUpExecutorService")
+    public ExecutorService provideKeyWarmUpExecutorService() {
+        return Executors.newFixedThreadPool(KEY_WARM_UP_THREAD_COUNT);
+    }
+}
@@ -1,8 +1,10 @@
 package com.ak.cardstore.dagger;
 
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
 import com.ak.cardstore.serialization.GsonSerializer;
 import com.ak.cardstore.serialization.Serializer;
 
@@ -13,7 +15,8 @@ import dagger.Module;
 import dagger.Provides;
 
 /**
- * Dagger {@link Module} to provide {@link Serializer<User>}, {@link Serializer<Wallet>} and {@link Serializer<EncryptedConfiguration>}.
+ * Dagger {@link Module} to provide {@link Serializer<User>}, {@link Serializer<Wallet>}, {@link Serializer<WalletJournalEntry>},
+ * {@link Serializer<EncryptedConfiguration>} and {@link Serializer<EncryptedEnvelope>}.
  *
  * @author Abhishek
  */
@@ -45,6 +48,18 @@ public class SerializerModule {
         return new GsonSerializer<>(Wallet.class);
     }
 
+    /**
+     * Provides {@link Serializer<WalletJournalEntry>}
+     *
+     * @return {@link Serializer<WalletJournalEntry>}
+     */
+    @Provides
+    @Singleton
+    @Named("walletJournalEntrySerializer")
+    public Serializer<WalletJournalEntry> provideWalletJournalEntrySerializer() {
+        return new GsonSerializer<>(WalletJournalEntry.class);
+    }
+
     /**
      * Provides {@link Serializer<EncryptedConfiguration>}
      *
@@ -56,4 +71,16 @@ public class SerializerModule {
     public Serializer<EncryptedConfiguration> provideEncryptedConfiguration() {
         return new GsonSerializer<>(EncryptedConfiguration.class);
     }
+
+    /**
+     * Provides {@link Serializer<EncryptedEnvelope>}
+     *
+     * @return {@link Serializer<EncryptedEnvelope>}
+     */
+    @Provides
+    @Singleton
+    @Named("encryptedEnvelopeSerializer")
+    public Serializer<EncryptedEnvelope> provideEncryptedEnvelopeSerializer() {
+        return new GsonSerializer<>(EncryptedEnvelope.class);
+    }
 }
@@ -3,9 +3,13 @@ package com.ak.cardstore.dagger;
 import com.ak.cardstore.cipher.CipherOperator;
 import com.ak.cardstore.cipher.CipherRetriever;
 import com.ak.cardstore.cipher.KeyStoreRetriever;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyRetriever;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager;
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
 
 import javax.inject.Singleton;
 
@@ -13,12 +17,15 @@ import dagger.Module;
 import dagger.Provides;
 
 /**
- * Dagger {@link Module} to provide {@link SymmetricKeyCipher}, {@link SymmetricKeyRetriever} and {@link SymmetricKeyGenerator}.
+ * Dagger {@link Module} to provide {@link SymmetricKeyCipher}, {@link SymmetricKeyRetriever}, {@link SymmetricKeyGenerator},
+ * {@link PasswordKeyDeriver}, {@link SymmetricKeyVersionManager} and the {@link SymmetricCipherProfile} the data is encrypted
+ * with.
  *
  * @author Abhishek
  */
 
-@Module(includes = CipherModule.class)
+@Module(includes = {CipherModule.class,
+        DaoModule.class})
 public class SymmetricCipherModule {
 
     /**
@@ -31,8 +38,22 @@ public class SymmetricCipherModule {
     public SymmetricKeyCipher provideSymmetricKeyCipher(
             final SymmetricKeyRetriever symmetricKeyRetriever,
             final CipherRetriever cipherRetriever,
-            final CipherOperator cipherOperator) {
-        return new SymmetricKeyCipher(symmetricKeyRetriever, cipherRetriever, cipherOperator);
+            final CipherOperator cipherOperator,
+            final SymmetricCipherProfile symmetricCipherProfile,
+            final SymmetricKeyVersionManager symmetricKeyVersionManager) {
+        return new SymmetricKeyCipher(symmetricKeyRetriever, cipherRetriever, cipherOperator, symmetricCipherProfile,
+                symmetricKeyVersionManager);
+    }
+
+    /**
+     * Provides {@link SymmetricCipherProfile}
+     *
+     * @return {@link SymmetricCipherProfile}
+     */
+    @Provides
+    @Singleton
+    public SymmetricCipherProfile provideSymmetricCipherProfile() {
+        return SymmetricCipherProfile.AES_GCM;
     }
 
     /**
@@ -58,4 +79,26 @@ public class SymmetricCipherModule {
     public SymmetricKeyGenerator provideSymmetricKeyGenerator() {
         return new SymmetricKeyGenerator();
     }
+
+    /**
+     * Provides {@link PasswordKeyDeriver}
+     *
+     * @return {@link PasswordKeyDeriver}
+     */
+    @Provides
+    @Singleton
+    public PasswordKeyDeriver providePasswordKeyDeriver() {
+        return new PasswordKeyDeriver();
+    }
+
+    /**
+     * Provides {@link SymmetricKeyVersionManager}
+     *
+     * @return {@link SymmetricKeyVersionManager}
+     */
+    @Provides
+    @Singleton
+    public SymmetricKeyVersionManager provideSymmetricKeyVersionManager(final SharedPreferencesDataAccessor sharedPreferencesDataAccessor) {
+        return new SymmetricKeyVersionManager(sharedPreferencesDataAccessor);
+    }
 }
@@ -4,14 +4,39 @@ import android.content.Context;
 import android.util.Log;
 
 import com.ak.cardstore.app.App;
+import com.ak.cardstore.util.IOConsumer;
 import com.ak.cardstore.util.StringUtil;
+import com.google.common.annotations.VisibleForTesting;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
 
 /**
  * File based data accessor.
@@ -23,49 +48,333 @@ public class FileBasedDataAccessor {
 
     private static final String LOG_TAG = FileBasedDataAccessor.class.getSimpleName();
 
+    @VisibleForTesting
+    static final String TEMP_FILE_NAME_SUFFIX = ".tmp";
+
+    private static final String GROUP_COMMIT_ERROR = "Error syncing the files of the group commit, retrying with the next one!";
+
+    /**
+     * Size from which the files are memory mapped, the smaller files are cheaper to copy to the heap than to map
+     */
+    @VisibleForTesting
+    static final long MAPPED_READ_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final Optional<ScheduledExecutorService> groupCommitExecutorService;
+    private final long groupCommitWindowMillis;
+
+    private final Set<String> uncommittedFileNames = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean groupCommitScheduled = new AtomicBoolean();
+    private final ConcurrentMap<String, Object> fileLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the data accessor which syncs every write and append to the storage before returning.
+     */
+    public FileBasedDataAccessor() {
+        this.groupCommitExecutorService = Optional.empty();
+        this.groupCommitWindowMillis = 0;
+    }
+
     /**
-     * Saves the data in a file to the storage
+     * Creates the data accessor with the group commit, which syncs the files appended to within the window together.
+     *
+     * @param groupCommitExecutorService executor to run the group commits on
+     * @param groupCommitWindowMillis    time from the first uncommitted append to the group commit
+     */
+    public FileBasedDataAccessor(@NonNull final ScheduledExecutorService groupCommitExecutorService,
+                                 final long groupCommitWindowMillis) {
+        if (groupCommitWindowMillis < 0) {
+            throw new IllegalArgumentException("Group commit window must not be negative, was " + groupCommitWindowMillis);
+        }
+
+        this.groupCommitExecutorService = Optional.of(groupCommitExecutorService);
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+    }
+
+    /**
+     * Saves the data in a file to the storage. See {@link #write(String, IOConsumer)}.
      *
      * @param fileName   name of the file
      * @param dataToSave data to be saved to the file
      */
     public void save(final String fileName, final String dataToSave) throws IOException {
+        this.write(fileName, outputStream -> outputStream.write(StringUtil.toUTF8ByteArray(dataToSave)));
+        Log.i(LOG_TAG, "Successfully saved the file " + fileName);
+    }
+
+    /**
+     * Writes the file to the storage atomically, so a crash never leaves a partially written file behind. The contents are
+     * written to a temporary file, which is renamed over the file once complete. If the contents writer fails, the file is left
+     * unchanged.
+     * <p>
+     * The temporary file is always synced to the storage before the rename, and the directory after it, so the file is durable
+     * when this method returns. Renaming a file which is not synced yet could leave an empty file behind after a crash of the
+     * device, losing both the previous and the new contents, so the writes never wait for the group commit.
+     *
+     * @param fileName       name of the file
+     * @param contentsWriter writer of the file contents, must not close the stream
+     */
+    public void write(@NonNull final String fileName, @NonNull final IOConsumer<OutputStream> contentsWriter) throws IOException {
+        final Context appContext = App.getAppContext();
+        final String tempFileName = fileName + TEMP_FILE_NAME_SUFFIX;
+
+        synchronized (this.getFileLock(fileName)) {
+            try (final FileOutputStream tempFileOutputStream = appContext.openFileOutput(tempFileName, Context.MODE_PRIVATE)) {
+                final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(tempFileOutputStream);
+                contentsWriter.accept(bufferedOutputStream);
+                bufferedOutputStream.flush();
+                tempFileOutputStream.getFD().sync();
+            } catch (final IOException | RuntimeException e) {
+                appContext.deleteFile(tempFileName);
+                throw e;
+            }
+
+            final File file = appContext.getFileStreamPath(fileName);
+            if (!appContext.getFileStreamPath(tempFileName).renameTo(file)) {
+                appContext.deleteFile(tempFileName);
+                throw new IOException("Could not rename the temporary file " + tempFileName + " to " + fileName);
+            }
+
+            // The rename is durable only once the directory is synced
+            syncDirectory(file.getParentFile());
+
+            // The older appends pending the group commit are superseded by the durable file
+            this.uncommittedFileNames.remove(fileName);
+        }
+    }
+
+    /**
+     * Appends to the file in the storage, creating it if it does not exist. A crash while appending may leave a partially
+     * appended tail behind, which the reader of the file must detect.
+     * <p>
+     * Without the group commit, the appended contents are synced to the storage before returning. With the group commit, they
+     * are synced by the next group commit, at most the group commit window later or on {@link #flush()}, so the appends within
+     * the window share a single sync. The contents appended before are never at risk, but a crash of the device before the group
+     * commit may lose the last appends.
+     *
+     * @param fileName       name of the file
+     * @param contentsWriter writer of the contents to append, must not close the stream
+     */
+    public void append(@NonNull final String fileName, @NonNull final IOConsumer<OutputStream> contentsWriter) throws IOException {
         final Context appContext = App.getAppContext();
 
-        try (final FileOutputStream fileOutputStream = appContext.openFileOutput(fileName, Context.MODE_PRIVATE)) {
-            fileOutputStream.write(StringUtil.toUTF8ByteArray(dataToSave));
-            Log.i(LOG_TAG, "Successfully saved the file " + fileName);
+        synchronized (this.getFileLock(fileName)) {
+            try (final FileOutputStream fileOutputStream = appContext.openFileOutput(fileName, Context.MODE_APPEND)) {
+                final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);
+                contentsWriter.accept(bufferedOutputStream);
+                bufferedOutputStream.flush();
+
+                if (!this.groupCommitExecutorService.isPresent()) {
+                    fileOutputStream.getFD().sync();
+                    syncDirectory(appContext.getFileStreamPath(fileName).getParentFile());
+                }
+            }
         }
+
+        this.scheduleGroupCommit(fileName);
     }
 
     /**
-     * Reads the file specified by fileName and returns the file contents.
+     * Returns the length of the file specified by fileName.
+     *
+     * @param fileName file name
+     * @return length of the file in bytes, 0 if it does not exist
+     */
+    public long length(final String fileName) {
+        final Context appContext = App.getAppContext();
+        return appContext.getFileStreamPath(fileName).length();
+    }
+
+    /**
+     * Syncs the files appended to since the last group commit, and their directory, to the storage. Does nothing without the
+     * group commit.
+     */
+    public void flush() throws IOException {
+        final Context appContext = App.getAppContext();
+
+        Optional<File> optionalDirectory = Optional.empty();
+        for (final String fileName : new ArrayList<>(this.uncommittedFileNames)) {
+            if (!this.uncommittedFileNames.remove(fileName)) {
+                continue;
+            }
+
+            try (final FileInputStream fileInputStream = appContext.openFileInput(fileName)) {
+                fileInputStream.getFD().sync();
+                optionalDirectory = Optional.of(appContext.getFileStreamPath(fileName).getParentFile());
+            } catch (final FileNotFoundException e) {
+                Log.i(LOG_TAG, "File " + fileName + " was deleted before the group commit.");
+            } catch (final IOException e) {
+                this.uncommittedFileNames.add(fileName);
+                throw e;
+            }
+        }
+
+        // The appends may have created the files
+        if (optionalDirectory.isPresent()) {
+            syncDirectory(optionalDirectory.get());
+        }
+    }
+
+    /**
+     * Reads the file specified by fileName and returns the file contents. The contents are decoded as is, so the line endings
+     * of the file are preserved.
      *
      * @param fileName file name to read
      * @return file contents
      */
     public String getContents(final String fileName) throws IOException {
-        final Context appContext = App.getAppContext();
+        return StandardCharsets.UTF_8.decode(this.readBytes(fileName)).toString();
+    }
 
-        final StringBuilder stringBuilder = new StringBuilder();
+    /**
+     * Reads the exact bytes of the file specified by fileName through its {@link FileChannel}. The files of at least
+     * {@link #MAPPED_READ_THRESHOLD_BYTES} are memory mapped instead of copied to the heap, and the returned buffer is then read
+     * only.
+     *
+     * @param fileName file name to read
+     * @return {@link ByteBuffer} of the file contents, positioned at the start of the file
+     */
+    public ByteBuffer readBytes(final String fileName) throws IOException {
+        final Context appContext = App.getAppContext();
 
         try (
                 final FileInputStream fileInputStream = appContext.openFileInput(fileName);
-                final InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream, StandardCharsets.UTF_8);
-                final BufferedReader bufferedReader = new BufferedReader(inputStreamReader)
+                final FileChannel fileChannel = fileInputStream.getChannel()
         ) {
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                stringBuilder.append(line);
-                line = bufferedReader.readLine();
+            final long fileSize = fileChannel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("File " + fileName + " is too large to read, size " + fileSize + " bytes");
+            }
 
-                if (null != line) {
-                    stringBuilder.append(System.lineSeparator());
+            final ByteBuffer contents;
+            if (fileSize >= MAPPED_READ_THRESHOLD_BYTES) {
+                // The mapping stays valid after the channel is closed
+                contents = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            } else {
+                contents = ByteBuffer.allocate((int) fileSize);
+                while (contents.hasRemaining() && fileChannel.read(contents) != -1) {
+                    // Keep reading until the buffer is full or the file ends
                 }
+                contents.flip();
+            }
+
+            Log.i(LOG_TAG, "Successfully read " + contents.remaining() + " bytes of the file " + fileName);
+            return contents;
+        }
+    }
+
+    /**
+     * Reads the given range of the file specified by fileName through its {@link FileChannel}, without reading the rest of the
+     * file.
+     *
+     * @param fileName file name to read
+     * @param position position in the file to read from
+     * @param length   number of bytes to read
+     * @return {@link ByteBuffer} of the read bytes
+     */
+    public ByteBuffer readBytes(final String fileName, final long position, final int length) throws IOException {
+        final Context appContext = App.getAppContext();
+
+        try (
+                final FileInputStream fileInputStream = appContext.openFileInput(fileName);
+                final FileChannel fileChannel = fileInputStream.getChannel()
+        ) {
+            final ByteBuffer contents = ByteBuffer.allocate(length);
+            while (contents.hasRemaining()) {
+                if (fileChannel.read(contents, position + contents.position()) == -1) {
+                    throw new EOFException("File " + fileName + " ended before reading " + length + " bytes at " + position);
+                }
+            }
+
+            contents.flip();
+            return contents;
+        }
+    }
+
+    /**
+     * Opens a buffered stream to write the file to the storage. The file is overwritten in place, so a crash while writing
+     * leaves a partially written file behind; use {@link #write(String, IOConsumer)} for the files that must survive a crash.
+     * The caller owns the stream and must close it.
+     *
+     * @param fileName name of the file
+     * @return buffered {@link OutputStream} of the file
+     */
+    public OutputStream openOutputStream(final String fileName) throws IOException {
+        final Context appContext = App.getAppContext();
+
+        final FileOutputStream fileOutputStream = appContext.openFileOutput(fileName, Context.MODE_PRIVATE);
+        return new BufferedOutputStream(fileOutputStream);
+    }
+
+    /**
+     * Opens a buffered stream to read the file specified by fileName. The caller owns the stream and must close it.
+     *
+     * @param fileName file name to read
+     * @return buffered {@link InputStream} of the file
+     */
+    public InputStream openInputStream(final String fileName) throws IOException {
+        final Context appContext = App.getAppContext();
+
+        final FileInputStream fileInputStream = appContext.openFileInput(fileName);
+        return new BufferedInputStream(fileInputStream);
+    }
+
+    /**
+     * Returns the names of the files in the storage that start with the given prefix. The temporary files of the atomic writes
+     * are not listed.
+     *
+     * @param fileNamePrefix prefix of the file names
+     * @return names of the matching files
+     */
+    public List<String> listFiles(final String fileNamePrefix) {
+        final Context appContext = App.getAppContext();
+
+        return Arrays.stream(appContext.fileList())
+                .filter(fileName -> fileName.startsWith(fileNamePrefix))
+                .filter(fileName -> !fileName.endsWith(TEMP_FILE_NAME_SUFFIX))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes the file specified by fileName from the storage.
+     *
+     * @param fileName file name to delete
+     * @return true if the file was deleted, false if it did not exist
+     */
+    public boolean delete(final String fileName) {
+        final Context appContext = App.getAppContext();
+
+        this.uncommittedFileNames.remove(fileName);
+        final boolean deleted = appContext.deleteFile(fileName);
+        Log.i(LOG_TAG, "Deleted the file " + fileName + ": " + deleted);
+        return deleted;
+    }
+
+    private void scheduleGroupCommit(final String fileName) {
+        this.groupCommitExecutorService.ifPresent(executorService -> {
+            this.uncommittedFileNames.add(fileName);
+            if (this.groupCommitScheduled.compareAndSet(false, true)) {
+                executorService.schedule(this::groupCommit, this.groupCommitWindowMillis, TimeUnit.MILLISECONDS);
             }
+        });
+    }
+
+    private void groupCommit() {
+        this.groupCommitScheduled.set(false);
+
+        try {
+            this.flush();
+        } catch (final IOException e) {
+            logError(LOG_TAG, Optional.of(e), GROUP_COMMIT_ERROR);
         }
+    }
 
-        Log.i(LOG_TAG, "Successfully read the file " + fileName + ". Returning the file contents.");
-        return stringBuilder.toString();
+    private Object getFileLock(final String fileName) {
+        return this.fileLocks.computeIfAbsent(fileName, lockedFileName -> new Object());
+    }
+
+    private static void syncDirectory(final File directory) throws IOException {
+        try (final FileChannel directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
     }
 }
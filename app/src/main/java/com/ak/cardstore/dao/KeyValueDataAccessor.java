@@ -0,0 +1,47 @@
+package com.ak.cardstore.dao;
+
+import java.util.Map;
+
+/**
+ * An interface to read and write the string values by key in the named key-value files.
+ *
+ * @author Abhishek
+ */
+
+public interface KeyValueDataAccessor {
+
+    /**
+     * Saves the preferencesKey and preferencesValue to the file identified by given preferencesFileName.
+     *
+     * @param preferencesFileName key-value file name
+     * @param preferencesKey      key to save
+     * @param preferencesValue    value to save
+     */
+    void save(final String preferencesFileName, final String preferencesKey, final String preferencesValue);
+
+    /**
+     * Saves all the preferencesValues to the file identified by given preferencesFileName with a single write.
+     *
+     * @param preferencesFileName key-value file name
+     * @param preferencesValues   map of the keys to the values to save
+     */
+    void saveAll(final String preferencesFileName, final Map<String, String> preferencesValues);
+
+    /**
+     * Reads and returns the preferencesValue for a given preferencesKey from the file identified by given preferencesFileName.
+     *
+     * @param preferencesFileName key-value file name
+     * @param preferencesKey      key for which the value is returned
+     * @return preferencesValue for a given preferencesKey, null if the key does not exist
+     */
+    String get(final String preferencesFileName, final String preferencesKey);
+
+    /**
+     * Checks if the value specified by the preferencesKey already exists in the file preferencesFileName
+     *
+     * @param preferencesFileName key-value file name
+     * @param preferencesKey      key to check
+     * @return true if the value already exists, false otherwise
+     */
+    boolean doesPreferenceExist(final String preferencesFileName, final String preferencesKey);
+}
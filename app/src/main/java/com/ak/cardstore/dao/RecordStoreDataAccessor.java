@@ -0,0 +1,377 @@
+package com.ak.cardstore.dao;
+
+import android.util.Log;
+
+import com.ak.cardstore.exception.RecordStoreIOException;
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import lombok.NonNull;
+
+import static com.ak.cardstore.util.LoggerUtil.logError;
+
+/**
+ * A data accessor to read from and write to the record stores, the embedded key-value files stored through
+ * {@link FileBasedDataAccessor}.
+ * <p>
+ * A record store is an append-only file of records, each of the magic number, the length of the key, the length of the value,
+ * the CRC32 checksum of the key and the value, the UTF-8 encoded key and the UTF-8 encoded value. The keys and the values are
+ * capped at {@link #MAX_KEY_LENGTH} and {@link #MAX_VALUE_LENGTH} bytes, so a corrupted length never allocates more than that
+ * while scanning. Saving appends the new
+ * records, so a save writes only the saved values instead of rewriting the whole file. The record store is scanned once into
+ * an in-memory index of the key to the position of its latest record, so checking a key reads nothing and reading a value reads
+ * only its record, whose checksum is verified. A record torn by a crash or otherwise corrupted fails its checksum and is skipped
+ * by the scan. Once the record store grows past {@link #COMPACTION_THRESHOLD_BYTES} and at least half of it is taken by the
+ * replaced records, it is rewritten atomically with the latest records only.
+ *
+ * @author Abhishek
+ */
+
+public class RecordStoreDataAccessor implements KeyValueDataAccessor {
+
+    private static final String LOG_TAG = RecordStoreDataAccessor.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String RECORD_STORE_FILE_NAME_SUFFIX = ".records";
+
+    @VisibleForTesting
+    static final long COMPACTION_THRESHOLD_BYTES = 16 * 1024;
+
+    private static final byte[] RECORD_MAGIC = {'C', 'S', 'K', 'V'};
+    private static final int RECORD_HEADER_LENGTH = RECORD_MAGIC.length + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    @VisibleForTesting
+    static final int MAX_KEY_LENGTH = 1024;
+
+    @VisibleForTesting
+    static final int MAX_VALUE_LENGTH = 1024 * 1024;
+
+    private static final String SAVE_ERROR = "Error saving the record store %s";
+    private static final String READ_ERROR = "Error reading the record store %s";
+    private static final String INVALID_RECORD_ERROR = "Invalid record of the key %s in the record store %s";
+    private static final String RECORD_TOO_LONG_ERROR = "Record of the key %s is too long for the record store %s";
+
+    private final FileBasedDataAccessor fileBasedDataAccessor;
+
+    /**
+     * Indexes of the record stores by the record store file name
+     */
+    private final ConcurrentMap<String, RecordStoreIndex> recordStoreIndexes = new ConcurrentHashMap<>();
+
+    public RecordStoreDataAccessor(@NonNull final FileBasedDataAccessor fileBasedDataAccessor) {
+        this.fileBasedDataAccessor = fileBasedDataAccessor;
+    }
+
+    /**
+     * Saves the preferencesKey and preferencesValue to the record store identified by given preferencesFileName.
+     *
+     * @param preferencesFileName record store name
+     * @param preferencesKey      key to save
+     * @param preferencesValue    value to save
+     */
+    @Override
+    public void save(@NonNull final String preferencesFileName, @NonNull final String preferencesKey, @NonNull final String preferencesValue) {
+        this.saveAll(preferencesFileName, Collections.singletonMap(preferencesKey, preferencesValue));
+    }
+
+    /**
+     * Saves all the preferencesValues to the record store identified by given preferencesFileName with a single append.
+     *
+     * @param preferencesFileName record store name
+     * @param preferencesValues   map of the keys to the values to save
+     */
+    @Override
+    public void saveAll(@NonNull final String preferencesFileName, @NonNull final Map<String, String> preferencesValues) {
+        final String recordStoreFileName = toRecordStoreFileName(preferencesFileName);
+        final RecordStoreIndex recordStoreIndex = this.getRecordStoreIndex(recordStoreFileName);
+
+        synchronized (recordStoreIndex) {
+            // A failed append may have left a partial record behind, so the records are positioned by the actual length
+            final long recordStoreLength = this.fileBasedDataAccessor.length(recordStoreFileName);
+
+            final ByteArrayOutputStream recordsOutputStream = new ByteArrayOutputStream();
+            final Map<String, ImmutablePair<Long, Integer>> recordPositions = new HashMap<>();
+            try {
+                for (final Map.Entry<String, String> preferencesEntry : preferencesValues.entrySet()) {
+                    final long recordPosition = recordStoreLength + recordsOutputStream.size();
+                    final int recordLength = writeRecord(recordsOutputStream, recordStoreFileName, preferencesEntry.getKey(),
+                            preferencesEntry.getValue());
+                    recordPositions.put(preferencesEntry.getKey(), ImmutablePair.of(recordPosition, recordLength));
+                }
+
+                this.fileBasedDataAccessor.append(recordStoreFileName, recordsOutputStream::writeTo);
+            } catch (final IOException e) {
+                final String errorMessage = logError(LOG_TAG, Optional.of(e), SAVE_ERROR, recordStoreFileName);
+                throw new RecordStoreIOException(errorMessage, e);
+            }
+
+            recordPositions.forEach(recordStoreIndex::put);
+            recordStoreIndex.length = recordStoreLength + recordsOutputStream.size();
+
+            if (recordStoreIndex.length >= COMPACTION_THRESHOLD_BYTES && recordStoreIndex.liveLength * 2 <= recordStoreIndex.length) {
+                this.compact(recordStoreFileName, recordStoreIndex);
+            }
+        }
+    }
+
+    /**
+     * Reads and returns the preferencesValue for a given preferencesKey from the record store identified by given
+     * preferencesFileName. Only the latest record of the key is read.
+     *
+     * @param preferencesFileName record store name
+     * @param preferencesKey      key for which the value is returned
+     * @return preferencesValue for a given preferencesKey, null if the key does not exist
+     */
+    @Override
+    public String get(@NonNull final String preferencesFileName, @NonNull final String preferencesKey) {
+        final String recordStoreFileName = toRecordStoreFileName(preferencesFileName);
+        final RecordStoreIndex recordStoreIndex = this.getRecordStoreIndex(recordStoreFileName);
+
+        synchronized (recordStoreIndex) {
+            final ImmutablePair<Long, Integer> recordPosition = recordStoreIndex.recordPositions.get(preferencesKey);
+            if (recordPosition == null) {
+                return null;
+            }
+
+            final ByteBuffer record;
+            try {
+                record = this.fileBasedDataAccessor.readBytes(recordStoreFileName, recordPosition.getLeft(), recordPosition.getRight());
+            } catch (final IOException e) {
+                final String errorMessage = logError(LOG_TAG, Optional.of(e), READ_ERROR, recordStoreFileName);
+                throw new RecordStoreIOException(errorMessage, e);
+            }
+
+            return readRecord(record)
+                    .filter(keyAndValue -> keyAndValue.getLeft().equals(preferencesKey))
+                    .map(ImmutablePair::getRight)
+                    .orElseThrow(() -> new RecordStoreIOException(
+                            logError(LOG_TAG, Optional.empty(), INVALID_RECORD_ERROR, preferencesKey, recordStoreFileName), null));
+        }
+    }
+
+    /**
+     * Checks if the value specified by the preferencesKey already exists in the record store preferencesFileName. Only the index
+     * is checked.
+     *
+     * @param preferencesFileName record store name
+     * @param preferencesKey      key to check
+     * @return true if the value already exists, false otherwise
+     */
+    @Override
+    public boolean doesPreferenceExist(@NonNull final String preferencesFileName, @NonNull final String preferencesKey) {
+        final RecordStoreIndex recordStoreIndex = this.getRecordStoreIndex(toRecordStoreFileName(preferencesFileName));
+
+        synchronized (recordStoreIndex) {
+            return recordStoreIndex.recordPositions.containsKey(preferencesKey);
+        }
+    }
+
+    /**
+     * Rewrites the record store with the latest record of every key, and indexes the rewritten record store.
+     *
+     * @param recordStoreFileName record store file name
+     * @param recordStoreIndex    index of the record store, locked by the caller
+     */
+    private void compact(final String recordStoreFileName, final RecordStoreIndex recordStoreIndex) {
+        final long recordStoreLength = recordStoreIndex.length;
+        // The records are rewritten and indexed again in the order of the snapshot
+        final Map<String, ImmutablePair<Long, Integer>> recordPositions = new LinkedHashMap<>(recordStoreIndex.recordPositions);
+        try {
+            final ByteBuffer recordStore = this.fileBasedDataAccessor.readBytes(recordStoreFileName);
+            this.fileBasedDataAccessor.write(recordStoreFileName, recordStoreOutputStream -> {
+                final WritableByteChannel recordStoreChannel = Channels.newChannel(recordStoreOutputStream);
+                for (final ImmutablePair<Long, Integer> recordPosition : recordPositions.values()) {
+                    final ByteBuffer liveRecord = recordStore.duplicate();
+                    liveRecord.position(recordPosition.getLeft().intValue());
+                    liveRecord.limit(recordPosition.getLeft().intValue() + recordPosition.getRight());
+                    while (liveRecord.hasRemaining()) {
+                        recordStoreChannel.write(liveRecord);
+                    }
+                }
+            });
+        } catch (final IOException e) {
+            // The record store is replaced atomically, so it is still intact and indexed
+            logError(LOG_TAG, Optional.of(e), SAVE_ERROR, recordStoreFileName);
+            return;
+        }
+
+        recordStoreIndex.recordPositions.clear();
+        recordStoreIndex.length = 0;
+        recordStoreIndex.liveLength = 0;
+        for (final Map.Entry<String, ImmutablePair<Long, Integer>> recordPosition : recordPositions.entrySet()) {
+            recordStoreIndex.put(recordPosition.getKey(), ImmutablePair.of(recordStoreIndex.length, recordPosition.getValue().getRight()));
+            recordStoreIndex.length += recordPosition.getValue().getRight();
+        }
+
+        Log.i(LOG_TAG, "Compacted the record store " + recordStoreFileName + " from " + recordStoreLength + " to "
+                + recordStoreIndex.length + " bytes.");
+    }
+
+    private RecordStoreIndex getRecordStoreIndex(final String recordStoreFileName) {
+        return this.recordStoreIndexes.computeIfAbsent(recordStoreFileName, this::scan);
+    }
+
+    /**
+     * Scans the record store for the records and indexes the latest record of every key. The records which fail their checksum,
+     * e.g. the one torn by a crash while appending, are skipped without losing the following ones.
+     *
+     * @param recordStoreFileName record store file name
+     * @return index of the record store, empty if the record store does not exist
+     */
+    private RecordStoreIndex scan(final String recordStoreFileName) {
+        final RecordStoreIndex recordStoreIndex = new RecordStoreIndex();
+        if (!this.fileBasedDataAccessor.listFiles(recordStoreFileName).contains(recordStoreFileName)) {
+            return recordStoreIndex;
+        }
+
+        final ByteBuffer recordStore;
+        try {
+            recordStore = this.fileBasedDataAccessor.readBytes(recordStoreFileName);
+        } catch (final IOException e) {
+            final String errorMessage = logError(LOG_TAG, Optional.of(e), READ_ERROR, recordStoreFileName);
+            throw new RecordStoreIOException(errorMessage, e);
+        }
+
+        int skippedByteCount = 0;
+        while (recordStore.remaining() >= RECORD_HEADER_LENGTH) {
+            final int recordPosition = recordStore.position();
+            final Optional<ImmutablePair<String, String>> optionalKeyAndValue = readRecord(recordStore);
+            if (!optionalKeyAndValue.isPresent()) {
+                // Resynchronize on the next record
+                recordStore.position(recordPosition + 1);
+                skippedByteCount++;
+                continue;
+            }
+
+            recordStoreIndex.put(optionalKeyAndValue.get().getLeft(),
+                    ImmutablePair.of((long) recordPosition, recordStore.position() - recordPosition));
+        }
+
+        skippedByteCount += recordStore.remaining();
+        recordStoreIndex.length = recordStore.limit();
+        Log.i(LOG_TAG, "Indexed " + recordStoreIndex.recordPositions.size() + " keys of the record store " + recordStoreFileName
+                + ", skipped " + skippedByteCount + " bytes.");
+
+        return recordStoreIndex;
+    }
+
+    /**
+     * Writes the record of the key and the value.
+     *
+     * @param outputStream        stream to write the record to
+     * @param recordStoreFileName record store file name
+     * @param preferencesKey      key of the record
+     * @param preferencesValue    value of the record
+     * @return length of the record
+     */
+    private static int writeRecord(final ByteArrayOutputStream outputStream, final String recordStoreFileName,
+                                   final String preferencesKey, final String preferencesValue) throws IOException {
+        final byte[] key = preferencesKey.getBytes(StandardCharsets.UTF_8);
+        final byte[] value = preferencesValue.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_LENGTH || value.length > MAX_VALUE_LENGTH) {
+            final String errorMessage = logError(LOG_TAG, Optional.empty(), RECORD_TOO_LONG_ERROR, preferencesKey, recordStoreFileName);
+            throw new RecordStoreIOException(errorMessage, null);
+        }
+
+        final DataOutputStream recordOutputStream = new DataOutputStream(outputStream);
+        recordOutputStream.write(RECORD_MAGIC);
+        recordOutputStream.writeInt(key.length);
+        recordOutputStream.writeInt(value.length);
+        recordOutputStream.writeInt(checksum(key, value));
+        recordOutputStream.write(key);
+        recordOutputStream.write(value);
+        recordOutputStream.flush();
+
+        return RECORD_HEADER_LENGTH + key.length + value.length;
+    }
+
+    /**
+     * Reads the record at the position of the buffer, and moves the position past the record if it is valid.
+     *
+     * @param buffer buffer to read the record from
+     * @return Pair of <key, value> of the record, empty if there is no valid record at the position
+     */
+    private static Optional<ImmutablePair<String, String>> readRecord(final ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_LENGTH) {
+            return Optional.empty();
+        }
+
+        final ByteBuffer record = buffer.slice();
+        final byte[] magic = new byte[RECORD_MAGIC.length];
+        record.get(magic);
+        final int keyLength = record.getInt();
+        final int valueLength = record.getInt();
+        final int checksum = record.getInt();
+        if (!Arrays.equals(magic, RECORD_MAGIC) || keyLength < 0 || keyLength > MAX_KEY_LENGTH || valueLength < 0
+                || valueLength > MAX_VALUE_LENGTH || keyLength + valueLength > record.remaining()) {
+            return Optional.empty();
+        }
+
+        final byte[] key = new byte[keyLength];
+        final byte[] value = new byte[valueLength];
+        record.get(key);
+        record.get(value);
+        if (checksum(key, value) != checksum) {
+            return Optional.empty();
+        }
+
+        buffer.position(buffer.position() + record.position());
+        return Optional.of(ImmutablePair.of(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8)));
+    }
+
+    private static int checksum(final byte[] key, final byte[] value) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(key);
+        crc32.update(value);
+        return (int) crc32.getValue();
+    }
+
+    private static String toRecordStoreFileName(final String preferencesFileName) {
+        return preferencesFileName + RECORD_STORE_FILE_NAME_SUFFIX;
+    }
+
+    /**
+     * In-memory index of a record store, guarded by its own lock
+     */
+    private static final class RecordStoreIndex {
+
+        /**
+         * Pairs of <position, length> of the latest record by the key
+         */
+        private final Map<String, ImmutablePair<Long, Integer>> recordPositions = new HashMap<>();
+
+        /**
+         * Length of the record store, including the replaced and the skipped records
+         */
+        private long length;
+
+        /**
+         * Length of the latest records
+         */
+        private long liveLength;
+
+        private void put(final String preferencesKey, final ImmutablePair<Long, Integer> recordPosition) {
+            Optional.ofNullable(this.recordPositions.put(preferencesKey, recordPosition))
+                    .ifPresent(replacedRecordPosition -> this.liveLength -= replacedRecordPosition.getRight());
+            this.liveLength += recordPosition.getRight();
+        }
+    }
+}
@@ -8,21 +8,54 @@ import com.ak.cardstore.app.App;
 import com.ak.cardstore.exception.SharedPreferencesIOException;
 import com.ak.cardstore.util.LoggerUtil;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 import lombok.NonNull;
 
 /**
  * A data accessor to read from and write to the shared preferences.
+ * <p>
+ * The {@link SharedPreferences} handle of every preferences file is retrieved once and reused. The values saved together are
+ * written with a single {@link SharedPreferences.Editor}, so they cost a single disk write. With the commit
+ * {@link ExecutorService}, {@link #saveAllAsync(String, Map, Consumer)} commits the values in the background instead of
+ * blocking the caller.
  *
  * @author Abhishek
  */
 
-public class SharedPreferencesDataAccessor {
+public class SharedPreferencesDataAccessor implements KeyValueDataAccessor {
 
     private static final String LOG_TAG = SharedPreferencesDataAccessor.class.getSimpleName();
 
     private static final String SAVE_ERROR = "Error saving shared preferences file %s";
+    private static final String REMOVE_ERROR = "Error removing from shared preferences file %s";
+
+    private final Optional<ExecutorService> commitExecutorService;
+
+    private final ConcurrentMap<String, SharedPreferences> sharedPreferencesHandles = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the data accessor which commits every save on the calling thread.
+     */
+    public SharedPreferencesDataAccessor() {
+        this.commitExecutorService = Optional.empty();
+    }
+
+    /**
+     * Creates the data accessor which commits the asynchronous saves on the given {@link ExecutorService}. A single threaded
+     * executor keeps the asynchronous saves in order.
+     *
+     * @param commitExecutorService executor to commit the asynchronous saves on
+     */
+    public SharedPreferencesDataAccessor(@NonNull final ExecutorService commitExecutorService) {
+        this.commitExecutorService = Optional.of(commitExecutorService);
+    }
 
     /**
      * Saves the preferencesKey and preferencesValue to the shared preference file identified by given preferencesFileName.
@@ -31,19 +64,49 @@ public class SharedPreferencesDataAccessor {
      * @param preferencesKey      key to save
      * @param preferencesValue    value to save
      */
+    @Override
     public void save(@NonNull final String preferencesFileName, @NonNull final String preferencesKey, @NonNull final String preferencesValue) {
-        final Context appContext = App.getAppContext();
-
-        final SharedPreferences sharedPreferences = appContext.getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE);
+        this.saveAll(preferencesFileName, Collections.singletonMap(preferencesKey, preferencesValue));
+    }
 
-        final boolean isCommitSuccessful = sharedPreferences.edit()
-                .putString(preferencesKey, preferencesValue)
-                .commit();
-        if (!isCommitSuccessful) {
+    /**
+     * Saves all the preferencesValues to the shared preference file identified by given preferencesFileName with a single commit.
+     *
+     * @param preferencesFileName shared preferences file name
+     * @param preferencesValues   map of the keys to the values to save
+     */
+    @Override
+    public void saveAll(@NonNull final String preferencesFileName, @NonNull final Map<String, String> preferencesValues) {
+        if (!this.commit(preferencesFileName, preferencesValues)) {
             final String errorMessage = LoggerUtil.logError(LOG_TAG, Optional.empty(), SAVE_ERROR, preferencesFileName);
             throw new SharedPreferencesIOException(errorMessage);
+        }
+    }
+
+    /**
+     * Saves all the preferencesValues to the shared preference file identified by given preferencesFileName with a single commit
+     * on the commit {@link ExecutorService}, and then calls onSaved with the result. The saved values are readable once onSaved
+     * is called. Without the commit executor, the values are committed on the calling thread.
+     *
+     * @param preferencesFileName shared preferences file name
+     * @param preferencesValues   map of the keys to the values to save
+     * @param onSaved             callback accepting true if the values were saved, false otherwise
+     */
+    public void saveAllAsync(@NonNull final String preferencesFileName, @NonNull final Map<String, String> preferencesValues,
+                             @NonNull final Consumer<Boolean> onSaved) {
+        final Runnable saveAll = () -> {
+            final boolean isCommitSuccessful = this.commit(preferencesFileName, preferencesValues);
+            if (!isCommitSuccessful) {
+                LoggerUtil.logError(LOG_TAG, Optional.empty(), SAVE_ERROR, preferencesFileName);
+            }
+
+            onSaved.accept(isCommitSuccessful);
+        };
+
+        if (this.commitExecutorService.isPresent()) {
+            this.commitExecutorService.get().execute(saveAll);
         } else {
-            Log.i(LOG_TAG, "Successfully saved shared preferences file " + preferencesFileName);
+            saveAll.run();
         }
     }
 
@@ -54,10 +117,9 @@ public class SharedPreferencesDataAccessor {
      * @param preferencesKey      key for which the value is returned
      * @return preferencesValue for a given preferencesKey
      */
+    @Override
     public String get(@NonNull final String preferencesFileName, @NonNull final String preferencesKey) {
-        final Context appContext = App.getAppContext();
-
-        final SharedPreferences sharedPreferences = appContext.getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE);
+        final SharedPreferences sharedPreferences = this.getSharedPreferences(preferencesFileName);
 
         final String preferencesValue = sharedPreferences.getString(preferencesKey, null);
         return preferencesValue;
@@ -70,14 +132,46 @@ public class SharedPreferencesDataAccessor {
      * @param preferencesKey      key for which the value is returned
      * @return true if the shared preference already exists, false otherwise
      */
+    @Override
     public boolean doesPreferenceExist(@NonNull final String preferencesFileName, @NonNull final String preferencesKey) {
-        final Context appContext = App.getAppContext();
-
-        final SharedPreferences sharedPreferences = appContext.getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE);
+        final SharedPreferences sharedPreferences = this.getSharedPreferences(preferencesFileName);
 
         final String preferencesValue = sharedPreferences.getString(preferencesKey, null);
 
         final boolean preferenceExists = (preferencesValue != null);
         return preferenceExists;
     }
+
+    /**
+     * Removes the shared preference specified by the preferencesKey from the file preferencesFileName.
+     *
+     * @param preferencesFileName shared preferences file name
+     * @param preferencesKey      key to remove
+     */
+    public void remove(@NonNull final String preferencesFileName, @NonNull final String preferencesKey) {
+        final SharedPreferences.Editor sharedPreferencesEditor = this.getSharedPreferences(preferencesFileName).edit();
+        sharedPreferencesEditor.remove(preferencesKey);
+
+        if (!sharedPreferencesEditor.commit()) {
+            final String errorMessage = LoggerUtil.logError(LOG_TAG, Optional.empty(), REMOVE_ERROR, preferencesFileName);
+            throw new SharedPreferencesIOException(errorMessage);
+        }
+    }
+
+    private boolean commit(final String preferencesFileName, final Map<String, String> preferencesValues) {
+        final SharedPreferences.Editor sharedPreferencesEditor = this.getSharedPreferences(preferencesFileName).edit();
+        preferencesValues.forEach(sharedPreferencesEditor::putString);
+
+        final boolean isCommitSuccessful = sharedPreferencesEditor.commit();
+        if (isCommitSuccessful) {
+            Log.i(LOG_TAG, "Successfully saved " + preferencesValues.size() + " shared preferences to file " + preferencesFileName);
+        }
+
+        return isCommitSuccessful;
+    }
+
+    private SharedPreferences getSharedPreferences(final String preferencesFileName) {
+        return this.sharedPreferencesHandles.computeIfAbsent(preferencesFileName,
+                fileName -> App.getAppContext().getSharedPreferences(fileName, Context.MODE_PRIVATE));
+    }
 }
@@ -0,0 +1,14 @@
+package com.ak.cardstore.exception;
+
+/**
+ * This exception is thrown when deriving the key from the password fails
+ *
+ * @author Abhishek
+ */
+
+public class KeyDerivationException extends RuntimeException {
+
+    public KeyDerivationException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ak.cardstore.exception;
+
+/**
+ * This exception is thrown when the key store permanently invalidates a key, e.g. after the lock screen is removed. The data
+ * encrypted with the key can never be decrypted again, so the user has to reset it explicitly.
+ *
+ * @author Abhishek
+ */
+
+public class KeyInvalidatedException extends CipherRetrievalException {
+
+    public KeyInvalidatedException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ak.cardstore.exception;
+
+/**
+ * This exception is thrown when IO fails for {@link com.ak.cardstore.dao.RecordStoreDataAccessor}
+ *
+ * @author Abhishek
+ */
+
+public class RecordStoreIOException extends RuntimeException {
+
+    public RecordStoreIOException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,165 @@
+package com.ak.cardstore.instrumentation;
+
+import android.util.Log;
+
+import com.ak.cardstore.pojo.OperationMetricsSnapshot;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import lombok.NonNull;
+
+/**
+ * Utility class to instrument the crypto hot path with per operation {@link OperationMetrics}.
+ * <p>
+ * An instrumented operation takes the start time from {@link #start()} and reports it back with
+ * {@link #recordSuccess(String, long, long)} or {@link #recordFailure(String, long, Throwable)}. While the instrumentation is
+ * disabled, {@link #start()} does not read the clock and the records return right away, so the overhead is a volatile read per
+ * call. The metrics can be read by {@link #snapshot()}, e.g. for a debug screen, or dumped to logcat by {@link #dump()}.
+ *
+ * @author Abhishek
+ */
+
+public class CryptoMetrics {
+
+    public static final String KEY_STORE_RETRIEVE = "KeyStoreRetriever.retrieve";
+    public static final String CIPHER_RETRIEVE = "CipherRetriever.retrieve";
+    public static final String CIPHER_OPERATION = "CipherOperator.doCipherOperation";
+    public static final String SYMMETRIC_KEY_RETRIEVE = "SymmetricKeyRetriever.retrieve";
+    public static final String PRIVATE_KEY_RETRIEVE = "AsymmetricKeyPairRetriever.retrievePrivateKey";
+    public static final String PUBLIC_KEY_RETRIEVE = "AsymmetricKeyPairRetriever.retrievePublicKey";
+
+    /**
+     * Start time returned while the instrumentation is disabled
+     */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final String LOG_TAG = CryptoMetrics.class.getSimpleName();
+
+    private static final String SNAPSHOT_FORMAT = "%s: calls=%d, failures=%d, bytes=%d, p50<=%dus, p90<=%dus, p99<=%dus, "
+            + "max<=%dus, failures by type=%s";
+
+    private static final ConcurrentMap<String, OperationMetrics> OPERATION_METRICS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled;
+
+    /**
+     * Enables or disables the instrumentation. The metrics recorded so far are kept.
+     *
+     * @param enabled true to enable the instrumentation
+     */
+    public static void setEnabled(final boolean enabled) {
+        CryptoMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the instrumentation is enabled.
+     *
+     * @return true if the instrumentation is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of an instrumented call.
+     *
+     * @return start time in nanoseconds, {@link #NOT_STARTED} if the instrumentation is disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Records a successful call of the operation.
+     *
+     * @param operation  name of the operation
+     * @param startNanos start time returned by {@link #start()}
+     */
+    public static void recordSuccess(final String operation, final long startNanos) {
+        recordSuccess(operation, startNanos, 0);
+    }
+
+    /**
+     * Records a successful call of the operation, which processed the given number of bytes.
+     *
+     * @param operation  name of the operation
+     * @param startNanos start time returned by {@link #start()}
+     * @param byteCount  number of bytes processed by the call
+     */
+    public static void recordSuccess(final String operation, final long startNanos, final long byteCount) {
+        if (startNanos == NOT_STARTED) {
+            return;
+        }
+
+        getOperationMetrics(operation).recordSuccess(System.nanoTime() - startNanos, byteCount);
+    }
+
+    /**
+     * Records a failed call of the operation.
+     *
+     * @param operation  name of the operation
+     * @param startNanos start time returned by {@link #start()}
+     * @param failure    the exception the call failed with
+     */
+    public static void recordFailure(final String operation, final long startNanos, final Throwable failure) {
+        if (startNanos == NOT_STARTED) {
+            return;
+        }
+
+        getOperationMetrics(operation).recordFailure(System.nanoTime() - startNanos, failure);
+    }
+
+    /**
+     * Returns the snapshots of the metrics of all the operations called so far, ordered by the operation name.
+     *
+     * @return {@link OperationMetricsSnapshot}s
+     */
+    public static List<OperationMetricsSnapshot> snapshot() {
+        return OPERATION_METRICS.values()
+                .stream()
+                .map(OperationMetrics::snapshot)
+                .sorted(Comparator.comparing(OperationMetricsSnapshot::getOperation))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Logs the snapshots of the metrics, one line per operation.
+     */
+    public static void dump() {
+        for (final OperationMetricsSnapshot operationMetricsSnapshot : snapshot()) {
+            Log.i(LOG_TAG, format(operationMetricsSnapshot));
+        }
+    }
+
+    /**
+     * Drops all the recorded metrics.
+     */
+    public static void reset() {
+        OPERATION_METRICS.clear();
+    }
+
+    /**
+     * Formats the snapshot as a single line.
+     *
+     * @param operationMetricsSnapshot snapshot to format
+     * @return formatted snapshot
+     */
+    public static String format(@NonNull final OperationMetricsSnapshot operationMetricsSnapshot) {
+        return String.format(SNAPSHOT_FORMAT, operationMetricsSnapshot.getOperation(), operationMetricsSnapshot.getCallCount(),
+                operationMetricsSnapshot.getFailureCount(), operationMetricsSnapshot.getByteCount(),
+                operationMetricsSnapshot.getP50LatencyMicros(), operationMetricsSnapshot.getP90LatencyMicros(),
+                operationMetricsSnapshot.getP99LatencyMicros(), operationMetricsSnapshot.getMaxLatencyMicros(),
+                operationMetricsSnapshot.getFailureCountByExceptionType());
+    }
+
+    private static OperationMetrics getOperationMetrics(final String operation) {
+        final OperationMetrics operationMetrics = OPERATION_METRICS.get(operation);
+        return (operationMetrics == null)
+                ? OPERATION_METRICS.computeIfAbsent(operation, OperationMetrics::new)
+                : operationMetrics;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ak.cardstore.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies with power of two buckets in microseconds.
+ * <p>
+ * Bucket 0 counts the latencies under 1 microsecond and bucket i counts the latencies from 2^(i-1) up to 2^i microseconds. The
+ * last bucket also counts everything longer, so the percentiles are only accurate up to the bucket they fall into.
+ *
+ * @author Abhishek
+ */
+
+public class LatencyHistogram {
+
+    public static final int BUCKET_COUNT = 32;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records the latency.
+     *
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void record(final long latencyNanos) {
+        this.bucketCounts.incrementAndGet(toBucket(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos))));
+    }
+
+    /**
+     * Returns the count of the recorded latencies per bucket.
+     *
+     * @return bucket counts
+     */
+    public long[] getBucketCounts() {
+        final long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            bucketCounts[bucket] = this.bucketCounts.get(bucket);
+        }
+
+        return bucketCounts;
+    }
+
+    /**
+     * Returns the upper bound of the bucket the given percentile of the bucket counts falls into.
+     *
+     * @param bucketCounts bucket counts returned by {@link #getBucketCounts()}
+     * @param percentile   percentile between 0 and 100
+     * @return upper bound of the percentile in microseconds, 0 if nothing was recorded
+     */
+    public static long toPercentileMicros(final long[] bucketCounts, final double percentile) {
+        long totalCount = 0;
+        for (final long bucketCount : bucketCounts) {
+            totalCount += bucketCount;
+        }
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long percentileCount = Math.max(1, (long) Math.ceil(totalCount * percentile / 100));
+
+        long count = 0;
+        int bucket = 0;
+        while (bucket < bucketCounts.length - 1) {
+            count += bucketCounts[bucket];
+            if (count >= percentileCount) {
+                break;
+            }
+
+            bucket++;
+        }
+
+        return toUpperBoundMicros(bucket);
+    }
+
+    /**
+     * Returns the upper bound of the bucket in microseconds.
+     *
+     * @param bucket bucket index
+     * @return upper bound of the bucket in microseconds
+     */
+    public static long toUpperBoundMicros(final int bucket) {
+        return 1L << bucket;
+    }
+
+    private static int toBucket(final long latencyMicros) {
+        return Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(latencyMicros));
+    }
+}
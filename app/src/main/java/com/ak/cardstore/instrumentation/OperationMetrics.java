@@ -0,0 +1,91 @@
+package com.ak.cardstore.instrumentation;
+
+import com.ak.cardstore.pojo.OperationMetricsSnapshot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * The counters and the {@link LatencyHistogram} of an instrumented operation.
+ * <p>
+ * The counters are {@link LongAdder}s, so the operations called concurrently do not contend on the same counter.
+ *
+ * @author Abhishek
+ */
+
+@AllArgsConstructor
+public class OperationMetrics {
+
+    private final String operation;
+
+    private final LongAdder callCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder byteCount = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final ConcurrentMap<String, LongAdder> failureCountByExceptionType = new ConcurrentHashMap<>();
+
+    /**
+     * Records a successful call of the operation.
+     *
+     * @param latencyNanos latency of the call in nanoseconds
+     * @param byteCount    number of bytes processed by the call
+     */
+    public void recordSuccess(final long latencyNanos, final long byteCount) {
+        this.record(latencyNanos);
+        this.byteCount.add(byteCount);
+    }
+
+    /**
+     * Records a failed call of the operation.
+     *
+     * @param latencyNanos latency of the call in nanoseconds
+     * @param failure      the exception the call failed with
+     */
+    public void recordFailure(final long latencyNanos, @NonNull final Throwable failure) {
+        this.record(latencyNanos);
+        this.failureCount.increment();
+        this.failureCountByExceptionType.computeIfAbsent(failure.getClass().getName(), exceptionType -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Returns the snapshot of the metrics. The counters are read one by one, so a snapshot taken during a call may be off by
+     * that call.
+     *
+     * @return {@link OperationMetricsSnapshot}
+     */
+    public OperationMetricsSnapshot snapshot() {
+        final long[] latencyBucketCounts = this.latencyHistogram.getBucketCounts();
+
+        final Map<String, Long> failureCountByExceptionType = new TreeMap<>();
+        this.failureCountByExceptionType.forEach((exceptionType, count) -> failureCountByExceptionType.put(exceptionType, count.sum()));
+
+        return OperationMetricsSnapshot.builder()
+                .operation(this.operation)
+                .callCount(this.callCount.sum())
+                .failureCount(this.failureCount.sum())
+                .byteCount(this.byteCount.sum())
+                .totalLatencyNanos(this.totalLatencyNanos.sum())
+                .p50LatencyMicros(LatencyHistogram.toPercentileMicros(latencyBucketCounts, 50))
+                .p90LatencyMicros(LatencyHistogram.toPercentileMicros(latencyBucketCounts, 90))
+                .p99LatencyMicros(LatencyHistogram.toPercentileMicros(latencyBucketCounts, 99))
+                .maxLatencyMicros(LatencyHistogram.toPercentileMicros(latencyBucketCounts, 100))
+                .failureCountByExceptionType(Collections.unmodifiableMap(failureCountByExceptionType))
+                .latencyBucketCounts(latencyBucketCounts)
+                .build();
+    }
+
+    private void record(final long latencyNanos) {
+        this.callCount.increment();
+        this.totalLatencyNanos.add(latencyNanos);
+        this.latencyHistogram.record(latencyNanos);
+    }
+}
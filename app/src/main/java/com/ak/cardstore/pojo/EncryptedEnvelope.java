@@ -0,0 +1,23 @@
+package com.ak.cardstore.pojo;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Represents data encrypted with a random data key, where only the data key is wrapped with the asymmetric key pair.
+ *
+ * @author Abhishek
+ */
+
+@Getter
+@Builder
+@EqualsAndHashCode
+public class EncryptedEnvelope {
+
+    final String wrappedDataKey;
+
+    final String initialVector;
+
+    final String cipherText;
+}
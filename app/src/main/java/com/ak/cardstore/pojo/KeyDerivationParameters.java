@@ -0,0 +1,38 @@
+package com.ak.cardstore.pojo;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Represents the parameters the key is derived from the password with, consisting of the salt and the iteration count.
+ * <p>
+ * The salt is copied in and out, so the parameters cannot be changed once they are built, e.g. while they key the derived key cache.
+ *
+ * @author Abhishek
+ */
+
+@Getter
+@EqualsAndHashCode
+public class KeyDerivationParameters {
+
+    private final byte[] salt;
+
+    private final int iterationCount;
+
+    @Builder
+    private KeyDerivationParameters(@NonNull final byte[] salt, final int iterationCount) {
+        this.salt = salt.clone();
+        this.iterationCount = iterationCount;
+    }
+
+    /**
+     * Returns a copy of the salt
+     *
+     * @return salt
+     */
+    public byte[] getSalt() {
+        return this.salt.clone();
+    }
+}
@@ -0,0 +1,42 @@
+package com.ak.cardstore.pojo;
+
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Represents a point in time snapshot of the metrics of an instrumented operation, consisting of the call, failure and byte
+ * counters, the latency percentiles and the failures per exception type.
+ *
+ * @author Abhishek
+ */
+
+@Getter
+@Builder
+@EqualsAndHashCode
+public class OperationMetricsSnapshot {
+
+    final String operation;
+
+    final long callCount;
+
+    final long failureCount;
+
+    final long byteCount;
+
+    final long totalLatencyNanos;
+
+    final long p50LatencyMicros;
+
+    final long p90LatencyMicros;
+
+    final long p99LatencyMicros;
+
+    final long maxLatencyMicros;
+
+    final Map<String, Long> failureCountByExceptionType;
+
+    final long[] latencyBucketCounts;
+}
@@ -0,0 +1,23 @@
+package com.ak.cardstore.pojo;
+
+import java.util.Set;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A POJO to represent an edit of the {@link Wallet}, journaled on top of the saved wallet. An updated {@link Card} is both
+ * removed and added, so the update is replayed as a whole.
+ *
+ * @author Abhishek
+ */
+
+@Getter
+@Builder
+@EqualsAndHashCode
+public class WalletJournalEntry {
+
+    private final Set<Card> removedCards;
+    private final Set<Card> addedCards;
+}
@@ -2,6 +2,19 @@ package com.ak.cardstore.serialization;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -40,4 +53,60 @@ public class GsonSerializer<OBJECT_TYPE> implements Serializer<OBJECT_TYPE> {
         final OBJECT_TYPE object = GSON_CONVERTER.fromJson(serializedObject, this.objectTypeClass);
         return object;
     }
+
+    @Override
+    public byte[] serializeToByteArray(final OBJECT_TYPE objectToSerialize) {
+        if (null == objectToSerialize) {
+            return null;
+        }
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            this.serializeTo(objectToSerialize, outputStream);
+        } catch (final IOException e) {
+            // Writing to the memory does not fail, the exception is only declared by the stream API
+            throw new UncheckedIOException(e);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public OBJECT_TYPE deserializeFromByteArray(final byte[] serializedObject) {
+        if (null == serializedObject) {
+            return null;
+        }
+
+        final OBJECT_TYPE object = GSON_CONVERTER.fromJson(
+                new InputStreamReader(new ByteArrayInputStream(serializedObject), StandardCharsets.UTF_8), this.objectTypeClass);
+        return object;
+    }
+
+    @Override
+    public void serializeTo(final OBJECT_TYPE objectToSerialize, @NonNull final OutputStream outputStream) throws IOException {
+        if (null == objectToSerialize) {
+            return;
+        }
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try {
+            GSON_CONVERTER.toJson(objectToSerialize, this.objectTypeClass, writer);
+        } catch (final JsonIOException e) {
+            throw new IOException(e);
+        }
+
+        writer.flush();
+    }
+
+    @Override
+    public OBJECT_TYPE deserializeFrom(@NonNull final InputStream inputStream) throws IOException {
+        final OBJECT_TYPE object;
+        try {
+            object = GSON_CONVERTER.fromJson(new InputStreamReader(inputStream, StandardCharsets.UTF_8), this.objectTypeClass);
+        } catch (final JsonIOException e) {
+            throw new IOException(e);
+        }
+
+        return object;
+    }
 }
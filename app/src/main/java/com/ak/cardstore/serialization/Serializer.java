@@ -1,5 +1,9 @@
 package com.ak.cardstore.serialization;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * An interface to serialize and deserialize the objects.
  *
@@ -23,4 +27,36 @@ public interface Serializer<OBJECT_TYPE> {
      * @return resurrected (nullable) object
      */
     OBJECT_TYPE deserialize(final String serializedObject);
+
+    /**
+     * Serializes the passed object straight to the UTF-8 bytes, without an intermediate {@link String}.
+     *
+     * @param objectToSerialize object to serialize
+     * @return serialized (nullable) object
+     */
+    byte[] serializeToByteArray(final OBJECT_TYPE objectToSerialize);
+
+    /**
+     * Resurrects the object serialized in the UTF-8 bytes and returns it, without an intermediate {@link String}.
+     *
+     * @param serializedObject object to deserialize
+     * @return resurrected (nullable) object
+     */
+    OBJECT_TYPE deserializeFromByteArray(final byte[] serializedObject);
+
+    /**
+     * Serializes the passed object straight to the output stream. The stream is flushed but not closed.
+     *
+     * @param objectToSerialize object to serialize
+     * @param outputStream      stream to write the serialized object to
+     */
+    void serializeTo(final OBJECT_TYPE objectToSerialize, final OutputStream outputStream) throws IOException;
+
+    /**
+     * Resurrects the object serialized in the input stream and returns it. The stream is not closed.
+     *
+     * @param inputStream stream to read the serialized object from
+     * @return resurrected (nullable) object
+     */
+    OBJECT_TYPE deserializeFrom(final InputStream inputStream) throws IOException;
 }
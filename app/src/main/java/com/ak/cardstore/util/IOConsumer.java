@@ -0,0 +1,21 @@
+package com.ak.cardstore.util;
+
+import java.io.IOException;
+
+/**
+ * A {@link java.util.function.Consumer} which is allowed to throw {@link IOException}.
+ *
+ * @param <INPUT_TYPE> type of the input to the operation
+ * @author Abhishek
+ */
+
+@FunctionalInterface
+public interface IOConsumer<INPUT_TYPE> {
+
+    /**
+     * Performs the operation on the given input.
+     *
+     * @param input input
+     */
+    void accept(final INPUT_TYPE input) throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.ak.cardstore.util;
+
+import java.io.IOException;
+
+/**
+ * A {@link java.util.function.Function} which is allowed to throw {@link IOException}.
+ *
+ * @param <INPUT_TYPE>  type of the input to the function
+ * @param <RESULT_TYPE> type of the result of the function
+ * @author Abhishek
+ */
+
+@FunctionalInterface
+public interface IOFunction<INPUT_TYPE, RESULT_TYPE> {
+
+    /**
+     * Applies the function to the given input.
+     *
+     * @param input input
+     * @return result
+     */
+    RESULT_TYPE apply(final INPUT_TYPE input) throws IOException;
+}
@@ -2,17 +2,30 @@ package com.ak.cardstore.util;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 /**
  * Utility class to handle conversion between {@link String} and byte[].
+ * <p>
+ * Besides the conversions to and from new arrays, the conversions can read and write the caller's buffer, e.g. a pooled
+ * buffer, so the bytes of the data are never copied into an array the caller does not control.
  *
  * @author Abhishek
  */
 
 public class StringUtil {
 
+    /**
+     * A char is encoded to at most 3 UTF_8 bytes, a surrogate pair of 2 chars to 4 bytes
+     */
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+
     /**
      * Returns the UTF_8 byte[] for the given stringToConvert
      *
@@ -52,4 +65,81 @@ public class StringUtil {
     public static String toUTF8String(final byte[] byteArray) {
         return StringUtils.toEncodedString(byteArray, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Returns the maximum number of the UTF_8 bytes of the given utf8String
+     *
+     * @param utf8String string to convert
+     * @return maximum number of the UTF_8 bytes of the given utf8String
+     */
+    public static int maxUTF8Length(final String utf8String) {
+        return utf8String.length() * MAX_UTF8_BYTES_PER_CHAR;
+    }
+
+    /**
+     * Writes the UTF_8 bytes of the given utf8String to the buffer. The buffer must hold at least {@link #maxUTF8Length(String)}
+     * bytes.
+     *
+     * @param utf8String string to convert
+     * @param buffer     buffer to write the UTF_8 bytes to
+     * @return number of the UTF_8 bytes written to the buffer
+     */
+    public static int toUTF8ByteArray(final String utf8String, final byte[] buffer) {
+        final CharsetEncoder utf8Encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        final CoderResult coderResult = utf8Encoder.encode(CharBuffer.wrap(utf8String), byteBuffer, true);
+        if (coderResult.isOverflow() || utf8Encoder.flush(byteBuffer).isOverflow()) {
+            throw new IllegalArgumentException("Buffer of " + buffer.length + " bytes is too small for the UTF_8 bytes");
+        }
+
+        return byteBuffer.position();
+    }
+
+    /**
+     * Returns the UTF_8 string for the first length bytes of the given byteArray
+     *
+     * @param byteArray byte array to convert
+     * @param length    number of the bytes to convert
+     * @return UTF_8 string for the first length bytes of the given byteArray
+     */
+    public static String toUTF8String(final byte[] byteArray, final int length) {
+        return new String(byteArray, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the Base64 encoded {@link String} for the first length bytes of the given byteArray
+     *
+     * @param byteArray byte array to convert
+     * @param length    number of the bytes to convert
+     * @return Base64 encoded {@link String} for the first length bytes of the given byteArray
+     */
+    public static String toBase64String(final byte[] byteArray, final int length) {
+        final ByteBuffer base64Bytes = Base64.getEncoder().encode(ByteBuffer.wrap(byteArray, 0, length));
+        return new String(base64Bytes.array(), 0, base64Bytes.limit(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the maximum number of the bytes decoded from the given base64String
+     *
+     * @param base64String Base64 encoded string to convert
+     * @return maximum number of the bytes decoded from the given base64String
+     */
+    public static int maxBase64DecodedLength(final String base64String) {
+        return (base64String.length() + 3) / 4 * 3;
+    }
+
+    /**
+     * Decodes the given base64String to the buffer. The buffer must hold at least {@link #maxBase64DecodedLength(String)} bytes.
+     * Only the encoded chars are copied to a new array, the decoded bytes are written to the buffer alone.
+     *
+     * @param base64String Base64 encoded string to convert
+     * @param buffer       buffer to write the decoded bytes to
+     * @return number of the bytes written to the buffer
+     */
+    public static int base64StringToByteArray(final String base64String, final byte[] buffer) {
+        return Base64.getDecoder().decode(base64String.getBytes(StandardCharsets.US_ASCII), buffer);
+    }
 }
@@ -5,6 +5,7 @@ import com.ak.cardstore.entities.CardType;
 import com.ak.cardstore.entities.MonthYear;
 import com.ak.cardstore.pojo.Card;
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.pojo.Wallet;
 import com.google.common.collect.ImmutableSet;
@@ -279,6 +280,19 @@ public final class Make {
                 .build();
     }
 
+    /**
+     * Returns an {@link EncryptedEnvelope} with pseudorandom values.
+     *
+     * @return an {@link EncryptedEnvelope} with pseudorandom values
+     */
+    public static EncryptedEnvelope anEncryptedEnvelope() {
+        return EncryptedEnvelope.builder()
+                .wrappedDataKey(Make.aBase64String())
+                .initialVector(Make.aBase64String())
+                .cipherText(Make.aBase64String())
+                .build();
+    }
+
     private static <ARRAY_ELEMENT_TYPE> ARRAY_ELEMENT_TYPE getRandomElement(final ARRAY_ELEMENT_TYPE[] array) {
         final int numOfElements = array.length;
         final int randomElementIndex = anInt(0, numOfElements);
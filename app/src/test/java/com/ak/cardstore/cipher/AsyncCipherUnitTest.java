@@ -0,0 +1,216 @@
+package com.ak.cardstore.cipher;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+import com.ak.cardstore.exception.CipherOperationException;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class AsyncCipherUnitTest {
+
+    private SymmetricKeyCipher mockSymmetricKeyCipher;
+    private AsymmetricKeyPairCipher mockAsymmetricKeyPairCipher;
+    private ExecutorService executorService;
+    private AsyncCipher asyncCipher;
+
+    @Before
+    public void setup() {
+        this.mockSymmetricKeyCipher = mock(SymmetricKeyCipher.class);
+        this.mockAsymmetricKeyPairCipher = mock(AsymmetricKeyPairCipher.class);
+        this.executorService = Executors.newSingleThreadExecutor();
+
+        this.asyncCipher = new AsyncCipher(this.mockSymmetricKeyCipher, this.mockAsymmetricKeyPairCipher, this.executorService);
+    }
+
+    @After
+    public void tearDown() {
+        this.executorService.shutdownNow();
+    }
+
+    @Test
+    public void testEncrypt() {
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+        final ImmutablePair<String, String> encryptedData = ImmutablePair.of(Make.aBase64String(), Make.aBase64String());
+
+        when(this.mockSymmetricKeyCipher.encrypt(dataToEncrypt, password)).thenReturn(encryptedData);
+
+        assertEquals(encryptedData, this.asyncCipher.encrypt(dataToEncrypt, password).join());
+    }
+
+    @Test
+    public void testDecrypt() {
+        final String dataToDecrypt = Make.aBase64String();
+        final String password = Make.aString();
+        final String initialVector = Make.aBase64String();
+        final String decryptedData = Make.aString();
+
+        when(this.mockSymmetricKeyCipher.decrypt(dataToDecrypt, password, initialVector)).thenReturn(decryptedData);
+
+        assertEquals(decryptedData, this.asyncCipher.decrypt(dataToDecrypt, password, initialVector).join());
+    }
+
+    @Test
+    public void testEncrypt_Batch() {
+        final List<String> dataToEncrypt = Collections.singletonList(Make.aString());
+        final String password = Make.aString();
+        final List<ImmutablePair<String, String>> encryptedData =
+                Collections.singletonList(ImmutablePair.of(Make.aBase64String(), Make.aBase64String()));
+
+        when(this.mockSymmetricKeyCipher.encrypt(dataToEncrypt, password)).thenReturn(encryptedData);
+
+        assertEquals(encryptedData, this.asyncCipher.encrypt(dataToEncrypt, password).join());
+    }
+
+    @Test
+    public void testDecrypt_Batch() {
+        final List<ImmutablePair<String, String>> dataToDecrypt =
+                Collections.singletonList(ImmutablePair.of(Make.aBase64String(), Make.aBase64String()));
+        final String password = Make.aString();
+        final List<String> decryptedData = Collections.singletonList(Make.aString());
+
+        when(this.mockSymmetricKeyCipher.decrypt(dataToDecrypt, password)).thenReturn(decryptedData);
+
+        assertEquals(decryptedData, this.asyncCipher.decrypt(dataToDecrypt, password).join());
+    }
+
+    @Test
+    public void testEncryptWithKeyPair() {
+        final String dataToEncrypt = Make.aString();
+        final String encryptedData = Make.aBase64String();
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(dataToEncrypt)).thenReturn(encryptedData);
+
+        assertEquals(encryptedData, this.asyncCipher.encryptWithKeyPair(dataToEncrypt).join());
+    }
+
+    @Test
+    public void testDecryptWithKeyPair() {
+        final String dataToDecrypt = Make.aBase64String();
+        final String decryptedData = Make.aString();
+
+        when(this.mockAsymmetricKeyPairCipher.decrypt(dataToDecrypt)).thenReturn(decryptedData);
+
+        assertEquals(decryptedData, this.asyncCipher.decryptWithKeyPair(dataToDecrypt).join());
+    }
+
+    @Test
+    public void testDecrypt_WithFailedOperation() {
+        final String dataToDecrypt = Make.aBase64String();
+        final String password = Make.aString();
+        final String initialVector = Make.aBase64String();
+        final CipherOperationException cipherOperationException = new CipherOperationException(Make.aString(), new RuntimeException());
+
+        when(this.mockSymmetricKeyCipher.decrypt(dataToDecrypt, password, initialVector)).thenThrow(cipherOperationException);
+
+        final CompletableFuture<String> decryption = this.asyncCipher.decrypt(dataToDecrypt, password, initialVector);
+
+        final CompletionException completionException = assertThrows(CompletionException.class, decryption::join);
+        assertEquals(cipherOperationException, completionException.getCause());
+    }
+
+    @Test
+    public void testEncrypt_WithError() {
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+        final OutOfMemoryError outOfMemoryError = new OutOfMemoryError();
+
+        when(this.mockSymmetricKeyCipher.encrypt(dataToEncrypt, password)).thenThrow(outOfMemoryError);
+
+        final CompletableFuture<ImmutablePair<String, String>> encryption = this.asyncCipher.encrypt(dataToEncrypt, password);
+
+        final CompletionException completionException = assertThrows(CompletionException.class, encryption::join);
+        assertEquals(outOfMemoryError, completionException.getCause());
+    }
+
+    @Test
+    public void testEncrypt_CancelledWhileQueued() throws InterruptedException {
+        final CountDownLatch runningOperation = new CountDownLatch(1);
+        final CountDownLatch blockingOperation = new CountDownLatch(1);
+        final String blockingData = Make.aString();
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(blockingData)).then(invocation -> {
+            runningOperation.countDown();
+            blockingOperation.await();
+            return Make.aBase64String();
+        });
+
+        final CompletableFuture<String> blockingEncryption = this.asyncCipher.encryptWithKeyPair(blockingData);
+        assertTrue(runningOperation.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<ImmutablePair<String, String>> encryption = this.asyncCipher.encrypt(dataToEncrypt, password);
+        assertTrue(encryption.cancel(true));
+
+        blockingOperation.countDown();
+        blockingEncryption.join();
+        this.executorService.shutdown();
+        assertTrue(this.executorService.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertTrue(encryption.isCancelled());
+        verify(this.mockSymmetricKeyCipher, never()).encrypt(dataToEncrypt, password);
+    }
+
+    @Test
+    public void testEncrypt_WithFullQueue() {
+        final CountDownLatch blockingOperation = new CountDownLatch(1);
+        final ExecutorService boundedExecutorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1));
+        final AsyncCipher boundedAsyncCipher = new AsyncCipher(this.mockSymmetricKeyCipher, this.mockAsymmetricKeyPairCipher,
+                boundedExecutorService);
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(anyString())).then(invocation -> {
+            blockingOperation.await();
+            return Make.aBase64String();
+        });
+
+        try {
+            boundedAsyncCipher.encryptWithKeyPair(Make.aString());
+            boundedAsyncCipher.encryptWithKeyPair(Make.aString());
+            final CompletableFuture<String> rejectedEncryption = boundedAsyncCipher.encryptWithKeyPair(Make.aString());
+
+            final CompletionException completionException = assertThrows(CompletionException.class, rejectedEncryption::join);
+            assertTrue(completionException.getCause() instanceof RejectedExecutionException);
+        } finally {
+            blockingOperation.countDown();
+            boundedExecutorService.shutdownNow();
+        }
+    }
+}
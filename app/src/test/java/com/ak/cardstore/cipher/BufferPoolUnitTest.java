@@ -0,0 +1,97 @@
+package com.ak.cardstore.cipher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Abhishek
+ */
+
+public class BufferPoolUnitTest {
+
+    @Test
+    public void testConstructor_WithNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(0));
+    }
+
+    @Test
+    public void testBorrow_WithNegativeSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool().borrow(-1));
+    }
+
+    @Test
+    public void testBorrow_RoundsUpToSizeClass() {
+        final BufferPool bufferPool = new BufferPool();
+
+        assertEquals(BufferPool.MIN_BUFFER_SIZE_BYTES, bufferPool.borrow(0).length);
+        assertEquals(BufferPool.MIN_BUFFER_SIZE_BYTES, bufferPool.borrow(BufferPool.MIN_BUFFER_SIZE_BYTES).length);
+        assertEquals(2 * BufferPool.MIN_BUFFER_SIZE_BYTES, bufferPool.borrow(BufferPool.MIN_BUFFER_SIZE_BYTES + 1).length);
+        assertEquals(CipherOperator.STREAM_CHUNK_SIZE_BYTES, bufferPool.borrow(CipherOperator.STREAM_CHUNK_SIZE_BYTES).length);
+        assertEquals(BufferPool.MAX_BUFFER_SIZE_BYTES, bufferPool.borrow(BufferPool.MAX_BUFFER_SIZE_BYTES).length);
+        assertEquals(BufferPool.MAX_BUFFER_SIZE_BYTES + 1, bufferPool.borrow(BufferPool.MAX_BUFFER_SIZE_BYTES + 1).length);
+        assertEquals(6, bufferPool.getMissCount());
+    }
+
+    @Test
+    public void testBorrow_WithReleasedBuffer() {
+        final BufferPool bufferPool = new BufferPool();
+
+        final byte[] buffer = bufferPool.borrow(100);
+        buffer[0] = 42;
+        bufferPool.release(buffer);
+
+        final byte[] borrowedBuffer = bufferPool.borrow(200);
+        assertSame(buffer, borrowedBuffer);
+        assertArrayEquals(new byte[buffer.length], borrowedBuffer);
+        assertEquals(1, bufferPool.getHitCount());
+        assertEquals(1, bufferPool.getMissCount());
+    }
+
+    @Test
+    public void testRelease_ZeroesUnpooledBuffer() {
+        final BufferPool bufferPool = new BufferPool();
+
+        final byte[] buffer = bufferPool.borrow(BufferPool.MAX_BUFFER_SIZE_BYTES + 1);
+        buffer[buffer.length - 1] = 42;
+        bufferPool.release(buffer);
+        assertArrayEquals(new byte[buffer.length], buffer);
+
+        final byte[] oddSizedBuffer = new byte[BufferPool.MIN_BUFFER_SIZE_BYTES + 1];
+        bufferPool.release(oddSizedBuffer);
+
+        assertNotSame(buffer, bufferPool.borrow(BufferPool.MAX_BUFFER_SIZE_BYTES + 1));
+        assertNotSame(oddSizedBuffer, bufferPool.borrow(BufferPool.MIN_BUFFER_SIZE_BYTES + 1));
+        assertEquals(0, bufferPool.getHitCount());
+    }
+
+    @Test
+    public void testRelease_WithFullPool() {
+        final BufferPool bufferPool = new BufferPool(1);
+
+        final byte[] buffer = new byte[BufferPool.MIN_BUFFER_SIZE_BYTES];
+        bufferPool.release(buffer);
+        bufferPool.release(new byte[BufferPool.MIN_BUFFER_SIZE_BYTES]);
+
+        assertSame(buffer, bufferPool.borrow(1));
+        assertNotSame(buffer, bufferPool.borrow(1));
+        assertEquals(1, bufferPool.getHitCount());
+        assertEquals(1, bufferPool.getMissCount());
+    }
+
+    @Test
+    public void testClear() {
+        final BufferPool bufferPool = new BufferPool();
+
+        final byte[] buffer = bufferPool.borrow(1);
+        bufferPool.release(buffer);
+        bufferPool.clear();
+
+        assertNotSame(buffer, bufferPool.borrow(1));
+        assertEquals(0, bufferPool.getHitCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.ak.cardstore.cipher;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.exception.CipherOperationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class CipherOperationInputStreamUnitTest {
+
+    private static final String CIPHER_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int CHUNK_SIZE_BYTES = 64;
+
+    private SecretKey secretKey;
+    private byte[] initialVector;
+    private BufferPool bufferPool;
+
+    @Before
+    public void setup() throws GeneralSecurityException {
+        this.secretKey = KeyGenerator.getInstance("AES").generateKey();
+        this.initialVector = Arrays.copyOf(Make.aByteArray(), 16);
+        this.bufferPool = new BufferPool();
+    }
+
+    @Test
+    public void testRead() throws GeneralSecurityException, IOException {
+        final byte[] expectedPlainText = new byte[10 * CHUNK_SIZE_BYTES + 3];
+        System.arraycopy(Make.aByteArray(), 0, expectedPlainText, 0, 16);
+
+        final byte[] cipherText = this.encrypt(expectedPlainText);
+
+        final ByteArrayOutputStream plainTextOutputStream = new ByteArrayOutputStream();
+        try (final CipherOperationInputStream cipherOperationInputStream = new CipherOperationInputStream(this.newDecryptCipher(),
+                new ByteArrayInputStream(cipherText), Make.aString(), CHUNK_SIZE_BYTES, this.bufferPool)) {
+            plainTextOutputStream.write(cipherOperationInputStream.read());
+
+            final byte[] buffer = new byte[CHUNK_SIZE_BYTES / 3];
+            int read = cipherOperationInputStream.read(buffer);
+            while (read != -1) {
+                plainTextOutputStream.write(buffer, 0, read);
+                read = cipherOperationInputStream.read(buffer);
+            }
+
+            assertEquals(-1, cipherOperationInputStream.read());
+        }
+
+        assertArrayEquals(expectedPlainText, plainTextOutputStream.toByteArray());
+    }
+
+    @Test
+    public void testFinish() throws GeneralSecurityException, IOException {
+        final byte[] cipherText = this.encrypt(new byte[5 * CHUNK_SIZE_BYTES]);
+
+        final ByteArrayInputStream cipherTextInputStream = new ByteArrayInputStream(cipherText);
+        final CipherOperationInputStream cipherOperationInputStream = new CipherOperationInputStream(this.newDecryptCipher(),
+                cipherTextInputStream, Make.aString(), CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationInputStream.read();
+        cipherOperationInputStream.finish();
+
+        assertEquals(0, cipherTextInputStream.available());
+        assertEquals(-1, cipherOperationInputStream.read());
+    }
+
+    @Test
+    public void testFinish_ReleasesBuffers() throws GeneralSecurityException, IOException {
+        final CipherOperationInputStream cipherOperationInputStream = new CipherOperationInputStream(this.newDecryptCipher(),
+                new ByteArrayInputStream(this.encrypt(Make.aByteArray())), Make.aString(), CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationInputStream.read();
+        cipherOperationInputStream.finish();
+
+        final byte[] buffer = this.bufferPool.borrow(CHUNK_SIZE_BYTES);
+        assertEquals(1, this.bufferPool.getHitCount());
+        assertArrayEquals(new byte[buffer.length], buffer);
+    }
+
+    @Test
+    public void testRelease() throws GeneralSecurityException, IOException {
+        final CipherOperationInputStream cipherOperationInputStream = new CipherOperationInputStream(this.newDecryptCipher(),
+                new ByteArrayInputStream(this.encrypt(Make.aByteArray())), Make.aString(), CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationInputStream.read();
+        cipherOperationInputStream.release();
+
+        final byte[] buffer = this.bufferPool.borrow(CHUNK_SIZE_BYTES);
+        assertEquals(1, this.bufferPool.getHitCount());
+        assertArrayEquals(new byte[buffer.length], buffer);
+        assertEquals(-1, cipherOperationInputStream.read());
+    }
+
+    @Test
+    public void testFinish_ThrowsIllegalBlockSizeException() throws GeneralSecurityException {
+        final String operationErrorMessage = Make.aString();
+        final byte[] cipherText = this.encrypt(Make.aByteArray());
+        final byte[] truncatedCipherText = Arrays.copyOf(cipherText, cipherText.length - 1);
+
+        final CipherOperationInputStream cipherOperationInputStream = new CipherOperationInputStream(this.newDecryptCipher(),
+                new ByteArrayInputStream(truncatedCipherText), operationErrorMessage, CHUNK_SIZE_BYTES, this.bufferPool);
+
+        final CipherOperationException cipherOperationException = assertThrows(CipherOperationException.class,
+                cipherOperationInputStream::finish);
+        assertEquals(operationErrorMessage, cipherOperationException.getMessage());
+        assertTrue(cipherOperationException.getCause() instanceof IllegalBlockSizeException);
+    }
+
+    private byte[] encrypt(final byte[] plainText) throws GeneralSecurityException {
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey, new IvParameterSpec(this.initialVector));
+        return encryptCipher.doFinal(plainText);
+    }
+
+    private Cipher newDecryptCipher() throws GeneralSecurityException {
+        final Cipher decryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        decryptCipher.init(Cipher.DECRYPT_MODE, this.secretKey, new IvParameterSpec(this.initialVector));
+        return decryptCipher;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ak.cardstore.cipher;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.exception.CipherOperationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class CipherOperationOutputStreamUnitTest {
+
+    private static final String CIPHER_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String CIPHER_TRANSFORMATION_WITHOUT_PADDING = "AES/CBC/NoPadding";
+
+    private SecretKey secretKey;
+    private BufferPool bufferPool;
+
+    @Before
+    public void setup() throws GeneralSecurityException {
+        this.secretKey = KeyGenerator.getInstance("AES").generateKey();
+        this.bufferPool = new BufferPool();
+    }
+
+    @Test
+    public void testWrite() throws GeneralSecurityException, IOException {
+        final byte[] dataToOperate = new byte[3 * CipherOperator.STREAM_CHUNK_SIZE_BYTES + 7];
+        System.arraycopy(Make.aByteArray(), 0, dataToOperate, 0, 16);
+
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher, outputStream,
+                Make.aString(), CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool)) {
+            cipherOperationOutputStream.write(dataToOperate[0]);
+            cipherOperationOutputStream.write(dataToOperate, 1, dataToOperate.length - 1);
+        }
+
+        final Cipher decryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        decryptCipher.init(Cipher.DECRYPT_MODE, this.secretKey, new IvParameterSpec(encryptCipher.getIV()));
+        assertArrayEquals(dataToOperate, decryptCipher.doFinal(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void testWrite_LargerThanPooledBuffer() throws GeneralSecurityException, IOException {
+        final byte[] dataToOperate = new byte[2 * BufferPool.MAX_BUFFER_SIZE_BYTES];
+        System.arraycopy(Make.aByteArray(), 0, dataToOperate, 0, 16);
+
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher, outputStream,
+                Make.aString(), CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationOutputStream.write(dataToOperate);
+        cipherOperationOutputStream.finish();
+
+        // The output buffer of a chunk is pooled, so it is borrowed once and returned to the pool
+        assertEquals(1, this.bufferPool.getMissCount());
+        this.bufferPool.borrow(CipherOperator.STREAM_CHUNK_SIZE_BYTES + 16);
+        assertEquals(1, this.bufferPool.getHitCount());
+
+        final Cipher decryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        decryptCipher.init(Cipher.DECRYPT_MODE, this.secretKey, new IvParameterSpec(encryptCipher.getIV()));
+        assertArrayEquals(dataToOperate, decryptCipher.doFinal(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void testFinish_DoesNotCloseUnderlyingStream() throws GeneralSecurityException, IOException {
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher, outputStream,
+                Make.aString(), CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationOutputStream.write(Make.aByteArray());
+        cipherOperationOutputStream.finish();
+        cipherOperationOutputStream.finish();
+
+        final int encryptedLength = outputStream.size();
+        outputStream.write(1);
+        assertEquals(encryptedLength + 1, outputStream.size());
+
+        assertThrows(IOException.class, () -> cipherOperationOutputStream.write(Make.aByteArray()));
+    }
+
+    @Test
+    public void testFinish_ReleasesOutputBuffer() throws GeneralSecurityException, IOException {
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher,
+                new ByteArrayOutputStream(), Make.aString(),
+                CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationOutputStream.write(Make.aByteArray());
+        cipherOperationOutputStream.finish();
+
+        final byte[] buffer = this.bufferPool.borrow(BufferPool.MIN_BUFFER_SIZE_BYTES);
+        assertEquals(1, this.bufferPool.getHitCount());
+        assertArrayEquals(new byte[buffer.length], buffer);
+    }
+
+    @Test
+    public void testRelease() throws GeneralSecurityException, IOException {
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher,
+                encryptedOutputStream, Make.aString(),
+                CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+        cipherOperationOutputStream.write(Make.aByteArray());
+        final int encryptedLength = encryptedOutputStream.size();
+        cipherOperationOutputStream.release();
+
+        final byte[] buffer = this.bufferPool.borrow(BufferPool.MIN_BUFFER_SIZE_BYTES);
+        assertEquals(1, this.bufferPool.getHitCount());
+        assertArrayEquals(new byte[buffer.length], buffer);
+
+        cipherOperationOutputStream.finish();
+        assertEquals(encryptedLength, encryptedOutputStream.size());
+        assertThrows(IOException.class, () -> cipherOperationOutputStream.write(Make.aByteArray()));
+    }
+
+    @Test
+    public void testFinish_ThrowsIllegalBlockSizeException() throws GeneralSecurityException {
+        final String operationErrorMessage = Make.aString();
+
+        final Cipher encryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION_WITHOUT_PADDING);
+        encryptCipher.init(Cipher.ENCRYPT_MODE, this.secretKey);
+
+        final CipherOperationOutputStream cipherOperationOutputStream = new CipherOperationOutputStream(encryptCipher,
+                new ByteArrayOutputStream(), operationErrorMessage, CipherOperator.STREAM_CHUNK_SIZE_BYTES, this.bufferPool);
+
+        final CipherOperationException cipherOperationException = assertThrows(CipherOperationException.class, () -> {
+            cipherOperationOutputStream.write(new byte[7]);
+            cipherOperationOutputStream.finish();
+        });
+        assertEquals(operationErrorMessage, cipherOperationException.getMessage());
+        assertTrue(cipherOperationException.getCause() instanceof IllegalBlockSizeException);
+    }
+}
@@ -13,16 +13,25 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -89,4 +98,125 @@ public class CipherOperatorUnitTest {
         assertEquals(operationErrorMessage, cipherOperationException.getMessage());
         assertTrue(cipherOperationException.getCause() instanceof IllegalBlockSizeException);
     }
+
+    @Test
+    public void testDoCipherOperation_WithStreams() throws GeneralSecurityException, IOException {
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final byte[] dataToOperate = new byte[CipherOperator.STREAM_CHUNK_SIZE_BYTES + 1];
+        final String operationErrorMessage = Make.aString();
+        final byte[] updateOutputText = Make.aByteArray();
+        final byte[] finalOutputText = Make.aByteArray();
+
+        when(mockCipher.getOutputSize(anyInt())).thenReturn(BufferPool.MIN_BUFFER_SIZE_BYTES);
+        when(mockCipher.update(any(byte[].class), anyInt(), anyInt(), any(byte[].class), anyInt()))
+                .thenAnswer(invocation -> copyTo(updateOutputText, invocation.getArgument(3)));
+        when(mockCipher.doFinal(any(byte[].class), anyInt())).thenAnswer(invocation -> copyTo(finalOutputText, invocation.getArgument(0)));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        final CipherOperator cipherOperator = new CipherOperator();
+        cipherOperator.doCipherOperation(mockCipher, new ByteArrayInputStream(dataToOperate), outputStream, operationErrorMessage);
+
+        final ByteArrayOutputStream expectedOutputStream = new ByteArrayOutputStream();
+        expectedOutputStream.write(updateOutputText);
+        expectedOutputStream.write(updateOutputText);
+        expectedOutputStream.write(finalOutputText);
+        assertArrayEquals(expectedOutputStream.toByteArray(), outputStream.toByteArray());
+
+        verify(mockCipher).update(any(byte[].class), anyInt(), eq(CipherOperator.STREAM_CHUNK_SIZE_BYTES), any(byte[].class), anyInt());
+        verify(mockCipher).update(any(byte[].class), anyInt(), eq(1), any(byte[].class), anyInt());
+        verify(mockCipher).doFinal(any(byte[].class), anyInt());
+    }
+
+    @Test
+    public void testDoCipherOperation_WithStreams_ThrowsBadPaddingException() throws GeneralSecurityException {
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final byte[] dataToOperate = StringUtil.toUTF8ByteArray(Make.aString());
+        final String operationErrorMessage = Make.aString();
+
+        when(mockCipher.doFinal(any(byte[].class), anyInt())).thenThrow(BadPaddingException.class);
+
+        final CipherOperator cipherOperator = new CipherOperator();
+
+        final CipherOperationException cipherOperationException = Assert.assertThrows(CipherOperationException.class,
+                () -> cipherOperator.doCipherOperation(mockCipher, new ByteArrayInputStream(dataToOperate), new ByteArrayOutputStream(),
+                        operationErrorMessage));
+        assertEquals(operationErrorMessage, cipherOperationException.getMessage());
+        assertTrue(cipherOperationException.getCause() instanceof BadPaddingException);
+    }
+
+    @Test
+    public void testEncryptToBase64String() throws GeneralSecurityException {
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final String dataToEncrypt = Make.aString();
+        final byte[] cipherText = Make.aByteArray();
+
+        when(mockCipher.getOutputSize(dataToEncrypt.length())).thenReturn(cipherText.length);
+        when(mockCipher.doFinal(any(byte[].class), eq(0), eq(dataToEncrypt.length()), any(byte[].class), eq(0))).thenAnswer(invocation -> {
+            assertEquals(dataToEncrypt, StringUtil.toUTF8String(invocation.getArgument(0), dataToEncrypt.length()));
+            return copyTo(cipherText, invocation.getArgument(3));
+        });
+
+        final BufferPool bufferPool = new BufferPool();
+        final CipherOperator cipherOperator = new CipherOperator(bufferPool);
+        assertEquals(StringUtil.toBase64String(cipherText), cipherOperator.encryptToBase64String(mockCipher, dataToEncrypt, Make.aString()));
+
+        assertBuffersReleased(bufferPool, 2);
+    }
+
+    @Test
+    public void testDecryptFromBase64String() throws GeneralSecurityException {
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final byte[] cipherText = Make.aByteArray();
+        final String expectedPlainText = Make.aString();
+
+        when(mockCipher.getOutputSize(cipherText.length)).thenReturn(expectedPlainText.length());
+        when(mockCipher.doFinal(any(byte[].class), eq(0), eq(cipherText.length), any(byte[].class), eq(0))).thenAnswer(invocation -> {
+            assertArrayEquals(cipherText, Arrays.copyOf(invocation.<byte[]>getArgument(0), cipherText.length));
+            return copyTo(StringUtil.toUTF8ByteArray(expectedPlainText), invocation.getArgument(3));
+        });
+
+        final BufferPool bufferPool = new BufferPool();
+        final CipherOperator cipherOperator = new CipherOperator(bufferPool);
+        assertEquals(expectedPlainText, cipherOperator.decryptFromBase64String(mockCipher, StringUtil.toBase64String(cipherText),
+                Make.aString()));
+
+        assertBuffersReleased(bufferPool, 2);
+    }
+
+    @Test
+    public void testDecryptFromBase64String_ThrowsBadPaddingException() throws GeneralSecurityException {
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final String operationErrorMessage = Make.aString();
+
+        when(mockCipher.doFinal(any(byte[].class), anyInt(), anyInt(), any(byte[].class), anyInt())).thenThrow(BadPaddingException.class);
+
+        final BufferPool bufferPool = new BufferPool();
+        final CipherOperator cipherOperator = new CipherOperator(bufferPool);
+
+        final CipherOperationException cipherOperationException = Assert.assertThrows(CipherOperationException.class,
+                () -> cipherOperator.decryptFromBase64String(mockCipher, Make.aBase64String(), operationErrorMessage));
+        assertEquals(operationErrorMessage, cipherOperationException.getMessage());
+        assertTrue(cipherOperationException.getCause() instanceof BadPaddingException);
+
+        assertBuffersReleased(bufferPool, 2);
+    }
+
+    private static int copyTo(final byte[] source, final byte[] destination) {
+        System.arraycopy(source, 0, destination, 0, source.length);
+        return source.length;
+    }
+
+    private static void assertBuffersReleased(final BufferPool bufferPool, final int bufferCount) {
+        for (int i = 0; i < bufferCount; i++) {
+            assertArrayEquals(new byte[BufferPool.MIN_BUFFER_SIZE_BYTES], bufferPool.borrow(1));
+        }
+
+        assertEquals(bufferCount, bufferPool.getHitCount());
+    }
 }
@@ -0,0 +1,89 @@
+package com.ak.cardstore.cipher;
+
+import com.ak.cardstore.Make;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Abhishek
+ */
+
+public class CipherPoolUnitTest {
+
+    @Test
+    public void testConstructor_WithNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new CipherPool(0));
+    }
+
+    @Test
+    public void testBorrow_WithEmptyPool() {
+        final CipherPool cipherPool = new CipherPool();
+
+        final Optional<Cipher> optionalCipher = cipherPool.borrow(Make.aString(), Cipher.ENCRYPT_MODE);
+        assertFalse(optionalCipher.isPresent());
+        assertEquals(0, cipherPool.getHitCount());
+        assertEquals(1, cipherPool.getMissCount());
+    }
+
+    @Test
+    public void testBorrow_WithReleasedCipher() {
+        final String cipherTransformation = Make.aString();
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherPool cipherPool = new CipherPool();
+        cipherPool.release(cipherTransformation, Cipher.ENCRYPT_MODE, mockCipher);
+
+        final Optional<Cipher> optionalCipher = cipherPool.borrow(cipherTransformation, Cipher.ENCRYPT_MODE);
+        assertTrue(optionalCipher.isPresent());
+        assertSame(mockCipher, optionalCipher.get());
+        assertEquals(1, cipherPool.getHitCount());
+        assertEquals(0, cipherPool.getMissCount());
+
+        assertFalse(cipherPool.borrow(cipherTransformation, Cipher.ENCRYPT_MODE).isPresent());
+    }
+
+    @Test
+    public void testBorrow_WithDifferentOpMode() {
+        final String cipherTransformation = Make.aString();
+
+        final CipherPool cipherPool = new CipherPool();
+        cipherPool.release(cipherTransformation, Cipher.ENCRYPT_MODE, mock(Cipher.class));
+
+        assertFalse(cipherPool.borrow(cipherTransformation, Cipher.DECRYPT_MODE).isPresent());
+        assertFalse(cipherPool.borrow(Make.aString(), Cipher.ENCRYPT_MODE).isPresent());
+    }
+
+    @Test
+    public void testRelease_WithFullPool() {
+        final String cipherTransformation = Make.aString();
+
+        final CipherPool cipherPool = new CipherPool(1);
+        cipherPool.release(cipherTransformation, Cipher.ENCRYPT_MODE, mock(Cipher.class));
+        cipherPool.release(cipherTransformation, Cipher.ENCRYPT_MODE, mock(Cipher.class));
+
+        assertTrue(cipherPool.borrow(cipherTransformation, Cipher.ENCRYPT_MODE).isPresent());
+        assertFalse(cipherPool.borrow(cipherTransformation, Cipher.ENCRYPT_MODE).isPresent());
+    }
+
+    @Test
+    public void testClear() {
+        final String cipherTransformation = Make.aString();
+
+        final CipherPool cipherPool = new CipherPool();
+        cipherPool.release(cipherTransformation, Cipher.ENCRYPT_MODE, mock(Cipher.class));
+        cipherPool.clear();
+
+        assertFalse(cipherPool.borrow(cipherTransformation, Cipher.ENCRYPT_MODE).isPresent());
+    }
+}
@@ -0,0 +1,141 @@
+package com.ak.cardstore.cipher;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class CipherProviderStrategyUnitTest {
+
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String PROVIDER_PREFERENCES_FILE_NAME = "com.ak.cardstore.cipher.provider";
+
+    private SharedPreferencesDataAccessor mockSharedPreferencesDataAccessor;
+    private CipherProviderStrategy cipherProviderStrategy;
+
+    @Before
+    public void setup() {
+        this.mockSharedPreferencesDataAccessor = mock(SharedPreferencesDataAccessor.class);
+
+        this.cipherProviderStrategy = new CipherProviderStrategy(this.mockSharedPreferencesDataAccessor,
+                MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    public void testGetProviderChain() {
+        final List<Provider> providerChain = this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE);
+        assertFalse(providerChain.isEmpty());
+        assertTrue(this.cipherProviderStrategy.getInstalledProviders(CIPHER_TRANSFORMATION).containsAll(providerChain));
+
+        final String providerNames = providerChain.stream()
+                .map(Provider::getName)
+                .collect(Collectors.joining(","));
+        verify(this.mockSharedPreferencesDataAccessor).get(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION);
+        verify(this.mockSharedPreferencesDataAccessor).save(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION, providerNames);
+    }
+
+    @Test
+    public void testGetProviderChain_WithSavedProviders() {
+        final Provider provider = this.cipherProviderStrategy.getInstalledProviders(CIPHER_TRANSFORMATION).get(0);
+
+        when(this.mockSharedPreferencesDataAccessor.get(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION))
+                .thenReturn(provider.getName() + "," + Make.aString());
+
+        final List<Provider> providerChain = this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE);
+        assertEquals(Collections.singletonList(provider), providerChain);
+
+        verify(this.mockSharedPreferencesDataAccessor, never()).save(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testGetProviderChain_WithCachedProviders() {
+        final Provider provider = this.cipherProviderStrategy.getInstalledProviders(CIPHER_TRANSFORMATION).get(0);
+
+        when(this.mockSharedPreferencesDataAccessor.get(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION))
+                .thenReturn(provider.getName());
+
+        this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE);
+        this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE);
+
+        verify(this.mockSharedPreferencesDataAccessor).get(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION);
+    }
+
+    @Test
+    public void testGetProviderChain_WithoutKeyGenerator() {
+        final String cipherTransformation = "RSA/ECB/PKCS1Padding";
+
+        final List<Provider> providerChain = this.cipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.SOFTWARE);
+        assertTrue(providerChain.isEmpty());
+
+        verify(this.mockSharedPreferencesDataAccessor).save(PROVIDER_PREFERENCES_FILE_NAME, cipherTransformation, "");
+    }
+
+    @Test
+    public void testGetProviderChain_WithPendingBenchmark() {
+        final ExecutorService mockBenchmarkExecutorService = mock(ExecutorService.class);
+        final CipherProviderStrategy cipherProviderStrategy = new CipherProviderStrategy(this.mockSharedPreferencesDataAccessor,
+                mockBenchmarkExecutorService);
+
+        final List<Provider> providerChain = cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE);
+        assertTrue(providerChain.isEmpty());
+
+        verify(mockBenchmarkExecutorService).execute(any(Runnable.class));
+        verify(this.mockSharedPreferencesDataAccessor, never()).save(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testGetProviderChain_WithKeyStoreKey() {
+        final List<Provider> providerChain = this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.KEY_STORE);
+        assertTrue(providerChain.isEmpty());
+
+        verifyNoInteractions(this.mockSharedPreferencesDataAccessor);
+    }
+
+    @Test
+    public void testReportUnsupportedProvider() {
+        final Provider provider = this.cipherProviderStrategy.getInstalledProviders(CIPHER_TRANSFORMATION).get(0);
+        final String otherCipherTransformation = "AES/CBC/PKCS5Padding";
+
+        when(this.mockSharedPreferencesDataAccessor.get(PROVIDER_PREFERENCES_FILE_NAME, CIPHER_TRANSFORMATION))
+                .thenReturn(provider.getName());
+        when(this.mockSharedPreferencesDataAccessor.get(PROVIDER_PREFERENCES_FILE_NAME, otherCipherTransformation))
+                .thenReturn(provider.getName());
+
+        this.cipherProviderStrategy.reportUnsupportedProvider(CIPHER_TRANSFORMATION, provider, new NoSuchAlgorithmException());
+
+        assertTrue(this.cipherProviderStrategy.getProviderChain(CIPHER_TRANSFORMATION, KeyKind.SOFTWARE).isEmpty());
+        assertEquals(Collections.singletonList(provider),
+                this.cipherProviderStrategy.getProviderChain(otherCipherTransformation, KeyKind.SOFTWARE));
+    }
+}
@@ -1,5 +1,6 @@
 package com.ak.cardstore.cipher;
 
+import android.security.keystore.UserNotAuthenticatedException;
 import android.util.Log;
 
 import com.ak.cardstore.Make;
@@ -13,14 +14,19 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -30,6 +36,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
@@ -47,12 +56,19 @@ import static org.powermock.api.mockito.PowerMockito.when;
 @PowerMockIgnore({"javax.script.*", "javax.management.*"})
 public class CipherRetrieverUnitTest {
 
+    private CipherProviderStrategy mockCipherProviderStrategy;
+
     @Before
     public void setupLog() {
         mockStatic(Log.class);
         when(Log.e(anyString(), anyString(), any(Throwable.class))).thenReturn(0);
     }
 
+    @Before
+    public void setup() {
+        this.mockCipherProviderStrategy = mock(CipherProviderStrategy.class);
+    }
+
     @Test
     public void testRetrieve_WithNoSuchAlgorithmException() throws NoSuchPaddingException, NoSuchAlgorithmException {
         mockStatic(Cipher.class);
@@ -60,12 +76,12 @@ public class CipherRetrieverUnitTest {
         final String cipherTransformation = Make.aString();
         final Key mockKey = mock(Key.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenThrow(NoSuchAlgorithmException.class);
 
         final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
-                () -> cipherRetriever.retrieve(cipherTransformation, Cipher.ENCRYPT_MODE, mockKey, Optional.empty()));
+                () -> cipherRetriever.retrieve(cipherTransformation, Cipher.ENCRYPT_MODE, mockKey, KeyKind.SOFTWARE, Optional.empty()));
         assertEquals("Failed to retrieve cipher for transformation " + cipherTransformation, cipherRetrievalException.getMessage());
         assertTrue(cipherRetrievalException.getCause() instanceof NoSuchAlgorithmException);
 
@@ -80,12 +96,12 @@ public class CipherRetrieverUnitTest {
         final String cipherTransformation = Make.aString();
         final Key mockKey = mock(Key.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenThrow(NoSuchPaddingException.class);
 
         final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
-                () -> cipherRetriever.retrieve(cipherTransformation, Cipher.ENCRYPT_MODE, mockKey, Optional.empty()));
+                () -> cipherRetriever.retrieve(cipherTransformation, Cipher.ENCRYPT_MODE, mockKey, KeyKind.SOFTWARE, Optional.empty()));
         assertEquals("Failed to retrieve cipher for transformation " + cipherTransformation, cipherRetrievalException.getMessage());
         assertTrue(cipherRetrievalException.getCause() instanceof NoSuchPaddingException);
 
@@ -102,13 +118,13 @@ public class CipherRetrieverUnitTest {
         final Key mockKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
         doThrow(new InvalidKeyException()).when(mockCipher).init(opMode, mockKey);
 
         final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
-                () -> cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, Optional.empty()));
+                () -> cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty()));
         assertEquals("Failed to retrieve cipher due to invalid key", cipherRetrievalException.getMessage());
         assertTrue(cipherRetrievalException.getCause() instanceof InvalidKeyException);
 
@@ -128,13 +144,13 @@ public class CipherRetrieverUnitTest {
         final Key mockKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
         doThrow(new InvalidAlgorithmParameterException()).when(mockCipher).init(anyInt(), any(Key.class), any(IvParameterSpec.class));
 
         final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
-                () -> cipherRetriever.retrieve(cipherTransformation, opMode, mockKey,
+                () -> cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE,
                         Optional.of(initialVector.getBytes(StandardCharsets.UTF_8))));
         assertEquals("Failed to retrieve cipher due to invalid initial vector", cipherRetrievalException.getMessage());
         assertTrue(cipherRetrievalException.getCause() instanceof InvalidAlgorithmParameterException);
@@ -153,12 +169,12 @@ public class CipherRetrieverUnitTest {
         final Key mockKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
         doNothing().when(mockCipher).init(opMode, mockKey);
 
-        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, Optional.empty());
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty());
         assertSame(mockCipher, cipher);
 
         verifyStatic(Cipher.class);
@@ -177,12 +193,12 @@ public class CipherRetrieverUnitTest {
         final Key mockKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        final CipherRetriever cipherRetriever = new CipherRetriever();
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
 
         when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
         doNothing().when(mockCipher).init(anyInt(), any(Key.class), any(IvParameterSpec.class));
 
-        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey,
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE,
                 Optional.of(initialVector.getBytes(StandardCharsets.UTF_8)));
         assertSame(mockCipher, cipher);
 
@@ -190,4 +206,259 @@ public class CipherRetrieverUnitTest {
         Cipher.getInstance(cipherTransformation);
         verify(mockCipher).init(anyInt(), any(Key.class), any(IvParameterSpec.class));
     }
+
+    @Test
+    public void testRetrieve_WithGcmBlockMode()
+            throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.DECRYPT_MODE;
+        final String cipherTransformation = "AES/GCM/NoPadding";
+        final byte[] initialVector = Make.aByteArray();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
+        doNothing().when(mockCipher).init(anyInt(), any(Key.class), any(GCMParameterSpec.class));
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.of(initialVector));
+        assertSame(mockCipher, cipher);
+
+        verify(mockCipher).init(eq(opMode), eq(mockKey), argThat((GCMParameterSpec gcmParameterSpec) ->
+                gcmParameterSpec.getTLen() == CipherRetriever.GCM_TAG_LENGTH_BITS && Arrays.equals(initialVector, gcmParameterSpec.getIV())));
+    }
+
+    @Test
+    public void testRetrieve_WithReleasedCipher() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Key mockKeyOther = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherPool cipherPool = new CipherPool();
+        final CipherRetriever cipherRetriever = new CipherRetriever(cipherPool, this.mockCipherProviderStrategy);
+
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
+        doNothing().when(mockCipher).init(anyInt(), any(Key.class));
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty());
+        cipherRetriever.release(cipherTransformation, opMode, cipher, KeyKind.SOFTWARE);
+        final Cipher cipherOther = cipherRetriever.retrieve(cipherTransformation, opMode, mockKeyOther, KeyKind.SOFTWARE,
+                Optional.empty());
+        assertSame(mockCipher, cipherOther);
+        assertEquals(1, cipherPool.getHitCount());
+        assertEquals(1, cipherPool.getMissCount());
+
+        verifyStatic(Cipher.class);
+        Cipher.getInstance(cipherTransformation);
+        verify(mockCipher).init(opMode, mockKey);
+        verify(mockCipher).init(opMode, mockKeyOther);
+    }
+
+    @Test
+    public void testRetrieve_WithReleasedCipherOfOtherKeyKind() throws NoSuchPaddingException, NoSuchAlgorithmException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockSoftwareKey = mock(Key.class);
+        final Key mockKeyStoreKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final Cipher mockCipherOther = mock(Cipher.class);
+
+        final CipherPool cipherPool = new CipherPool();
+        final CipherRetriever cipherRetriever = new CipherRetriever(cipherPool, this.mockCipherProviderStrategy);
+
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher, mockCipherOther);
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockSoftwareKey, KeyKind.SOFTWARE, Optional.empty());
+        cipherRetriever.release(cipherTransformation, opMode, cipher, KeyKind.SOFTWARE);
+        final Cipher cipherOther = cipherRetriever.retrieve(cipherTransformation, opMode, mockKeyStoreKey, KeyKind.KEY_STORE,
+                Optional.empty());
+        assertSame(mockCipherOther, cipherOther);
+        assertEquals(0, cipherPool.getHitCount());
+        assertEquals(2, cipherPool.getMissCount());
+    }
+
+    @Test
+    public void testReinitialize() throws InvalidKeyException, InvalidAlgorithmParameterException {
+        final int opMode = Cipher.DECRYPT_MODE;
+        final String cipherTransformation = "AES/CBC/PKCS7Padding";
+        final byte[] initialVector = Make.aByteArray();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+        cipherRetriever.reinitialize(cipherTransformation, opMode, mockCipher, mockKey, Optional.of(initialVector));
+
+        verify(mockCipher).init(eq(opMode), eq(mockKey),
+                argThat((IvParameterSpec ivParameterSpec) -> Arrays.equals(initialVector, ivParameterSpec.getIV())));
+    }
+
+    @Test
+    public void testReinitialize_WithoutInitialVector() throws InvalidKeyException {
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+        cipherRetriever.reinitialize(Make.aString(), opMode, mockCipher, mockKey, Optional.empty());
+
+        verify(mockCipher).init(opMode, mockKey);
+    }
+
+    @Test
+    public void testReinitialize_WithInvalidKeyException() throws InvalidKeyException {
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        doThrow(new InvalidKeyException()).when(mockCipher).init(opMode, mockKey);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+        final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
+                () -> cipherRetriever.reinitialize(Make.aString(), opMode, mockCipher, mockKey, Optional.empty()));
+        assertEquals("Failed to retrieve cipher due to invalid key", cipherRetrievalException.getMessage());
+        assertTrue(cipherRetrievalException.getCause() instanceof InvalidKeyException);
+    }
+
+    @Test
+    public void testRetrieve_WithProviderChain() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final Provider mockProvider = mock(Provider.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(this.mockCipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.SOFTWARE))
+                .thenReturn(Collections.singletonList(mockProvider));
+        when(Cipher.getInstance(cipherTransformation, mockProvider)).thenReturn(mockCipher);
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty());
+        assertSame(mockCipher, cipher);
+
+        verifyStatic(Cipher.class);
+        Cipher.getInstance(cipherTransformation, mockProvider);
+        verifyStatic(Cipher.class, never());
+        Cipher.getInstance(cipherTransformation);
+        verify(mockCipher).init(opMode, mockKey);
+        verify(this.mockCipherProviderStrategy, never()).reportUnsupportedProvider(anyString(), any(Provider.class),
+                any(GeneralSecurityException.class));
+    }
+
+    @Test
+    public void testRetrieve_WithUnsupportedProvider() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final Provider mockProvider = mock(Provider.class);
+        final NoSuchAlgorithmException noSuchAlgorithmException = new NoSuchAlgorithmException();
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(this.mockCipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.SOFTWARE))
+                .thenReturn(Collections.singletonList(mockProvider));
+        when(Cipher.getInstance(cipherTransformation, mockProvider)).thenThrow(noSuchAlgorithmException);
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty());
+        assertSame(mockCipher, cipher);
+
+        verify(this.mockCipherProviderStrategy).reportUnsupportedProvider(cipherTransformation, mockProvider, noSuchAlgorithmException);
+        verifyStatic(Cipher.class);
+        Cipher.getInstance(cipherTransformation);
+        verify(mockCipher).init(opMode, mockKey);
+    }
+
+    @Test
+    public void testRetrieve_WithProviderChainAndInvalidKeyException()
+            throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.DECRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final Cipher mockCipherOther = mock(Cipher.class);
+        final Provider mockProvider = mock(Provider.class);
+        final InvalidKeyException invalidKeyException = new InvalidKeyException();
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(this.mockCipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.SOFTWARE))
+                .thenReturn(Collections.singletonList(mockProvider));
+        when(Cipher.getInstance(cipherTransformation, mockProvider)).thenReturn(mockCipher);
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipherOther);
+        doThrow(invalidKeyException).when(mockCipher).init(opMode, mockKey);
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty());
+        assertSame(mockCipherOther, cipher);
+
+        verify(this.mockCipherProviderStrategy).reportUnsupportedProvider(cipherTransformation, mockProvider, invalidKeyException);
+        verifyStatic(Cipher.class);
+        Cipher.getInstance(cipherTransformation);
+        verify(mockCipherOther).init(opMode, mockKey);
+    }
+
+    @Test
+    public void testRetrieve_WithProviderChainAndUserNotAuthenticatedException()
+            throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.DECRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final Provider mockProvider = mock(Provider.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(this.mockCipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.SOFTWARE))
+                .thenReturn(Collections.singletonList(mockProvider));
+        when(Cipher.getInstance(cipherTransformation, mockProvider)).thenReturn(mockCipher);
+        doThrow(mock(UserNotAuthenticatedException.class)).when(mockCipher).init(opMode, mockKey);
+
+        final CipherRetrievalException cipherRetrievalException = assertThrows(CipherRetrievalException.class,
+                () -> cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.SOFTWARE, Optional.empty()));
+        assertEquals("Failed to retrieve cipher due to invalid key", cipherRetrievalException.getMessage());
+        assertTrue(cipherRetrievalException.getCause() instanceof UserNotAuthenticatedException);
+
+        verify(this.mockCipherProviderStrategy, never()).reportUnsupportedProvider(anyString(), any(Provider.class),
+                any(GeneralSecurityException.class));
+        verifyStatic(Cipher.class, never());
+        Cipher.getInstance(cipherTransformation);
+    }
+
+    @Test
+    public void testRetrieve_WithKeyStoreKey() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        mockStatic(Cipher.class);
+
+        final int opMode = Cipher.ENCRYPT_MODE;
+        final String cipherTransformation = Make.aString();
+        final Key mockKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        final CipherRetriever cipherRetriever = new CipherRetriever(new CipherPool(), this.mockCipherProviderStrategy);
+
+        when(this.mockCipherProviderStrategy.getProviderChain(cipherTransformation, KeyKind.KEY_STORE)).thenReturn(Collections.emptyList());
+        when(Cipher.getInstance(cipherTransformation)).thenReturn(mockCipher);
+
+        final Cipher cipher = cipherRetriever.retrieve(cipherTransformation, opMode, mockKey, KeyKind.KEY_STORE, Optional.empty());
+        assertSame(mockCipher, cipher);
+
+        verify(this.mockCipherProviderStrategy).getProviderChain(cipherTransformation, KeyKind.KEY_STORE);
+        verify(mockCipher).init(opMode, mockKey);
+    }
 }
@@ -21,6 +21,8 @@ import java.security.cert.CertificateException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -68,6 +70,30 @@ public class KeyStoreRetrieverUnitTest {
         assertEquals(keyStoreType, keyStore.getType());
     }
 
+    @Test
+    public void testRetrieve_WithCachedKeyStore() {
+        final KeyStoreRetriever keyStoreRetriever = new KeyStoreRetriever();
+        final String keyStoreType = KeyStore.getDefaultType();
+
+        final KeyStore keyStore = keyStoreRetriever.retrieve(keyStoreType);
+        final KeyStore keyStoreOther = keyStoreRetriever.retrieve(keyStoreType);
+        assertSame(keyStore, keyStoreOther);
+    }
+
+    @Test
+    public void testInvalidate() {
+        final KeyStoreRetriever keyStoreRetriever = new KeyStoreRetriever();
+        final String keyStoreType = KeyStore.getDefaultType();
+
+        final KeyStore keyStore = keyStoreRetriever.retrieve(keyStoreType);
+        keyStoreRetriever.invalidate(keyStoreType);
+        final KeyStore keyStoreAfterInvalidation = keyStoreRetriever.retrieve(keyStoreType);
+        assertNotSame(keyStore, keyStoreAfterInvalidation);
+
+        keyStoreRetriever.invalidate();
+        assertNotSame(keyStoreAfterInvalidation, keyStoreRetriever.retrieve(keyStoreType));
+    }
+
     @Test
     public void testRetrieve_WithCertificateException() throws Exception {
         mockStatic(KeyStore.class);
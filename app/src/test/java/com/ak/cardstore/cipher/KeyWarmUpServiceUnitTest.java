@@ -0,0 +1,103 @@
+package com.ak.cardstore.cipher;
+
+import android.os.Build;
+
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+import com.ak.cardstore.exception.SymmetricKeyRetrievalException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class KeyWarmUpServiceUnitTest {
+
+    private AsymmetricKeyPairCipher mockAsymmetricKeyPairCipher;
+    private SymmetricKeyCipher mockSymmetricKeyCipher;
+    private PasswordKeyDeriver mockPasswordKeyDeriver;
+    private ExecutorService executorService;
+    private KeyWarmUpService keyWarmUpService;
+
+    @Before
+    public void setup() {
+        this.mockAsymmetricKeyPairCipher = mock(AsymmetricKeyPairCipher.class);
+        this.mockSymmetricKeyCipher = mock(SymmetricKeyCipher.class);
+        this.mockPasswordKeyDeriver = mock(PasswordKeyDeriver.class);
+        this.executorService = Executors.newFixedThreadPool(3);
+
+        this.keyWarmUpService = new KeyWarmUpService(this.mockAsymmetricKeyPairCipher, this.mockSymmetricKeyCipher, this.mockPasswordKeyDeriver,
+                this.executorService);
+    }
+
+    @Test
+    public void testStart() {
+        when(this.mockAsymmetricKeyPairCipher.pregenerateKeyPair(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+        when(this.mockSymmetricKeyCipher.pregenerateKey(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+        when(this.mockPasswordKeyDeriver.precalibrate(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+
+        final CompletableFuture<Void> keyWarmUp = this.keyWarmUpService.start();
+        keyWarmUp.join();
+
+        assertTrue(this.executorService.isShutdown());
+        verify(this.mockAsymmetricKeyPairCipher).pregenerateKeyPair(this.executorService);
+        verify(this.mockSymmetricKeyCipher).pregenerateKey(this.executorService);
+        verify(this.mockPasswordKeyDeriver).precalibrate(this.executorService);
+    }
+
+    @Test
+    public void testStart_WhenAlreadyStarted() {
+        final CompletableFuture<Void> keyPairGeneration = new CompletableFuture<>();
+        when(this.mockAsymmetricKeyPairCipher.pregenerateKeyPair(this.executorService)).thenReturn(keyPairGeneration);
+        when(this.mockSymmetricKeyCipher.pregenerateKey(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+        when(this.mockPasswordKeyDeriver.precalibrate(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+
+        final CompletableFuture<Void> keyWarmUp = this.keyWarmUpService.start();
+        final CompletableFuture<Void> keyWarmUpOther = this.keyWarmUpService.start();
+        assertSame(keyWarmUp, keyWarmUpOther);
+
+        keyPairGeneration.complete(null);
+        keyWarmUp.join();
+
+        verify(this.mockAsymmetricKeyPairCipher).pregenerateKeyPair(this.executorService);
+        verify(this.mockSymmetricKeyCipher).pregenerateKey(this.executorService);
+        verify(this.mockPasswordKeyDeriver).precalibrate(this.executorService);
+    }
+
+    @Test
+    public void testStart_WithFailedKeyGeneration() {
+        final CompletableFuture<Void> keyGeneration = new CompletableFuture<>();
+        keyGeneration.completeExceptionally(new SymmetricKeyRetrievalException("Error generating a new key using provider AndroidKeyStore",
+                new RuntimeException()));
+
+        when(this.mockAsymmetricKeyPairCipher.pregenerateKeyPair(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+        when(this.mockSymmetricKeyCipher.pregenerateKey(this.executorService)).thenReturn(keyGeneration);
+        when(this.mockPasswordKeyDeriver.precalibrate(this.executorService)).thenReturn(CompletableFuture.completedFuture(null));
+
+        final CompletableFuture<Void> keyWarmUp = this.keyWarmUpService.start();
+
+        final CompletionException completionException = assertThrows(CompletionException.class, keyWarmUp::join);
+        assertTrue(completionException.getCause() instanceof SymmetricKeyRetrievalException);
+        assertTrue(this.executorService.isShutdown());
+    }
+}
@@ -5,6 +5,7 @@ import android.os.Build;
 import com.ak.cardstore.Make;
 import com.ak.cardstore.cipher.CipherOperator;
 import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
 import com.ak.cardstore.util.StringUtil;
 
 import org.junit.Assert;
@@ -18,6 +19,8 @@ import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Base64;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.crypto.Cipher;
 
@@ -25,6 +28,7 @@ import static com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairGenerator.BLOC
 import static com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairGenerator.ENCRYPTION_PADDING;
 import static com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairGenerator.KEY_ALGORITHM;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -63,7 +67,8 @@ public class AsymmetricKeyPairCipherUnitTest {
         final Cipher mockCipher = mock(Cipher.class);
 
         when(this.mockAsymmetricKeyPairRetriever.retrievePublicKey(ASYMMETRIC_KEY_PAIR_ALIAS)).thenReturn(mockPublicKey);
-        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockPublicKey, Optional.empty()))
+        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockPublicKey, KeyKind.SOFTWARE,
+                Optional.empty()))
                 .thenReturn(mockCipher);
         when(this.mockCipherOperator.doCipherOperation(mockCipher, StringUtil.toUTF8ByteArray(dataToEncrypt), "Error encrypting data!"))
                 .thenReturn(cipherTextBytes);
@@ -81,7 +86,8 @@ public class AsymmetricKeyPairCipherUnitTest {
         final Cipher mockCipher = mock(Cipher.class);
 
         when(this.mockAsymmetricKeyPairRetriever.retrievePrivateKey(ASYMMETRIC_KEY_PAIR_ALIAS)).thenReturn(mockPrivateKey);
-        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockPrivateKey, Optional.empty()))
+        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockPrivateKey, KeyKind.KEY_STORE,
+                Optional.empty()))
                 .thenReturn(mockCipher);
         when(this.mockCipherOperator.doCipherOperation(mockCipher, StringUtil.base64StringToByteArray(dataToDecrypt), "Error decrypting data!"))
                 .thenReturn(expectedPlainText.getBytes(StandardCharsets.UTF_8));
@@ -89,4 +95,57 @@ public class AsymmetricKeyPairCipherUnitTest {
         final String encryptedData = this.asymmetricKeyPairCipher.decrypt(dataToDecrypt);
         Assert.assertEquals(expectedPlainText, encryptedData);
     }
+
+    @Test
+    public void testEncrypt_ByteArray() {
+        final byte[] dataToEncrypt = Make.aByteArray();
+        final byte[] expectedCipherText = Make.aByteArray();
+
+        final Key mockPublicKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        when(this.mockAsymmetricKeyPairRetriever.retrievePublicKey(ASYMMETRIC_KEY_PAIR_ALIAS)).thenReturn(mockPublicKey);
+        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockPublicKey, KeyKind.SOFTWARE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.doCipherOperation(mockCipher, dataToEncrypt, "Error encrypting data!")).thenReturn(expectedCipherText);
+
+        final byte[] encryptedData = this.asymmetricKeyPairCipher.encrypt(dataToEncrypt);
+        Assert.assertArrayEquals(expectedCipherText, encryptedData);
+
+        verify(this.mockCipherRetriever).release(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.SOFTWARE);
+    }
+
+    @Test
+    public void testDecrypt_ByteArray() {
+        final byte[] dataToDecrypt = Make.aByteArray();
+        final byte[] expectedPlainText = Make.aByteArray();
+
+        final Key mockPrivateKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        when(this.mockAsymmetricKeyPairRetriever.retrievePrivateKey(ASYMMETRIC_KEY_PAIR_ALIAS)).thenReturn(mockPrivateKey);
+        when(this.mockCipherRetriever.retrieve(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockPrivateKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.doCipherOperation(mockCipher, dataToDecrypt, "Error decrypting data!")).thenReturn(expectedPlainText);
+
+        final byte[] decryptedData = this.asymmetricKeyPairCipher.decrypt(dataToDecrypt);
+        Assert.assertArrayEquals(expectedPlainText, decryptedData);
+
+        verify(this.mockCipherRetriever).release(ASYMMETRIC_KEY_PAIR_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testPregenerateKeyPair() {
+        final Executor mockExecutor = mock(Executor.class);
+        final CompletableFuture<Void> expectedKeyPairGeneration = new CompletableFuture<>();
+
+        when(this.mockAsymmetricKeyPairRetriever.pregenerate(ASYMMETRIC_KEY_PAIR_ALIAS, mockExecutor)).thenReturn(expectedKeyPairGeneration);
+
+        final CompletableFuture<Void> keyPairGeneration = this.asymmetricKeyPairCipher.pregenerateKeyPair(mockExecutor);
+        Assert.assertSame(expectedKeyPairGeneration, keyPairGeneration);
+
+        verify(this.mockAsymmetricKeyPairRetriever).pregenerate(ASYMMETRIC_KEY_PAIR_ALIAS, mockExecutor);
+    }
 }
@@ -31,6 +31,7 @@ import java.security.PublicKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
@@ -250,6 +251,54 @@ public class AsymmetricKeyPairRetrieverUnitTest {
         verifyNoInteractions(this.mockAsymmetricKeyPairGenerator);
     }
 
+    @Test
+    public void testRetrievePublicKey_WithCachedPublicKey() throws CertificateException, NoSuchAlgorithmException, IOException {
+        final String keyAlias = Make.aString();
+
+        final Certificate mockCertificate = mock(Certificate.class);
+        final PublicKey mockPublicKey = mock(PublicKey.class);
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(true);
+        when(mockKeyStoreSpi.engineGetCertificate(keyAlias)).thenReturn(mockCertificate);
+        when(mockCertificate.getPublicKey()).thenReturn(mockPublicKey);
+
+        assertSame(mockPublicKey, this.asymmetricKeyPairRetriever.retrievePublicKey(keyAlias));
+        assertSame(mockPublicKey, this.asymmetricKeyPairRetriever.retrievePublicKey(keyAlias));
+
+        verify(this.mockKeyStoreRetriever).retrieve("AndroidKeyStore");
+        verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
+        verify(mockKeyStoreSpi).engineGetCertificate(keyAlias);
+        verifyNoInteractions(this.mockAsymmetricKeyPairGenerator);
+    }
+
+    @Test
+    public void testRetrievePublicKey_AfterPrivateKeyGeneration()
+            throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException {
+        final String keyAlias = Make.aString();
+
+        final PublicKey mockPublicKey = mock(PublicKey.class);
+        final KeyPair mockKeyPair = new KeyPair(mockPublicKey, mock(PrivateKey.class));
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
+        when(this.mockAsymmetricKeyPairGenerator.generate("AndroidKeyStore", keyAlias)).thenReturn(mockKeyPair);
+
+        this.asymmetricKeyPairRetriever.retrievePrivateKey(keyAlias);
+        assertSame(mockPublicKey, this.asymmetricKeyPairRetriever.retrievePublicKey(keyAlias));
+
+        verify(this.mockKeyStoreRetriever).retrieve("AndroidKeyStore");
+        verify(this.mockAsymmetricKeyPairGenerator).generate("AndroidKeyStore", keyAlias);
+    }
+
     @Test
     public void testRetrievePublicKey_WithKeystoreException() {
         final String keyAlias = Make.aString();
@@ -316,4 +365,69 @@ public class AsymmetricKeyPairRetrieverUnitTest {
         verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
         verify(this.mockAsymmetricKeyPairGenerator).generate("AndroidKeyStore", keyAlias);
     }
+
+    @Test
+    public void testPregenerate() throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException {
+        final String keyAlias = Make.aString();
+
+        final PublicKey mockPublicKey = mock(PublicKey.class);
+        final KeyPair mockKeyPair = new KeyPair(mockPublicKey, mock(PrivateKey.class));
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
+        when(this.mockAsymmetricKeyPairGenerator.generate("AndroidKeyStore", keyAlias)).thenReturn(mockKeyPair);
+
+        final CompletableFuture<Void> keyPairGeneration = this.asymmetricKeyPairRetriever.pregenerate(keyAlias, Runnable::run);
+        keyPairGeneration.join();
+
+        final Key publicKey = this.asymmetricKeyPairRetriever.retrievePublicKey(keyAlias);
+        assertSame(mockPublicKey, publicKey);
+
+        verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
+        verify(this.mockAsymmetricKeyPairGenerator).generate("AndroidKeyStore", keyAlias);
+    }
+
+    @Test
+    public void testPregenerate_WithPendingKeyPairGeneration() {
+        final String keyAlias = Make.aString();
+
+        final CompletableFuture<Void> keyPairGeneration = this.asymmetricKeyPairRetriever.pregenerate(keyAlias, runnable -> {
+        });
+        final CompletableFuture<Void> keyPairGenerationOther = this.asymmetricKeyPairRetriever.pregenerate(keyAlias, Runnable::run);
+        assertSame(keyPairGeneration, keyPairGenerationOther);
+
+        verifyNoInteractions(this.mockKeyStoreRetriever);
+        verifyNoInteractions(this.mockAsymmetricKeyPairGenerator);
+    }
+
+    @Test
+    public void testRetrievePrivateKey_AfterFailedPregeneration()
+            throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException {
+        final String keyAlias = Make.aString();
+
+        final PrivateKey mockPrivateKey = mock(PrivateKey.class);
+        final KeyPair mockKeyPair = new KeyPair(mock(PublicKey.class), mockPrivateKey);
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
+        when(this.mockAsymmetricKeyPairGenerator.generate("AndroidKeyStore", keyAlias))
+                .thenThrow(NoSuchProviderException.class)
+                .thenReturn(mockKeyPair);
+
+        final CompletableFuture<Void> keyPairGeneration = this.asymmetricKeyPairRetriever.pregenerate(keyAlias, Runnable::run);
+        assertTrue(keyPairGeneration.isCompletedExceptionally());
+
+        final Key privateKey = this.asymmetricKeyPairRetriever.retrievePrivateKey(keyAlias);
+        assertSame(mockPrivateKey, privateKey);
+
+        verify(this.mockAsymmetricKeyPairGenerator, times(2)).generate("AndroidKeyStore", keyAlias);
+    }
 }
@@ -0,0 +1,182 @@
+package com.ak.cardstore.cipher.envelope;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.cipher.CipherOperator;
+import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
+import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
+import com.ak.cardstore.util.StringUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.Key;
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class EnvelopeCipherUnitTest {
+
+    private AsymmetricKeyPairCipher mockAsymmetricKeyPairCipher;
+    private CipherRetriever mockCipherRetriever;
+    private CipherOperator mockCipherOperator;
+    private Cipher mockCipher;
+    private EnvelopeCipher envelopeCipher;
+
+    @Before
+    public void setup() {
+        this.mockAsymmetricKeyPairCipher = mock(AsymmetricKeyPairCipher.class);
+        this.mockCipherRetriever = mock(CipherRetriever.class);
+        this.mockCipherOperator = mock(CipherOperator.class);
+        this.mockCipher = mock(Cipher.class);
+
+        when(this.mockCipherRetriever.retrieve(anyString(), anyInt(), any(Key.class), any(KeyKind.class), any())).thenReturn(this.mockCipher);
+        when(this.mockCipher.getIV()).thenReturn(Make.aByteArray());
+
+        this.envelopeCipher = new EnvelopeCipher(this.mockAsymmetricKeyPairCipher, this.mockCipherRetriever, this.mockCipherOperator);
+    }
+
+    @Test
+    public void testEncrypt() {
+        final String dataToEncrypt = Make.aString();
+        final byte[] cipherTextBytes = Make.aByteArray();
+        final byte[] wrappedDataKeyBytes = Make.aByteArray();
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(wrappedDataKeyBytes);
+        when(this.mockCipherOperator.doCipherOperation(this.mockCipher, StringUtil.toUTF8ByteArray(dataToEncrypt), "Error encrypting data!"))
+                .thenReturn(cipherTextBytes);
+
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(dataToEncrypt);
+        assertEquals(StringUtil.toBase64String(wrappedDataKeyBytes), encryptedEnvelope.getWrappedDataKey());
+        assertEquals(StringUtil.toBase64String(cipherTextBytes), encryptedEnvelope.getCipherText());
+
+        verify(this.mockCipherRetriever).retrieve(anyString(), eq(Cipher.ENCRYPT_MODE), any(Key.class), eq(KeyKind.SOFTWARE), eq(Optional.empty()));
+        verify(this.mockCipherRetriever).release(anyString(), eq(Cipher.ENCRYPT_MODE), eq(this.mockCipher), eq(KeyKind.SOFTWARE));
+    }
+
+    @Test
+    public void testEncryptAndDecrypt_WithByteArray() {
+        final byte[] dataToEncrypt = Make.aByteArray();
+        final byte[] cipherTextBytes = Make.aByteArray();
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(this.mockCipher, dataToEncrypt, "Error encrypting data!")).thenReturn(cipherTextBytes);
+        when(this.mockCipherOperator.doCipherOperation(this.mockCipher, cipherTextBytes, "Error decrypting data!")).thenReturn(dataToEncrypt);
+
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(dataToEncrypt);
+        assertEquals(StringUtil.toBase64String(cipherTextBytes), encryptedEnvelope.getCipherText());
+        assertArrayEquals(dataToEncrypt, this.envelopeCipher.decryptToByteArray(encryptedEnvelope));
+
+        verify(this.mockCipherOperator).doCipherOperation(this.mockCipher, dataToEncrypt, "Error encrypting data!");
+        verify(this.mockCipherOperator).doCipherOperation(this.mockCipher, cipherTextBytes, "Error decrypting data!");
+    }
+
+    @Test
+    public void testEncrypt_WrapsDataKeyOncePerSession() {
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), anyString())).thenReturn(Make.aByteArray());
+
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(Make.aString());
+        final EncryptedEnvelope encryptedEnvelopeOther = this.envelopeCipher.encrypt(Make.aString());
+        assertEquals(encryptedEnvelope.getWrappedDataKey(), encryptedEnvelopeOther.getWrappedDataKey());
+
+        verify(this.mockAsymmetricKeyPairCipher).encrypt(any(byte[].class));
+    }
+
+    @Test
+    public void testDecrypt_WithSessionDataKey() {
+        final String expectedPlainText = Make.aString();
+
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), eq("Error encrypting data!")))
+                .thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), eq("Error decrypting data!")))
+                .thenReturn(StringUtil.toUTF8ByteArray(expectedPlainText));
+
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(expectedPlainText);
+        final String decryptedData = this.envelopeCipher.decrypt(encryptedEnvelope);
+        assertEquals(expectedPlainText, decryptedData);
+
+        verify(this.mockAsymmetricKeyPairCipher, never()).decrypt(any(byte[].class));
+        verify(this.mockCipherRetriever).retrieve(anyString(), eq(Cipher.DECRYPT_MODE), any(Key.class), eq(KeyKind.SOFTWARE), any());
+        verify(this.mockCipherRetriever).release(anyString(), eq(Cipher.DECRYPT_MODE), eq(this.mockCipher), eq(KeyKind.SOFTWARE));
+    }
+
+    @Test
+    public void testDecrypt_UnwrapsDataKeyOncePerSession() {
+        final String expectedPlainText = Make.aString();
+        final EncryptedEnvelope encryptedEnvelope = Make.anEncryptedEnvelope();
+
+        when(this.mockAsymmetricKeyPairCipher.decrypt(StringUtil.base64StringToByteArray(encryptedEnvelope.getWrappedDataKey())))
+                .thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), eq("Error decrypting data!")))
+                .thenReturn(StringUtil.toUTF8ByteArray(expectedPlainText));
+
+        assertEquals(expectedPlainText, this.envelopeCipher.decrypt(encryptedEnvelope));
+        assertEquals(expectedPlainText, this.envelopeCipher.decrypt(encryptedEnvelope));
+
+        verify(this.mockAsymmetricKeyPairCipher).decrypt(any(byte[].class));
+    }
+
+    @Test
+    public void testClearSessionDataKey() {
+        final EncryptedEnvelope encryptedEnvelope = Make.anEncryptedEnvelope();
+
+        when(this.mockAsymmetricKeyPairCipher.decrypt(any(byte[].class))).thenReturn(Make.aByteArray());
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), anyString())).thenReturn(Make.aByteArray());
+
+        this.envelopeCipher.decrypt(encryptedEnvelope);
+        this.envelopeCipher.clearSessionDataKey();
+        this.envelopeCipher.decrypt(encryptedEnvelope);
+
+        verify(this.mockAsymmetricKeyPairCipher, times(2)).decrypt(any(byte[].class));
+
+        final EncryptedEnvelope encryptedEnvelopeOther = this.envelopeCipher.encrypt(Make.aString());
+        assertNotEquals(encryptedEnvelope.getWrappedDataKey(), encryptedEnvelopeOther.getWrappedDataKey());
+    }
+
+    @Test
+    public void testEncrypt_WithClearedSessionDataKey() {
+        when(this.mockAsymmetricKeyPairCipher.encrypt(any(byte[].class))).thenReturn(Make.aByteArray(), Make.aByteArray());
+        when(this.mockCipherOperator.doCipherOperation(any(Cipher.class), any(byte[].class), anyString())).thenReturn(Make.aByteArray());
+
+        final EncryptedEnvelope encryptedEnvelope = this.envelopeCipher.encrypt(Make.aString());
+        this.envelopeCipher.clearSessionDataKey();
+        final EncryptedEnvelope encryptedEnvelopeOther = this.envelopeCipher.encrypt(Make.aString());
+
+        // A new data key is generated and wrapped once the session data key is cleared
+        assertNotEquals(encryptedEnvelope.getWrappedDataKey(), encryptedEnvelopeOther.getWrappedDataKey());
+        verify(this.mockAsymmetricKeyPairCipher, times(2)).encrypt(any(byte[].class));
+
+        final ArgumentCaptor<Key> dataKeyCaptor = ArgumentCaptor.forClass(Key.class);
+        verify(this.mockCipherRetriever, times(2)).retrieve(anyString(), eq(Cipher.ENCRYPT_MODE), dataKeyCaptor.capture(), eq(KeyKind.SOFTWARE), any());
+        assertNotEquals(dataKeyCaptor.getAllValues().get(0), dataKeyCaptor.getAllValues().get(1));
+    }
+}
@@ -0,0 +1,237 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.exception.KeyDerivationException;
+import com.ak.cardstore.pojo.KeyDerivationParameters;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class PasswordKeyDeriverUnitTest {
+
+    private static final int ITERATION_COUNT = 1000;
+
+    private PasswordKeyDeriver passwordKeyDeriver;
+
+    @Before
+    public void setup() {
+        this.passwordKeyDeriver = new PasswordKeyDeriver();
+    }
+
+    @Test
+    public void testDerive() throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(password, keyDerivationParameters, fileSalt);
+
+        final PBEKeySpec pbeKeySpec = new PBEKeySpec(password.toCharArray(), keyDerivationParameters.getSalt(), ITERATION_COUNT, 256);
+        final byte[] passwordKey = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(pbeKeySpec).getEncoded();
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(passwordKey, "HmacSHA256"));
+        assertArrayEquals(mac.doFinal(fileSalt), derivedKey.getEncoded());
+        assertEquals("AES", derivedKey.getAlgorithm());
+    }
+
+    @Test
+    public void testDerive_WithCachedKey() {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(password, keyDerivationParameters, fileSalt);
+        assertEquals(derivedKey, this.passwordKeyDeriver.derive(new String(password.toCharArray()), keyDerivationParameters, fileSalt));
+    }
+
+    @Test
+    public void testDerive_WithOtherPassword() {
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(Make.aString(), keyDerivationParameters, fileSalt);
+        assertNotEquals(derivedKey, this.passwordKeyDeriver.derive(Make.aString(), keyDerivationParameters, fileSalt));
+    }
+
+    @Test
+    public void testDerive_WithOtherSalt() {
+        final String password = Make.aString();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(password, aKeyDerivationParameters(), fileSalt);
+        assertNotEquals(derivedKey, this.passwordKeyDeriver.derive(password, aKeyDerivationParameters(), fileSalt));
+    }
+
+    @Test
+    public void testDerive_WithOtherFileSalt() {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(password, keyDerivationParameters, this.passwordKeyDeriver.newFileSalt());
+        assertNotEquals(derivedKey, this.passwordKeyDeriver.derive(password, keyDerivationParameters, this.passwordKeyDeriver.newFileSalt()));
+    }
+
+    @Test
+    public void testEvictDerivedKeys() {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        final SecretKey derivedKey = this.passwordKeyDeriver.derive(password, keyDerivationParameters, fileSalt);
+        this.passwordKeyDeriver.evictDerivedKeys();
+
+        assertEquals(derivedKey, this.passwordKeyDeriver.derive(password, keyDerivationParameters, fileSalt));
+    }
+
+    @Test
+    public void testNewFileSalt() {
+        final byte[] fileSalt = this.passwordKeyDeriver.newFileSalt();
+
+        assertEquals(PasswordKeyDeriver.SALT_LENGTH, fileSalt.length);
+        assertFalse(Arrays.equals(fileSalt, this.passwordKeyDeriver.newFileSalt()));
+    }
+
+    @Test
+    public void testCalibrate() {
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.calibrate();
+
+        assertEquals(PasswordKeyDeriver.SALT_LENGTH, keyDerivationParameters.getSalt().length);
+        assertTrue(keyDerivationParameters.getIterationCount() >= PasswordKeyDeriver.MIN_ITERATION_COUNT);
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters() {
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.getKeyDerivationParameters();
+
+        assertSame(keyDerivationParameters, this.passwordKeyDeriver.getKeyDerivationParameters());
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters_AfterDerive() {
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.getKeyDerivationParameters();
+
+        this.passwordKeyDeriver.derive(Make.aString(), aKeyDerivationParameters(), this.passwordKeyDeriver.newFileSalt());
+
+        assertSame(keyDerivationParameters, this.passwordKeyDeriver.getKeyDerivationParameters());
+    }
+
+    @Test
+    public void testPrecalibrate() {
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        this.passwordKeyDeriver.precalibrate(executorService).join();
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.getKeyDerivationParameters();
+
+        this.passwordKeyDeriver.precalibrate(executorService).join();
+        executorService.shutdown();
+
+        assertTrue(keyDerivationParameters.getIterationCount() >= PasswordKeyDeriver.MIN_ITERATION_COUNT);
+        assertSame(keyDerivationParameters, this.passwordKeyDeriver.getKeyDerivationParameters());
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters_WithFailedCalibration() {
+        final PasswordKeyDeriver spyPasswordKeyDeriver = spy(this.passwordKeyDeriver);
+        doThrow(new KeyDerivationException("Key derivation failed for algorithm PBKDF2WithHmacSHA256", new NoSuchAlgorithmException()))
+                .doCallRealMethod()
+                .when(spyPasswordKeyDeriver).calibrate();
+
+        final CompletableFuture<Void> calibration = spyPasswordKeyDeriver.precalibrate(Runnable::run);
+        assertTrue(calibration.isCompletedExceptionally());
+
+        final KeyDerivationParameters keyDerivationParameters = spyPasswordKeyDeriver.getKeyDerivationParameters();
+        assertTrue(keyDerivationParameters.getIterationCount() >= PasswordKeyDeriver.MIN_ITERATION_COUNT);
+        assertSame(keyDerivationParameters, spyPasswordKeyDeriver.getKeyDerivationParameters());
+        verify(spyPasswordKeyDeriver, times(2)).calibrate();
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters_WithReusedParameters() {
+        final PasswordKeyDeriver spyPasswordKeyDeriver = spy(this.passwordKeyDeriver);
+        final KeyDerivationParameters reusedKeyDerivationParameters = aKeyDerivationParameters(PasswordKeyDeriver.MIN_ITERATION_COUNT);
+
+        spyPasswordKeyDeriver.reuseKeyDerivationParameters(reusedKeyDerivationParameters);
+
+        assertSame(reusedKeyDerivationParameters, spyPasswordKeyDeriver.getKeyDerivationParameters());
+        verify(spyPasswordKeyDeriver, never()).calibrate();
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters_WithReusedParametersBelowMinIterationCount() {
+        final KeyDerivationParameters reusedKeyDerivationParameters = aKeyDerivationParameters();
+
+        this.passwordKeyDeriver.reuseKeyDerivationParameters(reusedKeyDerivationParameters);
+        final KeyDerivationParameters keyDerivationParameters = this.passwordKeyDeriver.getKeyDerivationParameters();
+
+        assertNotSame(reusedKeyDerivationParameters, keyDerivationParameters);
+        assertTrue(keyDerivationParameters.getIterationCount() >= PasswordKeyDeriver.MIN_ITERATION_COUNT);
+    }
+
+    @Test
+    public void testGetKeyDerivationParameters_WithReusedParametersAndCalibration() {
+        final PasswordKeyDeriver spyPasswordKeyDeriver = spy(this.passwordKeyDeriver);
+        final KeyDerivationParameters calibratedKeyDerivationParameters = aKeyDerivationParameters(10 * PasswordKeyDeriver.MIN_ITERATION_COUNT);
+        doReturn(calibratedKeyDerivationParameters).when(spyPasswordKeyDeriver).calibrate();
+        spyPasswordKeyDeriver.precalibrate(Runnable::run).join();
+
+        // Within the threshold of the calibrated iteration count
+        final KeyDerivationParameters reusedKeyDerivationParameters = aKeyDerivationParameters(9 * PasswordKeyDeriver.MIN_ITERATION_COUNT);
+        spyPasswordKeyDeriver.reuseKeyDerivationParameters(reusedKeyDerivationParameters);
+        assertSame(reusedKeyDerivationParameters, spyPasswordKeyDeriver.getKeyDerivationParameters());
+
+        // Below the threshold of the calibrated iteration count
+        spyPasswordKeyDeriver.reuseKeyDerivationParameters(aKeyDerivationParameters(7 * PasswordKeyDeriver.MIN_ITERATION_COUNT));
+        assertSame(calibratedKeyDerivationParameters, spyPasswordKeyDeriver.getKeyDerivationParameters());
+        verify(spyPasswordKeyDeriver).calibrate();
+    }
+
+    private static KeyDerivationParameters aKeyDerivationParameters() {
+        return aKeyDerivationParameters(ITERATION_COUNT);
+    }
+
+    private static KeyDerivationParameters aKeyDerivationParameters(final int iterationCount) {
+        return KeyDerivationParameters.builder()
+                .salt(Make.aByteArray())
+                .iterationCount(iterationCount)
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * @author Abhishek
+ */
+
+public class SymmetricCipherProfileUnitTest {
+
+    @ParameterizedTest
+    @MethodSource("testArgumentsProvider")
+    public void testSymmetricCipherProfile(final SymmetricCipherProfile symmetricCipherProfile, final int expectedId,
+                                           final String expectedCipherTransformation, final String expectedKeyAlias) {
+        Assertions.assertEquals(expectedId, symmetricCipherProfile.getId());
+        Assertions.assertEquals(expectedCipherTransformation, symmetricCipherProfile.getCipherTransformation());
+        Assertions.assertEquals(expectedKeyAlias, symmetricCipherProfile.getKeyAlias());
+        Assertions.assertEquals(Optional.of(symmetricCipherProfile), SymmetricCipherProfile.fromId(expectedId));
+    }
+
+    @Test
+    public void testFromId_WithUnknownId() {
+        Assertions.assertEquals(Optional.empty(), SymmetricCipherProfile.fromId(0));
+    }
+
+    @Test
+    public void testGetKeyAlias_WithKeyVersion() {
+        Assertions.assertEquals("com.ak.cardstore.sk.gcm", SymmetricCipherProfile.AES_GCM.getKeyAlias(0));
+        Assertions.assertEquals("com.ak.cardstore.sk.gcm.v1", SymmetricCipherProfile.AES_GCM.getKeyAlias(1));
+        Assertions.assertEquals("com.ak.cardstore.sk.v2", SymmetricCipherProfile.AES_CBC_PKCS7.getKeyAlias(2));
+    }
+
+    private static Stream<Arguments> testArgumentsProvider() {
+        return Stream.of(
+                Arguments.arguments(SymmetricCipherProfile.AES_CBC_PKCS7, 1, "AES/CBC/PKCS7Padding", "com.ak.cardstore.sk"),
+                Arguments.arguments(SymmetricCipherProfile.AES_GCM, 2, "AES/GCM/NoPadding", "com.ak.cardstore.sk.gcm")
+        );
+    }
+}
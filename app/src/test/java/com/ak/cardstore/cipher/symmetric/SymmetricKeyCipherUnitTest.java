@@ -1,41 +1,63 @@
 package com.ak.cardstore.cipher.symmetric;
 
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.UserNotAuthenticatedException;
 import android.util.Log;
 
 import com.ak.cardstore.Make;
+import com.ak.cardstore.cipher.CipherOperationInputStream;
+import com.ak.cardstore.cipher.CipherOperationOutputStream;
 import com.ak.cardstore.cipher.CipherOperator;
 import com.ak.cardstore.cipher.CipherRetriever;
+import com.ak.cardstore.cipher.KeyKind;
 import com.ak.cardstore.exception.CipherOperationException;
+import com.ak.cardstore.exception.CipherRetrievalException;
+import com.ak.cardstore.exception.KeyInvalidatedException;
 import com.ak.cardstore.util.StringUtil;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.Key;
 import java.security.UnrecoverableKeyException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.crypto.Cipher;
 
 import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.BLOCK_MODE;
 import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.ENCRYPTION_PADDING;
 import static com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator.KEY_ALGORITHM;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -51,6 +73,8 @@ public class SymmetricKeyCipherUnitTest {
 
     private static final String SYMMETRIC_KEY_CIPHER_TRANSFORMATION = String.format("%s/%s/%s", KEY_ALGORITHM, BLOCK_MODE, ENCRYPTION_PADDING);
     private static final String SYMMETRIC_KEY_ALIAS = "com.ak.cardstore.sk";
+    private static final String GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String GCM_SYMMETRIC_KEY_ALIAS = "com.ak.cardstore.sk.gcm";
 
     @Mock
     private SymmetricKeyRetriever mockSymmetricKeyRetriever;
@@ -61,9 +85,17 @@ public class SymmetricKeyCipherUnitTest {
     @Mock
     private CipherOperator mockCipherOperator;
 
-    @InjectMocks
+    @Mock
+    private SymmetricKeyVersionManager mockSymmetricKeyVersionManager;
+
     private SymmetricKeyCipher symmetricKeyCipher;
 
+    @Before
+    public void setup() {
+        this.symmetricKeyCipher = new SymmetricKeyCipher(this.mockSymmetricKeyRetriever, this.mockCipherRetriever, this.mockCipherOperator,
+                SymmetricCipherProfile.AES_GCM, this.mockSymmetricKeyVersionManager);
+    }
+
     @Before
     public void setupLog() {
         mockStatic(Log.class);
@@ -75,14 +107,15 @@ public class SymmetricKeyCipherUnitTest {
         final String dataToEncrypt = Make.aString();
         final String password = Make.aString();
 
-        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password)).thenThrow(UnrecoverableKeyException.class);
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenThrow(UnrecoverableKeyException.class);
 
         final CipherOperationException cipherOperationException = assertThrows(CipherOperationException.class,
                 () -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
         assertEquals("Error retrieving key!", cipherOperationException.getMessage());
         assertTrue(cipherOperationException.getCause() instanceof UnrecoverableKeyException);
 
-        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password);
+        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7);
     }
 
     @Test
@@ -97,21 +130,25 @@ public class SymmetricKeyCipherUnitTest {
         final Key mockSymmetricKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password)).thenReturn(mockSymmetricKey);
-        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, Optional.empty()))
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
                 .thenReturn(mockCipher);
-        when(this.mockCipherOperator.doCipherOperation(mockCipher, StringUtil.toUTF8ByteArray(dataToEncrypt), "Error encrypting data!"))
-                .thenReturn(cipherTextBytes);
+        when(this.mockCipherOperator.encryptToBase64String(mockCipher, dataToEncrypt, "Error encrypting data!"))
+                .thenReturn(Base64.getEncoder().encodeToString(cipherTextBytes));
         when(mockCipher.getIV()).thenReturn(initialVectorByes);
 
         final ImmutablePair<String, String> encryptedDataIvPair = this.symmetricKeyCipher.encrypt(dataToEncrypt, password);
         assertEquals(expectedCipherText, encryptedDataIvPair.getLeft());
         assertEquals(expectedInitialVector, encryptedDataIvPair.getRight());
 
-        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password);
-        verify(this.mockCipherRetriever).retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, Optional.empty());
-        verify(this.mockCipherOperator).doCipherOperation(mockCipher, StringUtil.toUTF8ByteArray(dataToEncrypt), "Error encrypting data!");
+        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+        verify(this.mockCipherRetriever).retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty());
+        verify(this.mockCipherOperator).encryptToBase64String(mockCipher, dataToEncrypt, "Error encrypting data!");
         verify(mockCipher).getIV();
+        verify(this.mockCipherRetriever).release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
     }
 
     @Test
@@ -124,16 +161,493 @@ public class SymmetricKeyCipherUnitTest {
         final Key mockSymmetricKey = mock(Key.class);
         final Cipher mockCipher = mock(Cipher.class);
 
-        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password)).thenReturn(mockSymmetricKey);
-        when(this.mockCipherRetriever.retrieve(anyString(), anyInt(), any(Key.class), any())).thenReturn(mockCipher);
-        when(this.mockCipherOperator.doCipherOperation(mockCipher, StringUtil.base64StringToByteArray(dataToDecrypt), "Error decrypting data!"))
-                .thenReturn(expectedPlainText.getBytes(StandardCharsets.UTF_8));
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(anyString(), anyInt(), any(Key.class), any(KeyKind.class), any())).thenReturn(mockCipher);
+        when(this.mockCipherOperator.decryptFromBase64String(mockCipher, dataToDecrypt, "Error decrypting data!"))
+                .thenReturn(expectedPlainText);
 
         final String decryptedData = this.symmetricKeyCipher.decrypt(dataToDecrypt, password, initialVector);
         assertEquals(expectedPlainText, decryptedData);
 
-        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password);
-        verify(this.mockCipherRetriever).retrieve(anyString(), anyInt(), any(Key.class), any());
-        verify(this.mockCipherOperator).doCipherOperation(mockCipher, StringUtil.base64StringToByteArray(dataToDecrypt), "Error decrypting data!");
+        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+        verify(this.mockCipherRetriever).retrieve(anyString(), anyInt(), any(Key.class), any(KeyKind.class), any());
+        verify(this.mockCipherOperator).decryptFromBase64String(mockCipher, dataToDecrypt, "Error decrypting data!");
+        verify(this.mockCipherRetriever).release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testEncrypt_WithStreams() throws UnrecoverableKeyException, IOException {
+        final String password = Make.aString();
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationOutputStream mockCipherOperationOutputStream = mock(CipherOperationOutputStream.class);
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        final AtomicReference<OutputStream> plainTextOutputStreamReference = new AtomicReference<>();
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(mockCipher.getIV()).thenReturn(initialVectorBytes);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedOutputStream, "Error encrypting data!")).thenReturn(mockCipherOperationOutputStream);
+
+        this.symmetricKeyCipher.encrypt(encryptedOutputStream, 0, password, plainTextOutputStreamReference::set);
+        assertSame(mockCipherOperationOutputStream, plainTextOutputStreamReference.get());
+
+        final byte[] encryptedBytes = encryptedOutputStream.toByteArray();
+        assertEquals(initialVectorBytes.length, encryptedBytes[0]);
+        assertArrayEquals(initialVectorBytes, Arrays.copyOfRange(encryptedBytes, 1, encryptedBytes.length));
+
+        verify(mockCipherOperationOutputStream).finish();
+        verify(mockCipherOperationOutputStream).release();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testEncrypt_WithStreams_ThrowsIOException() throws UnrecoverableKeyException, IOException {
+        final String password = Make.aString();
+        final IOException ioException = new IOException();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationOutputStream mockCipherOperationOutputStream = mock(CipherOperationOutputStream.class);
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(mockCipher.getIV()).thenReturn(Make.aByteArray());
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedOutputStream, "Error encrypting data!")).thenReturn(mockCipherOperationOutputStream);
+
+        final IOException thrownException = assertThrows(IOException.class,
+                () -> this.symmetricKeyCipher.encrypt(encryptedOutputStream, 0, password, plainTextOutputStream -> {
+                    throw ioException;
+                }));
+        assertSame(ioException, thrownException);
+
+        verify(mockCipherOperationOutputStream, never()).finish();
+        verify(mockCipherOperationOutputStream).release();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testDecrypt_WithStreams() throws UnrecoverableKeyException, IOException {
+        final String password = Make.aString();
+        final String expectedPlainText = Make.aString();
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        encryptedOutputStream.write(initialVectorBytes.length);
+        encryptedOutputStream.write(initialVectorBytes);
+        encryptedOutputStream.write(Make.aByteArray());
+        final ByteArrayInputStream encryptedInputStream = new ByteArrayInputStream(encryptedOutputStream.toByteArray());
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationInputStream mockCipherOperationInputStream = mock(CipherOperationInputStream.class);
+        final ArgumentCaptor<Optional<byte[]>> initialVectorCaptor = ArgumentCaptor.forClass(Optional.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(eq(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), any()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedInputStream, "Error decrypting data!")).thenReturn(mockCipherOperationInputStream);
+
+        final String decryptedData = this.symmetricKeyCipher.decrypt(encryptedInputStream, SymmetricCipherProfile.AES_GCM, 0, password,
+                (final InputStream plainTextInputStream) -> {
+                    assertSame(mockCipherOperationInputStream, plainTextInputStream);
+                    return expectedPlainText;
+                });
+        assertEquals(expectedPlainText, decryptedData);
+
+        verify(this.mockCipherRetriever).retrieve(eq(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), initialVectorCaptor.capture());
+        assertArrayEquals(initialVectorBytes, initialVectorCaptor.getValue().get());
+        verify(mockCipherOperationInputStream).finish();
+        verify(mockCipherOperationInputStream).release();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testDecrypt_WithStreams_ThrowsIOException() throws UnrecoverableKeyException, IOException {
+        final String password = Make.aString();
+        final byte[] initialVectorBytes = Make.aByteArray();
+        final IOException ioException = new IOException();
+
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        encryptedOutputStream.write(initialVectorBytes.length);
+        encryptedOutputStream.write(initialVectorBytes);
+        final ByteArrayInputStream encryptedInputStream = new ByteArrayInputStream(encryptedOutputStream.toByteArray());
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationInputStream mockCipherOperationInputStream = mock(CipherOperationInputStream.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(eq(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), any()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedInputStream, "Error decrypting data!")).thenReturn(mockCipherOperationInputStream);
+
+        final IOException thrownException = assertThrows(IOException.class,
+                () -> this.symmetricKeyCipher.decrypt(encryptedInputStream, SymmetricCipherProfile.AES_GCM, 0, password,
+                        (final InputStream plainTextInputStream) -> {
+                            throw ioException;
+                        }));
+        assertSame(ioException, thrownException);
+
+        verify(mockCipherOperationInputStream, never()).finish();
+        verify(mockCipherOperationInputStream).release();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testEncrypt_WithStreamsAndKey() throws IOException {
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationOutputStream mockCipherOperationOutputStream = mock(CipherOperationOutputStream.class);
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        final AtomicReference<OutputStream> plainTextOutputStreamReference = new AtomicReference<>();
+
+        when(this.mockCipherRetriever.retrieve(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.SOFTWARE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(mockCipher.getIV()).thenReturn(initialVectorBytes);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedOutputStream, "Error encrypting data!")).thenReturn(mockCipherOperationOutputStream);
+
+        this.symmetricKeyCipher.encrypt(encryptedOutputStream, mockSymmetricKey, plainTextOutputStreamReference::set);
+        assertSame(mockCipherOperationOutputStream, plainTextOutputStreamReference.get());
+
+        final byte[] encryptedBytes = encryptedOutputStream.toByteArray();
+        assertEquals(initialVectorBytes.length, encryptedBytes[0]);
+        assertArrayEquals(initialVectorBytes, Arrays.copyOfRange(encryptedBytes, 1, encryptedBytes.length));
+
+        verify(mockCipherOperationOutputStream).finish();
+        verify(mockCipherOperationOutputStream).release();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.SOFTWARE);
+        verifyNoInteractions(this.mockSymmetricKeyRetriever);
+    }
+
+    @Test
+    public void testDecrypt_WithStreamsAndKey() throws IOException {
+        final String expectedPlainText = Make.aString();
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        encryptedOutputStream.write(initialVectorBytes.length);
+        encryptedOutputStream.write(initialVectorBytes);
+        encryptedOutputStream.write(Make.aByteArray());
+        final ByteArrayInputStream encryptedInputStream = new ByteArrayInputStream(encryptedOutputStream.toByteArray());
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationInputStream mockCipherOperationInputStream = mock(CipherOperationInputStream.class);
+        final ArgumentCaptor<Optional<byte[]>> initialVectorCaptor = ArgumentCaptor.forClass(Optional.class);
+
+        when(this.mockCipherRetriever.retrieve(eq(SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.SOFTWARE), any()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedInputStream, "Error decrypting data!")).thenReturn(mockCipherOperationInputStream);
+
+        final String decryptedData = this.symmetricKeyCipher.decrypt(encryptedInputStream, SymmetricCipherProfile.AES_CBC_PKCS7,
+                mockSymmetricKey, (final InputStream plainTextInputStream) -> {
+                    assertSame(mockCipherOperationInputStream, plainTextInputStream);
+                    return expectedPlainText;
+                });
+        assertEquals(expectedPlainText, decryptedData);
+
+        verify(this.mockCipherRetriever).retrieve(eq(SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.SOFTWARE), initialVectorCaptor.capture());
+        assertArrayEquals(initialVectorBytes, initialVectorCaptor.getValue().get());
+        verify(mockCipherOperationInputStream).finish();
+        verify(mockCipherOperationInputStream).release();
+        verify(this.mockCipherRetriever).release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.SOFTWARE);
+        verifyNoInteractions(this.mockSymmetricKeyRetriever);
+    }
+
+    @Test
+    public void testPregenerateKey() {
+        final Executor mockExecutor = mock(Executor.class);
+        final CompletableFuture<Void> expectedKeyGeneration = new CompletableFuture<>();
+
+        when(this.mockSymmetricKeyRetriever.pregenerate(GCM_SYMMETRIC_KEY_ALIAS, SymmetricCipherProfile.AES_GCM, mockExecutor))
+                .thenReturn(expectedKeyGeneration);
+
+        final CompletableFuture<Void> keyGeneration = this.symmetricKeyCipher.pregenerateKey(mockExecutor);
+        assertSame(expectedKeyGeneration, keyGeneration);
+
+        verify(this.mockSymmetricKeyRetriever).pregenerate(GCM_SYMMETRIC_KEY_ALIAS, SymmetricCipherProfile.AES_GCM, mockExecutor);
+    }
+
+    @Test
+    public void testPregenerateKey_WithRotatedKey() {
+        final Executor mockExecutor = mock(Executor.class);
+        final CompletableFuture<Void> expectedKeyGeneration = new CompletableFuture<>();
+
+        when(this.mockSymmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM)).thenReturn(2);
+        when(this.mockSymmetricKeyRetriever.pregenerate(GCM_SYMMETRIC_KEY_ALIAS + ".v2", SymmetricCipherProfile.AES_GCM, mockExecutor))
+                .thenReturn(expectedKeyGeneration);
+
+        final CompletableFuture<Void> keyGeneration = this.symmetricKeyCipher.pregenerateKey(mockExecutor);
+        assertSame(expectedKeyGeneration, keyGeneration);
+    }
+
+    @Test
+    public void testGetKeyVersion() {
+        final int keyVersion = Make.anInt(1, Integer.MAX_VALUE);
+
+        when(this.mockSymmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM)).thenReturn(keyVersion);
+
+        assertEquals(keyVersion, this.symmetricKeyCipher.getKeyVersion());
+    }
+
+    @Test
+    public void testRetrieveKey() throws UnrecoverableKeyException {
+        final String password = Make.aString();
+        final Key mockSymmetricKey = mock(Key.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS + ".v2", password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+
+        assertSame(mockSymmetricKey, this.symmetricKeyCipher.retrieveKey(2, password));
+    }
+
+    @Test
+    public void testDeleteKey() {
+        this.symmetricKeyCipher.deleteKey(2);
+
+        verify(this.mockSymmetricKeyRetriever).deleteKey(GCM_SYMMETRIC_KEY_ALIAS + ".v2");
+    }
+
+    @Test
+    public void testDeleteKey_WithStringKey() {
+        final SymmetricKeyCipher symmetricKeyCipher = new SymmetricKeyCipher(this.mockSymmetricKeyRetriever, this.mockCipherRetriever,
+                this.mockCipherOperator, SymmetricCipherProfile.AES_CBC_PKCS7, this.mockSymmetricKeyVersionManager);
+
+        symmetricKeyCipher.deleteKey(0);
+
+        verifyNoInteractions(this.mockSymmetricKeyRetriever);
+    }
+
+    @Test
+    public void testEncrypt_WithStreamsAndKeyVersion() throws IOException {
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final CipherOperationOutputStream mockCipherOperationOutputStream = mock(CipherOperationOutputStream.class);
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        final AtomicReference<OutputStream> plainTextOutputStreamReference = new AtomicReference<>();
+
+        when(this.mockCipherRetriever.retrieve(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(mockCipher.getIV()).thenReturn(initialVectorBytes);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedOutputStream, "Error encrypting data!")).thenReturn(mockCipherOperationOutputStream);
+
+        this.symmetricKeyCipher.encrypt(encryptedOutputStream, 2, mockSymmetricKey, plainTextOutputStreamReference::set);
+        assertSame(mockCipherOperationOutputStream, plainTextOutputStreamReference.get());
+
+        final byte[] encryptedBytes = encryptedOutputStream.toByteArray();
+        assertEquals(initialVectorBytes.length, encryptedBytes[0]);
+        assertArrayEquals(initialVectorBytes, Arrays.copyOfRange(encryptedBytes, 1, encryptedBytes.length));
+
+        verify(mockCipherOperationOutputStream).finish();
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+        verifyNoInteractions(this.mockSymmetricKeyRetriever);
+    }
+
+    @Test
+    public void testDecrypt_WithStreamsAndRotatedKey() throws UnrecoverableKeyException, IOException {
+        final String password = Make.aString();
+        final byte[] initialVectorBytes = Make.aByteArray();
+
+        final ByteArrayOutputStream encryptedOutputStream = new ByteArrayOutputStream();
+        encryptedOutputStream.write(initialVectorBytes.length);
+        encryptedOutputStream.write(initialVectorBytes);
+        final ByteArrayInputStream encryptedInputStream = new ByteArrayInputStream(encryptedOutputStream.toByteArray());
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(GCM_SYMMETRIC_KEY_ALIAS + ".v3", password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(eq(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), any()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.wrap(mockCipher, encryptedInputStream, "Error decrypting data!"))
+                .thenReturn(mock(CipherOperationInputStream.class));
+
+        this.symmetricKeyCipher.decrypt(encryptedInputStream, SymmetricCipherProfile.AES_GCM, 3, password,
+                (final InputStream plainTextInputStream) -> null);
+
+        verify(this.mockSymmetricKeyRetriever).retrieve(GCM_SYMMETRIC_KEY_ALIAS + ".v3", password, SymmetricCipherProfile.AES_GCM);
+        verify(this.mockCipherRetriever).release(GCM_SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testEncrypt_Batch() throws UnrecoverableKeyException {
+        final String dataToEncrypt = Make.aString();
+        final String otherDataToEncrypt = Make.aString();
+        final String password = Make.aString();
+        final byte[] cipherTextBytes = Make.aByteArray();
+        final byte[] otherCipherTextBytes = Make.aByteArray();
+        final byte[] initialVectorBytes = Make.aByteArray();
+        final byte[] otherInitialVectorBytes = Make.aByteArray();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.encryptToBase64String(mockCipher, dataToEncrypt, "Error encrypting data!"))
+                .thenReturn(Base64.getEncoder().encodeToString(cipherTextBytes));
+        when(this.mockCipherOperator.encryptToBase64String(mockCipher, otherDataToEncrypt, "Error encrypting data!"))
+                .thenReturn(Base64.getEncoder().encodeToString(otherCipherTextBytes));
+        when(mockCipher.getIV()).thenReturn(initialVectorBytes, otherInitialVectorBytes);
+
+        final List<ImmutablePair<String, String>> encryptedDataIvPairs = this.symmetricKeyCipher.encrypt(
+                Arrays.asList(dataToEncrypt, otherDataToEncrypt), password);
+        assertEquals(2, encryptedDataIvPairs.size());
+        assertEquals(Base64.getEncoder().encodeToString(cipherTextBytes), encryptedDataIvPairs.get(0).getLeft());
+        assertEquals(Base64.getEncoder().encodeToString(initialVectorBytes), encryptedDataIvPairs.get(0).getRight());
+        assertEquals(Base64.getEncoder().encodeToString(otherCipherTextBytes), encryptedDataIvPairs.get(1).getLeft());
+        assertEquals(Base64.getEncoder().encodeToString(otherInitialVectorBytes), encryptedDataIvPairs.get(1).getRight());
+
+        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+        verify(this.mockCipherRetriever).retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty());
+        verify(this.mockCipherRetriever).reinitialize(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, mockSymmetricKey,
+                Optional.empty());
+        verify(this.mockCipherRetriever).release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testDecrypt_Batch() throws UnrecoverableKeyException {
+        final String dataToDecrypt = Make.aBase64String();
+        final String otherDataToDecrypt = Make.aBase64String();
+        final String initialVector = Make.aBase64String();
+        final String otherInitialVector = Make.aBase64String();
+        final String password = Make.aString();
+        final String expectedPlainText = Make.aString();
+        final String otherExpectedPlainText = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final Cipher mockCipher = mock(Cipher.class);
+        final ArgumentCaptor<Optional<byte[]>> initialVectorCaptor = ArgumentCaptor.forClass(Optional.class);
+
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(eq(SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), any()))
+                .thenReturn(mockCipher);
+        when(this.mockCipherOperator.decryptFromBase64String(mockCipher, dataToDecrypt, "Error decrypting data!"))
+                .thenReturn(expectedPlainText);
+        when(this.mockCipherOperator.decryptFromBase64String(mockCipher, otherDataToDecrypt, "Error decrypting data!"))
+                .thenReturn(otherExpectedPlainText);
+
+        final List<String> decryptedData = this.symmetricKeyCipher.decrypt(
+                Arrays.asList(ImmutablePair.of(dataToDecrypt, initialVector), ImmutablePair.of(otherDataToDecrypt, otherInitialVector)), password);
+        assertEquals(Arrays.asList(expectedPlainText, otherExpectedPlainText), decryptedData);
+
+        verify(this.mockSymmetricKeyRetriever).retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7);
+        verify(this.mockCipherRetriever).retrieve(eq(SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockSymmetricKey),
+                eq(KeyKind.KEY_STORE), initialVectorCaptor.capture());
+        assertArrayEquals(StringUtil.base64StringToByteArray(initialVector), initialVectorCaptor.getValue().get());
+        verify(this.mockCipherRetriever).reinitialize(eq(SYMMETRIC_KEY_CIPHER_TRANSFORMATION), eq(Cipher.DECRYPT_MODE), eq(mockCipher),
+                eq(mockSymmetricKey), initialVectorCaptor.capture());
+        assertArrayEquals(StringUtil.base64StringToByteArray(otherInitialVector), initialVectorCaptor.getValue().get());
+        verify(this.mockCipherRetriever).release(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.DECRYPT_MODE, mockCipher, KeyKind.KEY_STORE);
+    }
+
+    @Test
+    public void testEncrypt_EmptyBatch() {
+        final List<ImmutablePair<String, String>> encryptedDataIvPairs = this.symmetricKeyCipher.encrypt(Collections.emptyList(),
+                Make.aString());
+        assertTrue(encryptedDataIvPairs.isEmpty());
+
+        verifyNoInteractions(this.mockSymmetricKeyRetriever);
+        verifyNoInteractions(this.mockCipherRetriever);
+    }
+
+    @Test
+    public void testEncrypt_ThrowsUserNotAuthenticatedException() throws UnrecoverableKeyException {
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final CipherRetrievalException cipherRetrievalException = new CipherRetrievalException(Make.aString(),
+                mock(UserNotAuthenticatedException.class));
+
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenThrow(cipherRetrievalException);
+
+        final CipherRetrievalException thrownException = assertThrows(CipherRetrievalException.class,
+                () -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
+        assertSame(cipherRetrievalException, thrownException);
+
+        verify(this.mockSymmetricKeyRetriever).evictSessionKey(SYMMETRIC_KEY_ALIAS);
+        verifyNoInteractions(this.mockCipherOperator);
+    }
+
+    @Test
+    public void testEncrypt_ThrowsKeyPermanentlyInvalidatedException() throws UnrecoverableKeyException {
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final CipherRetrievalException cipherRetrievalException = new CipherRetrievalException(Make.aString(),
+                mock(KeyPermanentlyInvalidatedException.class));
+
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenThrow(cipherRetrievalException);
+
+        final KeyInvalidatedException keyInvalidatedException = assertThrows(KeyInvalidatedException.class,
+                () -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
+        assertSame(cipherRetrievalException.getCause(), keyInvalidatedException.getCause());
+
+        // The key is never deleted implicitly, only on the explicit reset
+        verify(this.mockSymmetricKeyRetriever).evictSessionKey(SYMMETRIC_KEY_ALIAS);
+        verify(this.mockSymmetricKeyRetriever, never()).deleteKey(SYMMETRIC_KEY_ALIAS);
+        verifyNoInteractions(this.mockCipherOperator);
+    }
+
+    @Test
+    public void testEncrypt_ThrowsCipherRetrievalException() throws UnrecoverableKeyException {
+        final String dataToEncrypt = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final CipherRetrievalException cipherRetrievalException = new CipherRetrievalException(Make.aString(), new Exception());
+
+        when(this.mockSymmetricKeyRetriever.retrieve(SYMMETRIC_KEY_ALIAS, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
+        when(this.mockCipherRetriever.retrieve(SYMMETRIC_KEY_CIPHER_TRANSFORMATION, Cipher.ENCRYPT_MODE, mockSymmetricKey, KeyKind.KEY_STORE,
+                Optional.empty()))
+                .thenThrow(cipherRetrievalException);
+
+        assertThrows(CipherRetrievalException.class, () -> this.symmetricKeyCipher.encrypt(dataToEncrypt, password));
+
+        verify(this.mockSymmetricKeyRetriever, never()).evictSessionKey(anyString());
+        verifyNoInteractions(this.mockCipherOperator);
     }
 }
@@ -120,6 +120,27 @@ public class SymmetricKeyGeneratorUnitTest {
         verify(mockKeyGenerator).generateKey();
     }
 
+    @Test
+    public void testGenerate_WithoutPassword() throws Exception {
+        final SymmetricKeyGenerator symmetricKeyGenerator = new SymmetricKeyGenerator();
+
+        final String provider = Make.aString();
+
+        final KeyGenerator mockKeyGenerator = mock(KeyGenerator.class);
+        final SecretKey mockSymmetricKey = mock(SecretKey.class);
+
+        mockStatic(KeyGenerator.class);
+        when(KeyGenerator.getInstance(KEY_ALGORITHM, provider)).thenReturn(mockKeyGenerator);
+        doNothing().when(mockKeyGenerator).init(any(KeyGenParameterSpec.class), any(SecureRandom.class));
+        when(mockKeyGenerator.generateKey()).thenReturn(mockSymmetricKey);
+
+        final SecretKey secretKey = symmetricKeyGenerator.generate(provider, KEY_ALIAS, SymmetricCipherProfile.AES_CBC_PKCS7);
+        Assert.assertSame(mockSymmetricKey, secretKey);
+
+        verify(mockKeyGenerator).init(any(KeyGenParameterSpec.class), any(SecureRandom.class));
+        verify(mockKeyGenerator).generateKey();
+    }
+
     @Test
     public void testGenerate_GetInstanceThrowsNoSuchAlgorithmException() throws Exception {
         final SymmetricKeyGenerator symmetricKeyGenerator = new SymmetricKeyGenerator();
@@ -1,6 +1,7 @@
 package com.ak.cardstore.cipher.symmetric;
 
 import android.os.Build;
+import android.os.SystemClock;
 
 import com.ak.cardstore.Make;
 import com.ak.cardstore.cipher.TestKeyStore;
@@ -22,6 +23,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.CompletableFuture;
 
 import javax.crypto.SecretKey;
 
@@ -32,6 +34,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -177,7 +180,8 @@ public class SymmetricKeyRetrieverUnitTest {
 
         when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
         when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
-        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password)).thenReturn(mockSymmetricKey);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenReturn(mockSymmetricKey);
         doNothing().when(mockKeyStoreSpi).engineSetKeyEntry(keyAlias, mockSymmetricKey, password.toCharArray(), null);
 
         final Key symmetricKey = this.symmetricKeyRetriever.retrieve(keyAlias, password);
@@ -187,7 +191,7 @@ public class SymmetricKeyRetrieverUnitTest {
         verify(this.mockKeyStoreRetriever).retrieve("AndroidKeyStore");
         verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
         verify(mockKeyStoreSpi, never()).engineGetKey(keyAlias, password.toCharArray());
-        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password);
+        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7);
         verify(mockKeyStoreSpi).engineSetKeyEntry(keyAlias, mockSymmetricKey, password.toCharArray(), null);
     }
 
@@ -205,7 +209,8 @@ public class SymmetricKeyRetrieverUnitTest {
 
         when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
         when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
-        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password)).thenThrow(NoSuchProviderException.class);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7))
+                .thenThrow(NoSuchProviderException.class);
 
         final SymmetricKeyRetrievalException symmetricKeyRetrievalException = assertThrows(SymmetricKeyRetrievalException.class,
                 () -> this.symmetricKeyRetriever.retrieve(keyAlias, password));
@@ -216,7 +221,225 @@ public class SymmetricKeyRetrieverUnitTest {
         verify(this.mockKeyStoreRetriever).retrieve("AndroidKeyStore");
         verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
         verify(mockKeyStoreSpi, times(0)).engineGetKey(keyAlias, password.toCharArray());
-        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password);
+        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_CBC_PKCS7);
         verify(mockKeyStoreSpi, never()).engineSetKeyEntry(anyString(), any(Key.class), any(), any());
     }
+
+    @Test
+    public void testRetrieve_WithSymmetricCipherProfile()
+            throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException, KeyStoreException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final SecretKey mockSymmetricKey = mock(SecretKey.class);
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        doNothing().when(mockKeyStoreSpi).engineLoad(null);
+
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        doNothing().when(mockKeyStoreSpi).engineSetKeyEntry(keyAlias, mockSymmetricKey, password.toCharArray(), null);
+
+        final Key symmetricKey = this.symmetricKeyRetriever.retrieve(keyAlias, password, SymmetricCipherProfile.AES_GCM);
+        assertSame(mockSymmetricKey, symmetricKey);
+
+        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_GCM);
+        verify(mockKeyStoreSpi).engineSetKeyEntry(keyAlias, mockSymmetricKey, password.toCharArray(), null);
+    }
+
+    @Test
+    public void testPregenerate()
+            throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException, KeyStoreException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final SecretKey mockSymmetricKey = mock(SecretKey.class);
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false, true);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+        when(mockKeyStoreSpi.engineGetKey(keyAlias, password.toCharArray())).thenReturn(mockSymmetricKey);
+
+        final CompletableFuture<Void> keyGeneration = this.symmetricKeyRetriever.pregenerate(keyAlias, SymmetricCipherProfile.AES_GCM,
+                Runnable::run);
+        keyGeneration.join();
+
+        final Key symmetricKey = this.symmetricKeyRetriever.retrieve(keyAlias, password, SymmetricCipherProfile.AES_GCM);
+        assertSame(mockSymmetricKey, symmetricKey);
+
+        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, SymmetricCipherProfile.AES_GCM);
+        verify(this.mockSymmetricKeyGenerator, never()).generate(anyString(), anyString(), anyString(), any(SymmetricCipherProfile.class));
+        verify(mockKeyStoreSpi).engineSetKeyEntry(keyAlias, mockSymmetricKey, null, null);
+        verify(mockKeyStoreSpi).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testPregenerate_WithKeystoreContainsAlias() throws CertificateException, NoSuchAlgorithmException, IOException {
+        final String keyAlias = Make.aString();
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(true);
+
+        this.symmetricKeyRetriever.pregenerate(keyAlias, SymmetricCipherProfile.AES_GCM, Runnable::run).join();
+
+        verify(mockKeyStoreSpi).engineContainsAlias(keyAlias);
+        verifyNoInteractions(this.mockSymmetricKeyGenerator);
+    }
+
+    @Test
+    public void testRetrieve_AfterFailedPregeneration()
+            throws CertificateException, NoSuchAlgorithmException, IOException, NoSuchProviderException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final SecretKey mockSymmetricKey = mock(SecretKey.class);
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(false);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, SymmetricCipherProfile.AES_GCM))
+                .thenThrow(NoSuchProviderException.class);
+        when(this.mockSymmetricKeyGenerator.generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_GCM))
+                .thenReturn(mockSymmetricKey);
+
+        final CompletableFuture<Void> keyGeneration = this.symmetricKeyRetriever.pregenerate(keyAlias, SymmetricCipherProfile.AES_GCM,
+                Runnable::run);
+        assertTrue(keyGeneration.isCompletedExceptionally());
+
+        final Key symmetricKey = this.symmetricKeyRetriever.retrieve(keyAlias, password, SymmetricCipherProfile.AES_GCM);
+        assertSame(mockSymmetricKey, symmetricKey);
+
+        verify(this.mockSymmetricKeyGenerator).generate("AndroidKeyStore", keyAlias, password, SymmetricCipherProfile.AES_GCM);
+    }
+
+    @Test
+    public void testRetrieve_WithSessionKey()
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final KeyStoreSpi mockKeyStoreSpi = this.mockKeyStoreContainingKey(keyAlias, password, mockSymmetricKey);
+
+        assertSame(mockSymmetricKey, this.symmetricKeyRetriever.retrieve(keyAlias, password));
+        assertSame(mockSymmetricKey, this.symmetricKeyRetriever.retrieve(keyAlias, password));
+
+        verify(this.mockKeyStoreRetriever).retrieve("AndroidKeyStore");
+        verify(mockKeyStoreSpi).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testRetrieve_WithExpiredSessionKey()
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final KeyStoreSpi mockKeyStoreSpi = this.mockKeyStoreContainingKey(keyAlias, password, mockSymmetricKey);
+
+        assertSame(mockSymmetricKey, this.symmetricKeyRetriever.retrieve(keyAlias, password));
+        SystemClock.sleep(SymmetricKeyRetriever.SESSION_KEY_TTL_MILLIS);
+        assertSame(mockSymmetricKey, this.symmetricKeyRetriever.retrieve(keyAlias, password));
+
+        verify(this.mockKeyStoreRetriever, times(2)).retrieve("AndroidKeyStore");
+        verify(mockKeyStoreSpi, times(2)).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testEvictSessionKey()
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final KeyStoreSpi mockKeyStoreSpi = this.mockKeyStoreContainingKey(keyAlias, password, mockSymmetricKey);
+
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+        this.symmetricKeyRetriever.evictSessionKey(keyAlias);
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+
+        verify(mockKeyStoreSpi, times(2)).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testEvictSessionKeys()
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final KeyStoreSpi mockKeyStoreSpi = this.mockKeyStoreContainingKey(keyAlias, password, mockSymmetricKey);
+
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+        this.symmetricKeyRetriever.evictSessionKeys();
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+
+        verify(mockKeyStoreSpi, times(2)).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testDeleteKey()
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException, KeyStoreException {
+        final String keyAlias = Make.aString();
+        final String password = Make.aString();
+
+        final Key mockSymmetricKey = mock(Key.class);
+        final KeyStoreSpi mockKeyStoreSpi = this.mockKeyStoreContainingKey(keyAlias, password, mockSymmetricKey);
+
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+        this.symmetricKeyRetriever.deleteKey(keyAlias);
+        this.symmetricKeyRetriever.retrieve(keyAlias, password);
+
+        verify(mockKeyStoreSpi).engineDeleteEntry(keyAlias);
+        verify(this.mockKeyStoreRetriever).invalidate("AndroidKeyStore");
+        verify(mockKeyStoreSpi, times(2)).engineGetKey(keyAlias, password.toCharArray());
+    }
+
+    @Test
+    public void testDeleteKey_ThrowsKeyStoreException()
+            throws CertificateException, NoSuchAlgorithmException, IOException, KeyStoreException {
+        final String keyAlias = Make.aString();
+
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        doThrow(new KeyStoreException()).when(mockKeyStoreSpi).engineDeleteEntry(keyAlias);
+
+        final SymmetricKeyRetrievalException symmetricKeyRetrievalException = assertThrows(SymmetricKeyRetrievalException.class,
+                () -> this.symmetricKeyRetriever.deleteKey(keyAlias));
+        assertTrue(symmetricKeyRetrievalException.getCause() instanceof KeyStoreException);
+
+        verify(this.mockKeyStoreRetriever).invalidate("AndroidKeyStore");
+    }
+
+    private KeyStoreSpi mockKeyStoreContainingKey(final String keyAlias, final String password, final Key symmetricKey)
+            throws CertificateException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException {
+        final KeyStoreSpi mockKeyStoreSpi = mock(KeyStoreSpi.class);
+        final KeyStore testKeyStore = new TestKeyStore(mockKeyStoreSpi, null, null);
+        testKeyStore.load(null);
+
+        when(this.mockKeyStoreRetriever.retrieve("AndroidKeyStore")).thenReturn(testKeyStore);
+        when(mockKeyStoreSpi.engineContainsAlias(keyAlias)).thenReturn(true);
+        when(mockKeyStoreSpi.engineGetKey(keyAlias, password.toCharArray())).thenReturn(symmetricKey);
+        return mockKeyStoreSpi;
+    }
 }
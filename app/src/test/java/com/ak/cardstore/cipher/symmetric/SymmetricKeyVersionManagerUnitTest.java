@@ -0,0 +1,86 @@
+package com.ak.cardstore.cipher.symmetric;
+
+import android.os.Build;
+
+import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager.KEY_VERSION_PREFERENCES_FILE_NAME;
+import static com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager.OLDEST_KEY_VERSION_SUFFIX;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class SymmetricKeyVersionManagerUnitTest {
+
+    private SharedPreferencesDataAccessor mockSharedPreferencesDataAccessor;
+    private SymmetricKeyVersionManager symmetricKeyVersionManager;
+
+    @Before
+    public void setup() {
+        this.mockSharedPreferencesDataAccessor = mock(SharedPreferencesDataAccessor.class);
+        this.symmetricKeyVersionManager = new SymmetricKeyVersionManager(this.mockSharedPreferencesDataAccessor);
+    }
+
+    @Test
+    public void testGetCurrentKeyVersion_WithoutRotation() {
+        assertEquals(0, this.symmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM));
+    }
+
+    @Test
+    public void testGetCurrentKeyVersion() {
+        when(this.mockSharedPreferencesDataAccessor.get(KEY_VERSION_PREFERENCES_FILE_NAME, SymmetricCipherProfile.AES_GCM.name()))
+                .thenReturn("3");
+
+        assertEquals(3, this.symmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM));
+        assertEquals(3, this.symmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM));
+        assertEquals(0, this.symmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_CBC_PKCS7));
+
+        verify(this.mockSharedPreferencesDataAccessor, times(1))
+                .get(KEY_VERSION_PREFERENCES_FILE_NAME, SymmetricCipherProfile.AES_GCM.name());
+    }
+
+    @Test
+    public void testRotate() {
+        when(this.mockSharedPreferencesDataAccessor.get(KEY_VERSION_PREFERENCES_FILE_NAME, SymmetricCipherProfile.AES_GCM.name()))
+                .thenReturn("1");
+
+        assertEquals(2, this.symmetricKeyVersionManager.rotate(SymmetricCipherProfile.AES_GCM));
+        assertEquals(2, this.symmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM));
+        assertEquals(3, this.symmetricKeyVersionManager.rotate(SymmetricCipherProfile.AES_GCM));
+
+        verify(this.mockSharedPreferencesDataAccessor).save(KEY_VERSION_PREFERENCES_FILE_NAME, SymmetricCipherProfile.AES_GCM.name(), "2");
+        verify(this.mockSharedPreferencesDataAccessor).save(KEY_VERSION_PREFERENCES_FILE_NAME, SymmetricCipherProfile.AES_GCM.name(), "3");
+    }
+
+    @Test
+    public void testGetOldestKeyVersion_WithoutDeletedKeys() {
+        assertEquals(0, this.symmetricKeyVersionManager.getOldestKeyVersion(SymmetricCipherProfile.AES_GCM));
+    }
+
+    @Test
+    public void testSetOldestKeyVersion() {
+        final String oldestKeyVersionPreference = SymmetricCipherProfile.AES_GCM.name() + OLDEST_KEY_VERSION_SUFFIX;
+        when(this.mockSharedPreferencesDataAccessor.get(KEY_VERSION_PREFERENCES_FILE_NAME, oldestKeyVersionPreference))
+                .thenReturn("2");
+
+        this.symmetricKeyVersionManager.setOldestKeyVersion(SymmetricCipherProfile.AES_GCM, 2);
+
+        assertEquals(2, this.symmetricKeyVersionManager.getOldestKeyVersion(SymmetricCipherProfile.AES_GCM));
+        assertEquals(0, this.symmetricKeyVersionManager.getOldestKeyVersion(SymmetricCipherProfile.AES_CBC_PKCS7));
+        verify(this.mockSharedPreferencesDataAccessor).save(KEY_VERSION_PREFERENCES_FILE_NAME, oldestKeyVersionPreference, "2");
+    }
+}
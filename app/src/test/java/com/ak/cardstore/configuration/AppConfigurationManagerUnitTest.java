@@ -3,29 +3,70 @@ package com.ak.cardstore.configuration;
 import android.os.Build;
 
 import com.ak.cardstore.Make;
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
 import com.ak.cardstore.dao.FileBasedDataAccessor;
 import com.ak.cardstore.exception.ConfigurationManagerException;
+import com.ak.cardstore.pojo.Card;
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.KeyDerivationParameters;
 import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
 import com.ak.cardstore.serialization.Serializer;
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterOutputStream;
 
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -39,49 +80,86 @@ import static org.mockito.Mockito.when;
 public class AppConfigurationManagerUnitTest {
 
     private static final String CONFIGURATION_FILE_NAME = "com.ak.cardstore.wallet.cdb";
+    private static final String JOURNAL_FILE_NAME = "com.ak.cardstore.wallet.journal";
+    private static final byte[] JOURNAL_ENTRY_MAGIC = {'C', 'S', 'W', 'J'};
+    private static final byte[] STREAMED_CONFIGURATION_HEADER = {'C', 'S', 'W', 'L', 2, 2};
+    private static final byte[] STREAMED_CONFIGURATION_HEADER_WITHOUT_PROFILE = {'C', 'S', 'W', 'L', 1};
 
     private Serializer<Wallet> mockWalletSerializer;
     private SymmetricKeyCipher mockSymmetricKeyCipher;
+    private PasswordKeyDeriver mockPasswordKeyDeriver;
     private Serializer<EncryptedConfiguration> mockEncryptedConfigurationSerializer;
     private FileBasedDataAccessor mockFileBasedDataAccessor;
+    private Serializer<WalletJournalEntry> mockWalletJournalEntrySerializer;
+    private WalletJournal walletJournal;
+    private ScheduledExecutorService mockWriteBehindExecutorService;
+    private ScheduledExecutorService mockWalletCacheExecutorService;
+    private byte[] fileSalt;
+    private Key keyStoreKey;
     private AppConfigurationManager appConfigurationManager;
 
     @Before
     public void setup() {
         this.mockWalletSerializer = mock(Serializer.class);
         this.mockSymmetricKeyCipher = mock(SymmetricKeyCipher.class);
+        this.mockPasswordKeyDeriver = mock(PasswordKeyDeriver.class);
         this.mockEncryptedConfigurationSerializer = mock(Serializer.class);
         this.mockFileBasedDataAccessor = mock(FileBasedDataAccessor.class);
+        this.mockWalletJournalEntrySerializer = mock(Serializer.class);
+        this.walletJournal = new WalletJournal(this.mockFileBasedDataAccessor);
+        this.mockWriteBehindExecutorService = mock(ScheduledExecutorService.class);
+        this.mockWalletCacheExecutorService = mock(ScheduledExecutorService.class);
+        this.fileSalt = Make.aByteArray();
+        when(this.mockPasswordKeyDeriver.newFileSalt()).thenReturn(this.fileSalt);
+        this.keyStoreKey = aFileKey();
+        when(this.mockSymmetricKeyCipher.retrieveKey(anyInt(), any())).thenReturn(this.keyStoreKey);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(this.mockWriteBehindExecutorService).execute(any(Runnable.class));
 
         this.appConfigurationManager = new AppConfigurationManager(this.mockWalletSerializer, this.mockSymmetricKeyCipher,
-                this.mockEncryptedConfigurationSerializer, this.mockFileBasedDataAccessor);
+                this.mockPasswordKeyDeriver, this.mockEncryptedConfigurationSerializer, this.mockFileBasedDataAccessor,
+                this.mockWalletJournalEntrySerializer, this.walletJournal, this.mockWriteBehindExecutorService,
+                this.mockWalletCacheExecutorService, CompressionCodec.NONE);
     }
 
     @Test
     public void testSave() throws IOException {
         final Wallet wallet = Make.aWallet();
         final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
 
-        final String serializedWallet = Make.aString();
-        final String serializedEncryptedWallet = Make.aString();
-        final String initialVector = Make.aString();
-        final EncryptedConfiguration encryptedConfiguration = EncryptedConfiguration.builder()
-                .serializedAndEncryptedWallet(serializedEncryptedWallet)
-                .initialVector(initialVector)
-                .build();
-        final String serializedEncryptedConfiguration = Make.aString();
+        final byte[] encryptedWallet = Make.aByteArray();
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final OutputStream plainTextOutputStream = new ByteArrayOutputStream();
 
-        when(this.mockWalletSerializer.serialize(wallet)).thenReturn(serializedWallet);
-        when(this.mockSymmetricKeyCipher.encrypt(serializedWallet, password)).thenReturn(ImmutablePair.of(serializedEncryptedWallet, initialVector));
-        when(this.mockEncryptedConfigurationSerializer.serialize(encryptedConfiguration)).thenReturn(serializedEncryptedConfiguration);
-        doNothing().when(this.mockFileBasedDataAccessor).save(CONFIGURATION_FILE_NAME, serializedEncryptedConfiguration);
+        this.stubWrite(CONFIGURATION_FILE_NAME, configurationOutputStream);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(keyDerivationParameters);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        this.stubEncryptWithFileKey(fileKey);
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(3).accept(plainTextOutputStream);
+            invocation.<OutputStream>getArgument(0).write(encryptedWallet);
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(eq(configurationOutputStream), eq(0), eq(this.keyStoreKey), any(IOConsumer.class));
 
         this.appConfigurationManager.save(wallet, password);
 
-        verify(this.mockWalletSerializer).serialize(wallet);
-        verify(this.mockSymmetricKeyCipher).encrypt(serializedWallet, password);
-        verify(this.mockEncryptedConfigurationSerializer).serialize(encryptedConfiguration);
-        verify(this.mockFileBasedDataAccessor).save(CONFIGURATION_FILE_NAME, serializedEncryptedConfiguration);
+        final ByteArrayOutputStream expectedConfigurationOutputStream = new ByteArrayOutputStream();
+        expectedConfigurationOutputStream.write(aStreamedConfigurationHeader(keyDerivationParameters));
+        expectedConfigurationOutputStream.write(encryptedWallet);
+        assertArrayEquals(expectedConfigurationOutputStream.toByteArray(), configurationOutputStream.toByteArray());
+
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockPasswordKeyDeriver).derive(password, keyDerivationParameters, this.fileSalt);
+        verify(this.mockSymmetricKeyCipher).encrypt(eq(configurationOutputStream), eq(0), eq(this.keyStoreKey), any(IOConsumer.class));
+        verify(this.mockSymmetricKeyCipher).encrypt(eq(plainTextOutputStream), eq(fileKey), any(IOConsumer.class));
+        verify(this.mockWalletSerializer).serializeTo(wallet, plainTextOutputStream);
+        verify(this.mockFileBasedDataAccessor).delete(JOURNAL_FILE_NAME);
+        verifyNoInteractions(this.mockEncryptedConfigurationSerializer);
     }
 
     @Test
@@ -89,33 +167,739 @@ public class AppConfigurationManagerUnitTest {
         final Wallet wallet = Make.aWallet();
         final String password = Make.aString();
 
-        final String serializedWallet = Make.aString();
-        final String serializedEncryptedWallet = Make.aString();
-        final String initialVector = Make.aString();
-        final EncryptedConfiguration encryptedConfiguration = EncryptedConfiguration.builder()
-                .serializedAndEncryptedWallet(serializedEncryptedWallet)
-                .initialVector(initialVector)
-                .build();
-        final String serializedEncryptedConfiguration = Make.aString();
-
-        when(this.mockWalletSerializer.serialize(wallet)).thenReturn(serializedWallet);
-        when(this.mockSymmetricKeyCipher.encrypt(serializedWallet, password)).thenReturn(ImmutablePair.of(serializedEncryptedWallet, initialVector));
-        when(this.mockEncryptedConfigurationSerializer.serialize(encryptedConfiguration)).thenReturn(serializedEncryptedConfiguration);
-        doThrow(IOException.class).when(this.mockFileBasedDataAccessor).save(CONFIGURATION_FILE_NAME, serializedEncryptedConfiguration);
+        doThrow(IOException.class).when(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
 
         final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
                 () -> this.appConfigurationManager.save(wallet, password));
         assertEquals("Error saving the configuration file!", configurationManagerException.getMessage());
         assertTrue(configurationManagerException.getCause() instanceof IOException);
 
-        verify(this.mockWalletSerializer).serialize(wallet);
-        verify(this.mockSymmetricKeyCipher).encrypt(serializedWallet, password);
-        verify(this.mockEncryptedConfigurationSerializer).serialize(encryptedConfiguration);
-        verify(this.mockFileBasedDataAccessor).save(CONFIGURATION_FILE_NAME, serializedEncryptedConfiguration);
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockSymmetricKeyCipher, never()).encrypt(any(OutputStream.class), anyInt(), any(Key.class), any(IOConsumer.class));
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testSave_WithDeflateCompression() throws IOException {
+        final AppConfigurationManager appConfigurationManager = this.anAppConfigurationManager(CompressionCodec.DEFLATE);
+        final Wallet wallet = Make.aWallet();
+        final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] serializedWallet = aRepeatedSerializedWallet();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final ByteArrayOutputStream plainTextOutputStream = new ByteArrayOutputStream();
+
+        this.stubWrite(CONFIGURATION_FILE_NAME, configurationOutputStream);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(keyDerivationParameters);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        this.stubEncryptWithFileKey(fileKey);
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(3).accept(plainTextOutputStream);
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(eq(configurationOutputStream), eq(0), eq(this.keyStoreKey), any(IOConsumer.class));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(serializedWallet);
+            return null;
+        }).when(this.mockWalletSerializer).serializeTo(eq(wallet), any(OutputStream.class));
+
+        appConfigurationManager.save(wallet, password);
+
+        assertArrayEquals(aStreamedConfigurationHeader(0, keyDerivationParameters, CompressionCodec.DEFLATE.getId()),
+                configurationOutputStream.toByteArray());
+
+        // The wallet is compressed before it is encrypted
+        assertTrue(plainTextOutputStream.size() < serializedWallet.length);
+        assertArrayEquals(serializedWallet, inflate(plainTextOutputStream.toByteArray()));
+    }
+
+    @Test
+    public void testSave_WithNewFileSalt() throws IOException {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] otherFileSalt = Make.aByteArray();
+
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(keyDerivationParameters);
+        when(this.mockPasswordKeyDeriver.newFileSalt()).thenReturn(this.fileSalt, otherFileSalt);
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.save(Make.aWallet(), password);
+        this.appConfigurationManager.save(Make.aWallet(), password);
+
+        // Every write derives its own key, even with the same key derivation parameters
+        verify(this.mockPasswordKeyDeriver).derive(password, keyDerivationParameters, this.fileSalt);
+        verify(this.mockPasswordKeyDeriver).derive(password, keyDerivationParameters, otherFileSalt);
+    }
+
+    @Test
+    public void testSaveLater() throws IOException {
+        final Wallet wallet = Make.aWallet();
+        final Wallet otherWallet = Make.aWallet();
+        final String password = Make.aString();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.saveLater(wallet, password);
+        this.appConfigurationManager.saveLater(otherWallet, password);
+
+        final ArgumentCaptor<Runnable> writeBehindCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.mockWriteBehindExecutorService, times(2))
+                .schedule(writeBehindCaptor.capture(), eq(AppConfigurationManager.WRITE_BEHIND_DELAY_MILLIS), eq(TimeUnit.MILLISECONDS));
+        verify(this.mockFileBasedDataAccessor, never()).write(any(), any(IOConsumer.class));
+
+        // Only the last of the saves is written
+        writeBehindCaptor.getAllValues().forEach(Runnable::run);
+
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockWalletSerializer).serializeTo(eq(otherWallet), any(OutputStream.class));
+        verify(this.mockWalletSerializer, never()).serializeTo(eq(wallet), any(OutputStream.class));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        final Wallet wallet = Make.aWallet();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.saveLater(wallet, Make.aString());
+        this.appConfigurationManager.flush();
+        this.appConfigurationManager.flush();
+
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockWalletSerializer).serializeTo(eq(wallet), any(OutputStream.class));
+    }
+
+    @Test
+    public void testFlush_WithIOException() throws IOException {
+        doThrow(IOException.class).when(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+
+        this.appConfigurationManager.saveLater(Make.aWallet(), Make.aString());
+        final CompletionException completionException = assertThrows(CompletionException.class,
+                () -> this.appConfigurationManager.flush().join());
+        assertTrue(completionException.getCause() instanceof ConfigurationManagerException);
+
+        // The wallet stays pending
+        assertThrows(CompletionException.class, () -> this.appConfigurationManager.flush().join());
+        verify(this.mockFileBasedDataAccessor, times(2)).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+    }
+
+    @Test
+    public void testSave_WithPendingSave() throws IOException {
+        final Wallet pendingWallet = Make.aWallet();
+        final Wallet wallet = Make.aWallet();
+        final String password = Make.aString();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.saveLater(pendingWallet, password);
+        this.appConfigurationManager.save(wallet, password);
+
+        final ArgumentCaptor<Runnable> writeBehindCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.mockWriteBehindExecutorService).schedule(writeBehindCaptor.capture(), anyLong(), any(TimeUnit.class));
+        writeBehindCaptor.getValue().run();
+        this.appConfigurationManager.flush();
+
+        // The older pending wallet is never saved over the saved one
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockWalletSerializer).serializeTo(eq(wallet), any(OutputStream.class));
+        verify(this.mockWalletSerializer, never()).serializeTo(eq(pendingWallet), any(OutputStream.class));
+    }
+
+    @Test
+    public void testLoad_WithPendingSave() throws IOException {
+        final Wallet pendingWallet = Make.aWallet();
+        final String password = Make.aString();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(pendingWallet);
+
+        this.appConfigurationManager.saveLater(pendingWallet, password);
+        assertSame(pendingWallet, this.appConfigurationManager.load(password));
+
+        final InOrder inOrder = inOrder(this.mockFileBasedDataAccessor);
+        inOrder.verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        inOrder.verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithCachedWallet() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        this.stubLoad(password, expectedWallet);
+
+        assertSame(expectedWallet, this.appConfigurationManager.load(password));
+        final Wallet cachedWallet = this.appConfigurationManager.load(password);
+        assertEquals(expectedWallet, cachedWallet);
+        assertNotSame(expectedWallet, cachedWallet);
+
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+        verify(this.mockSymmetricKeyCipher).decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class));
+    }
+
+    @Test
+    public void testLoad_WithCachedWalletModifiedByCaller() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        this.stubLoad(password, expectedWallet);
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.load(password).getCards().add(Make.aCard());
+        this.appConfigurationManager.load(password).getCards().clear();
+
+        assertEquals(expectedWallet, this.appConfigurationManager.load(password));
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithCachedWalletAndOtherPassword() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final String otherPassword = Make.aString();
+        this.stubLoad(password, Make.aWallet());
+        this.stubLoad(otherPassword, expectedWallet);
+
+        this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, this.appConfigurationManager.load(otherPassword));
+
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithCachedWalletAndSave() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        this.stubLoad(password, expectedWallet);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.save(Make.aWallet(), password);
+        assertSame(expectedWallet, this.appConfigurationManager.load(password));
+
+        // The saved configuration file is a new generation
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithCachedWalletAndJournaledEdit() throws IOException {
+        final String password = Make.aString();
+        final Wallet wallet = Make.aWallet();
+        final Card card = Make.aCard();
+        this.stubLoad(password, wallet);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.addWalletCard(card, password);
+        final Wallet loadedWallet = this.appConfigurationManager.load(password);
+
+        // The journaled edit is applied to the cached wallet, so the journal is not replayed
+        final Set<Card> expectedCards = new HashSet<>(wallet.getCards());
+        expectedCards.add(card);
+        assertEquals(expectedCards, loadedWallet.getCards());
+        verify(this.mockFileBasedDataAccessor).append(eq(JOURNAL_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithCachedWalletAndJournaledEditWithOtherPassword() throws IOException {
+        final String password = Make.aString();
+        this.stubLoad(password, Make.aWallet());
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.addWalletCard(Make.aCard(), Make.aString());
+        this.appConfigurationManager.load(password);
+
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testEvictCachedWallet() throws IOException {
+        final String password = Make.aString();
+        final ScheduledFuture mockCachedWalletEviction = mock(ScheduledFuture.class);
+        this.stubLoad(password, Make.aWallet());
+        when(this.mockWalletCacheExecutorService.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mockCachedWalletEviction);
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.evictCachedWallet();
+        this.appConfigurationManager.load(password);
+
+        verify(mockCachedWalletEviction).cancel(false);
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testEvictCachedWallet_DuringLoad() throws IOException {
+        final String password = Make.aString();
+        this.stubLoad(password, Make.aWallet());
+        when(this.mockSymmetricKeyCipher.decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenAnswer(invocation -> {
+                    this.appConfigurationManager.evictCachedWallet();
+                    return Make.aWallet();
+                }).thenReturn(Make.aWallet());
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.load(password);
+
+        // The wallet loaded while being evicted is not served from the cache
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithIdleCachedWallet() throws IOException {
+        final String password = Make.aString();
+        this.stubLoad(password, Make.aWallet());
+
+        this.appConfigurationManager.load(password);
+        this.appConfigurationManager.load(password);
+
+        final ArgumentCaptor<Runnable> cachedWalletEvictionCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.mockWalletCacheExecutorService).schedule(cachedWalletEvictionCaptor.capture(),
+                eq(AppConfigurationManager.WALLET_CACHE_IDLE_TIMEOUT_MILLIS), eq(TimeUnit.MILLISECONDS));
+
+        // The wallet was loaded since the last check, so the cache is checked again later
+        cachedWalletEvictionCaptor.getValue().run();
+        verify(this.mockWalletCacheExecutorService, times(2)).schedule(cachedWalletEvictionCaptor.capture(),
+                eq(AppConfigurationManager.WALLET_CACHE_IDLE_TIMEOUT_MILLIS), eq(TimeUnit.MILLISECONDS));
+        this.appConfigurationManager.load(password);
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+
+        // Loaded before the next check, then idle for a whole check
+        cachedWalletEvictionCaptor.getValue().run();
+        cachedWalletEvictionCaptor.getValue().run();
+        this.appConfigurationManager.load(password);
+        verify(this.mockFileBasedDataAccessor, times(2)).openInputStream(CONFIGURATION_FILE_NAME);
     }
 
     @Test
     public void testLoad() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+        verify(this.mockSymmetricKeyCipher).decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class));
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+        verifyNoInteractions(this.mockEncryptedConfigurationSerializer);
+    }
+
+    @Test
+    public void testLoad_WithKeyDerivationParameters() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final InputStream plainTextInputStream = new ByteArrayInputStream(Make.aByteArray());
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(aStreamedConfigurationHeader(keyDerivationParameters));
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        this.stubDecryptWithFileKey(fileKey);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenAnswer(invocation -> invocation.<IOFunction<InputStream, Wallet>>getArgument(4)
+                .apply(plainTextInputStream));
+        when(this.mockWalletSerializer.deserializeFrom(plainTextInputStream)).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+
+        verify(this.mockPasswordKeyDeriver).derive(password, keyDerivationParameters, this.fileSalt);
+        verify(this.mockPasswordKeyDeriver).reuseKeyDerivationParameters(keyDerivationParameters);
+        verify(this.mockSymmetricKeyCipher).decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class));
+        verify(this.mockSymmetricKeyCipher).decrypt(eq(plainTextInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(fileKey),
+                any(IOFunction.class));
+        verifyNoInteractions(this.mockEncryptedConfigurationSerializer);
+    }
+
+    @Test
+    public void testLoad_WithInvalidKeyDerivationParameters() throws IOException {
+        final KeyDerivationParameters keyDerivationParameters = KeyDerivationParameters.builder()
+                .salt(Make.aByteArray())
+                .iterationCount(0)
+                .build();
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(keyDerivationParameters)));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(Make.aString()));
+        assertEquals("Invalid key derivation parameters in the configuration file!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+    }
+
+    @Test
+    public void testLoad_WithoutCipherProfile() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER_WITHOUT_PROFILE);
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_CBC_PKCS7), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+
+        verify(this.mockSymmetricKeyCipher).decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_CBC_PKCS7), eq(0), eq(password),
+                any(IOFunction.class));
+    }
+
+    @Test
+    public void testLoad_WithUnsupportedCipherProfile() throws IOException {
+        final String password = Make.aString();
+
+        final byte[] configuration = STREAMED_CONFIGURATION_HEADER.clone();
+        configuration[configuration.length - 1] = 42;
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(new ByteArrayInputStream(configuration));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(password));
+        assertEquals("Unsupported cipher profile 42 in the configuration file!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testLoad_WithUnsupportedVersion() throws IOException {
+        final String password = Make.aString();
+
+        final byte[] configuration = STREAMED_CONFIGURATION_HEADER.clone();
+        configuration[configuration.length - 2] = 7;
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(new ByteArrayInputStream(configuration));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(password));
+        assertEquals("Unsupported configuration file version 7!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testLoad_WithoutKeyVersion() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(configurationOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'W', 'L', 3, 2});
+        dataOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        dataOutputStream.write(keyDerivationParameters.getSalt().length);
+        dataOutputStream.write(keyDerivationParameters.getSalt());
+        dataOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+
+        // The key derived by the configuration files before version 6 only went to the key store
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+    }
+
+    @Test
+    public void testLoad_WithoutFileKey() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(configurationOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'W', 'L', 5, 2});
+        dataOutputStream.writeInt(0);
+        dataOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        dataOutputStream.write(keyDerivationParameters.getSalt().length);
+        dataOutputStream.write(keyDerivationParameters.getSalt());
+        dataOutputStream.write(CompressionCodec.NONE.getId());
+        dataOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+    }
+
+    @Test
+    public void testLoad_WithInvalidFileSalt() throws IOException {
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(configurationOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'W', 'L', 6, 2});
+        dataOutputStream.writeInt(0);
+        dataOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        dataOutputStream.write(keyDerivationParameters.getSalt().length);
+        dataOutputStream.write(keyDerivationParameters.getSalt());
+        dataOutputStream.write(0);
+        dataOutputStream.write(CompressionCodec.NONE.getId());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(configurationOutputStream.toByteArray()));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(Make.aString()));
+        assertEquals("Invalid key derivation parameters in the configuration file!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+    }
+
+    @Test
+    public void testLoad_WithDeflateCompression() throws IOException {
+        final AppConfigurationManager appConfigurationManager = this.anAppConfigurationManager(CompressionCodec.DEFLATE);
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final byte[] serializedWallet = aRepeatedSerializedWallet();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(aStreamedConfigurationHeader(0, keyDerivationParameters, CompressionCodec.DEFLATE.getId()));
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        this.stubDecryptWithFileKey(fileKey);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenAnswer(invocation -> invocation.<IOFunction<InputStream, Wallet>>getArgument(4)
+                .apply(new ByteArrayInputStream(deflate(serializedWallet))));
+        when(this.mockWalletSerializer.deserializeFrom(any(InputStream.class))).thenAnswer(invocation -> {
+            final byte[] decompressedWallet = new byte[serializedWallet.length];
+            new DataInputStream(invocation.<InputStream>getArgument(0)).readFully(decompressedWallet);
+            return Arrays.equals(serializedWallet, decompressedWallet) ? expectedWallet : null;
+        });
+
+        final Wallet wallet = appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+    }
+
+    @Test
+    public void testLoad_WithoutCompressionCodec() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+        final InputStream plainTextInputStream = new ByteArrayInputStream(Make.aByteArray());
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(configurationOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'W', 'L', 4, 2});
+        dataOutputStream.writeInt(0);
+        dataOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        dataOutputStream.write(keyDerivationParameters.getSalt().length);
+        dataOutputStream.write(keyDerivationParameters.getSalt());
+        dataOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenAnswer(invocation -> invocation.<IOFunction<InputStream, Wallet>>getArgument(4)
+                .apply(plainTextInputStream));
+        when(this.mockWalletSerializer.deserializeFrom(plainTextInputStream)).thenReturn(expectedWallet);
+
+        // The configuration files before version 5 are read as not compressed
+        final Wallet wallet = this.anAppConfigurationManager(CompressionCodec.DEFLATE).load(password);
+        assertSame(expectedWallet, wallet);
+
+        // The key derived by the configuration files before version 6 only went to the key store
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+    }
+
+    @Test
+    public void testLoad_WithUnsupportedCompressionCodec() throws IOException {
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(0, aKeyDerivationParameters(), 42)));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(Make.aString()));
+        assertEquals("Unsupported compression codec 42 in the configuration file!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+    }
+
+    @Test
+    public void testLoad_WithRotatedKey() throws IOException {
+        final Wallet expectedWallet = Make.aWallet();
+        final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final int keyVersion = Make.anInt(1, Integer.MAX_VALUE);
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(aStreamedConfigurationHeader(keyVersion, keyDerivationParameters));
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(keyVersion),
+                eq(password), any(IOFunction.class))).thenReturn(expectedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertSame(expectedWallet, wallet);
+    }
+
+    @Test
+    public void testLoad_WithInvalidKeyVersion() throws IOException {
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(-1, aKeyDerivationParameters())));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(Make.aString()));
+        assertEquals("Invalid key version -1 in the configuration file!", configurationManagerException.getMessage());
+
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+    }
+
+    @Test
+    public void testReencryptWallet() throws IOException {
+        final Wallet wallet = Make.aWallet();
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(aStreamedConfigurationHeader(keyDerivationParameters));
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Arrays.asList(CONFIGURATION_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyCipher.getKeyVersion()).thenReturn(1);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(keyDerivationParameters);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), any(),
+                any(IOFunction.class))).thenReturn(wallet);
+
+        assertTrue(this.appConfigurationManager.reencryptWallet(password));
+
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), eq(1), eq(this.keyStoreKey), any(IOConsumer.class));
+    }
+
+    @Test
+    public void testReencryptWallet_WithCurrentKey() throws IOException {
+        final String password = Make.aString();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Arrays.asList(CONFIGURATION_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(1, keyDerivationParameters)));
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyCipher.getKeyVersion()).thenReturn(1);
+
+        assertFalse(this.appConfigurationManager.reencryptWallet(password));
+
+        verify(this.mockFileBasedDataAccessor, never()).write(any(), any(IOConsumer.class));
+        verify(this.mockSymmetricKeyCipher, never()).decrypt(any(InputStream.class), any(), anyInt(), any(), any(IOFunction.class));
+        verifyNoInteractions(this.mockWalletSerializer);
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+    }
+
+    @Test
+    public void testReencryptWallet_WithoutConfiguration() throws IOException {
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Collections.emptyList());
+
+        assertFalse(this.appConfigurationManager.reencryptWallet(Make.aString()));
+
+        verify(this.mockFileBasedDataAccessor, never()).openInputStream(any());
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+    }
+
+    @Test
+    public void testIsWalletEncryptedWithCurrentKey() throws IOException {
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Arrays.asList(CONFIGURATION_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(1, keyDerivationParameters)),
+                        new ByteArrayInputStream(aStreamedConfigurationHeader(0, keyDerivationParameters)));
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyCipher.getKeyVersion()).thenReturn(1);
+
+        assertTrue(this.appConfigurationManager.isWalletEncryptedWithCurrentKey());
+        assertFalse(this.appConfigurationManager.isWalletEncryptedWithCurrentKey());
+
+        // Only the header is read, so the password is never needed
+        verify(this.mockSymmetricKeyCipher, never()).decrypt(any(InputStream.class), any(), anyInt(), any(), any(IOFunction.class));
+        verifyNoInteractions(this.mockPasswordKeyDeriver);
+    }
+
+    @Test
+    public void testIsWalletEncryptedWithCurrentKey_WithoutConfiguration() throws IOException {
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Collections.emptyList());
+
+        assertTrue(this.appConfigurationManager.isWalletEncryptedWithCurrentKey());
+
+        verify(this.mockFileBasedDataAccessor, never()).openInputStream(any());
+    }
+
+    @Test
+    public void testLoad_WithLegacyConfiguration() throws IOException {
         final Wallet expctedWallet = Make.aWallet();
         final String password = Make.aString();
 
@@ -128,13 +912,14 @@ public class AppConfigurationManagerUnitTest {
                 .build();
         final String serializedEncryptedConfiguration = Make.aString();
 
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(serializedEncryptedConfiguration.getBytes(StandardCharsets.UTF_8)));
         when(this.mockFileBasedDataAccessor.getContents(CONFIGURATION_FILE_NAME)).thenReturn(serializedEncryptedConfiguration);
         when(this.mockEncryptedConfigurationSerializer.deserialize(serializedEncryptedConfiguration)).thenReturn(encryptedConfiguration);
         when(this.mockSymmetricKeyCipher.decrypt(encryptedConfiguration.getSerializedAndEncryptedWallet(), password,
                 encryptedConfiguration.getInitialVector())).thenReturn(serializedWallet);
         when(this.mockWalletSerializer.deserialize(serializedWallet)).thenReturn(expctedWallet);
 
-
         final Wallet wallet = this.appConfigurationManager.load(password);
         assertSame(expctedWallet, wallet);
 
@@ -149,6 +934,24 @@ public class AppConfigurationManagerUnitTest {
     public void testLoad_WithIOException() throws IOException {
         final String password = Make.aString();
 
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenThrow(IOException.class);
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(password));
+        assertEquals("Error reading the configuration file!", configurationManagerException.getMessage());
+        assertTrue(configurationManagerException.getCause() instanceof IOException);
+
+        verify(this.mockFileBasedDataAccessor).openInputStream(CONFIGURATION_FILE_NAME);
+        verifyNoInteractions(this.mockEncryptedConfigurationSerializer);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testLoad_WithLegacyConfigurationAndIOException() throws IOException {
+        final String password = Make.aString();
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(new ByteArrayInputStream(new byte[0]));
         when(this.mockFileBasedDataAccessor.getContents(CONFIGURATION_FILE_NAME)).thenThrow(IOException.class);
 
         final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
@@ -161,4 +964,390 @@ public class AppConfigurationManagerUnitTest {
         verifyNoInteractions(this.mockSymmetricKeyCipher);
         verifyNoInteractions(this.mockWalletSerializer);
     }
+
+    @Test
+    public void testAddWalletCard() throws IOException {
+        final Card card = Make.aCard();
+        final String password = Make.aString();
+        final Key fileKey = aFileKey();
+        final KeyDerivationParameters keyDerivationParameters = aKeyDerivationParameters();
+
+        final byte[] encryptedJournalEntry = Make.aByteArray();
+        final ByteArrayOutputStream journalOutputStream = new ByteArrayOutputStream();
+        final OutputStream plainTextOutputStream = new ByteArrayOutputStream();
+
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(1).accept(journalOutputStream);
+            return null;
+        }).when(this.mockFileBasedDataAccessor).append(eq(JOURNAL_FILE_NAME), any(IOConsumer.class));
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Arrays.asList(CONFIGURATION_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(new ByteArrayInputStream(aStreamedConfigurationHeader(keyDerivationParameters)));
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(keyDerivationParameters);
+        when(this.mockPasswordKeyDeriver.derive(password, keyDerivationParameters, this.fileSalt)).thenReturn(fileKey);
+        this.stubEncryptWithFileKey(fileKey);
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(3).accept(plainTextOutputStream);
+            invocation.<OutputStream>getArgument(0).write(encryptedJournalEntry);
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), eq(0), eq(this.keyStoreKey), any(IOConsumer.class));
+
+        this.appConfigurationManager.addWalletCard(card, password);
+
+        final ByteArrayOutputStream expectedJournalEntryOutputStream = new ByteArrayOutputStream();
+        expectedJournalEntryOutputStream.write(aStreamedConfigurationHeader(keyDerivationParameters));
+        expectedJournalEntryOutputStream.write(encryptedJournalEntry);
+        // The journal entry is stamped with the file salt of the saved wallet
+        assertArrayEquals(aJournalEntryFrame(this.fileSalt, expectedJournalEntryOutputStream.toByteArray()),
+                journalOutputStream.toByteArray());
+
+        final WalletJournalEntry expectedWalletJournalEntry = WalletJournalEntry.builder()
+                .removedCards(Collections.emptySet())
+                .addedCards(Collections.singleton(card))
+                .build();
+        verify(this.mockWalletJournalEntrySerializer).serializeTo(expectedWalletJournalEntry, plainTextOutputStream);
+        verify(this.mockFileBasedDataAccessor, never()).write(any(), any(IOConsumer.class));
+        verifyNoInteractions(this.mockWriteBehindExecutorService);
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testUpdateWalletCard() throws IOException {
+        final Card card = Make.aCard();
+        final Card updatedCard = Make.aCard();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+
+        this.appConfigurationManager.updateWalletCard(card, updatedCard, Make.aString());
+
+        final WalletJournalEntry expectedWalletJournalEntry = WalletJournalEntry.builder()
+                .removedCards(Collections.singleton(card))
+                .addedCards(Collections.singleton(updatedCard))
+                .build();
+        final ArgumentCaptor<IOConsumer<OutputStream>> plainTextWriterCaptor = ArgumentCaptor.forClass(IOConsumer.class);
+        verify(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), eq(0), eq(this.keyStoreKey), plainTextWriterCaptor.capture());
+
+        final OutputStream plainTextOutputStream = new ByteArrayOutputStream();
+        plainTextWriterCaptor.getValue().accept(plainTextOutputStream);
+        verify(this.mockWalletJournalEntrySerializer).serializeTo(expectedWalletJournalEntry, plainTextOutputStream);
+        verify(this.mockFileBasedDataAccessor).append(eq(JOURNAL_FILE_NAME), any(IOConsumer.class));
+    }
+
+    @Test
+    public void testRemoveWalletCard_WithIOException() throws IOException {
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        doThrow(IOException.class).when(this.mockFileBasedDataAccessor).append(eq(JOURNAL_FILE_NAME), any(IOConsumer.class));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.removeWalletCard(Make.aCard(), Make.aString()));
+        assertEquals("Error appending to the wallet journal!", configurationManagerException.getMessage());
+        assertTrue(configurationManagerException.getCause() instanceof IOException);
+
+        verifyNoInteractions(this.mockWriteBehindExecutorService);
+    }
+
+    @Test
+    public void testAddWalletCard_WithJournalPastCompactionThreshold() throws IOException {
+        final String password = Make.aString();
+        final Wallet wallet = Make.aWallet();
+        final Card card = Make.aCard();
+
+        this.stubLoad(password, wallet);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.load(password);
+        when(this.mockFileBasedDataAccessor.length(JOURNAL_FILE_NAME)).thenReturn(WalletJournal.COMPACTION_THRESHOLD_BYTES);
+        this.appConfigurationManager.addWalletCard(card, password);
+
+        // The cached wallet with the journaled edit is saved behind, without replaying the journal
+        final ArgumentCaptor<Runnable> compactionCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.mockWriteBehindExecutorService).schedule(compactionCaptor.capture(), anyLong(), any(TimeUnit.class));
+        verify(this.mockFileBasedDataAccessor, never()).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+
+        compactionCaptor.getValue().run();
+
+        final Set<Card> expectedCards = new HashSet<>(wallet.getCards());
+        expectedCards.add(card);
+        final ArgumentCaptor<Wallet> walletCaptor = ArgumentCaptor.forClass(Wallet.class);
+        verify(this.mockWalletSerializer).serializeTo(walletCaptor.capture(), any(OutputStream.class));
+        assertEquals(expectedCards, walletCaptor.getValue().getCards());
+        verify(this.mockFileBasedDataAccessor).write(eq(CONFIGURATION_FILE_NAME), any(IOConsumer.class));
+        verify(this.mockFileBasedDataAccessor).delete(JOURNAL_FILE_NAME);
+        verify(this.mockFileBasedDataAccessor, never()).readBytes(JOURNAL_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithJournalPastCompactionThreshold() throws IOException {
+        final String password = Make.aString();
+        final Wallet wallet = Make.aWallet();
+
+        this.stubLoad(password, wallet);
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockPasswordKeyDeriver.getKeyDerivationParameters()).thenReturn(aKeyDerivationParameters());
+        when(this.mockFileBasedDataAccessor.length(JOURNAL_FILE_NAME)).thenReturn(WalletJournal.COMPACTION_THRESHOLD_BYTES);
+        when(this.mockFileBasedDataAccessor.listFiles(JOURNAL_FILE_NAME)).thenReturn(Arrays.asList(JOURNAL_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.readBytes(JOURNAL_FILE_NAME)).thenReturn(ByteBuffer.allocate(0));
+        this.stubWrite(CONFIGURATION_FILE_NAME, new ByteArrayOutputStream());
+        this.stubEncryptWithPlainText();
+
+        this.appConfigurationManager.load(password);
+
+        // The replayed wallet is saved behind, which deletes the journal
+        final ArgumentCaptor<Runnable> compactionCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.mockWriteBehindExecutorService).schedule(compactionCaptor.capture(), anyLong(), any(TimeUnit.class));
+        compactionCaptor.getValue().run();
+
+        verify(this.mockWalletSerializer).serializeTo(eq(wallet), any(OutputStream.class));
+        verify(this.mockFileBasedDataAccessor).delete(JOURNAL_FILE_NAME);
+    }
+
+    @Test
+    public void testLoad_WithJournal() throws IOException {
+        final String password = Make.aString();
+        final Card removedCard = Make.aCard();
+        final Card keptCard = Make.aCard();
+        final Card addedCard = Make.aCard();
+        final Card updatedCard = Make.aCard();
+        final Wallet savedWallet = Wallet.builder()
+                .cards(new HashSet<>(Arrays.asList(removedCard, keptCard)))
+                .build();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        // The saved wallet has no file salt, so its journal entries are stamped with no snapshot id
+        final byte[] snapshotId = new byte[0];
+        final byte[] corruptedJournalEntryFrame = aJournalEntryFrame(snapshotId, aJournalEntry());
+        corruptedJournalEntryFrame[corruptedJournalEntryFrame.length - 1] ^= 1;
+        final byte[] tornJournalEntryFrame = Arrays.copyOf(aJournalEntryFrame(snapshotId, aJournalEntry()),
+                JOURNAL_ENTRY_MAGIC.length + 12);
+
+        final ByteArrayOutputStream journalOutputStream = new ByteArrayOutputStream();
+        journalOutputStream.write(aJournalEntryFrame(Make.aByteArray(), aJournalEntry()));
+        journalOutputStream.write(aJournalEntryFrame(snapshotId, aJournalEntry()));
+        journalOutputStream.write(corruptedJournalEntryFrame);
+        journalOutputStream.write(aJournalEntryFrame(snapshotId, aJournalEntry()));
+        journalOutputStream.write(aJournalEntryFrame(snapshotId, aJournalEntry()));
+        journalOutputStream.write(tornJournalEntryFrame);
+
+        when(this.mockFileBasedDataAccessor.listFiles(JOURNAL_FILE_NAME)).thenReturn(Arrays.asList(JOURNAL_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.readBytes(JOURNAL_FILE_NAME)).thenReturn(ByteBuffer.wrap(journalOutputStream.toByteArray()));
+        when(this.mockSymmetricKeyCipher.decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(
+                aWalletJournalEntry(Collections.singleton(removedCard), Collections.emptySet()),
+                aWalletJournalEntry(Collections.emptySet(), Collections.singleton(addedCard)),
+                aWalletJournalEntry(Collections.singleton(addedCard), Collections.singleton(updatedCard)));
+        when(this.mockFileBasedDataAccessor.listFiles(CONFIGURATION_FILE_NAME)).thenReturn(Arrays.asList(CONFIGURATION_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenReturn(configurationInputStream, new ByteArrayInputStream(STREAMED_CONFIGURATION_HEADER));
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(savedWallet);
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertEquals(new HashSet<>(Arrays.asList(keptCard, updatedCard)), wallet.getCards());
+
+        // The saved wallet and the three valid journal entries, not the one of a previous wallet
+        verify(this.mockSymmetricKeyCipher, times(4)).decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0),
+                eq(password), any(IOFunction.class));
+    }
+
+    @Test
+    public void testLoad_WithJournalWithoutConfiguration() throws IOException {
+        final String password = Make.aString();
+        final Card addedCard = Make.aCard();
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenThrow(FileNotFoundException.class);
+        when(this.mockFileBasedDataAccessor.listFiles(JOURNAL_FILE_NAME)).thenReturn(Arrays.asList(JOURNAL_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.readBytes(JOURNAL_FILE_NAME))
+                .thenReturn(ByteBuffer.wrap(aJournalEntryFrame(new byte[0], aJournalEntry())));
+        when(this.mockSymmetricKeyCipher.decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(aWalletJournalEntry(Collections.emptySet(), Collections.singleton(addedCard)));
+
+        final Wallet wallet = this.appConfigurationManager.load(password);
+        assertEquals(Collections.singleton(addedCard), wallet.getCards());
+
+        // Only the journal entry is decrypted
+        verify(this.mockSymmetricKeyCipher).decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class));
+        verifyNoInteractions(this.mockWalletSerializer);
+    }
+
+    @Test
+    public void testLoad_WithJournalAndIOException() throws IOException {
+        final String password = Make.aString();
+
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        configurationOutputStream.write(Make.aByteArray());
+        final InputStream configurationInputStream = new ByteArrayInputStream(configurationOutputStream.toByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME)).thenReturn(configurationInputStream);
+        when(this.mockSymmetricKeyCipher.decrypt(eq(configurationInputStream), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(Make.aWallet());
+        when(this.mockFileBasedDataAccessor.listFiles(JOURNAL_FILE_NAME)).thenReturn(Arrays.asList(JOURNAL_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.readBytes(JOURNAL_FILE_NAME)).thenThrow(IOException.class);
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.appConfigurationManager.load(password));
+        assertEquals("Error reading the wallet journal!", configurationManagerException.getMessage());
+        assertTrue(configurationManagerException.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testCompactJournal_WithoutJournal() {
+        this.appConfigurationManager.compactJournal(Make.aString());
+
+        verify(this.mockFileBasedDataAccessor).listFiles(JOURNAL_FILE_NAME);
+        verifyNoInteractions(this.mockSymmetricKeyCipher);
+        verify(this.mockFileBasedDataAccessor, never()).delete(any());
+    }
+
+    private static KeyDerivationParameters aKeyDerivationParameters() {
+        return KeyDerivationParameters.builder()
+                .salt(Make.aByteArray())
+                .iterationCount(Make.anInt(1, Integer.MAX_VALUE))
+                .build();
+    }
+
+    private static Key aFileKey() {
+        return new SecretKeySpec(Make.aByteArray(), "AES");
+    }
+
+    private byte[] aStreamedConfigurationHeader(final KeyDerivationParameters keyDerivationParameters) throws IOException {
+        return aStreamedConfigurationHeader(0, keyDerivationParameters);
+    }
+
+    private byte[] aStreamedConfigurationHeader(final int keyVersion, final KeyDerivationParameters keyDerivationParameters)
+            throws IOException {
+        return aStreamedConfigurationHeader(keyVersion, keyDerivationParameters, CompressionCodec.NONE.getId());
+    }
+
+    private byte[] aStreamedConfigurationHeader(final int keyVersion, final KeyDerivationParameters keyDerivationParameters,
+                                                final int compressionCodecId) throws IOException {
+        final ByteArrayOutputStream headerOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(headerOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'W', 'L', 6, 2});
+        dataOutputStream.writeInt(keyVersion);
+        dataOutputStream.writeInt(keyDerivationParameters.getIterationCount());
+        dataOutputStream.write(keyDerivationParameters.getSalt().length);
+        dataOutputStream.write(keyDerivationParameters.getSalt());
+        dataOutputStream.write(this.fileSalt.length);
+        dataOutputStream.write(this.fileSalt);
+        dataOutputStream.write(compressionCodecId);
+        return headerOutputStream.toByteArray();
+    }
+
+    private static byte[] aRepeatedSerializedWallet() {
+        final StringBuilder serializedWallet = new StringBuilder("{\"cards\":[");
+        for (int i = 0; i < 50; i++) {
+            serializedWallet.append("{\"cardIssuer\":\"").append(Make.aString()).append("\",\"nameOnCard\":\"")
+                    .append(Make.aString()).append("\"},");
+        }
+
+        return serializedWallet.append("{}]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(final byte[] data) throws IOException {
+        final ByteArrayOutputStream compressedOutputStream = new ByteArrayOutputStream();
+        try (final DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressedOutputStream)) {
+            deflaterOutputStream.write(data);
+        }
+
+        return compressedOutputStream.toByteArray();
+    }
+
+    private static byte[] inflate(final byte[] compressedData) throws IOException {
+        final ByteArrayOutputStream decompressedOutputStream = new ByteArrayOutputStream();
+        try (final InflaterOutputStream inflaterOutputStream = new InflaterOutputStream(decompressedOutputStream)) {
+            inflaterOutputStream.write(compressedData);
+        }
+
+        return decompressedOutputStream.toByteArray();
+    }
+
+    private static byte[] aJournalEntry() throws IOException {
+        final ByteArrayOutputStream journalEntryOutputStream = new ByteArrayOutputStream();
+        journalEntryOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        journalEntryOutputStream.write(Make.aByteArray());
+        return journalEntryOutputStream.toByteArray();
+    }
+
+    private static byte[] aJournalEntryFrame(final byte[] snapshotId, final byte[] journalEntry) throws IOException {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(snapshotId);
+        crc32.update(journalEntry);
+
+        final ByteArrayOutputStream frameOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(frameOutputStream);
+        dataOutputStream.write(JOURNAL_ENTRY_MAGIC);
+        dataOutputStream.write(snapshotId.length);
+        dataOutputStream.write(snapshotId);
+        dataOutputStream.writeInt(journalEntry.length);
+        dataOutputStream.writeInt((int) crc32.getValue());
+        dataOutputStream.write(journalEntry);
+        return frameOutputStream.toByteArray();
+    }
+
+    private static WalletJournalEntry aWalletJournalEntry(final Set<Card> removedCards, final Set<Card> addedCards) {
+        return WalletJournalEntry.builder()
+                .removedCards(removedCards)
+                .addedCards(addedCards)
+                .build();
+    }
+
+    private AppConfigurationManager anAppConfigurationManager(final CompressionCodec walletCompressionCodec) {
+        return new AppConfigurationManager(this.mockWalletSerializer, this.mockSymmetricKeyCipher, this.mockPasswordKeyDeriver,
+                this.mockEncryptedConfigurationSerializer, this.mockFileBasedDataAccessor,
+                this.mockWalletJournalEntrySerializer, this.walletJournal, this.mockWriteBehindExecutorService,
+                this.mockWalletCacheExecutorService, walletCompressionCodec);
+    }
+
+    private void stubLoad(final String password, final Wallet wallet) throws IOException {
+        final ByteArrayOutputStream configurationOutputStream = new ByteArrayOutputStream();
+        configurationOutputStream.write(STREAMED_CONFIGURATION_HEADER);
+        configurationOutputStream.write(Make.aByteArray());
+
+        when(this.mockFileBasedDataAccessor.openInputStream(CONFIGURATION_FILE_NAME))
+                .thenAnswer(invocation -> new ByteArrayInputStream(configurationOutputStream.toByteArray()));
+        when(this.mockSymmetricKeyCipher.decrypt(any(InputStream.class), eq(SymmetricCipherProfile.AES_GCM), eq(0), eq(password),
+                any(IOFunction.class))).thenReturn(wallet);
+    }
+
+    private void stubEncryptWithPlainText() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(3).accept(new ByteArrayOutputStream());
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), anyInt(), any(Key.class), any(IOConsumer.class));
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(2).accept(invocation.getArgument(0));
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), any(), any(IOConsumer.class));
+    }
+
+    private void stubEncryptWithFileKey(final Key fileKey) throws IOException {
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(2).accept(invocation.getArgument(0));
+            return null;
+        }).when(this.mockSymmetricKeyCipher).encrypt(any(OutputStream.class), eq(fileKey), any(IOConsumer.class));
+    }
+
+    private void stubDecryptWithFileKey(final Key fileKey) throws IOException {
+        when(this.mockSymmetricKeyCipher.decrypt(any(InputStream.class), any(SymmetricCipherProfile.class), eq(fileKey), any(IOFunction.class)))
+                .thenAnswer(invocation -> invocation.<IOFunction<InputStream, Object>>getArgument(3).apply(invocation.getArgument(0)));
+    }
+
+    private void stubWrite(final String fileName, final OutputStream fileOutputStream) throws IOException {
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(1).accept(fileOutputStream);
+            return null;
+        }).when(this.mockFileBasedDataAccessor).write(eq(fileName), any(IOConsumer.class));
+    }
 }
@@ -0,0 +1,98 @@
+package com.ak.cardstore.configuration;
+
+import com.ak.cardstore.Make;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+/**
+ * @author Abhishek
+ */
+
+public class CompressionCodecUnitTest {
+
+    @ParameterizedTest
+    @MethodSource("testArgumentsProvider")
+    public void testCompressionCodec(final CompressionCodec compressionCodec, final int expectedId) {
+        Assertions.assertEquals(expectedId, compressionCodec.getId());
+        Assertions.assertEquals(Optional.of(compressionCodec), CompressionCodec.fromId(expectedId));
+    }
+
+    @Test
+    public void testFromId_WithUnknownId() {
+        Assertions.assertEquals(Optional.empty(), CompressionCodec.fromId(42));
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionCodec.class)
+    public void testCompressAndDecompress(final CompressionCodec compressionCodec) throws IOException {
+        final byte[] data = Make.aByteArray();
+
+        final ByteArrayOutputStream compressedOutputStream = new ByteArrayOutputStream();
+        compressionCodec.compress(compressedOutputStream, uncompressedOutputStream -> uncompressedOutputStream.write(data));
+        compressedOutputStream.write(Make.aByteArray());
+
+        final byte[] decompressedData = compressionCodec.decompress(new ByteArrayInputStream(compressedOutputStream.toByteArray()),
+                uncompressedInputStream -> readFully(uncompressedInputStream, data.length));
+        Assertions.assertArrayEquals(data, decompressedData);
+    }
+
+    @Test
+    public void testCompress_WithRepeatedData() throws IOException {
+        final StringBuilder serializedCards = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            serializedCards.append("{\"cardIssuer\":\"").append(Make.aString()).append("\",\"nameOnCard\":\"").append(Make.aString())
+                    .append("\",\"expiryDate\":{\"month\":\"MARCH\",\"year\":2030}}");
+        }
+        final byte[] data = serializedCards.toString().getBytes(StandardCharsets.UTF_8);
+
+        final ByteArrayOutputStream compressedOutputStream = new ByteArrayOutputStream();
+        CompressionCodec.DEFLATE.compress(compressedOutputStream, uncompressedOutputStream -> uncompressedOutputStream.write(data));
+
+        Assertions.assertTrue(compressedOutputStream.size() < data.length);
+    }
+
+    @Test
+    public void testDecompress_WithCorruptedData() {
+        final byte[] corruptedData = {'C', 'S', 'W', 'L'};
+
+        Assertions.assertThrows(ZipException.class, () -> CompressionCodec.DEFLATE.decompress(new ByteArrayInputStream(corruptedData),
+                uncompressedInputStream -> uncompressedInputStream.read()));
+    }
+
+    private static byte[] readFully(final InputStream inputStream, final int length) throws IOException {
+        final byte[] data = new byte[length];
+
+        int dataLength = 0;
+        while (dataLength < length) {
+            final int read = inputStream.read(data, dataLength, length - dataLength);
+            if (read == -1) {
+                break;
+            }
+
+            dataLength += read;
+        }
+
+        return data;
+    }
+
+    private static Stream<Arguments> testArgumentsProvider() {
+        return Stream.of(
+                Arguments.arguments(CompressionCodec.NONE, 0),
+                Arguments.arguments(CompressionCodec.DEFLATE, 1)
+        );
+    }
+}
@@ -0,0 +1,181 @@
+package com.ak.cardstore.configuration;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager;
+import com.ak.cardstore.exception.ConfigurationManagerException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class KeyRotationServiceUnitTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private AppConfigurationManager mockAppConfigurationManager;
+    private SymmetricKeyCipher mockSymmetricKeyCipher;
+    private SymmetricKeyVersionManager mockSymmetricKeyVersionManager;
+    private ScheduledExecutorService scheduledExecutorService;
+    private KeyRotationService keyRotationService;
+
+    @Before
+    public void setup() {
+        this.mockAppConfigurationManager = mock(AppConfigurationManager.class);
+        this.mockSymmetricKeyCipher = mock(SymmetricKeyCipher.class);
+        this.mockSymmetricKeyVersionManager = mock(SymmetricKeyVersionManager.class);
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+        this.keyRotationService = new KeyRotationService(this.mockAppConfigurationManager, this.mockSymmetricKeyCipher,
+                this.mockSymmetricKeyVersionManager, this.scheduledExecutorService);
+    }
+
+    @After
+    public void tearDown() {
+        this.scheduledExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void testRotate() throws Exception {
+        final String password = Make.aString();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyCipher.getKeyVersion()).thenReturn(2);
+        when(this.mockSymmetricKeyVersionManager.getOldestKeyVersion(SymmetricCipherProfile.AES_GCM)).thenReturn(0);
+        when(this.mockAppConfigurationManager.reencryptWallet(password)).thenReturn(true);
+        when(this.mockAppConfigurationManager.isWalletEncryptedWithCurrentKey()).thenReturn(true);
+
+        final CompletableFuture<Integer> reencryption = this.keyRotationService.rotate(password);
+        assertEquals(1, reencryption.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+
+        verify(this.mockSymmetricKeyVersionManager).rotate(SymmetricCipherProfile.AES_GCM);
+        // The password is only needed to re-encrypt the wallet once, the previous keys are deleted without it
+        verify(this.mockAppConfigurationManager).reencryptWallet(password);
+        verify(this.mockAppConfigurationManager).isWalletEncryptedWithCurrentKey();
+
+        // The keys of the previous versions are deleted once every file is re-encrypted
+        verify(this.mockSymmetricKeyCipher).deleteKey(0);
+        verify(this.mockSymmetricKeyCipher).deleteKey(1);
+        verify(this.mockSymmetricKeyCipher, never()).deleteKey(2);
+        verify(this.mockSymmetricKeyVersionManager).setOldestKeyVersion(SymmetricCipherProfile.AES_GCM, 2);
+    }
+
+    @Test
+    public void testRotate_WithWalletSavedWithPreviousKey() throws Exception {
+        final String password = Make.aString();
+
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyCipher.getKeyVersion()).thenReturn(2);
+        when(this.mockAppConfigurationManager.reencryptWallet(password)).thenReturn(true);
+        when(this.mockAppConfigurationManager.isWalletEncryptedWithCurrentKey()).thenReturn(false);
+
+        final CompletableFuture<Integer> reencryption = this.keyRotationService.rotate(password);
+        assertEquals(1, reencryption.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+
+        // The previous keys are kept, so the re-encryption stays pending for the next unlock
+        verify(this.mockAppConfigurationManager).reencryptWallet(password);
+        verify(this.mockSymmetricKeyCipher, never()).deleteKey(anyInt());
+        verify(this.mockSymmetricKeyVersionManager, never()).setOldestKeyVersion(any(), anyInt());
+    }
+
+    @Test
+    public void testIsReencryptionPending() {
+        when(this.mockSymmetricKeyCipher.getSymmetricCipherProfile()).thenReturn(SymmetricCipherProfile.AES_GCM);
+        when(this.mockSymmetricKeyVersionManager.getCurrentKeyVersion(SymmetricCipherProfile.AES_GCM)).thenReturn(2);
+        when(this.mockSymmetricKeyVersionManager.getOldestKeyVersion(SymmetricCipherProfile.AES_GCM)).thenReturn(1, 2);
+
+        assertTrue(this.keyRotationService.isReencryptionPending());
+        assertFalse(this.keyRotationService.isReencryptionPending());
+    }
+
+    @Test
+    public void testResume_WithRunningReencryption() throws Exception {
+        final String password = Make.aString();
+        final CountDownLatch walletReencryptionLatch = new CountDownLatch(1);
+
+        when(this.mockAppConfigurationManager.reencryptWallet(password)).thenAnswer(invocation -> {
+            walletReencryptionLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return false;
+        });
+
+        final CompletableFuture<Integer> reencryption = this.keyRotationService.resume(password);
+        final CompletableFuture<Integer> otherReencryption = this.keyRotationService.resume(password);
+        assertSame(reencryption, otherReencryption);
+
+        walletReencryptionLatch.countDown();
+        assertEquals(0, reencryption.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue());
+
+        verify(this.mockAppConfigurationManager).reencryptWallet(password);
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final String password = Make.aString();
+        final CountDownLatch walletReencryptionLatch = new CountDownLatch(1);
+
+        when(this.mockAppConfigurationManager.reencryptWallet(password)).thenAnswer(invocation -> {
+            walletReencryptionLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        });
+
+        final CompletableFuture<Integer> reencryption = this.keyRotationService.resume(password);
+        this.keyRotationService.stop();
+        walletReencryptionLatch.countDown();
+
+        assertTrue(reencryption.isCancelled());
+
+        this.scheduledExecutorService.shutdown();
+        assertTrue(this.scheduledExecutorService.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        verify(this.mockAppConfigurationManager).reencryptWallet(password);
+        verify(this.mockSymmetricKeyCipher, never()).deleteKey(anyInt());
+    }
+
+    @Test
+    public void testResume_WithReencryptionError() {
+        final String password = Make.aString();
+
+        when(this.mockAppConfigurationManager.reencryptWallet(password))
+                .thenThrow(new ConfigurationManagerException(Make.aString(), null));
+
+        final CompletableFuture<Integer> reencryption = this.keyRotationService.resume(password);
+
+        final ExecutionException executionException = assertThrows(ExecutionException.class,
+                () -> reencryption.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(executionException.getCause() instanceof ConfigurationManagerException);
+
+        verify(this.mockSymmetricKeyCipher, never()).deleteKey(anyInt());
+        verify(this.mockSymmetricKeyVersionManager, never()).setOldestKeyVersion(any(), anyInt());
+    }
+}
@@ -1,20 +1,25 @@
 package com.ak.cardstore.configuration;
 
 import com.ak.cardstore.Make;
-import com.ak.cardstore.cipher.asymmetric.AsymmetricKeyPairCipher;
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+import com.ak.cardstore.dao.KeyValueDataAccessor;
 import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.serialization.Serializer;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,61 +36,113 @@ public class UserConfigurationManagerUnitTest {
     private Serializer<User> mockUserSerializer;
 
     @Mock
-    private AsymmetricKeyPairCipher mockAsymmetricKeyPairCipher;
+    private EnvelopeCipher mockEnvelopeCipher;
+
+    @Mock
+    private Serializer<EncryptedEnvelope> mockEncryptedEnvelopeSerializer;
+
+    @Mock
+    private KeyValueDataAccessor mockKeyValueDataAccessor;
 
     @Mock
     private SharedPreferencesDataAccessor mockSharedPreferencesDataAccessor;
 
-    @InjectMocks
     private UserConfigurationManager userConfigurationManager;
 
+    @BeforeEach
+    public void setup() {
+        this.userConfigurationManager = new UserConfigurationManager(this.mockUserSerializer, this.mockEnvelopeCipher,
+                this.mockEncryptedEnvelopeSerializer, this.mockKeyValueDataAccessor, this.mockSharedPreferencesDataAccessor);
+    }
+
     @Test
     public void testSave() {
         final User user = Make.aValidUser();
 
-        final String serializedUser = Make.aString();
-        final String encryptedSerializedUser = Make.aString();
+        final byte[] serializedUser = Make.aByteArray();
+        final EncryptedEnvelope encryptedEnvelope = Make.anEncryptedEnvelope();
+        final String serializedEncryptedEnvelope = Make.aString();
 
-        when(this.mockUserSerializer.serialize(user)).thenReturn(serializedUser);
-        when(this.mockAsymmetricKeyPairCipher.encrypt(serializedUser)).thenReturn(encryptedSerializedUser);
-        doNothing().when(this.mockSharedPreferencesDataAccessor).save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, encryptedSerializedUser);
+        when(this.mockUserSerializer.serializeToByteArray(user)).thenReturn(serializedUser);
+        when(this.mockEnvelopeCipher.encrypt(serializedUser)).thenReturn(encryptedEnvelope);
+        when(this.mockEncryptedEnvelopeSerializer.serialize(encryptedEnvelope)).thenReturn(serializedEncryptedEnvelope);
+        doNothing().when(this.mockKeyValueDataAccessor).save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, serializedEncryptedEnvelope);
 
         this.userConfigurationManager.save(user);
 
-        verify(this.mockUserSerializer).serialize(user);
-        verify(this.mockAsymmetricKeyPairCipher).encrypt(serializedUser);
-        verify(this.mockSharedPreferencesDataAccessor).save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, encryptedSerializedUser);
+        verify(this.mockUserSerializer).serializeToByteArray(user);
+        verify(this.mockEnvelopeCipher).encrypt(serializedUser);
+        verify(this.mockEncryptedEnvelopeSerializer).serialize(encryptedEnvelope);
+        verify(this.mockKeyValueDataAccessor).save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, serializedEncryptedEnvelope);
     }
 
     @Test
     public void testLoad() {
         final User expectedUser = Make.aValidUser();
 
-        final String serializedUser = Make.aString();
-        final String encryptedSerializedUser = Make.aString();
+        final byte[] serializedUser = Make.aByteArray();
+        final EncryptedEnvelope encryptedEnvelope = Make.anEncryptedEnvelope();
+        final String serializedEncryptedEnvelope = Make.aString();
 
-        when(this.mockSharedPreferencesDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(encryptedSerializedUser);
-        when(this.mockAsymmetricKeyPairCipher.decrypt(encryptedSerializedUser)).thenReturn(serializedUser);
-        when(this.mockUserSerializer.deserialize(serializedUser)).thenReturn(expectedUser);
+        when(this.mockKeyValueDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(serializedEncryptedEnvelope);
+        when(this.mockEncryptedEnvelopeSerializer.deserialize(serializedEncryptedEnvelope)).thenReturn(encryptedEnvelope);
+        when(this.mockEnvelopeCipher.decryptToByteArray(encryptedEnvelope)).thenReturn(serializedUser);
+        when(this.mockUserSerializer.deserializeFromByteArray(serializedUser)).thenReturn(expectedUser);
+
+        final User user = this.userConfigurationManager.load();
+        Assertions.assertSame(expectedUser, user);
+
+        verify(this.mockKeyValueDataAccessor).get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
+        verify(this.mockEncryptedEnvelopeSerializer).deserialize(serializedEncryptedEnvelope);
+        verify(this.mockEnvelopeCipher).decryptToByteArray(encryptedEnvelope);
+        verify(this.mockUserSerializer).deserializeFromByteArray(serializedUser);
+        verifyNoInteractions(this.mockSharedPreferencesDataAccessor);
+    }
+
+    @Test
+    public void testLoad_WithLegacyUserConfiguration() {
+        final User expectedUser = Make.aValidUser();
+
+        final byte[] serializedUser = Make.aByteArray();
+        final EncryptedEnvelope encryptedEnvelope = Make.anEncryptedEnvelope();
+        final String serializedEncryptedEnvelope = Make.aString();
+
+        when(this.mockKeyValueDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(null);
+        when(this.mockSharedPreferencesDataAccessor.get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(serializedEncryptedEnvelope);
+        when(this.mockEncryptedEnvelopeSerializer.deserialize(serializedEncryptedEnvelope)).thenReturn(encryptedEnvelope);
+        when(this.mockEnvelopeCipher.decryptToByteArray(encryptedEnvelope)).thenReturn(serializedUser);
+        when(this.mockUserSerializer.deserializeFromByteArray(serializedUser)).thenReturn(expectedUser);
 
         final User user = this.userConfigurationManager.load();
         Assertions.assertSame(expectedUser, user);
 
         verify(this.mockSharedPreferencesDataAccessor).get(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
-        verify(this.mockAsymmetricKeyPairCipher).decrypt(encryptedSerializedUser);
-        verify(this.mockUserSerializer).deserialize(serializedUser);
+        final InOrder inOrder = inOrder(this.mockKeyValueDataAccessor, this.mockSharedPreferencesDataAccessor);
+        inOrder.verify(this.mockKeyValueDataAccessor).save(CONFIGURATION_FILE_NAME, PREFERENCES_KEY, serializedEncryptedEnvelope);
+        inOrder.verify(this.mockSharedPreferencesDataAccessor).remove(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
     }
 
     @Test
     public void testDoesUserConfigurationExist() {
         final boolean expectedDoesUserConfigurationExist = Make.aBoolean();
 
+        when(this.mockKeyValueDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(false);
         when(this.mockSharedPreferencesDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY))
                 .thenReturn(expectedDoesUserConfigurationExist);
 
         final boolean doesUserConfigurationExist = this.userConfigurationManager.doesUserConfigurationExist();
         Assertions.assertSame(expectedDoesUserConfigurationExist, doesUserConfigurationExist);
 
+        verify(this.mockKeyValueDataAccessor).doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
         verify(this.mockSharedPreferencesDataAccessor).doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY);
     }
+
+    @Test
+    public void testDoesUserConfigurationExist_WithKeyValueStore() {
+        when(this.mockKeyValueDataAccessor.doesPreferenceExist(CONFIGURATION_FILE_NAME, PREFERENCES_KEY)).thenReturn(true);
+
+        Assertions.assertTrue(this.userConfigurationManager.doesUserConfigurationExist());
+
+        verifyNoInteractions(this.mockSharedPreferencesDataAccessor);
+    }
 }
@@ -0,0 +1,206 @@
+package com.ak.cardstore.configuration;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.dao.FileBasedDataAccessor;
+import com.ak.cardstore.exception.ConfigurationManagerException;
+import com.ak.cardstore.pojo.Card;
+import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
+import com.ak.cardstore.util.IOConsumer;
+import com.ak.cardstore.util.IOFunction;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class WalletJournalUnitTest {
+
+    private static final byte[] SNAPSHOT_ID = Make.aByteArray();
+
+    private FileBasedDataAccessor mockFileBasedDataAccessor;
+    private WalletJournal walletJournal;
+
+    @Before
+    public void setup() {
+        this.mockFileBasedDataAccessor = mock(FileBasedDataAccessor.class);
+        this.walletJournal = new WalletJournal(this.mockFileBasedDataAccessor);
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        final Card card = Make.aCard();
+        final Wallet wallet = Make.aWallet();
+        final WalletJournalEntry walletJournalEntry = WalletJournalEntry.builder()
+                .addedCards(ImmutableSet.of(card))
+                .build();
+        final byte[] journalEntry = Make.aByteArray();
+
+        final ByteArrayOutputStream journalOutputStream = this.stubAppend();
+        this.walletJournal.append(SNAPSHOT_ID, journalEntryOutputStream -> journalEntryOutputStream.write(journalEntry));
+        this.walletJournal.append(SNAPSHOT_ID, journalEntryOutputStream -> journalEntryOutputStream.write(journalEntry));
+        this.stubJournal(journalOutputStream.toByteArray());
+
+        final IOFunction<InputStream, WalletJournalEntry> journalEntryReader = journalEntryInputStream -> {
+            assertArrayEquals(journalEntry, readAll(journalEntryInputStream));
+            return walletJournalEntry;
+        };
+        final Wallet replayedWallet = this.walletJournal.replay(wallet, SNAPSHOT_ID, journalEntryReader);
+
+        final Set<Card> expectedCards = new HashSet<>(wallet.getCards());
+        expectedCards.add(card);
+        assertEquals(expectedCards, replayedWallet.getCards());
+    }
+
+    @Test
+    public void testAppend_WithIOException() throws IOException {
+        doThrow(IOException.class).when(this.mockFileBasedDataAccessor).append(eq(WalletJournal.JOURNAL_FILE_NAME), any(IOConsumer.class));
+
+        final ConfigurationManagerException configurationManagerException = assertThrows(ConfigurationManagerException.class,
+                () -> this.walletJournal.append(SNAPSHOT_ID,
+                        journalEntryOutputStream -> journalEntryOutputStream.write(Make.aByteArray())));
+        assertTrue(configurationManagerException.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testReplay_WithCorruptedEntry() throws IOException {
+        final Card removedCard = Make.aCard();
+        final Card addedCard = Make.aCard();
+        final Wallet wallet = Wallet.builder()
+                .cards(ImmutableSet.of(removedCard))
+                .build();
+
+        final ByteArrayOutputStream journalOutputStream = this.stubAppend();
+        this.walletJournal.append(SNAPSHOT_ID, journalEntryOutputStream -> journalEntryOutputStream.write(0));
+        this.walletJournal.append(SNAPSHOT_ID, journalEntryOutputStream -> journalEntryOutputStream.write(1));
+        final byte[] journal = journalOutputStream.toByteArray();
+        // Corrupts the payload of the first entry
+        journal[journal.length / 2 - 1]++;
+        this.stubJournal(journal);
+
+        final Wallet replayedWallet = this.walletJournal.replay(wallet, SNAPSHOT_ID, journalEntryInputStream -> {
+            assertEquals(1, journalEntryInputStream.read());
+            return WalletJournalEntry.builder()
+                    .removedCards(ImmutableSet.of(removedCard))
+                    .addedCards(ImmutableSet.of(addedCard))
+                    .build();
+        });
+
+        assertEquals(Collections.singleton(addedCard), replayedWallet.getCards());
+    }
+
+    @Test
+    public void testReplay_WithEntryOfPreviousSnapshot() throws IOException {
+        final Card staleCard = Make.aCard();
+        final Card addedCard = Make.aCard();
+        final Wallet wallet = Make.aWallet();
+
+        final ByteArrayOutputStream journalOutputStream = this.stubAppend();
+        this.walletJournal.append(Make.aByteArray(), journalEntryOutputStream -> journalEntryOutputStream.write(0));
+        this.walletJournal.append(SNAPSHOT_ID, journalEntryOutputStream -> journalEntryOutputStream.write(1));
+        this.stubJournal(journalOutputStream.toByteArray());
+
+        final Wallet replayedWallet = this.walletJournal.replay(wallet, SNAPSHOT_ID, journalEntryInputStream -> {
+            final Card card = (journalEntryInputStream.read() == 0) ? staleCard : addedCard;
+            return WalletJournalEntry.builder()
+                    .addedCards(ImmutableSet.of(card))
+                    .build();
+        });
+
+        final Set<Card> expectedCards = new HashSet<>(wallet.getCards());
+        expectedCards.add(addedCard);
+        assertEquals(expectedCards, replayedWallet.getCards());
+    }
+
+    @Test
+    public void testAppend_WithTooLongSnapshotId() {
+        assertThrows(IllegalArgumentException.class, () -> this.walletJournal.append(new byte[256],
+                journalEntryOutputStream -> journalEntryOutputStream.write(Make.aByteArray())));
+    }
+
+    @Test
+    public void testReplay_WithoutJournal() throws IOException {
+        final Wallet wallet = Make.aWallet();
+        when(this.mockFileBasedDataAccessor.listFiles(WalletJournal.JOURNAL_FILE_NAME)).thenReturn(Collections.emptyList());
+
+        assertSame(wallet, this.walletJournal.replay(wallet, SNAPSHOT_ID, journalEntryInputStream -> {
+            throw new AssertionError();
+        }));
+        verify(this.mockFileBasedDataAccessor, never()).readBytes(WalletJournal.JOURNAL_FILE_NAME);
+    }
+
+    @Test
+    public void testIsCompactionDue() {
+        when(this.mockFileBasedDataAccessor.length(WalletJournal.JOURNAL_FILE_NAME))
+                .thenReturn(WalletJournal.COMPACTION_THRESHOLD_BYTES - 1, WalletJournal.COMPACTION_THRESHOLD_BYTES);
+
+        assertFalse(this.walletJournal.isCompactionDue());
+        assertTrue(this.walletJournal.isCompactionDue());
+    }
+
+    @Test
+    public void testDelete() {
+        this.walletJournal.delete();
+
+        verify(this.mockFileBasedDataAccessor).delete(WalletJournal.JOURNAL_FILE_NAME);
+    }
+
+    private ByteArrayOutputStream stubAppend() throws IOException {
+        final ByteArrayOutputStream journalOutputStream = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            invocation.<IOConsumer<OutputStream>>getArgument(1).accept(journalOutputStream);
+            return null;
+        }).when(this.mockFileBasedDataAccessor).append(eq(WalletJournal.JOURNAL_FILE_NAME), any(IOConsumer.class));
+        return journalOutputStream;
+    }
+
+    private void stubJournal(final byte[] journal) throws IOException {
+        when(this.mockFileBasedDataAccessor.listFiles(WalletJournal.JOURNAL_FILE_NAME))
+                .thenReturn(Arrays.asList(WalletJournal.JOURNAL_FILE_NAME));
+        when(this.mockFileBasedDataAccessor.readBytes(WalletJournal.JOURNAL_FILE_NAME)).thenReturn(ByteBuffer.wrap(journal));
+    }
+
+    private static byte[] readAll(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int read;
+        while ((read = inputStream.read()) != -1) {
+            outputStream.write(read);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.AsyncCipher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import dagger.Component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Abhishek
+ */
+
+public class AsyncCipherModuleUnitTest {
+
+    private static final TestComponent ASYNC_CIPHER_MODULE_TEST_COMPONENT = DaggerAsyncCipherModuleUnitTest_TestComponent.create();
+
+    @Test
+    public void testProvideAsyncCipher() {
+        final AsyncCipher asyncCipher = ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideAsyncCipher();
+        final AsyncCipher asyncCipherOther = ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideAsyncCipher();
+
+        assertNotNull(asyncCipher);
+        assertNotNull(asyncCipherOther);
+        assertEquals(asyncCipher, asyncCipherOther);
+    }
+
+    @Test
+    public void testProvideCryptoExecutorService() {
+        final ExecutorService cryptoExecutorService = ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideCryptoExecutorService();
+        final ExecutorService cryptoExecutorServiceOther = ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideCryptoExecutorService();
+
+        assertNotNull(cryptoExecutorService);
+        assertNotNull(cryptoExecutorServiceOther);
+        assertEquals(cryptoExecutorService, cryptoExecutorServiceOther);
+    }
+
+    @Test
+    public void testProvideCryptoExecutor() {
+        final Executor cryptoExecutor = ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideCryptoExecutor();
+
+        assertNotNull(cryptoExecutor);
+        assertSame(ASYNC_CIPHER_MODULE_TEST_COMPONENT.provideCryptoExecutorService(), cryptoExecutor);
+    }
+
+    @Singleton
+    @Component(modules = AsyncCipherModule.class)
+    public interface TestComponent {
+        AsyncCipher provideAsyncCipher();
+
+        @Named("cryptoExecutorService")
+        ExecutorService provideCryptoExecutorService();
+
+        @Named("cryptoExecutor")
+        Executor provideCryptoExecutor();
+    }
+}
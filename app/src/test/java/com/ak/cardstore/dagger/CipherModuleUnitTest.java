@@ -1,6 +1,9 @@
 package com.ak.cardstore.dagger;
 
+import com.ak.cardstore.cipher.BufferPool;
 import com.ak.cardstore.cipher.CipherOperator;
+import com.ak.cardstore.cipher.CipherPool;
+import com.ak.cardstore.cipher.CipherProviderStrategy;
 import com.ak.cardstore.cipher.CipherRetriever;
 import com.ak.cardstore.cipher.KeyStoreRetriever;
 
@@ -31,6 +34,36 @@ public class CipherModuleUnitTest {
         assertEquals(cipherRetriever, cipherRetrieverOther);
     }
 
+    @Test
+    public void testBufferPool() {
+        final BufferPool bufferPool = CIPHER_MODULE_TEST_COMPONENT.provideBufferPool();
+        final BufferPool bufferPoolOther = CIPHER_MODULE_TEST_COMPONENT.provideBufferPool();
+
+        assertNotNull(bufferPool);
+        assertNotNull(bufferPoolOther);
+        assertEquals(bufferPool, bufferPoolOther);
+    }
+
+    @Test
+    public void testCipherPool() {
+        final CipherPool cipherPool = CIPHER_MODULE_TEST_COMPONENT.provideCipherPool();
+        final CipherPool cipherPoolOther = CIPHER_MODULE_TEST_COMPONENT.provideCipherPool();
+
+        assertNotNull(cipherPool);
+        assertNotNull(cipherPoolOther);
+        assertEquals(cipherPool, cipherPoolOther);
+    }
+
+    @Test
+    public void testCipherProviderStrategy() {
+        final CipherProviderStrategy cipherProviderStrategy = CIPHER_MODULE_TEST_COMPONENT.provideCipherProviderStrategy();
+        final CipherProviderStrategy cipherProviderStrategyOther = CIPHER_MODULE_TEST_COMPONENT.provideCipherProviderStrategy();
+
+        assertNotNull(cipherProviderStrategy);
+        assertNotNull(cipherProviderStrategyOther);
+        assertEquals(cipherProviderStrategy, cipherProviderStrategyOther);
+    }
+
     @Test
     public void testCipherOperator() {
         final CipherOperator cipherOperator = CIPHER_MODULE_TEST_COMPONENT.provideCipherOperator();
@@ -56,6 +89,12 @@ public class CipherModuleUnitTest {
     public interface TestComponent {
         CipherRetriever provideCipherRetriever();
 
+        CipherPool provideCipherPool();
+
+        BufferPool provideBufferPool();
+
+        CipherProviderStrategy provideCipherProviderStrategy();
+
         CipherOperator provideCipherOperator();
 
         KeyStoreRetriever provideKeyStoreRetriever();
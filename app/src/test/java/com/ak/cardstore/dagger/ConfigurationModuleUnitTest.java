@@ -1,10 +1,15 @@
 package com.ak.cardstore.dagger;
 
 import com.ak.cardstore.configuration.AppConfigurationManager;
+import com.ak.cardstore.configuration.KeyRotationService;
 import com.ak.cardstore.configuration.UserConfigurationManager;
+import com.ak.cardstore.configuration.WalletJournal;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Component;
@@ -39,11 +44,77 @@ public class ConfigurationModuleUnitTest {
         assertEquals(appConfigurationManager, appConfigurationManagerOther);
     }
 
+    @Test
+    public void testProvideKeyRotationService() {
+        final KeyRotationService keyRotationService = CONFIGURATION_MODULE_TEST_COMPONENT.provideKeyRotationService();
+        final KeyRotationService keyRotationServiceOther = CONFIGURATION_MODULE_TEST_COMPONENT.provideKeyRotationService();
+
+        assertNotNull(keyRotationService);
+        assertNotNull(keyRotationServiceOther);
+        assertEquals(keyRotationService, keyRotationServiceOther);
+    }
+
+    @Test
+    public void testProvideKeyRotationExecutorService() {
+        final ScheduledExecutorService keyRotationExecutorService = CONFIGURATION_MODULE_TEST_COMPONENT.provideKeyRotationExecutorService();
+        final ScheduledExecutorService keyRotationExecutorServiceOther =
+                CONFIGURATION_MODULE_TEST_COMPONENT.provideKeyRotationExecutorService();
+
+        assertNotNull(keyRotationExecutorService);
+        assertNotNull(keyRotationExecutorServiceOther);
+        assertEquals(keyRotationExecutorService, keyRotationExecutorServiceOther);
+    }
+
+    @Test
+    public void testProvideWalletJournal() {
+        final WalletJournal walletJournal = CONFIGURATION_MODULE_TEST_COMPONENT.provideWalletJournal();
+        final WalletJournal walletJournalOther = CONFIGURATION_MODULE_TEST_COMPONENT.provideWalletJournal();
+
+        assertNotNull(walletJournal);
+        assertNotNull(walletJournalOther);
+        assertEquals(walletJournal, walletJournalOther);
+    }
+
+    @Test
+    public void testProvideWriteBehindExecutorService() {
+        final ScheduledExecutorService writeBehindExecutorService = CONFIGURATION_MODULE_TEST_COMPONENT.provideWriteBehindExecutorService();
+        final ScheduledExecutorService writeBehindExecutorServiceOther =
+                CONFIGURATION_MODULE_TEST_COMPONENT.provideWriteBehindExecutorService();
+
+        assertNotNull(writeBehindExecutorService);
+        assertNotNull(writeBehindExecutorServiceOther);
+        assertEquals(writeBehindExecutorService, writeBehindExecutorServiceOther);
+    }
+
+    @Test
+    public void testProvideWalletCacheExecutorService() {
+        final ScheduledExecutorService walletCacheExecutorService = CONFIGURATION_MODULE_TEST_COMPONENT.provideWalletCacheExecutorService();
+        final ScheduledExecutorService walletCacheExecutorServiceOther =
+                CONFIGURATION_MODULE_TEST_COMPONENT.provideWalletCacheExecutorService();
+
+        assertNotNull(walletCacheExecutorService);
+        assertNotNull(walletCacheExecutorServiceOther);
+        assertEquals(walletCacheExecutorService, walletCacheExecutorServiceOther);
+    }
+
     @Singleton
     @Component(modules = ConfigurationModule.class)
     public interface TestComponent {
         UserConfigurationManager provideUserConfigurationManager();
 
         AppConfigurationManager provideAppConfigurationManager();
+
+        KeyRotationService provideKeyRotationService();
+
+        @Named("keyRotationExecutorService")
+        ScheduledExecutorService provideKeyRotationExecutorService();
+
+        WalletJournal provideWalletJournal();
+
+        @Named("writeBehindExecutorService")
+        ScheduledExecutorService provideWriteBehindExecutorService();
+
+        @Named("walletCacheExecutorService")
+        ScheduledExecutorService provideWalletCacheExecutorService();
     }
 }
@@ -1,10 +1,15 @@
 package com.ak.cardstore.dagger;
 
 import com.ak.cardstore.dao.FileBasedDataAccessor;
+import com.ak.cardstore.dao.RecordStoreDataAccessor;
 import com.ak.cardstore.dao.SharedPreferencesDataAccessor;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Component;
@@ -30,6 +35,16 @@ public class DaoModuleUnitTest {
         assertEquals(sharedPreferencesDataAccessor, sharedPreferencesDataAccessorOther);
     }
 
+    @Test
+    public void testProvidePreferencesCommitExecutorService() {
+        final ExecutorService preferencesCommitExecutorService = DAO_MODULE_TEST_COMPONENT.providePreferencesCommitExecutorService();
+        final ExecutorService preferencesCommitExecutorServiceOther = DAO_MODULE_TEST_COMPONENT.providePreferencesCommitExecutorService();
+
+        assertNotNull(preferencesCommitExecutorService);
+        assertNotNull(preferencesCommitExecutorServiceOther);
+        assertEquals(preferencesCommitExecutorService, preferencesCommitExecutorServiceOther);
+    }
+
     @Test
     public void testProvideFileBasedDataAccessor() {
         final FileBasedDataAccessor fileBasedDataAccessor = DAO_MODULE_TEST_COMPONENT.provideFileBasedDataAccessor();
@@ -40,11 +55,39 @@ public class DaoModuleUnitTest {
         assertEquals(fileBasedDataAccessor, fileBasedDataAccessorOther);
     }
 
+    @Test
+    public void testProvideRecordStoreDataAccessor() {
+        final RecordStoreDataAccessor recordStoreDataAccessor = DAO_MODULE_TEST_COMPONENT.provideRecordStoreDataAccessor();
+        final RecordStoreDataAccessor recordStoreDataAccessorOther = DAO_MODULE_TEST_COMPONENT.provideRecordStoreDataAccessor();
+
+        assertNotNull(recordStoreDataAccessor);
+        assertNotNull(recordStoreDataAccessorOther);
+        assertEquals(recordStoreDataAccessor, recordStoreDataAccessorOther);
+    }
+
+    @Test
+    public void testProvideFileCommitExecutorService() {
+        final ScheduledExecutorService fileCommitExecutorService = DAO_MODULE_TEST_COMPONENT.provideFileCommitExecutorService();
+        final ScheduledExecutorService fileCommitExecutorServiceOther = DAO_MODULE_TEST_COMPONENT.provideFileCommitExecutorService();
+
+        assertNotNull(fileCommitExecutorService);
+        assertNotNull(fileCommitExecutorServiceOther);
+        assertEquals(fileCommitExecutorService, fileCommitExecutorServiceOther);
+    }
+
     @Singleton
     @Component(modules = DaoModule.class)
     public interface TestComponent {
         SharedPreferencesDataAccessor provideSharedPreferencesDataAccessor();
 
+        @Named("preferencesCommitExecutorService")
+        ExecutorService providePreferencesCommitExecutorService();
+
         FileBasedDataAccessor provideFileBasedDataAccessor();
+
+        RecordStoreDataAccessor provideRecordStoreDataAccessor();
+
+        @Named("fileCommitExecutorService")
+        ScheduledExecutorService provideFileCommitExecutorService();
     }
 }
@@ -0,0 +1,36 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.envelope.EnvelopeCipher;
+
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Singleton;
+
+import dagger.Component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * @author Abhishek
+ */
+public class EnvelopeCipherModuleUnitTest {
+
+    private static final TestComponent ENVELOPE_CIPHER_TEST_COMPONENT = DaggerEnvelopeCipherModuleUnitTest_TestComponent.create();
+
+    @Test
+    public void testProvideEnvelopeCipher() {
+        final EnvelopeCipher envelopeCipher = ENVELOPE_CIPHER_TEST_COMPONENT.provideEnvelopeCipher();
+        final EnvelopeCipher envelopeCipherOther = ENVELOPE_CIPHER_TEST_COMPONENT.provideEnvelopeCipher();
+
+        assertNotNull(envelopeCipher);
+        assertNotNull(envelopeCipherOther);
+        assertEquals(envelopeCipher, envelopeCipherOther);
+    }
+
+    @Singleton
+    @Component(modules = EnvelopeCipherModule.class)
+    public interface TestComponent {
+        EnvelopeCipher provideEnvelopeCipher();
+    }
+}
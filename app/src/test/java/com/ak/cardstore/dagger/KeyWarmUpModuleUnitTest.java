@@ -0,0 +1,53 @@
+package com.ak.cardstore.dagger;
+
+import com.ak.cardstore.cipher.KeyWarmUpService;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import dagger.Component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * @author Abhishek
+ */
+
+public class KeyWarmUpModuleUnitTest {
+
+    private static final TestComponent KEY_WARM_UP_MODULE_TEST_COMPONENT = DaggerKeyWarmUpModuleUnitTest_TestComponent.create();
+
+    @Test
+    public void testProvideKeyWarmUpService() {
+        final KeyWarmUpService keyWarmUpService = KEY_WARM_UP_MODULE_TEST_COMPONENT.provideKeyWarmUpService();
+        final KeyWarmUpService keyWarmUpServiceOther = KEY_WARM_UP_MODULE_TEST_COMPONENT.provideKeyWarmUpService();
+
+        assertNotNull(keyWarmUpService);
+        assertNotNull(keyWarmUpServiceOther);
+        assertEquals(keyWarmUpService, keyWarmUpServiceOther);
+    }
+
+    @Test
+    public void testProvideKeyWarmUpExecutorService() {
+        final ExecutorService keyWarmUpExecutorService = KEY_WARM_UP_MODULE_TEST_COMPONENT.provideKeyWarmUpExecutorService();
+        final ExecutorService keyWarmUpExecutorServiceOther = KEY_WARM_UP_MODULE_TEST_COMPONENT.provideKeyWarmUpExecutorService();
+
+        assertNotNull(keyWarmUpExecutorService);
+        assertNotNull(keyWarmUpExecutorServiceOther);
+        assertEquals(keyWarmUpExecutorService, keyWarmUpExecutorServiceOther);
+    }
+
+    @Singleton
+    @Component(modules = KeyWarmUpModule.class)
+    public interface TestComponent {
+        KeyWarmUpService provideKeyWarmUpService();
+
+        @Named("keyWarmUpExecutorService")
+        ExecutorService provideKeyWarmUpExecutorService();
+    }
+}
@@ -1,8 +1,10 @@
 package com.ak.cardstore.dagger;
 
 import com.ak.cardstore.pojo.EncryptedConfiguration;
+import com.ak.cardstore.pojo.EncryptedEnvelope;
 import com.ak.cardstore.pojo.User;
 import com.ak.cardstore.pojo.Wallet;
+import com.ak.cardstore.pojo.WalletJournalEntry;
 import com.ak.cardstore.serialization.Serializer;
 
 import org.junit.jupiter.api.Test;
@@ -43,6 +45,16 @@ public class SerializerModuleUnitTest {
         assertEquals(walletSerializer, walletSerializerOther);
     }
 
+    @Test
+    public void testProvideWalletJournalEntrySerializer() {
+        final Serializer<WalletJournalEntry> walletJournalEntrySerializer = SERIALIZER_MODULE_TEST_COMPONENT.provideWalletJournalEntrySerializer();
+        final Serializer<WalletJournalEntry> walletJournalEntrySerializerOther = SERIALIZER_MODULE_TEST_COMPONENT.provideWalletJournalEntrySerializer();
+
+        assertNotNull(walletJournalEntrySerializer);
+        assertNotNull(walletJournalEntrySerializerOther);
+        assertEquals(walletJournalEntrySerializer, walletJournalEntrySerializerOther);
+    }
+
     @Test
     public void testProvideEncryptedConfigurationSerializer() {
         final Serializer<EncryptedConfiguration> encryptedConfigurationSerializer = SERIALIZER_MODULE_TEST_COMPONENT.provideEncryptedConfigurationSerializer();
@@ -53,6 +65,16 @@ public class SerializerModuleUnitTest {
         assertEquals(encryptedConfigurationSerializer, encryptedConfigurationSerializerOther);
     }
 
+    @Test
+    public void testProvideEncryptedEnvelopeSerializer() {
+        final Serializer<EncryptedEnvelope> encryptedEnvelopeSerializer = SERIALIZER_MODULE_TEST_COMPONENT.provideEncryptedEnvelopeSerializer();
+        final Serializer<EncryptedEnvelope> encryptedEnvelopeSerializerOther = SERIALIZER_MODULE_TEST_COMPONENT.provideEncryptedEnvelopeSerializer();
+
+        assertNotNull(encryptedEnvelopeSerializer);
+        assertNotNull(encryptedEnvelopeSerializerOther);
+        assertEquals(encryptedEnvelopeSerializer, encryptedEnvelopeSerializerOther);
+    }
+
     @Singleton
     @Component(modules = SerializerModule.class)
     public interface TestComponent {
@@ -63,7 +85,13 @@ public class SerializerModuleUnitTest {
         @Named("walletSerializer")
         Serializer<Wallet> provideWalletSerializer();
 
+        @Named("walletJournalEntrySerializer")
+        Serializer<WalletJournalEntry> provideWalletJournalEntrySerializer();
+
         @Named("encryptedConfigurationSerializer")
         Serializer<EncryptedConfiguration> provideEncryptedConfigurationSerializer();
+
+        @Named("encryptedEnvelopeSerializer")
+        Serializer<EncryptedEnvelope> provideEncryptedEnvelopeSerializer();
     }
 }
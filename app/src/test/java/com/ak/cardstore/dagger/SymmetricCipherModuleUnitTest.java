@@ -1,8 +1,11 @@
 package com.ak.cardstore.dagger;
 
+import com.ak.cardstore.cipher.symmetric.PasswordKeyDeriver;
+import com.ak.cardstore.cipher.symmetric.SymmetricCipherProfile;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyCipher;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyGenerator;
 import com.ak.cardstore.cipher.symmetric.SymmetricKeyRetriever;
+import com.ak.cardstore.cipher.symmetric.SymmetricKeyVersionManager;
 
 import org.junit.jupiter.api.Test;
 
@@ -50,6 +53,35 @@ public class SymmetricCipherModuleUnitTest {
         assertEquals(symmetricKeyGenerator, symmetricKeyGeneratorOther);
     }
 
+    @Test
+    public void testProvideSymmetricCipherProfile() {
+        final SymmetricCipherProfile symmetricCipherProfile = SYMMETRIC_CIPHER_TEST_COMPONENT.provideSymmetricCipherProfile();
+
+        assertEquals(SymmetricCipherProfile.AES_GCM, symmetricCipherProfile);
+        assertEquals(symmetricCipherProfile, SYMMETRIC_CIPHER_TEST_COMPONENT.provideSymmetricKeyCipher().getSymmetricCipherProfile());
+    }
+
+    @Test
+    public void testProvidePasswordKeyDeriver() {
+        final PasswordKeyDeriver passwordKeyDeriver = SYMMETRIC_CIPHER_TEST_COMPONENT.providePasswordKeyDeriver();
+        final PasswordKeyDeriver passwordKeyDeriverOther = SYMMETRIC_CIPHER_TEST_COMPONENT.providePasswordKeyDeriver();
+
+        assertNotNull(passwordKeyDeriver);
+        assertNotNull(passwordKeyDeriverOther);
+        assertEquals(passwordKeyDeriver, passwordKeyDeriverOther);
+    }
+
+    @Test
+    public void testProvideSymmetricKeyVersionManager() {
+        final SymmetricKeyVersionManager symmetricKeyVersionManager = SYMMETRIC_CIPHER_TEST_COMPONENT.provideSymmetricKeyVersionManager();
+        final SymmetricKeyVersionManager symmetricKeyVersionManagerOther =
+                SYMMETRIC_CIPHER_TEST_COMPONENT.provideSymmetricKeyVersionManager();
+
+        assertNotNull(symmetricKeyVersionManager);
+        assertNotNull(symmetricKeyVersionManagerOther);
+        assertEquals(symmetricKeyVersionManager, symmetricKeyVersionManagerOther);
+    }
+
     @Singleton
     @Component(modules = SymmetricCipherModule.class)
     public interface TestComponent {
@@ -58,5 +90,11 @@ public class SymmetricCipherModuleUnitTest {
         SymmetricKeyRetriever provideSymmetricKeyRetriever();
 
         SymmetricKeyGenerator provideSymmetricKeyGenerator();
+
+        SymmetricCipherProfile provideSymmetricCipherProfile();
+
+        PasswordKeyDeriver providePasswordKeyDeriver();
+
+        SymmetricKeyVersionManager provideSymmetricKeyVersionManager();
     }
 }
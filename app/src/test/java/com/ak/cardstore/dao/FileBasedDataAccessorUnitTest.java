@@ -9,35 +9,54 @@ import com.ak.cardstore.util.StringUtil;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
-import static org.powermock.api.mockito.PowerMockito.verifyNew;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
-import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({FileBasedDataAccessor.class, App.class, Log.class})
 @PowerMockIgnore({"javax.script.*", "javax.management.*"})
 public class FileBasedDataAccessorUnitTest {
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setupLog() {
         mockStatic(Log.class);
@@ -49,50 +68,378 @@ public class FileBasedDataAccessorUnitTest {
         final String fileName = Make.aString();
         final String dataToSave = Make.aString();
 
+        final Context mockAppContext = this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        fileBasedDataAccessor.save(fileName, dataToSave);
+
+        Assert.assertArrayEquals(StringUtil.toUTF8ByteArray(dataToSave), this.readFile(fileName));
+
+        verifyStatic(App.class);
+        App.getAppContext();
+        verify(mockAppContext).openFileOutput(fileName + FileBasedDataAccessor.TEMP_FILE_NAME_SUFFIX, Context.MODE_PRIVATE);
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] dataToWrite = Make.aByteArray();
+
+        this.writeFile(fileName, Make.aByteArray());
+        this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        fileBasedDataAccessor.write(fileName, outputStream -> outputStream.write(dataToWrite));
+
+        Assert.assertArrayEquals(dataToWrite, this.readFile(fileName));
+        Assert.assertFalse(new File(this.temporaryFolder.getRoot(), fileName + FileBasedDataAccessor.TEMP_FILE_NAME_SUFFIX).exists());
+    }
+
+    @Test
+    public void testWrite_WithFailedWriter() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] fileContents = Make.aByteArray();
+
+        this.writeFile(fileName, fileContents);
+        this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        try {
+            fileBasedDataAccessor.write(fileName, outputStream -> {
+                outputStream.write(Make.aByteArray());
+                throw new IOException(Make.aString());
+            });
+            Assert.fail("IOException expected");
+        } catch (final IOException e) {
+            // Expected
+        }
+
+        Assert.assertArrayEquals(fileContents, this.readFile(fileName));
+        Assert.assertFalse(new File(this.temporaryFolder.getRoot(), fileName + FileBasedDataAccessor.TEMP_FILE_NAME_SUFFIX).exists());
+    }
+
+    @Test
+    public void testWrite_WithGroupCommit() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] dataToWrite = Make.aByteArray();
+
+        final Context mockAppContext = this.mockFilesDir();
+        final ScheduledExecutorService mockScheduledExecutorService = mock(ScheduledExecutorService.class);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor(mockScheduledExecutorService, Make.anInt(1, 1000));
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(Make.aByteArray()));
+        fileBasedDataAccessor.write(fileName, outputStream -> outputStream.write(dataToWrite));
+
+        // The written file is synced before the rename, so it never waits for the group commit
+        Assert.assertArrayEquals(dataToWrite, this.readFile(fileName));
+
+        fileBasedDataAccessor.flush();
+        verify(mockAppContext, never()).openFileInput(fileName);
+    }
+
+    @Test
+    public void testAppend_WithGroupCommit() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] dataToAppend = Make.aByteArray();
+        final byte[] otherDataToAppend = Make.aByteArray();
+        final long groupCommitWindowMillis = Make.anInt(1, 1000);
+
+        final Context mockAppContext = this.mockFilesDir();
+        final ScheduledExecutorService mockScheduledExecutorService = mock(ScheduledExecutorService.class);
+        final ArgumentCaptor<Runnable> groupCommitCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor(mockScheduledExecutorService, groupCommitWindowMillis);
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(dataToAppend));
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(otherDataToAppend));
+
+        // The contents are appended right away, only the sync waits for the group commit
+        final ByteArrayOutputStream expectedFileContents = new ByteArrayOutputStream();
+        expectedFileContents.write(dataToAppend);
+        expectedFileContents.write(otherDataToAppend);
+        Assert.assertArrayEquals(expectedFileContents.toByteArray(), this.readFile(fileName));
+        verify(mockAppContext, never()).openFileInput(fileName);
+
+        verify(mockScheduledExecutorService).schedule(groupCommitCaptor.capture(), eq(groupCommitWindowMillis), eq(TimeUnit.MILLISECONDS));
+        groupCommitCaptor.getValue().run();
+
+        verify(mockAppContext, times(1)).openFileInput(fileName);
+
+        fileBasedDataAccessor.flush();
+        verify(mockAppContext, times(1)).openFileInput(fileName);
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] dataToAppend = Make.aByteArray();
+        final byte[] otherDataToAppend = Make.aByteArray();
+
+        final Context mockAppContext = this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(dataToAppend));
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(otherDataToAppend));
+
+        final ByteArrayOutputStream expectedFileContents = new ByteArrayOutputStream();
+        expectedFileContents.write(dataToAppend);
+        expectedFileContents.write(otherDataToAppend);
+        Assert.assertArrayEquals(expectedFileContents.toByteArray(), this.readFile(fileName));
+        Assert.assertEquals(expectedFileContents.size(), fileBasedDataAccessor.length(fileName));
+
+        verify(mockAppContext, times(2)).openFileOutput(fileName, Context.MODE_APPEND);
+    }
+
+    @Test
+    public void testLength_WithMissingFile() throws Exception {
+        this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        Assert.assertEquals(0, fileBasedDataAccessor.length(Make.aString()));
+    }
+
+    @Test
+    public void testFlush_WithDeletedFile() throws Exception {
+        final String fileName = Make.aString();
+
+        final Context mockAppContext = this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor(mock(ScheduledExecutorService.class), 0);
+        fileBasedDataAccessor.append(fileName, outputStream -> outputStream.write(Make.aByteArray()));
+        Assert.assertTrue(fileBasedDataAccessor.delete(fileName));
+
+        fileBasedDataAccessor.flush();
+        verify(mockAppContext, never()).openFileInput(fileName);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_WithNegativeGroupCommitWindow() {
+        new FileBasedDataAccessor(mock(ScheduledExecutorService.class), -1);
+    }
+
+    @Test
+    public void testGetContents() throws Exception {
+        final String fileName = Make.aString();
+        final String expectedFileContents = Make.aString()
+                .concat("\r\n")
+                .concat(Make.aString())
+                .concat("\n");
+
+        this.mockFileInput(fileName, expectedFileContents.getBytes(StandardCharsets.UTF_8));
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final String fileContents = fileBasedDataAccessor.getContents(fileName);
+        Assert.assertEquals(expectedFileContents, fileContents);
+
+        verifyStatic(App.class);
+        App.getAppContext();
+    }
+
+    @Test
+    public void testReadBytes() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] expectedFileContents = Make.aByteArray();
+
+        final Context mockAppContext = this.mockFileInput(fileName, expectedFileContents);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final ByteBuffer fileContents = fileBasedDataAccessor.readBytes(fileName);
+        Assert.assertFalse(fileContents.isDirect());
+        Assert.assertArrayEquals(expectedFileContents, toByteArray(fileContents));
+
+        verify(mockAppContext).openFileInput(fileName);
+    }
+
+    @Test
+    public void testReadBytes_WithEmptyFile() throws Exception {
+        final String fileName = Make.aString();
+
+        this.mockFileInput(fileName, new byte[0]);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final ByteBuffer fileContents = fileBasedDataAccessor.readBytes(fileName);
+        Assert.assertEquals(0, fileContents.remaining());
+    }
+
+    @Test
+    public void testReadBytes_WithMappedFile() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] expectedFileContents = new byte[(int) FileBasedDataAccessor.MAPPED_READ_THRESHOLD_BYTES + Make.anInt(1, 1024)];
+        new Random().nextBytes(expectedFileContents);
+
+        this.mockFileInput(fileName, expectedFileContents);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final ByteBuffer fileContents = fileBasedDataAccessor.readBytes(fileName);
+        Assert.assertTrue(fileContents.isDirect());
+        Assert.assertTrue(fileContents.isReadOnly());
+        Assert.assertArrayEquals(expectedFileContents, toByteArray(fileContents));
+    }
+
+    @Test
+    public void testReadBytes_WithRange() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] fileContents = Make.aByteArray();
+        final int position = Make.anInt(0, fileContents.length);
+        final int length = Make.anInt(0, fileContents.length - position + 1);
+
+        this.mockFileInput(fileName, fileContents);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final ByteBuffer rangeContents = fileBasedDataAccessor.readBytes(fileName, position, length);
+        Assert.assertArrayEquals(Arrays.copyOfRange(fileContents, position, position + length), toByteArray(rangeContents));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadBytes_WithRangePastEndOfFile() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] fileContents = Make.aByteArray();
+
+        this.mockFileInput(fileName, fileContents);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        fileBasedDataAccessor.readBytes(fileName, fileContents.length - 1, 2);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testReadBytes_WithMissingFile() throws Exception {
+        final String fileName = Make.aString();
+
+        final Context mockAppContext = mock(Context.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.openFileInput(fileName)).thenThrow(new FileNotFoundException(fileName));
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        fileBasedDataAccessor.readBytes(fileName);
+    }
+
+    @Test
+    public void testOpenOutputStream() throws Exception {
+        final String fileName = Make.aString();
+        final byte[] dataToSave = Make.aByteArray();
+
         final Context mockAppContext = mock(Context.class);
         final FileOutputStream mockFileOutputStream = mock(FileOutputStream.class);
 
         mockStatic(App.class);
         when(App.getAppContext()).thenReturn(mockAppContext);
         when(mockAppContext.openFileOutput(fileName, Context.MODE_PRIVATE)).thenReturn(mockFileOutputStream);
-        doNothing().when(mockFileOutputStream).write(StringUtil.toUTF8ByteArray(dataToSave));
 
         final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
-        fileBasedDataAccessor.save(fileName, dataToSave);
+        try (final OutputStream outputStream = fileBasedDataAccessor.openOutputStream(fileName)) {
+            outputStream.write(dataToSave);
+        }
 
-        verifyStatic(App.class);
-        App.getAppContext();
         verify(mockAppContext).openFileOutput(fileName, Context.MODE_PRIVATE);
-        verify(mockFileOutputStream).write(StringUtil.toUTF8ByteArray(dataToSave));
+        verify(mockFileOutputStream).write(any(byte[].class), eq(0), eq(dataToSave.length));
+        verify(mockFileOutputStream).close();
     }
 
     @Test
-    public void testGetContents() throws Exception {
+    public void testOpenInputStream() throws Exception {
         final String fileName = Make.aString();
-        final String expectedFileContents = Make.aString()
-                .concat(System.lineSeparator())
-                .concat(Make.aString());
-
-        final InputStreamReader testInputStreamReader = new InputStreamReader(
-                new ByteArrayInputStream(expectedFileContents.getBytes(StandardCharsets.UTF_8)));
 
         final Context mockAppContext = mock(Context.class);
         final FileInputStream mockFileInputStream = mock(FileInputStream.class);
-        final BufferedReader mockBufferedReader = mock(BufferedReader.class);
 
         mockStatic(App.class);
         when(App.getAppContext()).thenReturn(mockAppContext);
         when(mockAppContext.openFileInput(fileName)).thenReturn(mockFileInputStream);
-        whenNew(InputStreamReader.class).withArguments(mockFileInputStream, StandardCharsets.UTF_8).thenReturn(testInputStreamReader);
-        when(mockBufferedReader.readLine()).thenReturn(null);
+        when(mockFileInputStream.read(any(byte[].class), anyInt(), anyInt())).thenReturn(-1);
 
         final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
-        final String fileContents = fileBasedDataAccessor.getContents(fileName);
-        Assert.assertEquals(expectedFileContents, fileContents);
+        try (final InputStream inputStream = fileBasedDataAccessor.openInputStream(fileName)) {
+            Assert.assertEquals(-1, inputStream.read());
+        }
 
-        verifyStatic(App.class);
-        App.getAppContext();
         verify(mockAppContext).openFileInput(fileName);
-        verifyNew(InputStreamReader.class).withArguments(mockFileInputStream, StandardCharsets.UTF_8);
+        verify(mockFileInputStream).close();
+    }
+
+    @Test
+    public void testListFiles() {
+        final String fileNamePrefix = Make.aString();
+        final String matchingFileName = fileNamePrefix + Make.aString();
+        final String otherMatchingFileName = fileNamePrefix + Make.aString();
+
+        final Context mockAppContext = mock(Context.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.fileList()).thenReturn(new String[]{matchingFileName, Make.aString(), otherMatchingFileName});
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        final List<String> fileNames = fileBasedDataAccessor.listFiles(fileNamePrefix);
+        Assert.assertEquals(Arrays.asList(matchingFileName, otherMatchingFileName), fileNames);
+
+        verify(mockAppContext).fileList();
+    }
+
+    @Test
+    public void testListFiles_WithTempFile() throws Exception {
+        final String fileNamePrefix = Make.aString();
+        final String matchingFileName = fileNamePrefix + Make.aString();
+
+        this.writeFile(matchingFileName, Make.aByteArray());
+        this.writeFile(matchingFileName + FileBasedDataAccessor.TEMP_FILE_NAME_SUFFIX, Make.aByteArray());
+        this.mockFilesDir();
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        Assert.assertEquals(Collections.singletonList(matchingFileName), fileBasedDataAccessor.listFiles(fileNamePrefix));
+    }
+
+    @Test
+    public void testDelete() {
+        final String fileName = Make.aString();
+
+        final Context mockAppContext = mock(Context.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.deleteFile(fileName)).thenReturn(true);
+
+        final FileBasedDataAccessor fileBasedDataAccessor = new FileBasedDataAccessor();
+        Assert.assertTrue(fileBasedDataAccessor.delete(fileName));
+
+        verify(mockAppContext).deleteFile(fileName);
+    }
+
+    private Context mockFileInput(final String fileName, final byte[] fileContents) throws IOException {
+        this.writeFile(fileName, fileContents);
+        return this.mockFilesDir();
+    }
+
+    private Context mockFilesDir() throws IOException {
+        final File filesDir = this.temporaryFolder.getRoot();
+        final Context mockAppContext = mock(Context.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.getFileStreamPath(anyString()))
+                .thenAnswer(invocation -> new File(filesDir, invocation.<String>getArgument(0)));
+        when(mockAppContext.openFileOutput(anyString(), anyInt()))
+                .thenAnswer(invocation -> new FileOutputStream(new File(filesDir, invocation.<String>getArgument(0)),
+                        invocation.<Integer>getArgument(1) == Context.MODE_APPEND));
+        when(mockAppContext.openFileInput(anyString()))
+                .thenAnswer(invocation -> new FileInputStream(new File(filesDir, invocation.<String>getArgument(0))));
+        when(mockAppContext.deleteFile(anyString()))
+                .thenAnswer(invocation -> new File(filesDir, invocation.<String>getArgument(0)).delete());
+        when(mockAppContext.fileList()).thenAnswer(invocation -> filesDir.list());
+        return mockAppContext;
+    }
+
+    private void writeFile(final String fileName, final byte[] fileContents) throws IOException {
+        Files.write(new File(this.temporaryFolder.getRoot(), fileName).toPath(), fileContents);
+    }
+
+    private byte[] readFile(final String fileName) throws IOException {
+        return Files.readAllBytes(new File(this.temporaryFolder.getRoot(), fileName).toPath());
+    }
+
+    private static byte[] toByteArray(final ByteBuffer byteBuffer) {
+        final byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(bytes);
+        return bytes;
     }
 }
@@ -0,0 +1,257 @@
+package com.ak.cardstore.dao;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.app.App;
+import com.ak.cardstore.exception.RecordStoreIOException;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({App.class, Log.class})
+@PowerMockIgnore({"javax.script.*", "javax.management.*"})
+public class RecordStoreDataAccessorUnitTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileBasedDataAccessor fileBasedDataAccessor;
+
+    @Before
+    public void setup() throws IOException {
+        mockStatic(Log.class);
+        when(Log.e(anyString(), anyString(), any(Throwable.class))).thenReturn(0);
+
+        final File filesDir = this.temporaryFolder.getRoot();
+        final Context mockAppContext = mock(Context.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.getFileStreamPath(anyString()))
+                .thenAnswer(invocation -> new File(filesDir, invocation.<String>getArgument(0)));
+        when(mockAppContext.openFileOutput(anyString(), anyInt()))
+                .thenAnswer(invocation -> new FileOutputStream(new File(filesDir, invocation.<String>getArgument(0)),
+                        invocation.<Integer>getArgument(1) == Context.MODE_APPEND));
+        when(mockAppContext.openFileInput(anyString()))
+                .thenAnswer(invocation -> new FileInputStream(new File(filesDir, invocation.<String>getArgument(0))));
+        when(mockAppContext.fileList()).thenAnswer(invocation -> filesDir.list());
+
+        this.fileBasedDataAccessor = spy(new FileBasedDataAccessor());
+    }
+
+    @Test
+    public void testSave() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        recordStoreDataAccessor.save(preferencesFileName, preferencesKey, preferencesValue);
+
+        Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertTrue(recordStoreDataAccessor.doesPreferenceExist(preferencesFileName, preferencesKey));
+        Assert.assertTrue(this.toRecordStoreFile(preferencesFileName).exists());
+
+        // The saved record store is scanned again by a new data accessor
+        final RecordStoreDataAccessor otherRecordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertEquals(preferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+    }
+
+    @Test
+    public void testSave_WithReplacedValue() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        recordStoreDataAccessor.save(preferencesFileName, preferencesKey, Make.aString());
+        recordStoreDataAccessor.save(preferencesFileName, preferencesKey, preferencesValue);
+
+        Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertEquals(preferencesValue,
+                new RecordStoreDataAccessor(this.fileBasedDataAccessor).get(preferencesFileName, preferencesKey));
+    }
+
+    @Test
+    public void testSaveAll() throws Exception {
+        final String preferencesFileName = Make.aString();
+        final Map<String, String> preferencesValues = ImmutableMap.of(Make.aString(), Make.aString(), Make.aString(), Make.aString());
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        recordStoreDataAccessor.saveAll(preferencesFileName, preferencesValues);
+
+        verify(this.fileBasedDataAccessor).append(eq(this.toRecordStoreFile(preferencesFileName).getName()), any());
+
+        final RecordStoreDataAccessor otherRecordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        preferencesValues.forEach((preferencesKey, preferencesValue) -> {
+            Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+            Assert.assertEquals(preferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        });
+    }
+
+    @Test
+    public void testSave_WithCompaction() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String otherPreferencesKey = Make.aString();
+        final String otherPreferencesValue = Make.aString();
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        recordStoreDataAccessor.save(preferencesFileName, otherPreferencesKey, otherPreferencesValue);
+
+        String preferencesValue = null;
+        long recordStoreLength = 0;
+        boolean compacted = false;
+        for (int i = 0; i < RecordStoreDataAccessor.COMPACTION_THRESHOLD_BYTES && !compacted; i++) {
+            preferencesValue = Make.aString();
+            recordStoreDataAccessor.save(preferencesFileName, preferencesKey, preferencesValue);
+
+            // Only the latest record of each key is left once the record store is compacted
+            final long savedRecordStoreLength = this.toRecordStoreFile(preferencesFileName).length();
+            compacted = savedRecordStoreLength < recordStoreLength;
+            recordStoreLength = savedRecordStoreLength;
+        }
+
+        Assert.assertTrue(compacted);
+        Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertEquals(otherPreferencesValue, recordStoreDataAccessor.get(preferencesFileName, otherPreferencesKey));
+
+        final RecordStoreDataAccessor otherRecordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertEquals(preferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertEquals(otherPreferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, otherPreferencesKey));
+    }
+
+    @Test
+    public void testGet_WithMissingRecordStore() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertNull(recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertFalse(recordStoreDataAccessor.doesPreferenceExist(preferencesFileName, preferencesKey));
+    }
+
+    @Test
+    public void testGet_WithTornRecord() throws Exception {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+        final String otherPreferencesKey = Make.aString();
+        final String otherPreferencesValue = Make.aString();
+
+        new RecordStoreDataAccessor(this.fileBasedDataAccessor).save(preferencesFileName, preferencesKey, preferencesValue);
+
+        // A record torn by a crash while appending
+        final Path recordStorePath = this.toRecordStoreFile(preferencesFileName).toPath();
+        final byte[] record = Files.readAllBytes(recordStorePath);
+        Files.write(recordStorePath, Arrays.copyOf(record, record.length / 2), StandardOpenOption.APPEND);
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        recordStoreDataAccessor.save(preferencesFileName, otherPreferencesKey, otherPreferencesValue);
+        Assert.assertEquals(otherPreferencesValue, recordStoreDataAccessor.get(preferencesFileName, otherPreferencesKey));
+
+        final RecordStoreDataAccessor otherRecordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertEquals(preferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertEquals(otherPreferencesValue, otherRecordStoreDataAccessor.get(preferencesFileName, otherPreferencesKey));
+    }
+
+    @Test
+    public void testGet_WithCorruptedRecord() throws Exception {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        recordStoreDataAccessor.save(preferencesFileName, preferencesKey, Make.aString());
+
+        final byte[] recordStore = Files.readAllBytes(this.toRecordStoreFile(preferencesFileName).toPath());
+        recordStore[recordStore.length - 1] ^= 1;
+        Files.write(this.toRecordStoreFile(preferencesFileName).toPath(), recordStore);
+
+        Assert.assertThrows(RecordStoreIOException.class, () -> recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+    }
+
+    @Test
+    public void testSave_WithTooLongValue() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final char[] preferencesValue = new char[RecordStoreDataAccessor.MAX_VALUE_LENGTH + 1];
+        Arrays.fill(preferencesValue, 'a');
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertThrows(RecordStoreIOException.class,
+                () -> recordStoreDataAccessor.save(preferencesFileName, preferencesKey, new String(preferencesValue)));
+        Assert.assertFalse(recordStoreDataAccessor.doesPreferenceExist(preferencesFileName, preferencesKey));
+        Assert.assertFalse(this.toRecordStoreFile(preferencesFileName).exists());
+    }
+
+    @Test
+    public void testGet_WithTooLongRecord() throws Exception {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+
+        // A record with a valid checksum, but a key longer than any saved one
+        final byte[] tooLongKey = new byte[RecordStoreDataAccessor.MAX_KEY_LENGTH + 1];
+        final CRC32 crc32 = new CRC32();
+        crc32.update(tooLongKey);
+        final ByteArrayOutputStream recordOutputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(recordOutputStream);
+        dataOutputStream.write(new byte[]{'C', 'S', 'K', 'V'});
+        dataOutputStream.writeInt(tooLongKey.length);
+        dataOutputStream.writeInt(0);
+        dataOutputStream.writeInt((int) crc32.getValue());
+        dataOutputStream.write(tooLongKey);
+        Files.write(this.toRecordStoreFile(preferencesFileName).toPath(), recordOutputStream.toByteArray());
+
+        new RecordStoreDataAccessor(this.fileBasedDataAccessor).save(preferencesFileName, preferencesKey, preferencesValue);
+
+        final RecordStoreDataAccessor recordStoreDataAccessor = new RecordStoreDataAccessor(this.fileBasedDataAccessor);
+        Assert.assertEquals(preferencesValue, recordStoreDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertFalse(recordStoreDataAccessor.doesPreferenceExist(preferencesFileName,
+                new String(tooLongKey, StandardCharsets.UTF_8)));
+    }
+
+    private File toRecordStoreFile(final String preferencesFileName) {
+        return new File(this.temporaryFolder.getRoot(), preferencesFileName + RecordStoreDataAccessor.RECORD_STORE_FILE_NAME_SUFFIX);
+    }
+}
@@ -7,17 +7,25 @@ import android.util.Log;
 import com.ak.cardstore.Make;
 import com.ak.cardstore.app.App;
 import com.ak.cardstore.exception.SharedPreferencesIOException;
+import com.google.common.collect.ImmutableMap;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -145,4 +153,151 @@ public class SharedPreferencesDataAccessorUnitTest {
         verify(mockAppContext).getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE);
         verify(mockSharedPreferences).getString(preferencesKey, null);
     }
+
+    @Test
+    public void testGet_WithCachedSharedPreferences() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+
+        final Context mockAppContext = mock(Context.class);
+        final SharedPreferences mockSharedPreferences = mock(SharedPreferences.class);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE)).thenReturn(mockSharedPreferences);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(true);
+        when(mockSharedPreferences.getString(preferencesKey, null)).thenReturn(preferencesValue);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        sharedPreferencesDataAccessor.save(preferencesFileName, preferencesKey, preferencesValue);
+        Assert.assertSame(preferencesValue, sharedPreferencesDataAccessor.get(preferencesFileName, preferencesKey));
+        Assert.assertTrue(sharedPreferencesDataAccessor.doesPreferenceExist(preferencesFileName, preferencesKey));
+
+        verify(mockAppContext).getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE);
+    }
+
+    @Test
+    public void testSaveAll() {
+        final String preferencesFileName = Make.aString();
+        final Map<String, String> preferencesValues = ImmutableMap.of(Make.aString(), Make.aString(), Make.aString(), Make.aString());
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(true);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        sharedPreferencesDataAccessor.saveAll(preferencesFileName, preferencesValues);
+
+        verify(mockSharedPreferences).edit();
+        preferencesValues.forEach((preferencesKey, preferencesValue) ->
+                verify(mockSharedPreferencesEditor).putString(preferencesKey, preferencesValue));
+        verify(mockSharedPreferencesEditor).commit();
+    }
+
+    @Test
+    public void testSaveAll_ReturnsFalse() {
+        final String preferencesFileName = Make.aString();
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(false);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        final SharedPreferencesIOException sharedPreferencesIOException = Assert.assertThrows(SharedPreferencesIOException.class,
+                () -> sharedPreferencesDataAccessor.saveAll(preferencesFileName, ImmutableMap.of(Make.aString(), Make.aString())));
+        Assert.assertEquals("Error saving shared preferences file " + preferencesFileName, sharedPreferencesIOException.getMessage());
+    }
+
+    @Test
+    public void testSaveAllAsync() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+        final String preferencesValue = Make.aString();
+        final Consumer<Boolean> mockOnSaved = mock(Consumer.class);
+        final ExecutorService mockCommitExecutorService = mock(ExecutorService.class);
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(true);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor(mockCommitExecutorService);
+        sharedPreferencesDataAccessor.saveAllAsync(preferencesFileName, ImmutableMap.of(preferencesKey, preferencesValue), mockOnSaved);
+
+        final ArgumentCaptor<Runnable> saveAllCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockCommitExecutorService).execute(saveAllCaptor.capture());
+        verify(mockSharedPreferencesEditor, never()).commit();
+        verify(mockOnSaved, never()).accept(anyBoolean());
+
+        saveAllCaptor.getValue().run();
+
+        verify(mockSharedPreferencesEditor).putString(preferencesKey, preferencesValue);
+        verify(mockSharedPreferencesEditor).commit();
+        verify(mockOnSaved).accept(true);
+    }
+
+    @Test
+    public void testSaveAllAsync_WithoutCommitExecutorService_ReturnsFalse() {
+        final String preferencesFileName = Make.aString();
+        final Consumer<Boolean> mockOnSaved = mock(Consumer.class);
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(false);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        sharedPreferencesDataAccessor.saveAllAsync(preferencesFileName, ImmutableMap.of(Make.aString(), Make.aString()), mockOnSaved);
+
+        verify(mockSharedPreferencesEditor).commit();
+        verify(mockOnSaved).accept(false);
+    }
+
+    @Test
+    public void testRemove() {
+        final String preferencesFileName = Make.aString();
+        final String preferencesKey = Make.aString();
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(true);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        sharedPreferencesDataAccessor.remove(preferencesFileName, preferencesKey);
+
+        verify(mockSharedPreferencesEditor).remove(preferencesKey);
+        verify(mockSharedPreferencesEditor).commit();
+    }
+
+    @Test
+    public void testRemove_ReturnsFalse() {
+        final String preferencesFileName = Make.aString();
+
+        final SharedPreferences mockSharedPreferences = mockSharedPreferences(preferencesFileName);
+        final SharedPreferences.Editor mockSharedPreferencesEditor = mock(SharedPreferences.Editor.class);
+        when(mockSharedPreferences.edit()).thenReturn(mockSharedPreferencesEditor);
+        when(mockSharedPreferencesEditor.commit()).thenReturn(false);
+
+        final SharedPreferencesDataAccessor sharedPreferencesDataAccessor = new SharedPreferencesDataAccessor();
+        final SharedPreferencesIOException sharedPreferencesIOException = Assert.assertThrows(SharedPreferencesIOException.class,
+                () -> sharedPreferencesDataAccessor.remove(preferencesFileName, Make.aString()));
+        Assert.assertEquals("Error removing from shared preferences file " + preferencesFileName,
+                sharedPreferencesIOException.getMessage());
+    }
+
+    private static SharedPreferences mockSharedPreferences(final String preferencesFileName) {
+        final Context mockAppContext = mock(Context.class);
+        final SharedPreferences mockSharedPreferences = mock(SharedPreferences.class);
+
+        mockStatic(App.class);
+        when(App.getAppContext()).thenReturn(mockAppContext);
+        when(mockAppContext.getSharedPreferences(preferencesFileName, Context.MODE_PRIVATE)).thenReturn(mockSharedPreferences);
+        return mockSharedPreferences;
+    }
 }
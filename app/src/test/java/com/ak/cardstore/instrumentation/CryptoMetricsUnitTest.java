@@ -0,0 +1,116 @@
+package com.ak.cardstore.instrumentation;
+
+import android.os.Build;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.pojo.OperationMetricsSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Abhishek
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.O, Build.VERSION_CODES.O_MR1, Build.VERSION_CODES.P})
+public class CryptoMetricsUnitTest {
+
+    @Before
+    public void setup() {
+        CryptoMetrics.reset();
+        CryptoMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        CryptoMetrics.setEnabled(false);
+        CryptoMetrics.reset();
+    }
+
+    @Test
+    public void testRecord() {
+        final String operation = Make.aString();
+
+        CryptoMetrics.recordSuccess(operation, CryptoMetrics.start(), 16);
+        CryptoMetrics.recordSuccess(operation, CryptoMetrics.start());
+        CryptoMetrics.recordFailure(operation, CryptoMetrics.start(), new IllegalStateException());
+
+        final List<OperationMetricsSnapshot> operationMetricsSnapshots = CryptoMetrics.snapshot();
+        assertEquals(1, operationMetricsSnapshots.size());
+        assertEquals(operation, operationMetricsSnapshots.get(0).getOperation());
+        assertEquals(3, operationMetricsSnapshots.get(0).getCallCount());
+        assertEquals(1, operationMetricsSnapshots.get(0).getFailureCount());
+        assertEquals(16, operationMetricsSnapshots.get(0).getByteCount());
+    }
+
+    @Test
+    public void testRecord_WhenDisabled() {
+        CryptoMetrics.setEnabled(false);
+        assertFalse(CryptoMetrics.isEnabled());
+
+        final long startNanos = CryptoMetrics.start();
+        assertEquals(CryptoMetrics.NOT_STARTED, startNanos);
+
+        CryptoMetrics.recordSuccess(Make.aString(), startNanos, 16);
+        CryptoMetrics.recordFailure(Make.aString(), startNanos, new IllegalStateException());
+
+        assertTrue(CryptoMetrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testRecord_WhenDisabledDuringCall() {
+        final String operation = Make.aString();
+
+        final long startNanos = CryptoMetrics.start();
+        CryptoMetrics.setEnabled(false);
+        CryptoMetrics.recordSuccess(operation, startNanos);
+
+        assertEquals(1, CryptoMetrics.snapshot().get(0).getCallCount());
+    }
+
+    @Test
+    public void testSnapshot_OrderedByOperation() {
+        CryptoMetrics.recordSuccess(CryptoMetrics.SYMMETRIC_KEY_RETRIEVE, CryptoMetrics.start());
+        CryptoMetrics.recordSuccess(CryptoMetrics.CIPHER_OPERATION, CryptoMetrics.start());
+
+        final List<OperationMetricsSnapshot> operationMetricsSnapshots = CryptoMetrics.snapshot();
+        assertEquals(CryptoMetrics.CIPHER_OPERATION, operationMetricsSnapshots.get(0).getOperation());
+        assertEquals(CryptoMetrics.SYMMETRIC_KEY_RETRIEVE, operationMetricsSnapshots.get(1).getOperation());
+    }
+
+    @Test
+    public void testFormat() {
+        final String operation = Make.aString();
+        CryptoMetrics.recordSuccess(operation, CryptoMetrics.start(), 16);
+
+        final String formattedSnapshot = CryptoMetrics.format(CryptoMetrics.snapshot().get(0));
+        assertTrue(formattedSnapshot.startsWith(operation + ": calls=1, failures=0, bytes=16"));
+    }
+
+    @Test
+    public void testDump() {
+        CryptoMetrics.recordSuccess(Make.aString(), CryptoMetrics.start());
+
+        CryptoMetrics.dump();
+    }
+
+    @Test
+    public void testReset() {
+        CryptoMetrics.recordSuccess(Make.aString(), CryptoMetrics.start());
+
+        CryptoMetrics.reset();
+
+        assertTrue(CryptoMetrics.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.ak.cardstore.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Abhishek
+ */
+
+public class LatencyHistogramUnitTest {
+
+    @Test
+    public void testRecord() {
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        latencyHistogram.record(TimeUnit.NANOSECONDS.toNanos(500));
+        latencyHistogram.record(TimeUnit.MICROSECONDS.toNanos(1));
+        latencyHistogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        latencyHistogram.record(TimeUnit.MICROSECONDS.toNanos(4));
+
+        final long[] bucketCounts = latencyHistogram.getBucketCounts();
+        assertEquals(LatencyHistogram.BUCKET_COUNT, bucketCounts.length);
+        assertEquals(1, bucketCounts[0]);
+        assertEquals(1, bucketCounts[1]);
+        assertEquals(1, bucketCounts[2]);
+        assertEquals(1, bucketCounts[3]);
+    }
+
+    @Test
+    public void testRecord_WithLatencyOverLastBucket() {
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        latencyHistogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, latencyHistogram.getBucketCounts()[LatencyHistogram.BUCKET_COUNT - 1]);
+    }
+
+    @Test
+    public void testToPercentileMicros() {
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            latencyHistogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            latencyHistogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        final long[] bucketCounts = latencyHistogram.getBucketCounts();
+        assertEquals(16, LatencyHistogram.toPercentileMicros(bucketCounts, 50));
+        assertEquals(16, LatencyHistogram.toPercentileMicros(bucketCounts, 90));
+        assertEquals(16384, LatencyHistogram.toPercentileMicros(bucketCounts, 99));
+        assertEquals(16384, LatencyHistogram.toPercentileMicros(bucketCounts, 100));
+    }
+
+    @Test
+    public void testToPercentileMicros_WithoutLatencies() {
+        assertEquals(0, LatencyHistogram.toPercentileMicros(new LatencyHistogram().getBucketCounts(), 99));
+    }
+
+    @Test
+    public void testToUpperBoundMicros() {
+        assertEquals(1, LatencyHistogram.toUpperBoundMicros(0));
+        assertEquals(1024, LatencyHistogram.toUpperBoundMicros(10));
+    }
+}
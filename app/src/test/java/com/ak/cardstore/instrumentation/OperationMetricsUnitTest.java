@@ -0,0 +1,47 @@
+package com.ak.cardstore.instrumentation;
+
+import com.ak.cardstore.Make;
+import com.ak.cardstore.pojo.OperationMetricsSnapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Abhishek
+ */
+
+public class OperationMetricsUnitTest {
+
+    @Test
+    public void testSnapshot() {
+        final String operation = Make.aString();
+        final OperationMetrics operationMetrics = new OperationMetrics(operation);
+
+        operationMetrics.recordSuccess(TimeUnit.MICROSECONDS.toNanos(10), 16);
+        operationMetrics.recordSuccess(TimeUnit.MICROSECONDS.toNanos(20), 32);
+        operationMetrics.recordFailure(TimeUnit.MICROSECONDS.toNanos(30), new IllegalStateException());
+
+        final OperationMetricsSnapshot operationMetricsSnapshot = operationMetrics.snapshot();
+        assertEquals(operation, operationMetricsSnapshot.getOperation());
+        assertEquals(3, operationMetricsSnapshot.getCallCount());
+        assertEquals(1, operationMetricsSnapshot.getFailureCount());
+        assertEquals(48, operationMetricsSnapshot.getByteCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(60), operationMetricsSnapshot.getTotalLatencyNanos());
+        assertEquals(32, operationMetricsSnapshot.getP50LatencyMicros());
+        assertEquals(32, operationMetricsSnapshot.getMaxLatencyMicros());
+        assertEquals(1L, operationMetricsSnapshot.getFailureCountByExceptionType().get(IllegalStateException.class.getName()));
+    }
+
+    @Test
+    public void testSnapshot_WithoutCalls() {
+        final OperationMetricsSnapshot operationMetricsSnapshot = new OperationMetrics(Make.aString()).snapshot();
+
+        assertEquals(0, operationMetricsSnapshot.getCallCount());
+        assertEquals(0, operationMetricsSnapshot.getP99LatencyMicros());
+        assertTrue(operationMetricsSnapshot.getFailureCountByExceptionType().isEmpty());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ak.cardstore.pojo;
+
+import com.ak.cardstore.Make;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Abhishek
+ */
+
+public class KeyDerivationParametersUnitTest {
+
+    @Test
+    public void testKeyDerivationParameters() {
+        final byte[] salt = Make.aByteArray();
+        final int iterationCount = Make.anInt();
+        final KeyDerivationParameters keyDerivationParameters = KeyDerivationParameters.builder()
+                .salt(salt)
+                .iterationCount(iterationCount)
+                .build();
+        Assertions.assertNotNull(keyDerivationParameters);
+        Assertions.assertArrayEquals(salt, keyDerivationParameters.getSalt());
+        Assertions.assertEquals(iterationCount, keyDerivationParameters.getIterationCount());
+    }
+
+    @Test
+    public void testKeyDerivationParameters_CopiesSalt() {
+        final byte[] salt = Make.aByteArray();
+        final KeyDerivationParameters keyDerivationParameters = KeyDerivationParameters.builder()
+                .salt(salt)
+                .iterationCount(Make.anInt())
+                .build();
+        final KeyDerivationParameters keyDerivationParametersCopy = KeyDerivationParameters.builder()
+                .salt(salt.clone())
+                .iterationCount(keyDerivationParameters.getIterationCount())
+                .build();
+
+        salt[0]++;
+        keyDerivationParameters.getSalt()[0]++;
+
+        Assertions.assertEquals(keyDerivationParametersCopy, keyDerivationParameters);
+        Assertions.assertEquals(keyDerivationParametersCopy.hashCode(), keyDerivationParameters.hashCode());
+    }
+}
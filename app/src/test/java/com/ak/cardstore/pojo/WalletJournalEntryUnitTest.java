@@ -0,0 +1,27 @@
+package com.ak.cardstore.pojo;
+
+import com.ak.cardstore.Make;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Abhishek
+ */
+
+public class WalletJournalEntryUnitTest {
+
+    @Test
+    public void testWalletJournalEntry() {
+        final Card removedCard = Make.aCard();
+        final Card addedCard = Make.aCard();
+        final WalletJournalEntry walletJournalEntry = WalletJournalEntry.builder()
+                .removedCards(ImmutableSet.of(removedCard))
+                .addedCards(ImmutableSet.of(addedCard))
+                .build();
+        Assertions.assertNotNull(walletJournalEntry);
+        Assertions.assertEquals(ImmutableSet.of(removedCard), walletJournalEntry.getRemovedCards());
+        Assertions.assertEquals(ImmutableSet.of(addedCard), walletJournalEntry.getAddedCards());
+    }
+}
@@ -8,7 +8,14 @@ import com.ak.cardstore.pojo.Wallet;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
@@ -68,4 +75,57 @@ public class GsonSerializerUnitTest {
         final EncryptedConfiguration encryptedConfiguration = encryptedConfigurationSerializer.deserialize(encryptedConfigurationSerializer.serialize(testEncryptedConfiguration));
         assertEquals(testEncryptedConfiguration, encryptedConfiguration);
     }
+
+    @Test
+    public void testSerializeTo_WithNull() throws IOException {
+        final Serializer<Wallet> walletSerializer = new GsonSerializer<>(Wallet.class);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        walletSerializer.serializeTo(null, outputStream);
+        assertEquals(0, outputStream.size());
+    }
+
+    @Test
+    public void testDeserializeFrom_WithEmptyStream() throws IOException {
+        final Serializer<Wallet> walletSerializer = new GsonSerializer<>(Wallet.class);
+
+        final Wallet wallet = walletSerializer.deserializeFrom(new ByteArrayInputStream(new byte[0]));
+        assertNull(wallet);
+    }
+
+    @Test
+    public void testSerializeToAndDeserializeFrom() throws IOException {
+        final Serializer<Wallet> walletSerializer = new GsonSerializer<>(Wallet.class);
+
+        final Wallet testWallet = Wallet.builder()
+                .build();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        walletSerializer.serializeTo(testWallet, outputStream);
+        assertFalse(outputStream.size() == 0);
+
+        final Wallet wallet = walletSerializer.deserializeFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(testWallet, wallet);
+    }
+
+    @Test
+    public void testSerializeToByteArray_WithNull() {
+        final Serializer<Wallet> walletSerializer = new GsonSerializer<>(Wallet.class);
+
+        assertNull(walletSerializer.serializeToByteArray(null));
+        assertNull(walletSerializer.deserializeFromByteArray(null));
+    }
+
+    @Test
+    public void testSerializeToByteArrayAndDeserializeFromByteArray() {
+        final Serializer<User> userSerializer = new GsonSerializer<>(User.class);
+
+        final User testUser = Make.aValidUser();
+
+        final byte[] serializedUser = userSerializer.serializeToByteArray(testUser);
+        assertArrayEquals(userSerializer.serialize(testUser).getBytes(StandardCharsets.UTF_8), serializedUser);
+
+        final User user = userSerializer.deserializeFromByteArray(serializedUser);
+        assertEquals(testUser, user);
+    }
 }
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * @author Abhishek
@@ -32,4 +33,67 @@ public class StringUtilUnitTest {
         final String outputString = StringUtil.toUTF8String(outputByteArray);
         Assertions.assertEquals(inputString, outputString);
     }
+
+    @Test
+    public void testUTF8StringConversions_WithBuffer() {
+        final String inputString = Make.aString() + "\u00e9\u20ac\ud83d\udcb3";
+
+        final byte[] buffer = new byte[StringUtil.maxUTF8Length(inputString)];
+        final int length = StringUtil.toUTF8ByteArray(inputString, buffer);
+        Assertions.assertEquals(inputString.getBytes(StandardCharsets.UTF_8).length, length);
+        Assertions.assertEquals(inputString, StringUtil.toUTF8String(buffer, length));
+    }
+
+    @Test
+    public void testToUTF8ByteArray_WithSmallBuffer() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.toUTF8ByteArray(Make.aString(), new byte[1]));
+    }
+
+    @Test
+    public void testBase64StringConversions_WithBuffer() {
+        final byte[] inputByteArray = Make.aByteArray();
+        final byte[] buffer = new byte[inputByteArray.length + 5];
+        System.arraycopy(inputByteArray, 0, buffer, 0, inputByteArray.length);
+
+        final String base64String = StringUtil.toBase64String(buffer, inputByteArray.length);
+        Assertions.assertEquals(StringUtil.toBase64String(inputByteArray), base64String);
+
+        final byte[] outputBuffer = new byte[StringUtil.maxBase64DecodedLength(base64String)];
+        final int length = StringUtil.base64StringToByteArray(base64String, outputBuffer);
+        Assertions.assertEquals(inputByteArray.length, length);
+        Assertions.assertArrayEquals(inputByteArray, Arrays.copyOf(outputBuffer, length));
+    }
+
+    @Test
+    public void testBase64StringToByteArray_WithBuffer() {
+        for (int inputLength = 0; inputLength < 8; inputLength++) {
+            final byte[] inputByteArray = Arrays.copyOf(Make.aByteArray(), inputLength);
+            final String base64String = StringUtil.toBase64String(inputByteArray);
+
+            final byte[] outputBuffer = new byte[StringUtil.maxBase64DecodedLength(base64String)];
+            final int length = StringUtil.base64StringToByteArray(base64String, outputBuffer);
+            Assertions.assertArrayEquals(inputByteArray, Arrays.copyOf(outputBuffer, length));
+
+            final String unpaddedBase64String = StringUtils.stripEnd(base64String, "=");
+            final int unpaddedLength = StringUtil.base64StringToByteArray(unpaddedBase64String, outputBuffer);
+            Assertions.assertArrayEquals(inputByteArray, Arrays.copyOf(outputBuffer, unpaddedLength));
+        }
+    }
+
+    @Test
+    public void testBase64StringToByteArray_WithIllegalCharacter() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.base64StringToByteArray("AB#D", new byte[3]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.base64StringToByteArray("AB\u00e9D", new byte[3]));
+    }
+
+    @Test
+    public void testBase64StringToByteArray_WithInvalidLength() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.base64StringToByteArray("ABCDE", new byte[6]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.base64StringToByteArray("ABC==", new byte[6]));
+    }
+
+    @Test
+    public void testBase64StringToByteArray_WithSmallBuffer() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> StringUtil.base64StringToByteArray("ABCD", new byte[2]));
+    }
 }